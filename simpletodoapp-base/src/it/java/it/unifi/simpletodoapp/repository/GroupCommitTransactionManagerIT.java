@@ -0,0 +1,147 @@
+package it.unifi.simpletodoapp.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.testcontainers.containers.MongoDBContainer;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import it.unifi.simpletodoapp.model.Task;
+import it.unifi.simpletodoapp.repository.mongo.TagMongoRepository;
+import it.unifi.simpletodoapp.repository.mongo.TaskMongoRepository;
+import it.unifi.simpletodoapp.repository.mongo.TransactionManagerMongo;
+
+public class GroupCommitTransactionManagerIT {
+	private static final int MONGO_PORT = 27017;
+	private static final String DB_NAME = "todoapp";
+	private static final String TASKS_COLLECTION = "tasks";
+	private static final String TAGS_COLLECTION = "tags";
+	private static final int CALLERS = 32;
+	private static final int WRITES_PER_CALLER = 50;
+	private static final long WINDOW_MICROS = 500;
+
+	private static final org.slf4j.Logger LOGGER =
+			LoggerFactory.getLogger(GroupCommitTransactionManagerIT.class);
+
+	@ClassRule
+	public static final MongoDBContainer mongoContainer = new MongoDBContainer()
+	.withExposedPorts(MONGO_PORT);
+
+	private MongoClient mongoClient;
+	private TaskMongoRepository taskMongoRepository;
+	private TransactionManagerMongo transactionManagerMongo;
+	private ExecutorService callers;
+
+	@BeforeClass
+	public static void setupMongoLogger() {
+		LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+		Logger rootLogger = loggerContext.getLogger("org.mongodb.driver");
+		rootLogger.setLevel(Level.INFO);
+	}
+
+	@Before
+	public void setup() {
+		// Creates the mongo client, the repositories and the wrapped transaction manager
+		String mongoRsUrl = mongoContainer.getReplicaSetUrl();
+		mongoClient = MongoClients.create(mongoRsUrl);
+		mongoClient.getDatabase(DB_NAME).drop();
+
+		taskMongoRepository = new TaskMongoRepository(mongoClient, DB_NAME, TASKS_COLLECTION);
+		TagMongoRepository tagMongoRepository = new TagMongoRepository(mongoClient, DB_NAME, TAGS_COLLECTION);
+		taskMongoRepository.ensureIndexes();
+		tagMongoRepository.ensureIndexes();
+		transactionManagerMongo = new TransactionManagerMongo(mongoClient, taskMongoRepository, tagMongoRepository);
+
+		callers = Executors.newFixedThreadPool(CALLERS);
+	}
+
+	@After
+	public void tearDown() {
+		callers.shutdownNow();
+		mongoClient.close();
+	}
+
+	@AfterClass
+	public static void stopContainer() {
+		mongoContainer.stop();
+	}
+
+	@Test
+	public void testThroughputOfConcurrentWritesWithAndWithoutGroupCommit() throws Exception {
+		// Setup phase
+		GroupCommitTransactionManager groupCommitTransactionManager =
+				new GroupCommitTransactionManager(transactionManagerMongo, WINDOW_MICROS);
+		groupCommitTransactionManager.start();
+
+		// Exercise phase: every write saves a task of its own
+		long aloneThroughput = measureWritesPerSecond(transactionManagerMongo, "alone");
+		long groupedThroughput = measureWritesPerSecond(groupCommitTransactionManager, "grouped");
+		groupCommitTransactionManager.stop();
+
+		LOGGER.info("{} callers saving tasks: {} writes/s committed alone, {} writes/s grouped",
+				CALLERS, aloneThroughput, groupedThroughput);
+		LOGGER.info("Group commit: {} groups of {} writes, {} committed again one at a time",
+				groupCommitTransactionManager.getGroups(), groupCommitTransactionManager.getGroupedWrites(),
+				groupCommitTransactionManager.getFallbackGroups());
+
+		// Verify phase: the throughput is only reported, every write must be committed
+		List<Task> tasks = transactionManagerMongo.doTaskRead(
+				taskRepository -> taskRepository.findAll());
+		assertThat(tasks)
+		.hasSize(2 * CALLERS * WRITES_PER_CALLER);
+	}
+
+	private long measureWritesPerSecond(TransactionManager transactionManager, String idPrefix)
+			throws Exception {
+		// All callers start writing together once their threads are running
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicInteger nextCaller = new AtomicInteger();
+		List<Future<?>> results = new ArrayList<>();
+
+		for (int i = 0; i < CALLERS; i++) {
+			results.add(callers.submit(() -> {
+				int caller = nextCaller.getAndIncrement();
+				start.await();
+
+				for (int write = 0; write < WRITES_PER_CALLER; write++) {
+					String taskId = idPrefix + "-" + caller + "-" + write;
+					transactionManager.doTaskTransaction(
+							taskRepository -> {
+								taskRepository.save(new Task(taskId, "Task " + taskId));
+								return null;
+							});
+				}
+
+				return null;
+			}));
+		}
+
+		long startNanos = System.nanoTime();
+		start.countDown();
+
+		for (Future<?> result : results)
+			result.get();
+
+		long elapsedNanos = System.nanoTime() - startNanos;
+		return (long) CALLERS * WRITES_PER_CALLER * 1_000_000_000L / elapsedNanos;
+	}
+}
@@ -0,0 +1,123 @@
+package it.unifi.simpletodoapp.repository.mongo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.bson.Document;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.testcontainers.containers.MongoDBContainer;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoDatabase;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import it.unifi.simpletodoapp.model.Task;
+
+public class TransactionManagerReadLatencyIT {
+	private static final int MONGO_PORT = 27017;
+	private static final String DB_NAME = "todoapp";
+	private static final String TASKS_COLLECTION = "tasks";
+	private static final String TAGS_COLLECTION = "tags";
+	private static final int TASKS = 100;
+	private static final int WARMUP_ITERATIONS = 50;
+	private static final int MEASURED_ITERATIONS = 300;
+
+	private static final org.slf4j.Logger LOGGER =
+			LoggerFactory.getLogger(TransactionManagerReadLatencyIT.class);
+
+	@ClassRule
+	public static final MongoDBContainer mongoContainer = new MongoDBContainer()
+	.withExposedPorts(MONGO_PORT);
+
+	private MongoClient mongoClient;
+	private TransactionManagerMongo transactionManagerMongo;
+
+	@BeforeClass
+	public static void setupMongoLogger() {
+		LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+		Logger rootLogger = loggerContext.getLogger("org.mongodb.driver");
+		rootLogger.setLevel(Level.INFO);
+	}
+
+	@Before
+	public void setup() {
+		/* Creates the mongo client, both repositories and the transaction manager,
+		 * then fills the tasks collection with the documents read by the benchmark */
+		String mongoRsUrl = mongoContainer.getReplicaSetUrl();
+		mongoClient = MongoClients.create(mongoRsUrl);
+
+		MongoDatabase database = mongoClient.getDatabase(DB_NAME);
+		database.drop();
+
+		TaskMongoRepository taskMongoRepository = new TaskMongoRepository(mongoClient, DB_NAME, TASKS_COLLECTION);
+		TagMongoRepository tagMongoRepository = new TagMongoRepository(mongoClient, DB_NAME, TAGS_COLLECTION);
+		taskMongoRepository.ensureIndexes();
+		tagMongoRepository.ensureIndexes();
+		transactionManagerMongo = new TransactionManagerMongo(mongoClient, taskMongoRepository, tagMongoRepository);
+
+		List<Document> documents = new ArrayList<>();
+		for (int i = 0; i < TASKS; i++) {
+			documents.add(new Document()
+					.append("id", String.valueOf(i))
+					.append("description", "Task " + i)
+					.append("tags", Collections.emptyList()));
+		}
+		database.getCollection(TASKS_COLLECTION).insertMany(documents);
+	}
+
+	@After
+	public void tearDown() {
+		mongoClient.close();
+	}
+
+	@AfterClass
+	public static void stopContainer() {
+		mongoContainer.stop();
+	}
+
+	@Test
+	public void testReadLatencyWithAndWithoutTransaction() {
+		// Setup phase
+		Supplier<List<Task>> transactionalRead = () -> transactionManagerMongo.doTaskTransaction(
+				taskRepository -> taskRepository.findAll());
+		Supplier<List<Task>> readOnlyRead = () -> transactionManagerMongo.doTaskRead(
+				taskRepository -> taskRepository.findAll());
+
+		// Exercise phase: both paths are warmed up before being measured
+		measureAverageMicros(transactionalRead, WARMUP_ITERATIONS);
+		measureAverageMicros(readOnlyRead, WARMUP_ITERATIONS);
+		long transactionalMicros = measureAverageMicros(transactionalRead, MEASURED_ITERATIONS);
+		long readOnlyMicros = measureAverageMicros(readOnlyRead, MEASURED_ITERATIONS);
+
+		LOGGER.info("findAll of {} tasks: {} us with transaction, {} us read-only",
+				TASKS, transactionalMicros, readOnlyMicros);
+
+		// Verify phase: the latency is only reported, both paths must read the same data
+		assertThat(readOnlyRead.get())
+		.hasSize(TASKS)
+		.isEqualTo(transactionalRead.get());
+	}
+
+	private long measureAverageMicros(Supplier<List<Task>> read, int iterations) {
+		long start = System.nanoTime();
+
+		for (int i = 0; i < iterations; i++) {
+			read.get();
+		}
+
+		return (System.nanoTime() - start) / iterations / 1000;
+	}
+}
@@ -3,6 +3,8 @@ package it.unifi.simpletodoapp.repository.mongo;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertThrows;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
@@ -72,8 +74,8 @@ public class TransactionManagerRepositoriesIT {
 		mongoDatabase = mongoClient.getDatabase(DB_NAME);
 
 		mongoDatabase.drop();
-		mongoDatabase.createCollection(TASKS_COLLECTION);
-		mongoDatabase.createCollection(TAGS_COLLECTION);
+		taskMongoRepository.ensureIndexes();
+		tagMongoRepository.ensureIndexes();
 		taskCollection = mongoDatabase.getCollection(TASKS_COLLECTION);
 		tagCollection = mongoDatabase.getCollection(TAGS_COLLECTION);
 	}
@@ -98,8 +100,8 @@ public class TransactionManagerRepositoriesIT {
 
 		// Exercise phase
 		transactionManagerMongo.doTaskTransaction(
-				(taskMongoRepository, clientSession) -> {
-					taskMongoRepository.save(task, clientSession);
+				taskRepository -> {
+					taskRepository.save(task);
 					return null;
 				});
 
@@ -117,8 +119,8 @@ public class TransactionManagerRepositoriesIT {
 		// Exercise and verify phases
 		MongoException exception = assertThrows(MongoException.class,
 				() -> transactionManagerMongo.doTaskTransaction(
-						(taskMongoRepository, clientSession) -> {
-							taskMongoRepository.save(task, clientSession);
+						taskRepository -> {
+							taskRepository.save(task);
 							return null;
 						}));
 		assertThat(exception.getMessage())
@@ -132,8 +134,8 @@ public class TransactionManagerRepositoriesIT {
 
 		// Exercise phase
 		transactionManagerMongo.doTagTransaction(
-				(tagMongoRepository, clientSession) -> {
-					tagMongoRepository.save(tag, clientSession);
+				tagRepository -> {
+					tagRepository.save(tag);
 					return null;
 				});
 
@@ -151,8 +153,8 @@ public class TransactionManagerRepositoriesIT {
 		// Exercise and verify phases
 		MongoException exception = assertThrows(MongoException.class,
 				() -> transactionManagerMongo.doTagTransaction(
-						(tagMongoRepository, clientSession) -> {
-							tagMongoRepository.save(tag, clientSession);
+						tagRepository -> {
+							tagRepository.save(tag);
 							return null;
 						}));
 		assertThat(exception.getMessage())
@@ -167,12 +169,12 @@ public class TransactionManagerRepositoriesIT {
 
 		// Exercise phase
 		transactionManagerMongo.doCompositeTransaction(
-				(taskMongoRepository, tagMongoRepository, clientSession) -> {
-					taskMongoRepository.save(task, clientSession);
-					tagMongoRepository.save(tag, clientSession);
+				(taskRepository, tagRepository) -> {
+					taskRepository.save(task);
+					tagRepository.save(tag);
 
-					taskMongoRepository.addTagToTask(task.getId(), tag.getId(), clientSession);
-					tagMongoRepository.addTaskToTag(tag.getId(), task.getId(), clientSession);
+					taskRepository.addTagToTask(task.getId(), tag.getId());
+					tagRepository.addTaskToTag(tag.getId(), task.getId());
 					return null;
 				});
 
@@ -193,15 +195,74 @@ public class TransactionManagerRepositoriesIT {
 		// Exercise and verify phases
 		MongoException exception = assertThrows(MongoException.class,
 				() -> transactionManagerMongo.doCompositeTransaction(
-						(taskMongoRepository, tagMongoRepository, clientSession) -> {
-							taskMongoRepository.save(task, clientSession);
-							tagMongoRepository.save(tag, clientSession);
+						(taskRepository, tagRepository) -> {
+							taskRepository.save(task);
+							tagRepository.save(tag);
 							return null;
 						}));
 		assertThat(exception.getMessage())
 		.isEqualTo("Composite transaction failed, aborting");
 	}
 
+	@Test
+	public void testTaskRead() {
+		// Setup phase
+		Task task = new Task("1", "Start using TDD");
+		taskCollection.insertOne(new Document()
+				.append("id", task.getId())
+				.append("description", task.getDescription())
+				.append("tags", Collections.emptyList()));
+
+		// Exercise phase
+		List<Task> retrievedTasks = transactionManagerMongo.doTaskRead(
+				taskRepository -> taskRepository.findAll());
+
+		// Verify phase
+		assertThat(retrievedTasks)
+		.containsExactly(task);
+	}
+
+	@Test
+	public void testTagRead() {
+		// Setup phase
+		Tag tag = new Tag("1", "Work");
+		tagCollection.insertOne(new Document()
+				.append("id", tag.getId())
+				.append("name", tag.getName())
+				.append("tasks", Collections.emptyList()));
+
+		// Exercise phase
+		List<Tag> retrievedTags = transactionManagerMongo.doTagRead(
+				tagRepository -> tagRepository.findAll());
+
+		// Verify phase
+		assertThat(retrievedTags)
+		.containsExactly(tag);
+	}
+
+	@Test
+	public void testCompositeReadSeesPreviouslyCommittedTransaction() {
+		// Setup phase
+		Task task = new Task("1", "Start using TDD");
+		Tag tag = new Tag("1", "Work");
+		transactionManagerMongo.doCompositeTransaction(
+				(taskRepository, tagRepository) -> {
+					taskRepository.save(task);
+					tagRepository.save(tag);
+					return null;
+				});
+
+		// Exercise phase
+		List<Object> retrievedEntities = transactionManagerMongo.doCompositeRead(
+				(taskRepository, tagRepository) -> Arrays.asList(
+						taskRepository.findById(task.getId()),
+						tagRepository.findById(tag.getId())));
+
+		// Verify phase
+		assertThat(retrievedEntities)
+		.containsExactly(task, tag);
+	}
+
 	private List<Task> getAllTasksFromDatabase() {
 		// Private method to directly retrieve all tasks from the collection
 		return StreamSupport
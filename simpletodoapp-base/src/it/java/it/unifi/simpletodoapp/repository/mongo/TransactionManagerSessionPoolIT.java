@@ -0,0 +1,173 @@
+package it.unifi.simpletodoapp.repository.mongo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bson.Document;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.testcontainers.containers.MongoDBContainer;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoDatabase;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import it.unifi.simpletodoapp.model.Task;
+
+public class TransactionManagerSessionPoolIT {
+	private static final int MONGO_PORT = 27017;
+	private static final String DB_NAME = "todoapp";
+	private static final String TASKS_COLLECTION = "tasks";
+	private static final String TAGS_COLLECTION = "tags";
+	private static final int TASKS = 100;
+	private static final int CALLERS = 64;
+	private static final int WARMUP_OPERATIONS = 20;
+	private static final int MEASURED_OPERATIONS = 100;
+
+	private static final org.slf4j.Logger LOGGER =
+			LoggerFactory.getLogger(TransactionManagerSessionPoolIT.class);
+
+	@ClassRule
+	public static final MongoDBContainer mongoContainer = new MongoDBContainer()
+	.withExposedPorts(MONGO_PORT);
+
+	private MongoClient mongoClient;
+	private TaskMongoRepository taskMongoRepository;
+	private TagMongoRepository tagMongoRepository;
+	private ExecutorService callers;
+
+	@BeforeClass
+	public static void setupMongoLogger() {
+		LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+		Logger rootLogger = loggerContext.getLogger("org.mongodb.driver");
+		rootLogger.setLevel(Level.INFO);
+	}
+
+	@Before
+	public void setup() {
+		/* Creates the mongo client and both repositories, then fills the tasks
+		 * collection with the documents read by the benchmark */
+		String mongoRsUrl = mongoContainer.getReplicaSetUrl();
+		mongoClient = MongoClients.create(mongoRsUrl);
+
+		MongoDatabase database = mongoClient.getDatabase(DB_NAME);
+		database.drop();
+
+		taskMongoRepository = new TaskMongoRepository(mongoClient, DB_NAME, TASKS_COLLECTION);
+		tagMongoRepository = new TagMongoRepository(mongoClient, DB_NAME, TAGS_COLLECTION);
+		taskMongoRepository.ensureIndexes();
+		tagMongoRepository.ensureIndexes();
+
+		List<Document> documents = new ArrayList<>();
+		for (int i = 0; i < TASKS; i++) {
+			documents.add(new Document()
+					.append("id", String.valueOf(i))
+					.append("description", "Task " + i)
+					.append("tags", Collections.emptyList()));
+		}
+		database.getCollection(TASKS_COLLECTION).insertMany(documents);
+
+		callers = Executors.newFixedThreadPool(CALLERS);
+	}
+
+	@After
+	public void tearDown() {
+		callers.shutdownNow();
+		mongoClient.close();
+	}
+
+	@AfterClass
+	public static void stopContainer() {
+		mongoContainer.stop();
+	}
+
+	@Test
+	public void testThroughputOfConcurrentCallersWithAndWithoutSessionPool() throws Exception {
+		// Setup phase
+		TransactionManagerMongo unpooledManager =
+				new TransactionManagerMongo(mongoClient, taskMongoRepository, tagMongoRepository);
+		TransactionManagerMongo pooledManager =
+				new TransactionManagerMongo(mongoClient, taskMongoRepository, tagMongoRepository);
+		ClientSessionPool clientSessionPool = new ClientSessionPool(mongoClient, CALLERS);
+		pooledManager.useSessionPool(clientSessionPool);
+
+		// Exercise phase: both managers are warmed up before being measured
+		measureOperationsPerSecond(unpooledManager, WARMUP_OPERATIONS);
+		measureOperationsPerSecond(pooledManager, WARMUP_OPERATIONS);
+		long unpooledThroughput = measureOperationsPerSecond(unpooledManager, MEASURED_OPERATIONS);
+		long pooledThroughput = measureOperationsPerSecond(pooledManager, MEASURED_OPERATIONS);
+
+		LOGGER.info("{} callers reading and updating tasks: {} ops/s without pool, {} ops/s with pool",
+				CALLERS, unpooledThroughput, pooledThroughput);
+		LOGGER.info("Session pool: {} sessions created, {} reused, {} discarded",
+				clientSessionPool.getCreatedSessions(), clientSessionPool.getReusedSessions(),
+				clientSessionPool.getDiscardedSessions());
+
+		// Verify phase: the throughput is only reported, sessions must be reused
+		assertThat(clientSessionPool.getCreatedSessions())
+		.isLessThanOrEqualTo(CALLERS);
+		assertThat(clientSessionPool.getDiscardedSessions())
+		.isZero();
+		List<Task> tasks = pooledManager.doTaskRead(
+				taskRepository -> taskRepository.findAll());
+		assertThat(tasks)
+		.hasSize(TASKS);
+	}
+
+	private long measureOperationsPerSecond(TransactionManagerMongo transactionManagerMongo,
+			int operationsPerCaller) throws Exception {
+		/* Every caller alternates a read with a transaction updating a task of its
+		 * own, all of them starting together once their threads are running */
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicInteger nextCaller = new AtomicInteger();
+		List<Future<?>> results = new ArrayList<>();
+
+		for (int i = 0; i < CALLERS; i++) {
+			results.add(callers.submit(() -> {
+				String taskId = String.valueOf(nextCaller.getAndIncrement() % TASKS);
+				start.await();
+
+				for (int operation = 0; operation < operationsPerCaller; operation++) {
+					if (operation % 2 == 0) {
+						transactionManagerMongo.doTaskRead(
+								taskRepository -> taskRepository.findById(taskId));
+					} else {
+						transactionManagerMongo.doTaskTransaction(
+								taskRepository -> {
+									Task task = taskRepository.findById(taskId);
+									taskRepository.addTagToTask(task.getId(), "0");
+									return taskRepository.removeTagFromTask(task.getId(), "0");
+								});
+					}
+				}
+
+				return null;
+			}));
+		}
+
+		long startNanos = System.nanoTime();
+		start.countDown();
+
+		for (Future<?> result : results)
+			result.get();
+
+		long elapsedNanos = System.nanoTime() - startNanos;
+		return (long) CALLERS * operationsPerCaller * 1_000_000_000L / elapsedNanos;
+	}
+}
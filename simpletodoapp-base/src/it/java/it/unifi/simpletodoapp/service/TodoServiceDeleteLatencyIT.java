@@ -0,0 +1,132 @@
+package it.unifi.simpletodoapp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.bson.Document;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.testcontainers.containers.MongoDBContainer;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import it.unifi.simpletodoapp.model.Tag;
+import it.unifi.simpletodoapp.repository.mongo.TagMongoRepository;
+import it.unifi.simpletodoapp.repository.mongo.TaskMongoRepository;
+import it.unifi.simpletodoapp.repository.mongo.TransactionManagerMongo;
+
+public class TodoServiceDeleteLatencyIT {
+	private static final int MONGO_PORT = 27017;
+	private static final String DB_NAME = "todoapp";
+	private static final String TASKS_COLLECTION = "tasks";
+	private static final String TAGS_COLLECTION = "tags";
+	private static final int[] TAG_SIZES = { 10, 100, 1000, 10000 };
+
+	private static final org.slf4j.Logger LOGGER =
+			LoggerFactory.getLogger(TodoServiceDeleteLatencyIT.class);
+
+	@ClassRule
+	public static final MongoDBContainer mongoContainer = new MongoDBContainer()
+	.withExposedPorts(MONGO_PORT);
+
+	private TodoService todoService;
+	private MongoClient mongoClient;
+	private MongoCollection<Document> taskCollection;
+	private MongoCollection<Document> tagCollection;
+
+	@BeforeClass
+	public static void setupMongoLogger() {
+		LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+		Logger rootLogger = loggerContext.getLogger("org.mongodb.driver");
+		rootLogger.setLevel(Level.INFO);
+	}
+
+	@Before
+	public void setup() {
+		/* Creates the mongo client, both repositories, the transaction manager and
+		 * the service on an empty database */
+		String mongoRsUrl = mongoContainer.getReplicaSetUrl();
+		mongoClient = MongoClients.create(mongoRsUrl);
+
+		MongoDatabase database = mongoClient.getDatabase(DB_NAME);
+		database.drop();
+
+		TaskMongoRepository taskMongoRepository = new TaskMongoRepository(mongoClient, DB_NAME, TASKS_COLLECTION);
+		TagMongoRepository tagMongoRepository = new TagMongoRepository(mongoClient, DB_NAME, TAGS_COLLECTION);
+		taskMongoRepository.ensureIndexes();
+		tagMongoRepository.ensureIndexes();
+		todoService = new TodoService(
+				new TransactionManagerMongo(mongoClient, taskMongoRepository, tagMongoRepository));
+
+		taskCollection = database.getCollection(TASKS_COLLECTION);
+		tagCollection = database.getCollection(TAGS_COLLECTION);
+	}
+
+	@After
+	public void tearDown() {
+		mongoClient.close();
+	}
+
+	@AfterClass
+	public static void stopContainer() {
+		mongoContainer.stop();
+	}
+
+	@Test
+	public void testDeleteTagLatencyAgainstTagSize() {
+		for (int tagSize : TAG_SIZES) {
+			// Setup phase
+			Tag tag = new Tag("tag-" + tagSize, "Tag with " + tagSize + " tasks");
+			addTagWithTasks(tag, tagSize);
+
+			// Exercise phase
+			long start = System.nanoTime();
+			todoService.deleteTag(tag);
+			long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+			LOGGER.info("deleteTag of a tag with {} tasks: {} ms", tagSize, elapsedMillis);
+
+			// Verify phase: the latency is only reported, the cascade must be complete
+			assertThat(taskCollection.countDocuments(Filters.eq("tags", tag.getId())))
+			.isZero();
+			assertThat(tagCollection.countDocuments(Filters.eq("id", tag.getId())))
+			.isZero();
+		}
+	}
+
+	private void addTagWithTasks(Tag tag, int tagSize) {
+		// Private method to directly insert a tag and all of its tasks in the collections
+		List<Document> tasks = new ArrayList<>();
+		List<String> taskIds = new ArrayList<>();
+
+		for (int i = 0; i < tagSize; i++) {
+			String taskId = tag.getId() + "-task-" + i;
+			taskIds.add(taskId);
+			tasks.add(new Document()
+					.append("id", taskId)
+					.append("description", "Task " + i)
+					.append("tags", Collections.singletonList(tag.getId())));
+		}
+
+		taskCollection.insertMany(tasks);
+		tagCollection.insertOne(new Document()
+				.append("id", tag.getId())
+				.append("name", tag.getName())
+				.append("tasks", taskIds));
+	}
+}
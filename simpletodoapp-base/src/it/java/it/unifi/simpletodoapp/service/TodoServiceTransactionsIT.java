@@ -1,6 +1,7 @@
 package it.unifi.simpletodoapp.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertThrows;
 
 import java.util.Collections;
 import java.util.List;
@@ -28,6 +29,7 @@ import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
 import it.unifi.simpletodoapp.model.Tag;
 import it.unifi.simpletodoapp.model.Task;
+import it.unifi.simpletodoapp.repository.TagRepositoryException;
 import it.unifi.simpletodoapp.repository.mongo.TagMongoRepository;
 import it.unifi.simpletodoapp.repository.mongo.TaskMongoRepository;
 import it.unifi.simpletodoapp.repository.mongo.TransactionManagerMongo;
@@ -75,8 +77,8 @@ public class TodoServiceTransactionsIT {
 		MongoDatabase database = mongoClient.getDatabase(DB_NAME);
 
 		database.drop();
-		database.createCollection(TASKS_COLLECTION);
-		database.createCollection(TAGS_COLLECTION);
+		taskMongoRepository.ensureIndexes();
+		tagMongoRepository.ensureIndexes();
 		taskCollection = database.getCollection(TASKS_COLLECTION);
 		tagCollection = database.getCollection(TAGS_COLLECTION);
 	}
@@ -267,6 +269,45 @@ public class TodoServiceTransactionsIT {
 		assertThat(retrievedTasks).containsExactly("1");
 	}
 
+	@Test
+	public void testBatchCreatesTaskWithItsTags() {
+		// Setup phase
+		Task task = new Task("1", "Start using TDD");
+		Tag firstTag = new Tag("1", "Work");
+		Tag secondTag = new Tag("2", "Study");
+		addTagToCollection(firstTag, Collections.emptyList());
+
+		// Exercise phase: later operations see the changes of the previous ones
+		todoService.newBatch()
+		.saveTask(task)
+		.saveTag(secondTag)
+		.addTagToTask(task.getId(), firstTag.getId())
+		.addTagToTask(task.getId(), secondTag.getId())
+		.commit();
+
+		// Verify phase
+		assertThat(getTagsAssignedToTask(task)).containsExactly(firstTag.getId(), secondTag.getId());
+		assertThat(getTasksAssignedToTag(firstTag)).containsExactly(task.getId());
+		assertThat(getTasksAssignedToTag(secondTag)).containsExactly(task.getId());
+	}
+
+	@Test
+	public void testFailedBatchLeavesDatabaseUnchanged() {
+		// Setup phase
+		Task task = new Task("1", "Start using TDD");
+		TodoBatch batch = todoService.newBatch()
+				.saveTask(task)
+				.addTagToTask(task.getId(), "1");
+
+		// Exercise phase
+		TagRepositoryException exception = assertThrows(TagRepositoryException.class, batch::commit);
+
+		// Verify phase
+		assertThat(exception.getMessage()).isEqualTo("No tag with ID 1");
+		assertThat(batch.getFailedOperation()).isEqualTo(1);
+		assertThat(getAllTasksFromDatabase()).isEmpty();
+	}
+
 	private void addTaskToCollection(Task task, List<String> tags) {
 		// Private method to directly insert a task in the collection
 		taskCollection.insertOne(new Document()
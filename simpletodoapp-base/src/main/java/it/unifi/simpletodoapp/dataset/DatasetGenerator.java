@@ -0,0 +1,158 @@
+package it.unifi.simpletodoapp.dataset;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import it.unifi.simpletodoapp.model.Tag;
+import it.unifi.simpletodoapp.model.Task;
+import it.unifi.simpletodoapp.repository.TransactionManager;
+
+/* Fills the storage with synthetic tasks and tags: each task is assigned a
+ * number of distinct tags uniformly drawn up to a maximum, the tags being
+ * drawn by popularity following a Zipf distribution. Both sides of every
+ * assignment are written in the same transaction, one for each batch of tasks,
+ * the tasks being inserted along with their tags and the tags updated with one
+ * bulk write. The same seed always generates the same dataset, whatever the
+ * batch size. IDs are zero-padded numbers, so they sort like the numbers */
+public class DatasetGenerator {
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+
+	private static final String[] ACTIONS = { "Buy", "Call", "Write", "Review", "Fix", "Plan", "Read",
+			"Clean", "Book", "Prepare", "Send", "Pay", "Organize", "Check", "Update" };
+	private static final String[] SUBJECTS = { "groceries", "the report", "the tests", "the meeting",
+			"the car", "a flight", "the slides", "the budget", "the garden", "the invoice", "a gift",
+			"the documentation", "the dentist", "the backups", "the release notes" };
+	private static final String[] TAG_NAMES = { "work", "home", "urgent", "errands", "finance",
+			"health", "family", "study", "travel", "shopping", "project", "someday" };
+
+	private final int tasks;
+	private final int tags;
+	private final int maxTagsPerTask;
+	private final ZipfDistribution popularity;
+	private final long seed;
+	private int batchSize = DEFAULT_BATCH_SIZE;
+
+	private long assignments;
+
+	public DatasetGenerator(int tasks, int tags, int maxTagsPerTask, double zipfExponent, long seed) {
+		if (tasks < 0) {
+			throw new IllegalArgumentException("Tasks must not be negative, got " + tasks);
+		}
+
+		if (tags <= 0) {
+			throw new IllegalArgumentException("Tags must be positive, got " + tags);
+		}
+
+		if (maxTagsPerTask < 0 || maxTagsPerTask > tags) {
+			throw new IllegalArgumentException("Tags per task must be between 0 and " + tags + ", got " + maxTagsPerTask);
+		}
+
+		this.popularity = new ZipfDistribution(tags, zipfExponent);
+		this.tasks = tasks;
+		this.tags = tags;
+		this.maxTagsPerTask = maxTagsPerTask;
+		this.seed = seed;
+	}
+
+	public void useBatchSize(int batchSize) {
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("Batch size must be positive, got " + batchSize);
+		}
+
+		this.batchSize = batchSize;
+	}
+
+	public long getAssignments() {
+		return assignments;
+	}
+
+	public void generate(TransactionManager transactionManager) {
+		/* Tags come first, so that every batch of tasks can update them; their
+		 * ranks of popularity are shuffled, so that the most popular tags are
+		 * spread over the IDs rather than being the first ones */
+		SplittableRandom random = new SplittableRandom(seed);
+		String[] tagIdsByRank = new String[tags];
+		assignments = 0;
+
+		for (int tag = 0; tag < tags; tag++)
+			tagIdsByRank[tag] = id(tag, tags);
+
+		for (int rank = tags - 1; rank > 0; rank--) {
+			int other = random.nextInt(rank + 1);
+			String tagId = tagIdsByRank[rank];
+			tagIdsByRank[rank] = tagIdsByRank[other];
+			tagIdsByRank[other] = tagId;
+		}
+
+		for (int first = 0; first < tags; first += batchSize)
+			saveTags(transactionManager, first, Math.min(first + batchSize, tags));
+
+		for (int first = 0; first < tasks; first += batchSize)
+			saveTasks(transactionManager, random, tagIdsByRank, first, Math.min(first + batchSize, tasks));
+	}
+
+	private void saveTags(TransactionManager transactionManager, int first, int last) {
+		List<Tag> batch = new ArrayList<>(last - first);
+
+		for (int tag = first; tag < last; tag++)
+			batch.add(new Tag(id(tag, tags), TAG_NAMES[tag % TAG_NAMES.length] + "-" + tag));
+
+		transactionManager.doTagTransaction(tagRepository -> {
+			tagRepository.saveAll(batch);
+			return null;
+		});
+	}
+
+	private void saveTasks(TransactionManager transactionManager, SplittableRandom random,
+			String[] tagIdsByRank, int first, int last) {
+		// Generated before the transaction, which may run more than once
+		List<Task> batch = new ArrayList<>(last - first);
+		Map<String, List<String>> tagIdsByTaskId = new LinkedHashMap<>();
+		Map<String, List<String>> taskIdsByTagId = new LinkedHashMap<>();
+
+		for (int task = first; task < last; task++) {
+			String taskId = id(task, tasks);
+			batch.add(new Task(taskId, ACTIONS[random.nextInt(ACTIONS.length)] + " "
+					+ SUBJECTS[random.nextInt(SUBJECTS.length)]));
+
+			int tagsOfTask = random.nextInt(maxTagsPerTask + 1);
+			Set<Integer> ranks = new LinkedHashSet<>();
+
+			for (int tag = 0; tag < tagsOfTask; tag++) {
+				// A rank drawn again is replaced by the next free one, so that drawing always ends
+				int rank = popularity.sample(random);
+
+				while (!ranks.add(rank))
+					rank = (rank + 1) % tags;
+			}
+
+			List<String> tagIds = new ArrayList<>(tagsOfTask);
+			for (int rank : ranks)
+				tagIds.add(tagIdsByRank[rank]);
+
+			tagIdsByTaskId.put(taskId, tagIds);
+
+			for (String tagId : tagIds)
+				taskIdsByTagId.computeIfAbsent(tagId, key -> new ArrayList<>()).add(taskId);
+
+			assignments += tagsOfTask;
+		}
+
+		transactionManager.doCompositeTransaction((taskRepository, tagRepository) -> {
+			taskRepository.saveAll(batch, tagIdsByTaskId);
+			tagRepository.addTasksToTags(taskIdsByTagId);
+			return null;
+		});
+	}
+
+	private static String id(int index, int count) {
+		// As many digits as the largest index needs
+		int digits = String.valueOf(Math.max(count - 1, 0)).length();
+		return String.format("%0" + digits + "d", index);
+	}
+}
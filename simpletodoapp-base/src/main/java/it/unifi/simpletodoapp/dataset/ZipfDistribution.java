@@ -0,0 +1,52 @@
+package it.unifi.simpletodoapp.dataset;
+
+import java.util.SplittableRandom;
+
+/* Ranks from 0 to size - 1 drawn with a probability proportional to
+ * 1 / (rank + 1)^exponent, by binary search of a uniform draw within the
+ * cumulative weights: an exponent of 0 makes every rank equally likely, while
+ * larger ones make the first ranks ever more frequent */
+public final class ZipfDistribution {
+	private final double[] cumulativeWeights;
+
+	public ZipfDistribution(int size, double exponent) {
+		if (size <= 0) {
+			throw new IllegalArgumentException("Zipf distribution size must be positive, got " + size);
+		}
+
+		if (exponent < 0 || Double.isNaN(exponent)) {
+			throw new IllegalArgumentException("Zipf exponent must not be negative, got " + exponent);
+		}
+
+		cumulativeWeights = new double[size];
+		double total = 0;
+
+		for (int rank = 0; rank < size; rank++) {
+			total += 1 / Math.pow(rank + 1.0, exponent);
+			cumulativeWeights[rank] = total;
+		}
+	}
+
+	public int sample(SplittableRandom random) {
+		// First rank whose cumulative weight exceeds the draw
+		double draw = random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1];
+		int low = 0;
+		int high = cumulativeWeights.length - 1;
+
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+
+			if (cumulativeWeights[middle] > draw)
+				high = middle;
+			else
+				low = middle + 1;
+		}
+
+		return low;
+	}
+
+	public double probability(int rank) {
+		double previous = rank == 0 ? 0 : cumulativeWeights[rank - 1];
+		return (cumulativeWeights[rank] - previous) / cumulativeWeights[cumulativeWeights.length - 1];
+	}
+}
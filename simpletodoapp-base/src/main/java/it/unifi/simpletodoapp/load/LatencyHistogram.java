@@ -0,0 +1,122 @@
+package it.unifi.simpletodoapp.load;
+
+import java.util.concurrent.TimeUnit;
+
+/* Histogram of latencies in nanoseconds with a bounded relative error, laid
+ * out like HdrHistogram: values below 256 have a bucket each, while every
+ * further power of two is split in 128 buckets, so that any value is reported
+ * within 1% of what was recorded, whatever its magnitude, in a few thousand
+ * counters. Values above the highest trackable one are counted in the last
+ * bucket, the exact maximum being kept apart. Recording is not synchronized:
+ * each thread records in a histogram of its own, merged by add once done */
+public class LatencyHistogram {
+	public static final long DEFAULT_HIGHEST_TRACKABLE_NANOS = TimeUnit.HOURS.toNanos(1);
+
+	private static final int SUB_BUCKET_BITS = 8;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2;
+
+	private final long highestTrackableValue;
+	private final long[] counts;
+	private long totalCount;
+	private long maxValue;
+
+	public LatencyHistogram() {
+		this(DEFAULT_HIGHEST_TRACKABLE_NANOS);
+	}
+
+	public LatencyHistogram(long highestTrackableValue) {
+		if (highestTrackableValue < SUB_BUCKET_COUNT) {
+			throw new IllegalArgumentException("Highest trackable value must be at least "
+					+ SUB_BUCKET_COUNT + ", got " + highestTrackableValue);
+		}
+
+		this.highestTrackableValue = highestTrackableValue;
+		this.counts = new long[bucketIndex(highestTrackableValue) + 1];
+	}
+
+	public void recordValue(long value) {
+		if (value < 0) {
+			throw new IllegalArgumentException("Latency must not be negative, got " + value);
+		}
+
+		counts[bucketIndex(Math.min(value, highestTrackableValue))]++;
+		totalCount++;
+		maxValue = Math.max(maxValue, value);
+	}
+
+	public void recordValueWithExpectedInterval(long value, long expectedInterval) {
+		/* Corrects the coordinated omission of a load sending a request every
+		 * expected interval, but only once the previous one completed: the
+		 * requests that should have been sent while it was stalled would have
+		 * waited for it, from the whole stall down to one interval, so they are
+		 * recorded as such instead of vanishing from the distribution */
+		recordValue(value);
+
+		if (expectedInterval <= 0)
+			return;
+
+		for (long missingValue = value - expectedInterval; missingValue >= expectedInterval;
+				missingValue -= expectedInterval)
+			recordValue(missingValue);
+	}
+
+	public void add(LatencyHistogram other) {
+		if (other.counts.length != counts.length) {
+			throw new IllegalArgumentException("Cannot add a histogram with a different highest trackable value");
+		}
+
+		for (int index = 0; index < counts.length; index++)
+			counts[index] += other.counts[index];
+
+		totalCount += other.totalCount;
+		maxValue = Math.max(maxValue, other.maxValue);
+	}
+
+	public long getTotalCount() {
+		return totalCount;
+	}
+
+	public long getMaxValue() {
+		return maxValue;
+	}
+
+	public long getValueAtPercentile(double percentile) {
+		/* The highest value of the bucket holding the given share of the
+		 * recorded values, so that the latency is never understated; 0 when
+		 * nothing was recorded */
+		if (percentile < 0 || percentile > 100 || Double.isNaN(percentile)) {
+			throw new IllegalArgumentException("Percentile must be between 0 and 100, got " + percentile);
+		}
+
+		long countAtPercentile = Math.max((long) Math.ceil(percentile / 100 * totalCount), 1);
+		long count = 0;
+
+		for (int index = 0; index < counts.length && totalCount > 0; index++) {
+			count += counts[index];
+
+			if (count >= countAtPercentile)
+				return Math.min(highestEquivalentValue(index), maxValue);
+		}
+
+		return maxValue;
+	}
+
+	private static int bucketIndex(long value) {
+		// Within its power of two, a value is told apart by its highest bits only
+		if (value < SUB_BUCKET_COUNT)
+			return (int) value;
+
+		int magnitude = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+		return magnitude * SUB_BUCKET_HALF_COUNT + (int) (value >>> magnitude);
+	}
+
+	private static long highestEquivalentValue(int index) {
+		if (index < SUB_BUCKET_COUNT)
+			return index;
+
+		int magnitude = index / SUB_BUCKET_HALF_COUNT - 1;
+		long subBucket = index - (long) magnitude * SUB_BUCKET_HALF_COUNT;
+		return ((subBucket + 1) << magnitude) - 1;
+	}
+}
@@ -0,0 +1,366 @@
+package it.unifi.simpletodoapp.load;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import it.unifi.simpletodoapp.dataset.ZipfDistribution;
+import it.unifi.simpletodoapp.model.Task;
+import it.unifi.simpletodoapp.service.TodoService;
+
+/* Drives a TodoService with concurrent workers running a weighted mix of
+ * operations, and measures their latencies. Each worker saves tasks of its
+ * own before the load starts and only reads, assigns and deletes those, so
+ * that failures are never caused by the load itself, while tags are drawn by
+ * a Zipf-distributed popularity over the given ones, the first being the most
+ * popular: the assignments of all workers contend for the same hot tags. An
+ * operation lacking a task to work on, or a tag not yet assigned to it, saves
+ * a new task instead, and is measured as such. The tasks left once the load
+ * ends are deleted, without being measured.
+ *
+ * A closed loop without a target rate runs as fast as the workers can, and
+ * records the time taken by each operation. With a target rate, shared by the
+ * workers, a closed loop waits for the next operation to be due and corrects
+ * the operations missed while stalled, while an open loop records the time
+ * from when an operation was due, so that the queueing caused by a stall is
+ * measured rather than hidden */
+public class LoadGenerator {
+	public static final int DEFAULT_TASKS_PER_WORKER = 100;
+
+	private final TodoService todoService;
+	private final List<String> tagIds;
+	private final int concurrency;
+	private final long seed;
+
+	private final Map<LoadOperation, Integer> weights = new EnumMap<>(LoadOperation.class);
+	private int totalWeight;
+	private ZipfDistribution popularity;
+	private LoadMode mode = LoadMode.CLOSED_LOOP;
+	private double targetRate = 0;
+	private int tasksPerWorker = DEFAULT_TASKS_PER_WORKER;
+
+	public LoadGenerator(TodoService todoService, List<String> tagIds, int concurrency, long seed) {
+		if (concurrency <= 0) {
+			throw new IllegalArgumentException("Concurrency must be positive, got " + concurrency);
+		}
+
+		this.todoService = todoService;
+		this.tagIds = new ArrayList<>(tagIds);
+		this.concurrency = concurrency;
+		this.seed = seed;
+
+		weights.put(LoadOperation.READ, 70);
+		weights.put(LoadOperation.SAVE, 10);
+		weights.put(LoadOperation.ASSIGN, 15);
+		weights.put(LoadOperation.DELETE, 5);
+		totalWeight = 100;
+		popularity = tagIds.isEmpty() ? null : new ZipfDistribution(tagIds.size(), 1);
+	}
+
+	public void useOperationMix(Map<LoadOperation, Integer> mix) {
+		// Operations left out of the mix are never run
+		int mixWeight = 0;
+
+		for (Map.Entry<LoadOperation, Integer> weight : mix.entrySet()) {
+			if (weight.getValue() < 0) {
+				throw new IllegalArgumentException("Weight of " + weight.getKey() + " must not be negative, got "
+						+ weight.getValue());
+			}
+
+			mixWeight += weight.getValue();
+		}
+
+		if (mixWeight <= 0) {
+			throw new IllegalArgumentException("Operation mix must have a positive weight, got " + mix);
+		}
+
+		weights.clear();
+
+		for (LoadOperation operation : LoadOperation.values())
+			weights.put(operation, mix.getOrDefault(operation, 0));
+
+		totalWeight = mixWeight;
+	}
+
+	public void useTagPopularity(double zipfExponent) {
+		if (tagIds.isEmpty()) {
+			throw new IllegalArgumentException("Tag popularity needs at least one tag");
+		}
+
+		popularity = new ZipfDistribution(tagIds.size(), zipfExponent);
+	}
+
+	public void useTargetRate(LoadMode mode, double operationsPerSecond) {
+		// Shared by all workers; 0 lets a closed loop run as fast as it can
+		if (operationsPerSecond < 0 || Double.isNaN(operationsPerSecond)) {
+			throw new IllegalArgumentException("Target rate must not be negative, got " + operationsPerSecond);
+		}
+
+		if (mode == LoadMode.OPEN_LOOP && operationsPerSecond == 0) {
+			throw new IllegalArgumentException("Open-loop load needs a positive target rate");
+		}
+
+		this.mode = mode;
+		this.targetRate = operationsPerSecond;
+	}
+
+	public void useTasksPerWorker(int tasksPerWorker) {
+		if (tasksPerWorker < 0) {
+			throw new IllegalArgumentException("Tasks per worker must not be negative, got " + tasksPerWorker);
+		}
+
+		this.tasksPerWorker = tasksPerWorker;
+	}
+
+	public LoadResult run(long warmup, long duration, TimeUnit unit) throws InterruptedException {
+		if (warmup < 0) {
+			throw new IllegalArgumentException("Warmup must not be negative, got " + warmup);
+		}
+
+		if (duration <= 0) {
+			throw new IllegalArgumentException("Duration must be positive, got " + duration);
+		}
+
+		if (weights.get(LoadOperation.ASSIGN) > 0 && tagIds.isEmpty()) {
+			throw new IllegalArgumentException("Tag assignments need at least one tag");
+		}
+
+		String taskIdPrefix = "load-" + Long.toString(System.currentTimeMillis(), 36) + "-";
+		SplittableRandom random = new SplittableRandom(seed);
+		List<Worker> workers = new ArrayList<>(concurrency);
+
+		for (int worker = 0; worker < concurrency; worker++)
+			workers.add(new Worker(worker, taskIdPrefix + worker + "-", random.split()));
+
+		ExecutorService executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+			Thread thread = new Thread(runnable, "load-worker");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		try {
+			runOnWorkers(executor, workers, Worker::saveInitialTasks);
+
+			// Every schedule starts from the same instant, once the workers are ready
+			long start = System.nanoTime();
+			long measureStart = start + unit.toNanos(warmup);
+			long end = measureStart + unit.toNanos(duration);
+			runOnWorkers(executor, workers, worker -> worker.runLoad(start, measureStart, end));
+
+			LoadResult result = new LoadResult(end - measureStart);
+			for (Worker worker : workers)
+				result.add(worker.histograms, worker.completed, worker.errors);
+
+			runOnWorkers(executor, workers, Worker::deleteTasks);
+			return result;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void runOnWorkers(ExecutorService executor, List<Worker> workers, WorkerPhase phase)
+			throws InterruptedException {
+		List<Callable<Void>> calls = new ArrayList<>(workers.size());
+
+		for (Worker worker : workers) {
+			calls.add(() -> {
+				phase.run(worker);
+				return null;
+			});
+		}
+
+		try {
+			for (Future<Void> future : executor.invokeAll(calls))
+				future.get();
+		} catch (ExecutionException exception) {
+			if (exception.getCause() instanceof RuntimeException)
+				throw (RuntimeException) exception.getCause();
+
+			throw new IllegalStateException(exception.getCause());
+		}
+	}
+
+	@FunctionalInterface
+	private interface WorkerPhase {
+		void run(Worker worker) throws InterruptedException;
+	}
+
+	private static final class LiveTask {
+		private final Task task;
+		private final Set<String> tagIds = new HashSet<>();
+
+		private LiveTask(Task task) {
+			this.task = task;
+		}
+	}
+
+	private final class Worker {
+		private final int index;
+		private final String taskIdPrefix;
+		private final SplittableRandom random;
+		private final List<LiveTask> liveTasks = new ArrayList<>();
+		private long savedTasks;
+
+		private final Map<LoadOperation, LatencyHistogram> histograms = new EnumMap<>(LoadOperation.class);
+		private final Map<LoadOperation, Long> completed = new EnumMap<>(LoadOperation.class);
+		private final Map<LoadOperation, Long> errors = new EnumMap<>(LoadOperation.class);
+
+		private Worker(int index, String taskIdPrefix, SplittableRandom random) {
+			this.index = index;
+			this.taskIdPrefix = taskIdPrefix;
+			this.random = random;
+
+			for (LoadOperation operation : LoadOperation.values()) {
+				histograms.put(operation, new LatencyHistogram());
+				completed.put(operation, 0L);
+				errors.put(operation, 0L);
+			}
+		}
+
+		private void saveInitialTasks() {
+			for (int task = 0; task < tasksPerWorker; task++)
+				saveTask();
+		}
+
+		private void runLoad(long start, long measureStart, long end) throws InterruptedException {
+			/* The workers take turns in the schedule, each one being due every
+			 * concurrency / rate; a closed loop skips the turns it missed, while
+			 * an open loop keeps them, catching up as fast as it can */
+			long interval = targetRate > 0 ? (long) (concurrency * 1e9 / targetRate) : 0;
+			long dueTime = start + interval * index / concurrency;
+
+			while (true) {
+				waitUntil(dueTime);
+				long operationStart = System.nanoTime();
+				long scheduledStart = mode == LoadMode.OPEN_LOOP ? dueTime : operationStart;
+
+				if (scheduledStart >= end)
+					return;
+
+				int position = liveTasks.isEmpty() ? -1 : random.nextInt(liveTasks.size());
+				LoadOperation operation = feasible(drawOperation(), position);
+				boolean succeeded = run(operation, position);
+				long operationEnd = System.nanoTime();
+
+				if (scheduledStart >= measureStart)
+					record(operation, succeeded, operationEnd - scheduledStart, interval);
+
+				dueTime += interval;
+
+				if (mode == LoadMode.CLOSED_LOOP)
+					dueTime = Math.max(dueTime, operationEnd);
+			}
+		}
+
+		private void deleteTasks() {
+			for (LiveTask liveTask : liveTasks) {
+				try {
+					todoService.deleteTask(liveTask.task);
+				} catch (RuntimeException exception) {
+					// Left behind, like the tasks whose save failed
+				}
+			}
+
+			liveTasks.clear();
+		}
+
+		private void record(LoadOperation operation, boolean succeeded, long latency, long interval) {
+			if (!succeeded) {
+				errors.merge(operation, 1L, Long::sum);
+				return;
+			}
+
+			completed.merge(operation, 1L, Long::sum);
+
+			if (mode == LoadMode.CLOSED_LOOP)
+				histograms.get(operation).recordValueWithExpectedInterval(latency, interval);
+			else
+				histograms.get(operation).recordValue(latency);
+		}
+
+		private LoadOperation drawOperation() {
+			int draw = random.nextInt(totalWeight);
+
+			for (Map.Entry<LoadOperation, Integer> weight : weights.entrySet()) {
+				draw -= weight.getValue();
+
+				if (draw < 0)
+					return weight.getKey();
+			}
+
+			throw new IllegalStateException("No operation drawn");
+		}
+
+		private LoadOperation feasible(LoadOperation operation, int position) {
+			if (operation == LoadOperation.SAVE || position < 0)
+				return LoadOperation.SAVE;
+
+			if (operation == LoadOperation.ASSIGN && liveTasks.get(position).tagIds.size() == tagIds.size())
+				return LoadOperation.SAVE;
+
+			return operation;
+		}
+
+		private boolean run(LoadOperation operation, int position) {
+			// Failures are counted, not thrown, so that the load goes on
+			try {
+				if (operation == LoadOperation.SAVE)
+					saveTask();
+				else if (operation == LoadOperation.READ)
+					todoService.findTagsByTaskId(liveTasks.get(position).task.getId());
+				else if (operation == LoadOperation.ASSIGN)
+					assignTag(liveTasks.get(position));
+				else
+					deleteTask(position);
+
+				return true;
+			} catch (RuntimeException exception) {
+				return false;
+			}
+		}
+
+		private void saveTask() {
+			Task task = new Task(taskIdPrefix + savedTasks++, "Load test task");
+			todoService.saveTask(task);
+			liveTasks.add(new LiveTask(task));
+		}
+
+		private void assignTag(LiveTask liveTask) {
+			// A tag already assigned is replaced by the next free one in popularity
+			int rank = popularity.sample(random);
+			while (liveTask.tagIds.contains(tagIds.get(rank)))
+				rank = (rank + 1) % tagIds.size();
+
+			todoService.addTagToTask(liveTask.task.getId(), tagIds.get(rank));
+			liveTask.tagIds.add(tagIds.get(rank));
+		}
+
+		private void deleteTask(int position) {
+			// Swapped with the last one, so that removing it does not shift the others
+			todoService.deleteTask(liveTasks.get(position).task);
+			Collections.swap(liveTasks, position, liveTasks.size() - 1);
+			liveTasks.remove(liveTasks.size() - 1);
+		}
+
+		private void waitUntil(long dueTime) throws InterruptedException {
+			for (long delay = dueTime - System.nanoTime(); delay > 0; delay = dueTime - System.nanoTime()) {
+				LockSupport.parkNanos(delay);
+
+				if (Thread.interrupted())
+					throw new InterruptedException();
+			}
+		}
+	}
+}
@@ -0,0 +1,8 @@
+package it.unifi.simpletodoapp.load;
+
+public enum LoadMode {
+	// Each worker sends its next operation once the previous one completed
+	CLOSED_LOOP,
+	// Operations are due at a fixed rate, the late ones being sent as soon as a worker is free
+	OPEN_LOOP
+}
@@ -0,0 +1,12 @@
+package it.unifi.simpletodoapp.load;
+
+public enum LoadOperation {
+	// Reads the tags of a task
+	READ,
+	// Saves a new task
+	SAVE,
+	// Assigns a tag, drawn by popularity, to a task
+	ASSIGN,
+	// Deletes a task, removing it from all its tags
+	DELETE
+}
@@ -0,0 +1,64 @@
+package it.unifi.simpletodoapp.load;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/* Latencies and failures of the operations completed within the measured
+ * interval of a load, merged over all workers */
+public class LoadResult {
+	private final long durationNanos;
+	private final Map<LoadOperation, LatencyHistogram> histograms = new EnumMap<>(LoadOperation.class);
+	private final Map<LoadOperation, Long> completed = new EnumMap<>(LoadOperation.class);
+	private final Map<LoadOperation, Long> errors = new EnumMap<>(LoadOperation.class);
+
+	LoadResult(long durationNanos) {
+		this.durationNanos = durationNanos;
+
+		for (LoadOperation operation : LoadOperation.values()) {
+			histograms.put(operation, new LatencyHistogram());
+			completed.put(operation, 0L);
+			errors.put(operation, 0L);
+		}
+	}
+
+	void add(Map<LoadOperation, LatencyHistogram> workerHistograms, Map<LoadOperation, Long> workerCompleted,
+			Map<LoadOperation, Long> workerErrors) {
+		for (LoadOperation operation : LoadOperation.values()) {
+			histograms.get(operation).add(workerHistograms.get(operation));
+			completed.merge(operation, workerCompleted.get(operation), Long::sum);
+			errors.merge(operation, workerErrors.get(operation), Long::sum);
+		}
+	}
+
+	public long getDuration(TimeUnit unit) {
+		return unit.convert(durationNanos, TimeUnit.NANOSECONDS);
+	}
+
+	public long getCompleted(LoadOperation operation) {
+		return completed.get(operation);
+	}
+
+	public LatencyHistogram getHistogram(LoadOperation operation) {
+		// Also holding the latencies of the operations missed while stalled, when corrected
+		return histograms.get(operation);
+	}
+
+	public LatencyHistogram getTotalHistogram() {
+		LatencyHistogram totalHistogram = new LatencyHistogram();
+
+		for (LatencyHistogram histogram : histograms.values())
+			totalHistogram.add(histogram);
+
+		return totalHistogram;
+	}
+
+	public long getErrors(LoadOperation operation) {
+		return errors.get(operation);
+	}
+
+	public double getThroughput(LoadOperation operation) {
+		// Completed operations per second, failed ones excluded
+		return completed.get(operation) * 1e9 / durationNanos;
+	}
+}
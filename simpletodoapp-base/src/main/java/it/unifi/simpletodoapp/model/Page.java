@@ -0,0 +1,45 @@
+package it.unifi.simpletodoapp.model;
+
+import java.util.List;
+import java.util.Objects;
+
+public class Page<T> {
+	private List<T> items;
+	private String nextCursor;
+
+	public Page(List<T> items, String nextCursor) {
+		this.items = items;
+		this.nextCursor = nextCursor;
+	}
+
+	public List<T> getItems() {
+		return items;
+	}
+
+	/* ID after which the next page starts, to be passed back as the "after ID"
+	 * of the next request; null when this is the last page */
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	public boolean hasNext() {
+		return nextCursor != null;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(items, nextCursor);
+	}
+
+	@Override
+	public boolean equals(Object object) {
+		if (object == this)
+			return true;
+
+		if (object == null || object.getClass() != this.getClass())
+			return false;
+
+		Page<?> page = (Page<?>) object;
+		return page.getItems().equals(items) && Objects.equals(page.getNextCursor(), nextCursor);
+	}
+}
@@ -1,12 +1,8 @@
 package it.unifi.simpletodoapp.repository;
 
-import com.mongodb.client.ClientSession;
-
-import it.unifi.simpletodoapp.repository.mongo.TagMongoRepository;
-import it.unifi.simpletodoapp.repository.mongo.TaskMongoRepository;
-import it.unifi.simpletodoapp.utility.TriFunction;
+import java.util.function.BiFunction;
 
 @FunctionalInterface
-public interface CompositeTransactionCode<T> extends TriFunction<TaskMongoRepository, TagMongoRepository, ClientSession, T>{
+public interface CompositeTransactionCode<T> extends BiFunction<TaskRepository, TagRepository, T>{
 
 }
\ No newline at end of file
@@ -0,0 +1,253 @@
+package it.unifi.simpletodoapp.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/* Runs the writes of many threads, arriving within a short window of each
+ * other, in a single composite transaction of the wrapped manager, so that
+ * they pay one commit and one write concern wait: each caller still waits for
+ * its own write to be committed and gets its own result or error. Since any
+ * failed write aborts the shared transaction, a write that fails, e.g.
+ * because it conflicts with another one, is run again alone, so that it
+ * succeeds or fails as if it had never been grouped, while the rest of its
+ * group is committed together again; a group whose commit fails is split in
+ * halves, each committed on its own, down to single writes if needed. Reads
+ * are never delayed */
+public class GroupCommitTransactionManager implements TransactionManager {
+	public static final int DEFAULT_MAX_GROUP_SIZE = 64;
+	private static final long POLL_MILLIS = 100;
+
+	private static class PendingWrite<T> {
+		private final CompositeTransactionCode<T> code;
+		private final CompletableFuture<T> result = new CompletableFuture<>();
+		private T value;
+
+		private PendingWrite(CompositeTransactionCode<T> code) {
+			this.code = code;
+		}
+
+		private void execute(TaskRepository taskRepository, TagRepository tagRepository) {
+			// Run again from scratch if the shared transaction is retried
+			value = code.apply(taskRepository, tagRepository);
+		}
+
+		private void complete() {
+			result.complete(value);
+		}
+
+		private void runAlone(TransactionManager transactionManager) {
+			try {
+				result.complete(transactionManager.doCompositeTransaction(code));
+			} catch (RuntimeException exception) {
+				result.completeExceptionally(exception);
+			}
+		}
+	}
+
+	private final TransactionManager transactionManager;
+	private final long windowNanos;
+	private final int maxGroupSize;
+	private final BlockingQueue<PendingWrite<?>> pendingWrites = new LinkedBlockingQueue<>();
+
+	private volatile boolean running;
+	private Thread committingThread;
+
+	private final AtomicLong groups = new AtomicLong();
+	private final AtomicLong groupedWrites = new AtomicLong();
+	private final AtomicLong fallbackGroups = new AtomicLong();
+
+	public GroupCommitTransactionManager(TransactionManager transactionManager, long windowMicros) {
+		this(transactionManager, windowMicros, DEFAULT_MAX_GROUP_SIZE);
+	}
+
+	public GroupCommitTransactionManager(TransactionManager transactionManager, long windowMicros,
+			int maxGroupSize) {
+		if (windowMicros < 0) {
+			throw new IllegalArgumentException("Group commit window must not be negative, got " + windowMicros);
+		}
+
+		if (maxGroupSize <= 0) {
+			throw new IllegalArgumentException("Group size must be positive, got " + maxGroupSize);
+		}
+
+		this.transactionManager = transactionManager;
+		this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+		this.maxGroupSize = maxGroupSize;
+	}
+
+	public synchronized void start() {
+		if (running)
+			return;
+
+		running = true;
+		committingThread = new Thread(this::commitGroups, "group-commit");
+		committingThread.setDaemon(true);
+		committingThread.start();
+	}
+
+	public synchronized void stop() throws InterruptedException {
+		// Writes already waiting are still committed before the thread ends
+		running = false;
+
+		if (committingThread != null)
+			committingThread.join();
+	}
+
+	@Override
+	public <T> T doTaskTransaction(TaskTransactionCode<T> code) {
+		return write((taskRepository, tagRepository) -> code.apply(taskRepository));
+	}
+
+	@Override
+	public <T> T doTagTransaction(TagTransactionCode<T> code) {
+		return write((taskRepository, tagRepository) -> code.apply(tagRepository));
+	}
+
+	@Override
+	public <T> T doCompositeTransaction(CompositeTransactionCode<T> code) {
+		return write(code);
+	}
+
+	@Override
+	public <T> T doTaskRead(TaskTransactionCode<T> code) {
+		return transactionManager.doTaskRead(code);
+	}
+
+	@Override
+	public <T> T doTagRead(TagTransactionCode<T> code) {
+		return transactionManager.doTagRead(code);
+	}
+
+	@Override
+	public <T> T doCompositeRead(CompositeTransactionCode<T> code) {
+		return transactionManager.doCompositeRead(code);
+	}
+
+	public long getGroups() {
+		return groups.get();
+	}
+
+	public long getGroupedWrites() {
+		return groupedWrites.get();
+	}
+
+	public long getFallbackGroups() {
+		return fallbackGroups.get();
+	}
+
+	private <T> T write(CompositeTransactionCode<T> code) {
+		if (!running)
+			return transactionManager.doCompositeTransaction(code);
+
+		PendingWrite<T> pendingWrite = new PendingWrite<>(code);
+		pendingWrites.add(pendingWrite);
+
+		/* If stopped meanwhile the committing thread may have already ended: the
+		 * write is then run here, unless the thread took it in time */
+		if (!running && pendingWrites.remove(pendingWrite))
+			pendingWrite.runAlone(transactionManager);
+
+		try {
+			return pendingWrite.result.join();
+		} catch (CompletionException exception) {
+			if (exception.getCause() instanceof RuntimeException)
+				throw (RuntimeException) exception.getCause();
+
+			throw exception;
+		}
+	}
+
+	private void commitGroups() {
+		List<PendingWrite<?>> group = new ArrayList<>();
+
+		while (running || !pendingWrites.isEmpty()) {
+			try {
+				collectGroup(group);
+			} catch (InterruptedException exception) {
+				Thread.currentThread().interrupt();
+				running = false;
+			}
+
+			if (!group.isEmpty())
+				commitGroup(group);
+
+			group.clear();
+		}
+	}
+
+	private void collectGroup(List<PendingWrite<?>> group) throws InterruptedException {
+		/* The window starts with the first write, then the writes waiting when
+		 * it ends are taken too, up to the maximum group size */
+		PendingWrite<?> pendingWrite = pendingWrites.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+
+		if (pendingWrite == null)
+			return;
+
+		group.add(pendingWrite);
+		long deadline = System.nanoTime() + windowNanos;
+
+		while (group.size() < maxGroupSize) {
+			long remainingNanos = deadline - System.nanoTime();
+			pendingWrite = remainingNanos > 0
+					? pendingWrites.poll(remainingNanos, TimeUnit.NANOSECONDS)
+					: pendingWrites.poll();
+
+			if (pendingWrite == null)
+				return;
+
+			group.add(pendingWrite);
+		}
+	}
+
+	private void commitGroup(List<PendingWrite<?>> group) {
+		if (group.size() == 1) {
+			group.get(0).runAlone(transactionManager);
+			return;
+		}
+
+		groups.incrementAndGet();
+		groupedWrites.addAndGet(group.size());
+		// The write being run when the transaction failed, if it was not the commit itself
+		AtomicReference<PendingWrite<?>> failedWrite = new AtomicReference<>();
+
+		try {
+			transactionManager.doCompositeTransaction(
+					(taskRepository, tagRepository) -> {
+						for (PendingWrite<?> pendingWrite : group) {
+							failedWrite.set(pendingWrite);
+							pendingWrite.execute(taskRepository, tagRepository);
+						}
+
+						failedWrite.set(null);
+						return null;
+					});
+		} catch (RuntimeException exception) {
+			fallbackGroups.incrementAndGet();
+			isolateFailure(group, failedWrite.get());
+			return;
+		}
+
+		for (PendingWrite<?> pendingWrite : group)
+			pendingWrite.complete();
+	}
+
+	private void isolateFailure(List<PendingWrite<?>> group, PendingWrite<?> failedWrite) {
+		if (failedWrite != null) {
+			List<PendingWrite<?>> otherWrites = new ArrayList<>(group);
+			otherWrites.remove(failedWrite);
+			failedWrite.runAlone(transactionManager);
+			commitGroup(otherWrites);
+		} else {
+			int half = group.size() / 2;
+			commitGroup(new ArrayList<>(group.subList(0, half)));
+			commitGroup(new ArrayList<>(group.subList(half, group.size())));
+		}
+	}
+}
@@ -0,0 +1,10 @@
+package it.unifi.simpletodoapp.repository;
+
+public enum MembershipUpdate {
+	// No document with the given ID exists
+	NOT_FOUND,
+	// The document exists but the membership was already as requested
+	NOT_MODIFIED,
+	// The document exists and its membership has been changed
+	MODIFIED
+}
@@ -0,0 +1,28 @@
+package it.unifi.simpletodoapp.repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import it.unifi.simpletodoapp.model.Page;
+import it.unifi.simpletodoapp.model.Tag;
+
+/* Tags as seen by the code run by a TransactionManager, which binds the
+ * repository to the transaction or read the code runs within */
+public interface TagRepository {
+	public List<Tag> findAll();
+	public Stream<Tag> streamAll(int batchSize);
+	public long count();
+	public Page<Tag> findPage(String afterId, int limit);
+	public Page<Tag> findPageAt(int offset, int limit);
+	public Tag findById(String tagId);
+	public List<Tag> findByIds(List<String> tagIds);
+	public void save(Tag tag);
+	public void saveAll(List<Tag> tags);
+	public void delete(Tag tag);
+	public List<String> getTasksByTagId(String tagId);
+	public MembershipUpdate addTaskToTag(String tagId, String taskId);
+	public void addTasksToTags(Map<String, List<String>> taskIdsByTagId);
+	public MembershipUpdate removeTaskFromTag(String tagId, String taskId);
+	public void removeTaskFromAllTags(String taskId);
+}
@@ -1,12 +1,8 @@
 package it.unifi.simpletodoapp.repository;
 
-import java.util.function.BiFunction;
-
-import com.mongodb.client.ClientSession;
-
-import it.unifi.simpletodoapp.repository.mongo.TagMongoRepository;
+import java.util.function.Function;
 
 @FunctionalInterface
-public interface TagTransactionCode<T> extends BiFunction<TagMongoRepository, ClientSession, T>{
+public interface TagTransactionCode<T> extends Function<TagRepository, T>{
 
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package it.unifi.simpletodoapp.repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import it.unifi.simpletodoapp.model.Page;
+import it.unifi.simpletodoapp.model.Task;
+
+/* Tasks as seen by the code run by a TransactionManager, which binds the
+ * repository to the transaction or read the code runs within */
+public interface TaskRepository {
+	public List<Task> findAll();
+	public Stream<Task> streamAll(int batchSize);
+	public long count();
+	public Page<Task> findPage(String afterId, int limit);
+	public Page<Task> findPageAt(int offset, int limit);
+	public Task findById(String taskId);
+	public List<Task> findByIds(List<String> taskIds);
+	public void save(Task task);
+	public void saveAll(List<Task> tasks, Map<String, List<String>> tagIdsByTaskId);
+	public void delete(Task task);
+	public List<String> getTagsByTaskId(String taskId);
+	public MembershipUpdate addTagToTask(String taskId, String tagId);
+	public MembershipUpdate removeTagFromTask(String taskId, String tagId);
+	public void removeTagFromAllTasks(String tagId);
+}
@@ -1,12 +1,8 @@
 package it.unifi.simpletodoapp.repository;
 
-import java.util.function.BiFunction;
-
-import com.mongodb.client.ClientSession;
-
-import it.unifi.simpletodoapp.repository.mongo.TaskMongoRepository;
+import java.util.function.Function;
 
 @FunctionalInterface
-public interface TaskTransactionCode<T> extends BiFunction<TaskMongoRepository, ClientSession, T>{
+public interface TaskTransactionCode<T> extends Function<TaskRepository, T>{
 
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package it.unifi.simpletodoapp.repository;
+
+import it.unifi.simpletodoapp.model.Tag;
+import it.unifi.simpletodoapp.model.Task;
+
+/* Listener of the changes made to tasks and tags by any client, including
+ * the one listening, in the order they were committed */
+public interface TodoChangeListener {
+	public void taskAdded(Task task);
+	// The task itself changed, e.g. its description was replaced
+	public void taskChanged(Task task);
+	// Only the id of the deleted task may be known
+	public void taskDeleted(Task task);
+	public void tagAdded(Tag tag);
+	// The tag itself changed, e.g. its name was replaced
+	public void tagChanged(Tag tag);
+	public void tagDeleted(Tag tag);
+	public void tagAssigned(Task task, Tag tag);
+	public void tagUnassigned(Task task, Tag tag);
+	// Some changes could not be delivered, so all data must be read again
+	public void changesLost();
+}
@@ -0,0 +1,10 @@
+package it.unifi.simpletodoapp.repository;
+
+import java.util.concurrent.Executor;
+
+/* Source of the changes made to tasks and tags by any client */
+public interface TodoChangeSource {
+	// Each listener is notified through its own executor, e.g. a GUI thread
+	public void addListener(TodoChangeListener listener, Executor executor);
+	public void removeListener(TodoChangeListener listener);
+}
@@ -4,4 +4,7 @@ public interface TransactionManager {
 	public <T> T doTaskTransaction(TaskTransactionCode<T> code);
 	public <T> T doTagTransaction(TagTransactionCode<T> code);
 	public <T> T doCompositeTransaction(CompositeTransactionCode<T> code);
+	public <T> T doTaskRead(TaskTransactionCode<T> code);
+	public <T> T doTagRead(TagTransactionCode<T> code);
+	public <T> T doCompositeRead(CompositeTransactionCode<T> code);
 }
\ No newline at end of file
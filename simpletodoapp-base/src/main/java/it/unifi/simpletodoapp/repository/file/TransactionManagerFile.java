@@ -0,0 +1,386 @@
+package it.unifi.simpletodoapp.repository.file;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import it.unifi.simpletodoapp.repository.CompositeTransactionCode;
+import it.unifi.simpletodoapp.repository.TagTransactionCode;
+import it.unifi.simpletodoapp.repository.TaskTransactionCode;
+import it.unifi.simpletodoapp.repository.TransactionManager;
+import it.unifi.simpletodoapp.repository.memory.TransactionManagerInMemory;
+
+/* TransactionManager keeping tasks and tags in a local directory, without
+ * any database process: transactions run on the in-memory engine, and each
+ * commit is appended to a write-ahead log and flushed to disk, along with the
+ * commits of other threads, before returning. Once the current log segment
+ * outgrows the checkpoint size, a background thread writes a compacted
+ * snapshot of the data and deletes the segments it covers. Opening the
+ * directory maps the latest snapshot in memory and replays the log after it,
+ * dropping a last record torn by a crash. A failed checkpoint is logged and
+ * retried by later commits, but after MAX_FAILED_CHECKPOINTS in a row, e.g.
+ * with a full disk, commits are refused instead of growing the log forever */
+public class TransactionManagerFile implements TransactionManager {
+	public static final long DEFAULT_CHECKPOINT_BYTES = 16L * 1024 * 1024;
+	public static final int MAX_FAILED_CHECKPOINTS = 3;
+
+	private static final Logger LOGGER = Logger.getLogger(TransactionManagerFile.class.getName());
+
+	private static final String SNAPSHOT_PREFIX = "snapshot-";
+	private static final String SNAPSHOT_SUFFIX = ".dat";
+	private static final String TEMPORARY_SNAPSHOT = "snapshot.tmp";
+	private static final String LOCK_FILE = "lock";
+
+	private final Path directory;
+	private final long checkpointBytes;
+	private int maxAttempts = TransactionManagerInMemory.DEFAULT_MAX_ATTEMPTS;
+
+	private volatile TransactionManagerInMemory transactionManager;
+	private WriteAheadLog writeAheadLog;
+	private FileChannel lockChannel;
+	private ExecutorService checkpointExecutor;
+	private final Object checkpointLock = new Object();
+	private final AtomicBoolean checkpointPending = new AtomicBoolean();
+
+	private final AtomicLong checkpoints = new AtomicLong();
+	private final AtomicLong failedCheckpoints = new AtomicLong();
+	private final AtomicInteger consecutiveFailedCheckpoints = new AtomicInteger();
+	private volatile Exception lastCheckpointFailure;
+
+	public TransactionManagerFile(Path directory) {
+		this(directory, DEFAULT_CHECKPOINT_BYTES);
+	}
+
+	public TransactionManagerFile(Path directory, long checkpointBytes) {
+		if (checkpointBytes <= 0) {
+			throw new IllegalArgumentException("Checkpoint size must be positive, got " + checkpointBytes);
+		}
+
+		this.directory = directory;
+		this.checkpointBytes = checkpointBytes;
+	}
+
+	public void useMaxAttempts(int maxAttempts) {
+		// Only applied when the directory is opened
+		if (maxAttempts <= 0) {
+			throw new IllegalArgumentException("Transaction attempts must be positive, got " + maxAttempts);
+		}
+
+		this.maxAttempts = maxAttempts;
+	}
+
+	public synchronized void open() throws IOException {
+		if (transactionManager != null)
+			return;
+
+		Files.createDirectories(directory);
+		lockDirectory();
+
+		try {
+			recover();
+		} catch (IOException | RuntimeException exception) {
+			lockChannel.close();
+			throw exception;
+		}
+
+		checkpointExecutor = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "storage-checkpoint");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	public synchronized void close() throws IOException {
+		// Waits for a running checkpoint, leaving the log to replay to the next opening
+		if (transactionManager == null)
+			return;
+
+		checkpointExecutor.shutdown();
+
+		try {
+			checkpointExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+		}
+
+		synchronized (checkpointLock) {
+			try {
+				writeAheadLog.close();
+			} finally {
+				transactionManager = null;
+				lockChannel.close();
+			}
+		}
+	}
+
+	public void checkpoint() throws IOException {
+		/* The snapshot holds exactly the commits in the segments before the
+		 * new one, which is started while commits are held back; it is written
+		 * under a temporary name and renamed once durable, so that a crash
+		 * leaves either the previous snapshot or the new one */
+		synchronized (checkpointLock) {
+			TransactionManagerInMemory openTransactionManager = transactionManager();
+			Path temporarySnapshot = directory.resolve(TEMPORARY_SNAPSHOT);
+
+			try (FileChannel snapshotChannel = FileChannel.open(temporarySnapshot, StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+					OutputStream output = new BufferedOutputStream(Channels.newOutputStream(snapshotChannel))) {
+				openTransactionManager.writeSnapshot(writeAheadLog::rotate, output);
+				snapshotChannel.force(true);
+			} catch (UncheckedIOException exception) {
+				throw exception.getCause();
+			}
+
+			long snapshot = writeAheadLog.getSegment();
+			Files.move(temporarySnapshot, directory.resolve(snapshotFileName(snapshot)),
+					StandardCopyOption.ATOMIC_MOVE);
+			WriteAheadLog.syncDirectory(directory);
+			deleteFilesBefore(snapshot);
+			checkpointSucceeded();
+			checkpoints.incrementAndGet();
+		}
+	}
+
+	public long getCommits() {
+		return transactionManager.getCommits();
+	}
+
+	public long getSyncs() {
+		return writeAheadLog.getSyncs();
+	}
+
+	public long getCheckpoints() {
+		return checkpoints.get();
+	}
+
+	public long getFailedCheckpoints() {
+		return failedCheckpoints.get();
+	}
+
+	@Override
+	public <T> T doTaskTransaction(TaskTransactionCode<T> code) {
+		refuseWhileCheckpointsFail();
+		T value = transactionManager().doTaskTransaction(code);
+		checkpointIfNeeded();
+		return value;
+	}
+
+	@Override
+	public <T> T doTagTransaction(TagTransactionCode<T> code) {
+		refuseWhileCheckpointsFail();
+		T value = transactionManager().doTagTransaction(code);
+		checkpointIfNeeded();
+		return value;
+	}
+
+	@Override
+	public <T> T doCompositeTransaction(CompositeTransactionCode<T> code) {
+		refuseWhileCheckpointsFail();
+		T value = transactionManager().doCompositeTransaction(code);
+		checkpointIfNeeded();
+		return value;
+	}
+
+	@Override
+	public <T> T doTaskRead(TaskTransactionCode<T> code) {
+		return transactionManager().doTaskRead(code);
+	}
+
+	@Override
+	public <T> T doTagRead(TagTransactionCode<T> code) {
+		return transactionManager().doTagRead(code);
+	}
+
+	@Override
+	public <T> T doCompositeRead(CompositeTransactionCode<T> code) {
+		return transactionManager().doCompositeRead(code);
+	}
+
+	static String snapshotFileName(long snapshot) {
+		return String.format(SNAPSHOT_PREFIX + "%020d" + SNAPSHOT_SUFFIX, snapshot);
+	}
+
+	private TransactionManagerInMemory transactionManager() {
+		TransactionManagerInMemory openTransactionManager = transactionManager;
+
+		if (openTransactionManager == null) {
+			throw new IllegalStateException("Storage directory " + directory + " is not open");
+		}
+
+		return openTransactionManager;
+	}
+
+	private void lockDirectory() throws IOException {
+		// Two processes appending to the same log would corrupt it
+		lockChannel = FileChannel.open(directory.resolve(LOCK_FILE),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		FileLock lock;
+
+		try {
+			lock = lockChannel.tryLock();
+		} catch (OverlappingFileLockException exception) {
+			lock = null;
+		}
+
+		if (lock == null) {
+			lockChannel.close();
+			throw new IOException("Storage directory " + directory + " is already in use");
+		}
+	}
+
+	private void recover() throws IOException {
+		/* Snapshot N covers every segment before segment N, so the segments to
+		 * replay are the ones from N on, 0 standing for no snapshot at all. Only
+		 * the last segment may end with a torn record, since the earlier ones
+		 * were flushed before the next one was started */
+		List<Long> snapshots = numberedFiles(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+		long snapshot = snapshots.isEmpty() ? 0 : snapshots.get(snapshots.size() - 1);
+		List<Long> segments = new ArrayList<>();
+
+		for (long segment : numberedFiles(WriteAheadLog.SEGMENT_PREFIX, WriteAheadLog.SEGMENT_SUFFIX)) {
+			if (segment >= snapshot)
+				segments.add(segment);
+		}
+
+		writeAheadLog = new WriteAheadLog(directory);
+		TransactionManagerInMemory recoveredTransactionManager = new TransactionManagerInMemory(writeAheadLog);
+		recoveredTransactionManager.useMaxAttempts(maxAttempts);
+
+		if (snapshot > 0)
+			loadSnapshot(recoveredTransactionManager, directory.resolve(snapshotFileName(snapshot)));
+
+		for (int index = 0; index < segments.size(); index++) {
+			Path segmentFile = directory.resolve(WriteAheadLog.segmentFileName(segments.get(index)));
+			long validBytes = WriteAheadLog.replay(segmentFile, recoveredTransactionManager::replay);
+
+			if (validBytes < Files.size(segmentFile)) {
+				if (index < segments.size() - 1) {
+					throw new IOException("Corrupted record in write-ahead log segment " + segmentFile);
+				}
+
+				truncate(segmentFile, validBytes);
+			}
+		}
+
+		writeAheadLog.open(segments.isEmpty() ? snapshot : segments.get(segments.size() - 1));
+		Files.deleteIfExists(directory.resolve(TEMPORARY_SNAPSHOT));
+		deleteFilesBefore(snapshot);
+		transactionManager = recoveredTransactionManager;
+	}
+
+	private void loadSnapshot(TransactionManagerInMemory recoveredTransactionManager, Path snapshotFile)
+			throws IOException {
+		// Read straight from the page cache, without copying the file in the heap first
+		try (FileChannel snapshotChannel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+			MappedByteBuffer snapshot = snapshotChannel.map(FileChannel.MapMode.READ_ONLY, 0, snapshotChannel.size());
+			recoveredTransactionManager.replay(snapshot);
+		}
+	}
+
+	private void checkpointIfNeeded() {
+		// At most one checkpoint is pending at a time, and a failed one is retried by a later commit
+		if (writeAheadLog.getSegmentBytes() < checkpointBytes || !checkpointPending.compareAndSet(false, true))
+			return;
+
+		checkpointExecutor.execute(() -> {
+			// The failure is recorded once a new checkpoint can be started
+			Exception failure = null;
+
+			try {
+				checkpoint();
+			} catch (IOException | RuntimeException exception) {
+				failure = exception;
+			} finally {
+				checkpointPending.set(false);
+			}
+
+			if (failure != null)
+				checkpointFailed(failure);
+		});
+	}
+
+	private void checkpointSucceeded() {
+		if (consecutiveFailedCheckpoints.getAndSet(0) > 0)
+			LOGGER.info(() -> "Checkpoint of storage directory " + directory + " succeeded again");
+	}
+
+	private void checkpointFailed(Exception exception) {
+		// Logged once per streak of failures, with the cause of the first one
+		failedCheckpoints.incrementAndGet();
+		lastCheckpointFailure = exception;
+
+		if (consecutiveFailedCheckpoints.getAndIncrement() == 0) {
+			LOGGER.log(Level.WARNING, exception, () -> "Checkpoint of storage directory " + directory
+					+ " failed, the write-ahead log keeps growing until one succeeds");
+		}
+	}
+
+	private void refuseWhileCheckpointsFail() {
+		/* Each refused commit starts a new checkpoint, so that commits are
+		 * accepted again as soon as one succeeds, e.g. once disk space is freed */
+		int failures = consecutiveFailedCheckpoints.get();
+
+		if (failures < MAX_FAILED_CHECKPOINTS)
+			return;
+
+		checkpointIfNeeded();
+		throw new IllegalStateException("Checkpoints of storage directory " + directory + " failed " + failures
+				+ " times in a row, commits are refused until one succeeds: " + lastCheckpointFailure.getMessage(),
+				lastCheckpointFailure);
+	}
+
+	private void truncate(Path segmentFile, long validBytes) throws IOException {
+		try (FileChannel segmentChannel = FileChannel.open(segmentFile, StandardOpenOption.WRITE)) {
+			segmentChannel.truncate(validBytes);
+			segmentChannel.force(true);
+		}
+	}
+
+	private void deleteFilesBefore(long snapshot) throws IOException {
+		for (long olderSnapshot : numberedFiles(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+			if (olderSnapshot < snapshot)
+				Files.deleteIfExists(directory.resolve(snapshotFileName(olderSnapshot)));
+		}
+
+		for (long segment : numberedFiles(WriteAheadLog.SEGMENT_PREFIX, WriteAheadLog.SEGMENT_SUFFIX)) {
+			if (segment < snapshot)
+				Files.deleteIfExists(directory.resolve(WriteAheadLog.segmentFileName(segment)));
+		}
+	}
+
+	private List<Long> numberedFiles(String prefix, String suffix) throws IOException {
+		List<Long> numbers = new ArrayList<>();
+
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				numbers.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+			}
+		}
+
+		Collections.sort(numbers);
+		return numbers;
+	}
+}
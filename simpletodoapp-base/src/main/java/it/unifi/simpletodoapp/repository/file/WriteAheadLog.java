@@ -0,0 +1,258 @@
+package it.unifi.simpletodoapp.repository.file;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import it.unifi.simpletodoapp.repository.memory.CommitLog;
+
+/* Append-only log of the commits, split in numbered segment files, each
+ * record framed by its length and CRC32 so that a record torn by a crash is
+ * detected and dropped at recovery. Appends are serialized by the store, while
+ * flushes to disk are grouped: a thread finding a flush already running waits
+ * for it and, if its record was appended too late to be covered, runs the next
+ * one on behalf of every record appended meanwhile. After an I/O error the log
+ * refuses any further record, since it is not known what reached the disk */
+class WriteAheadLog implements CommitLog {
+	static final String SEGMENT_PREFIX = "wal-";
+	static final String SEGMENT_SUFFIX = ".log";
+	private static final int HEADER_BYTES = 8;
+
+	private final Path directory;
+	private final Object syncLock = new Object();
+
+	private FileChannel channel;
+	private volatile long segment;
+	private volatile long segmentBytes;
+
+	// Positions count the bytes appended since the log was opened, across segments
+	private volatile long appendedPosition;
+	private long syncedPosition;
+	private boolean syncing;
+	private volatile IOException failure;
+
+	private final AtomicLong syncs = new AtomicLong();
+
+	WriteAheadLog(Path directory) {
+		this.directory = directory;
+	}
+
+	static String segmentFileName(long segment) {
+		return String.format(SEGMENT_PREFIX + "%020d" + SEGMENT_SUFFIX, segment);
+	}
+
+	static long replay(Path segmentFile, Consumer<ByteBuffer> consumer) throws IOException {
+		/* Returns the length of the valid records, which are passed to the
+		 * consumer in order, up to the end of the file or the first record that
+		 * is truncated or does not match its checksum */
+		long fileSize = Files.size(segmentFile);
+		long validBytes = 0;
+
+		try (DataInputStream input = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(segmentFile)))) {
+			while (fileSize - validBytes >= HEADER_BYTES) {
+				int length = input.readInt();
+				long checksum = input.readInt() & 0xFFFFFFFFL;
+
+				if (length < 0 || length > fileSize - validBytes - HEADER_BYTES)
+					break;
+
+				byte[] record = new byte[length];
+				input.readFully(record);
+
+				if (checksum(record) != checksum)
+					break;
+
+				consumer.accept(ByteBuffer.wrap(record));
+				validBytes += HEADER_BYTES + length;
+			}
+		} catch (EOFException exception) {
+			// The file ended within the last record
+		}
+
+		return validBytes;
+	}
+
+	static void syncDirectory(Path directory) throws IOException {
+		// Makes the creation, renaming and deletion of its files durable
+		try (FileChannel directoryChannel = FileChannel.open(directory, StandardOpenOption.READ)) {
+			directoryChannel.force(true);
+		}
+	}
+
+	void open(long segment) throws IOException {
+		// Appends to the end of the segment, which recovery left with valid records only
+		channel = openSegment(segment);
+		this.segment = segment;
+		segmentBytes = channel.size();
+	}
+
+	long getSegment() {
+		return segment;
+	}
+
+	long getSegmentBytes() {
+		return segmentBytes;
+	}
+
+	long getSyncs() {
+		return syncs.get();
+	}
+
+	@Override
+	public long append(byte[] record) {
+		checkFailure();
+
+		ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + record.length);
+		frame.putInt(record.length);
+		frame.putInt((int) checksum(record));
+		frame.put(record);
+		frame.flip();
+
+		try {
+			while (frame.hasRemaining())
+				channel.write(frame);
+		} catch (IOException exception) {
+			throw fail(exception);
+		}
+
+		segmentBytes += frame.capacity();
+		appendedPosition += frame.capacity();
+		return appendedPosition;
+	}
+
+	@Override
+	public void sync(long position) {
+		FileChannel syncedChannel;
+		long flushedPosition;
+
+		synchronized (syncLock) {
+			boolean interrupted = false;
+			while (syncedPosition < position && syncing)
+				interrupted |= awaitSync();
+
+			keepInterruption(interrupted);
+
+			if (syncedPosition >= position)
+				return;
+
+			checkFailure();
+			syncing = true;
+			syncedChannel = channel;
+			// Everything appended so far is covered by this flush
+			flushedPosition = appendedPosition;
+		}
+
+		try {
+			syncedChannel.force(false);
+			syncs.incrementAndGet();
+
+			synchronized (syncLock) {
+				syncedPosition = Math.max(syncedPosition, flushedPosition);
+			}
+		} catch (IOException exception) {
+			throw fail(exception);
+		} finally {
+			synchronized (syncLock) {
+				syncing = false;
+				syncLock.notifyAll();
+			}
+		}
+	}
+
+	long rotate() {
+		/* Called while commits are serialized: the current segment is flushed
+		 * and closed, and the following records go to a new one */
+		synchronized (syncLock) {
+			boolean interrupted = false;
+			while (syncing)
+				interrupted |= awaitSync();
+
+			keepInterruption(interrupted);
+
+			checkFailure();
+
+			try {
+				channel.force(false);
+				channel.close();
+				syncedPosition = appendedPosition;
+				channel = openSegment(segment + 1);
+			} catch (IOException exception) {
+				throw fail(exception);
+			}
+
+			segment++;
+			segmentBytes = 0;
+			return segment;
+		}
+	}
+
+	void close() throws IOException {
+		synchronized (syncLock) {
+			boolean interrupted = false;
+			while (syncing)
+				interrupted |= awaitSync();
+
+			keepInterruption(interrupted);
+
+			if (failure == null)
+				channel.force(false);
+
+			channel.close();
+		}
+	}
+
+	private FileChannel openSegment(long segment) throws IOException {
+		Path segmentFile = directory.resolve(segmentFileName(segment));
+		boolean created = !Files.exists(segmentFile);
+		FileChannel segmentChannel = FileChannel.open(segmentFile,
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+		if (created)
+			syncDirectory(directory);
+
+		return segmentChannel;
+	}
+
+	private boolean awaitSync() {
+		// Waiting for durability is not interruptible, the interruption being kept for later
+		try {
+			syncLock.wait();
+			return false;
+		} catch (InterruptedException exception) {
+			return true;
+		}
+	}
+
+	private static void keepInterruption(boolean interrupted) {
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	private void checkFailure() {
+		if (failure != null) {
+			throw new UncheckedIOException("Write-ahead log failed earlier", failure);
+		}
+	}
+
+	private UncheckedIOException fail(IOException exception) {
+		failure = exception;
+		return new UncheckedIOException(exception);
+	}
+
+	private static long checksum(byte[] record) {
+		CRC32 crc = new CRC32();
+		crc.update(record, 0, record.length);
+		return crc.getValue();
+	}
+}
@@ -0,0 +1,13 @@
+package it.unifi.simpletodoapp.repository.memory;
+
+/* Durable log of the commits of a TransactionManagerInMemory: each record is
+ * appended while commits are serialized, before the commit becomes visible,
+ * and the committing thread then waits for it to be durable after letting
+ * the following commits go on, so that they can share the same flush */
+public interface CommitLog {
+	// Returns the position of the log right after the record
+	long append(byte[] record);
+
+	// Returns once everything up to the given position is durable
+	void sync(long position);
+}
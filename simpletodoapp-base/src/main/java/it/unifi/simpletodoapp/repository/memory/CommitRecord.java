@@ -0,0 +1,149 @@
+package it.unifi.simpletodoapp.repository.memory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/* Binary form of the writes of a commit, and of a whole snapshot, which is
+ * written as a single commit of every key: a count of entries, each one made
+ * of the map written, the key and, unless it is a deletion, the value. Strings
+ * are stored as their UTF-8 length and bytes */
+final class CommitRecord {
+	private static final byte TASK = 0;
+	private static final byte TAG = 1;
+	private static final byte TAG_NAME = 2;
+
+	private CommitRecord() {
+	}
+
+	static byte[] encode(MvccStore store, MvccTransaction transaction) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		try {
+			write(new DataOutputStream(bytes), transaction.writesTo(store.tasks),
+					transaction.writesTo(store.tags), transaction.writesTo(store.tagNames));
+		} catch (IOException exception) {
+			// Writing to memory never fails
+			throw new UncheckedIOException(exception);
+		}
+
+		return bytes.toByteArray();
+	}
+
+	static void writeSnapshot(DataOutput output, Supplier<Stream<StoredEntity>> tasks,
+			Supplier<Stream<StoredEntity>> tags) throws IOException {
+		/* The entries are streamed twice, to count them and to write them, so
+		 * that the store is never copied; the index of the tag names is rebuilt
+		 * from the tags themselves */
+		output.writeInt(Math.toIntExact(tasks.get().count() + 2 * tags.get().count()));
+
+		for (Iterator<StoredEntity> task = tasks.get().iterator(); task.hasNext();) {
+			StoredEntity value = task.next();
+			writeEntity(output, TASK, value.getId(), value);
+		}
+
+		for (Iterator<StoredEntity> tag = tags.get().iterator(); tag.hasNext();) {
+			StoredEntity value = tag.next();
+			writeEntity(output, TAG, value.getId(), value);
+		}
+
+		for (Iterator<StoredEntity> tag = tags.get().iterator(); tag.hasNext();) {
+			StoredEntity value = tag.next();
+			writeTagName(output, value.getText(), value.getId());
+		}
+	}
+
+	static void apply(ByteBuffer record, MvccStore store, MvccTransaction transaction) {
+		int entries = record.getInt();
+
+		for (int entry = 0; entry < entries; entry++) {
+			byte map = record.get();
+			String key = readString(record);
+			boolean deleted = record.get() == 0;
+
+			if (map == TASK)
+				transaction.write(store.tasks, key, deleted ? null : readEntity(record, key));
+			else if (map == TAG)
+				transaction.write(store.tags, key, deleted ? null : readEntity(record, key));
+			else if (map == TAG_NAME)
+				transaction.write(store.tagNames, key, deleted ? null : readString(record));
+			else
+				throw new IllegalArgumentException("Unknown map " + map + " in commit record");
+		}
+	}
+
+	private static void write(DataOutput output, Map<String, StoredEntity> tasks, Map<String, StoredEntity> tags,
+			Map<String, String> tagNames) throws IOException {
+		output.writeInt(tasks.size() + tags.size() + tagNames.size());
+		writeEntities(output, TASK, tasks);
+		writeEntities(output, TAG, tags);
+
+		for (Map.Entry<String, String> tagName : tagNames.entrySet())
+			writeTagName(output, tagName.getKey(), tagName.getValue());
+	}
+
+	private static void writeEntities(DataOutput output, byte map, Map<String, StoredEntity> entities)
+			throws IOException {
+		for (Map.Entry<String, StoredEntity> entity : entities.entrySet())
+			writeEntity(output, map, entity.getKey(), entity.getValue());
+	}
+
+	private static void writeEntity(DataOutput output, byte map, String key, StoredEntity value)
+			throws IOException {
+		writeKey(output, map, key, value != null);
+
+		if (value != null) {
+			writeString(output, value.getText());
+			output.writeInt(value.getMembers().size());
+
+			for (String member : value.getMembers())
+				writeString(output, member);
+		}
+	}
+
+	private static void writeTagName(DataOutput output, String name, String tagId) throws IOException {
+		writeKey(output, TAG_NAME, name, tagId != null);
+
+		if (tagId != null)
+			writeString(output, tagId);
+	}
+
+	private static void writeKey(DataOutput output, byte map, String key, boolean present) throws IOException {
+		output.writeByte(map);
+		writeString(output, key);
+		output.writeByte(present ? 1 : 0);
+	}
+
+	private static void writeString(DataOutput output, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+
+	private static StoredEntity readEntity(ByteBuffer record, String id) {
+		String text = readString(record);
+		int size = record.getInt();
+		List<String> members = new ArrayList<>(size);
+
+		for (int member = 0; member < size; member++)
+			members.add(readString(record));
+
+		return new StoredEntity(id, text, members);
+	}
+
+	private static String readString(ByteBuffer record) {
+		byte[] bytes = new byte[record.getInt()];
+		record.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
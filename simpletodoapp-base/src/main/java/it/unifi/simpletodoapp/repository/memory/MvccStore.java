@@ -0,0 +1,128 @@
+package it.unifi.simpletodoapp.repository.memory;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/* Multi-version store of tasks and tags, along with the unique index on the
+ * tag names, so that two tags saved concurrently with the same name conflict
+ * like any other pair of writes to the same key. Transactions read the
+ * snapshot committed when they begin without any lock, while commits are
+ * serialized: each one checks its writes for conflicts, installs them under a
+ * new timestamp and only then publishes it to the transactions to come. When
+ * a commit log is given, each commit is also appended to it before being
+ * published, and waited for to be durable after releasing the lock */
+class MvccStore {
+	final VersionedMap<StoredEntity> tasks = new VersionedMap<>("task");
+	final VersionedMap<StoredEntity> tags = new VersionedMap<>("tag");
+	final VersionedMap<String> tagNames = new VersionedMap<>("tag name");
+
+	private final CommitLog commitLog;
+	private final Object commitLock = new Object();
+	private volatile long lastCommitTimestamp;
+
+	// Number of transactions reading each snapshot, to know which versions they still need
+	private final ConcurrentSkipListMap<Long, Integer> activeSnapshots = new ConcurrentSkipListMap<>();
+
+	MvccStore() {
+		this(null);
+	}
+
+	MvccStore(CommitLog commitLog) {
+		this.commitLog = commitLog;
+	}
+
+	MvccTransaction begin(boolean readOnly) {
+		/* The snapshot is registered before being used, and taken again if a
+		 * commit was published meanwhile, since its garbage collection may not
+		 * have seen the registration and dropped versions the snapshot needs */
+		while (true) {
+			long snapshot = lastCommitTimestamp;
+			activeSnapshots.merge(snapshot, 1, Integer::sum);
+
+			if (lastCommitTimestamp == snapshot)
+				return new MvccTransaction(snapshot, readOnly);
+
+			release(snapshot);
+		}
+	}
+
+	void commit(MvccTransaction transaction) {
+		if (!transaction.hasWrites())
+			return;
+
+		// Encoded before taking the lock, so that only the append is serialized
+		byte[] record = commitLog == null ? null : CommitRecord.encode(this, transaction);
+		long logPosition = 0;
+
+		synchronized (commitLock) {
+			transaction.checkConflicts();
+
+			if (commitLog != null)
+				logPosition = commitLog.append(record);
+
+			publish(transaction);
+		}
+
+		if (commitLog != null)
+			commitLog.sync(logPosition);
+	}
+
+	void replay(ByteBuffer record) {
+		/* Commits read back from the log or a snapshot were checked for
+		 * conflicts when first made, and are not appended to the log again */
+		MvccTransaction transaction = new MvccTransaction(lastCommitTimestamp, false);
+		CommitRecord.apply(record, this, transaction);
+
+		if (!transaction.hasWrites())
+			return;
+
+		synchronized (commitLock) {
+			publish(transaction);
+		}
+	}
+
+	MvccTransaction beginCheckpoint(Runnable action) {
+		// The action runs between the last commit in the snapshot and the first one after it
+		synchronized (commitLock) {
+			action.run();
+			return begin(true);
+		}
+	}
+
+	void writeSnapshot(MvccTransaction transaction, DataOutput output) throws IOException {
+		CommitRecord.writeSnapshot(output, () -> transaction.stream(tasks), () -> transaction.stream(tags));
+	}
+
+	void end(MvccTransaction transaction) {
+		release(transaction.getSnapshot());
+	}
+
+	int retainedVersions() {
+		synchronized (commitLock) {
+			return tasks.retainedVersions() + tags.retainedVersions() + tagNames.retainedVersions();
+		}
+	}
+
+	private void publish(MvccTransaction transaction) {
+		long commitTimestamp = lastCommitTimestamp + 1;
+		transaction.install(commitTimestamp);
+		lastCommitTimestamp = commitTimestamp;
+
+		long oldestSnapshot = oldestSnapshot();
+		tasks.collectGarbage(oldestSnapshot);
+		tags.collectGarbage(oldestSnapshot);
+		tagNames.collectGarbage(oldestSnapshot);
+	}
+
+	private long oldestSnapshot() {
+		Map.Entry<Long, Integer> oldest = activeSnapshots.firstEntry();
+		return oldest == null ? lastCommitTimestamp : Math.min(oldest.getKey(), lastCommitTimestamp);
+	}
+
+	private void release(long snapshot) {
+		activeSnapshots.computeIfPresent(snapshot, (key, readers) -> readers == 1 ? null : readers - 1);
+	}
+}
@@ -0,0 +1,130 @@
+package it.unifi.simpletodoapp.repository.memory;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/* Reads the values committed up to its snapshot, overridden by its own
+ * writes, which are buffered until the store installs them at commit */
+class MvccTransaction {
+	private static final class WriteSet<V> {
+		private final VersionedMap<V> map;
+		private final NavigableMap<String, V> writes = new TreeMap<>();
+
+		private WriteSet(VersionedMap<V> map) {
+			this.map = map;
+		}
+
+		private void checkConflicts(long snapshot) {
+			// First committer wins: a key committed by others after the snapshot cannot be overwritten
+			for (String key : writes.keySet()) {
+				if (map.latestCommitTimestamp(key) > snapshot) {
+					throw new WriteConflictException("Write conflict on " + map.getName() + " " + key);
+				}
+			}
+		}
+
+		private void install(long commitTimestamp) {
+			for (Map.Entry<String, V> write : writes.entrySet())
+				map.install(write.getKey(), write.getValue(), commitTimestamp);
+		}
+	}
+
+	private final long snapshot;
+	private final boolean readOnly;
+	private final Map<VersionedMap<?>, WriteSet<?>> writeSets = new LinkedHashMap<>();
+
+	MvccTransaction(long snapshot, boolean readOnly) {
+		this.snapshot = snapshot;
+		this.readOnly = readOnly;
+	}
+
+	long getSnapshot() {
+		return snapshot;
+	}
+
+	<V> V read(VersionedMap<V> map, String key) {
+		WriteSet<V> writeSet = writeSet(map);
+
+		if (writeSet != null && writeSet.writes.containsKey(key))
+			return writeSet.writes.get(key);
+
+		return map.read(key, snapshot);
+	}
+
+	<V> List<V> scan(VersionedMap<V> map, String afterKey, int limit) {
+		return map.scan(afterKey, 0, limit, snapshot, writesTo(map));
+	}
+
+	<V> List<V> scan(VersionedMap<V> map, int skip, int limit) {
+		return map.scan(null, skip, limit, snapshot, writesTo(map));
+	}
+
+	<V> int count(VersionedMap<V> map) {
+		// The count committed up to the snapshot, corrected by the keys written since
+		int count = map.count(snapshot);
+
+		for (Map.Entry<String, V> write : writesTo(map).entrySet()) {
+			if (map.read(write.getKey(), snapshot) != null)
+				count--;
+			if (write.getValue() != null)
+				count++;
+		}
+
+		return count;
+	}
+
+	<V> Stream<V> stream(VersionedMap<V> map) {
+		// Only the committed values are walked, so the map must not have been written
+		if (writeSet(map) != null) {
+			throw new IllegalStateException("Cannot stream the " + map.getName() + " map after writing to it");
+		}
+
+		return map.stream(snapshot);
+	}
+
+	<V> void write(VersionedMap<V> map, String key, V value) {
+		// A null value deletes the key
+		if (readOnly) {
+			throw new IllegalStateException("Cannot write within a read");
+		}
+
+		WriteSet<V> writeSet = writeSet(map);
+
+		if (writeSet == null) {
+			writeSet = new WriteSet<>(map);
+			writeSets.put(map, writeSet);
+		}
+
+		writeSet.writes.put(key, value);
+	}
+
+	<V> NavigableMap<String, V> writesTo(VersionedMap<V> map) {
+		WriteSet<V> writeSet = writeSet(map);
+		return writeSet == null ? Collections.emptyNavigableMap() : writeSet.writes;
+	}
+
+	boolean hasWrites() {
+		return !writeSets.isEmpty();
+	}
+
+	void checkConflicts() {
+		for (WriteSet<?> writeSet : writeSets.values())
+			writeSet.checkConflicts(snapshot);
+	}
+
+	void install(long commitTimestamp) {
+		for (WriteSet<?> writeSet : writeSets.values())
+			writeSet.install(commitTimestamp);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <V> WriteSet<V> writeSet(VersionedMap<V> map) {
+		// Each write set is stored under the map it writes to, so the cast is safe
+		return (WriteSet<V>) writeSets.get(map);
+	}
+}
@@ -0,0 +1,74 @@
+package it.unifi.simpletodoapp.repository.memory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/* Immutable stored form of both tasks and tags: the text is the description
+ * of a task or the name of a tag, the members the IDs of the tags of a task or
+ * of the tasks of a tag. Every change creates a new one, so that the versions
+ * seen by older snapshots are never modified */
+final class StoredEntity {
+	private final String id;
+	private final String text;
+	private final List<String> members;
+
+	StoredEntity(String id, String text, List<String> members) {
+		this.id = id;
+		this.text = text;
+		this.members = Collections.unmodifiableList(members);
+	}
+
+	String getId() {
+		return id;
+	}
+
+	String getText() {
+		return text;
+	}
+
+	List<String> getMembers() {
+		return members;
+	}
+
+	boolean hasMember(String member) {
+		return members.contains(member);
+	}
+
+	StoredEntity withMember(String member) {
+		List<String> newMembers = new ArrayList<>(members);
+		newMembers.add(member);
+		return new StoredEntity(id, text, newMembers);
+	}
+
+	StoredEntity withMembers(Collection<String> members) {
+		/* A single copy for all of them, those already present being left out,
+		 * and this when none is added; the given members are the ones hashed, as
+		 * they are usually much fewer than the present ones */
+		Set<String> addedMembers = new LinkedHashSet<>(members);
+
+		for (String member : this.members) {
+			if (addedMembers.isEmpty())
+				return this;
+
+			addedMembers.remove(member);
+		}
+
+		if (addedMembers.isEmpty())
+			return this;
+
+		List<String> newMembers = new ArrayList<>(this.members.size() + addedMembers.size());
+		newMembers.addAll(this.members);
+		newMembers.addAll(addedMembers);
+		return new StoredEntity(id, text, newMembers);
+	}
+
+	StoredEntity withoutMember(String member) {
+		List<String> newMembers = new ArrayList<>(members);
+		newMembers.remove(member);
+		return new StoredEntity(id, text, newMembers);
+	}
+}
@@ -0,0 +1,184 @@
+package it.unifi.simpletodoapp.repository.memory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import it.unifi.simpletodoapp.model.Page;
+import it.unifi.simpletodoapp.model.Tag;
+import it.unifi.simpletodoapp.repository.MembershipUpdate;
+import it.unifi.simpletodoapp.repository.TagRepository;
+import it.unifi.simpletodoapp.repository.TagRepositoryException;
+
+/* Tags of an MvccStore as seen by a single transaction, listed in ID order;
+ * names are kept unique through the versioned index of the store */
+class TagInMemoryRepository implements TagRepository {
+	private final MvccStore store;
+	private final MvccTransaction transaction;
+
+	TagInMemoryRepository(MvccStore store, MvccTransaction transaction) {
+		this.store = store;
+		this.transaction = transaction;
+	}
+
+	@Override
+	public List<Tag> findAll() {
+		return transaction.scan(store.tags, null, Integer.MAX_VALUE).stream()
+				.map(this::createTagFromStoredEntity)
+				.collect(Collectors.toList());
+	}
+
+	@Override
+	public Stream<Tag> streamAll(int batchSize) {
+		// Everything is already in memory, so there is nothing to fetch in batches
+		return findAll().stream();
+	}
+
+	@Override
+	public long count() {
+		return transaction.count(store.tags);
+	}
+
+	@Override
+	public Page<Tag> findPage(String afterId, int limit) {
+		// Same keyset pagination as TagMongoRepository, fetching one tag more than requested
+		return toTagPage(transaction.scan(store.tags, afterId, limit + 1), limit);
+	}
+
+	@Override
+	public Page<Tag> findPageAt(int offset, int limit) {
+		// The skipped tags are walked in key order without being copied
+		return toTagPage(transaction.scan(store.tags, offset, limit + 1), limit);
+	}
+
+	@Override
+	public Tag findById(String tagId) {
+		StoredEntity storedTag = transaction.read(store.tags, tagId);
+		return storedTag == null ? null : createTagFromStoredEntity(storedTag);
+	}
+
+	@Override
+	public List<Tag> findByIds(List<String> tagIds) {
+		return tagIds.stream()
+				.map(this::findById)
+				.filter(Objects::nonNull)
+				.collect(Collectors.toList());
+	}
+
+	@Override
+	public void save(Tag tag) {
+		if (transaction.read(store.tags, tag.getId()) != null) {
+			throw new TagRepositoryException("Cannot add tag with duplicated ID " + tag.getId());
+		}
+
+		if (transaction.read(store.tagNames, tag.getName()) != null) {
+			throw new TagRepositoryException("Cannot add tag with duplicated name \"" + tag.getName() + "\"");
+		}
+
+		transaction.write(store.tags, tag.getId(),
+				new StoredEntity(tag.getId(), tag.getName(), Collections.emptyList()));
+		transaction.write(store.tagNames, tag.getName(), tag.getId());
+	}
+
+	@Override
+	public void saveAll(List<Tag> tags) {
+		for (Tag tag : tags)
+			save(tag);
+	}
+
+	@Override
+	public void delete(Tag tag) {
+		// The name is freed along with the tag, whatever the name of the given one
+		StoredEntity storedTag = transaction.read(store.tags, tag.getId());
+
+		if (storedTag != null) {
+			transaction.write(store.tags, tag.getId(), null);
+			transaction.write(store.tagNames, storedTag.getText(), null);
+		}
+	}
+
+	@Override
+	public List<String> getTasksByTagId(String tagId) {
+		StoredEntity storedTag = transaction.read(store.tags, tagId);
+		return storedTag == null ? Collections.emptyList() : storedTag.getMembers();
+	}
+
+	@Override
+	public MembershipUpdate addTaskToTag(String tagId, String taskId) {
+		StoredEntity storedTag = transaction.read(store.tags, tagId);
+
+		if (storedTag == null)
+			return MembershipUpdate.NOT_FOUND;
+		else if (storedTag.hasMember(taskId))
+			return MembershipUpdate.NOT_MODIFIED;
+
+		transaction.write(store.tags, tagId, storedTag.withMember(taskId));
+		return MembershipUpdate.MODIFIED;
+	}
+
+	@Override
+	public void addTasksToTags(Map<String, List<String>> taskIdsByTagId) {
+		// Like a single write for each tag, leaving out missing tags and tasks already present
+		for (Map.Entry<String, List<String>> taskIds : taskIdsByTagId.entrySet()) {
+			StoredEntity storedTag = transaction.read(store.tags, taskIds.getKey());
+
+			if (storedTag == null)
+				continue;
+
+			StoredEntity updatedTag = storedTag.withMembers(taskIds.getValue());
+
+			if (updatedTag != storedTag)
+				transaction.write(store.tags, taskIds.getKey(), updatedTag);
+		}
+	}
+
+	@Override
+	public MembershipUpdate removeTaskFromTag(String tagId, String taskId) {
+		StoredEntity storedTag = transaction.read(store.tags, tagId);
+
+		if (storedTag == null)
+			return MembershipUpdate.NOT_FOUND;
+		else if (!storedTag.hasMember(taskId))
+			return MembershipUpdate.NOT_MODIFIED;
+
+		transaction.write(store.tags, tagId, storedTag.withoutMember(taskId));
+		return MembershipUpdate.MODIFIED;
+	}
+
+	@Override
+	public void removeTaskFromAllTags(String taskId) {
+		/* Memberships are stored on both sides, so the tags of the task are the
+		 * only ones to update, instead of walking all tags */
+		StoredEntity storedTask = transaction.read(store.tasks, taskId);
+
+		if (storedTask == null)
+			return;
+
+		for (String tagId : storedTask.getMembers()) {
+			StoredEntity storedTag = transaction.read(store.tags, tagId);
+
+			if (storedTag != null && storedTag.hasMember(taskId))
+				transaction.write(store.tags, tagId, storedTag.withoutMember(taskId));
+		}
+	}
+
+	private Page<Tag> toTagPage(List<StoredEntity> storedTags, int limit) {
+		List<Tag> tags = storedTags.stream()
+				.map(this::createTagFromStoredEntity)
+				.collect(Collectors.toList());
+
+		if (tags.size() <= limit)
+			return new Page<>(tags, null);
+
+		List<Tag> pageTags = tags.subList(0, limit);
+		return new Page<>(new ArrayList<>(pageTags), pageTags.get(limit - 1).getId());
+	}
+
+	private Tag createTagFromStoredEntity(StoredEntity storedTag) {
+		return new Tag(storedTag.getId(), storedTag.getText());
+	}
+}
@@ -0,0 +1,165 @@
+package it.unifi.simpletodoapp.repository.memory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import it.unifi.simpletodoapp.model.Page;
+import it.unifi.simpletodoapp.model.Task;
+import it.unifi.simpletodoapp.repository.MembershipUpdate;
+import it.unifi.simpletodoapp.repository.TaskRepository;
+import it.unifi.simpletodoapp.repository.TaskRepositoryException;
+
+/* Tasks of an MvccStore as seen by a single transaction, listed in ID order */
+class TaskInMemoryRepository implements TaskRepository {
+	private final MvccStore store;
+	private final MvccTransaction transaction;
+
+	TaskInMemoryRepository(MvccStore store, MvccTransaction transaction) {
+		this.store = store;
+		this.transaction = transaction;
+	}
+
+	@Override
+	public List<Task> findAll() {
+		return transaction.scan(store.tasks, null, Integer.MAX_VALUE).stream()
+				.map(this::createTaskFromStoredEntity)
+				.collect(Collectors.toList());
+	}
+
+	@Override
+	public Stream<Task> streamAll(int batchSize) {
+		// Everything is already in memory, so there is nothing to fetch in batches
+		return findAll().stream();
+	}
+
+	@Override
+	public long count() {
+		return transaction.count(store.tasks);
+	}
+
+	@Override
+	public Page<Task> findPage(String afterId, int limit) {
+		// Same keyset pagination as TaskMongoRepository, fetching one task more than requested
+		return toTaskPage(transaction.scan(store.tasks, afterId, limit + 1), limit);
+	}
+
+	@Override
+	public Page<Task> findPageAt(int offset, int limit) {
+		// The skipped tasks are walked in key order without being copied
+		return toTaskPage(transaction.scan(store.tasks, offset, limit + 1), limit);
+	}
+
+	@Override
+	public Task findById(String taskId) {
+		StoredEntity storedTask = transaction.read(store.tasks, taskId);
+		return storedTask == null ? null : createTaskFromStoredEntity(storedTask);
+	}
+
+	@Override
+	public List<Task> findByIds(List<String> taskIds) {
+		return taskIds.stream()
+				.map(this::findById)
+				.filter(Objects::nonNull)
+				.collect(Collectors.toList());
+	}
+
+	@Override
+	public void save(Task task) {
+		if (transaction.read(store.tasks, task.getId()) != null) {
+			throw new TaskRepositoryException("Cannot add task with duplicated ID " + task.getId());
+		}
+
+		transaction.write(store.tasks, task.getId(),
+				new StoredEntity(task.getId(), task.getDescription(), Collections.emptyList()));
+	}
+
+	@Override
+	public void saveAll(List<Task> tasks, Map<String, List<String>> tagIdsByTaskId) {
+		for (Task task : tasks) {
+			if (transaction.read(store.tasks, task.getId()) != null) {
+				throw new TaskRepositoryException("Cannot add task with duplicated ID " + task.getId());
+			}
+
+			List<String> tagIds = tagIdsByTaskId.getOrDefault(task.getId(), Collections.emptyList());
+			transaction.write(store.tasks, task.getId(),
+					new StoredEntity(task.getId(), task.getDescription(), new ArrayList<>(tagIds)));
+		}
+	}
+
+	@Override
+	public void delete(Task task) {
+		// Deleting a missing task leaves nothing to conflict with
+		if (transaction.read(store.tasks, task.getId()) != null)
+			transaction.write(store.tasks, task.getId(), null);
+	}
+
+	@Override
+	public List<String> getTagsByTaskId(String taskId) {
+		StoredEntity storedTask = transaction.read(store.tasks, taskId);
+		return storedTask == null ? Collections.emptyList() : storedTask.getMembers();
+	}
+
+	@Override
+	public MembershipUpdate addTagToTask(String taskId, String tagId) {
+		StoredEntity storedTask = transaction.read(store.tasks, taskId);
+
+		if (storedTask == null)
+			return MembershipUpdate.NOT_FOUND;
+		else if (storedTask.hasMember(tagId))
+			return MembershipUpdate.NOT_MODIFIED;
+
+		transaction.write(store.tasks, taskId, storedTask.withMember(tagId));
+		return MembershipUpdate.MODIFIED;
+	}
+
+	@Override
+	public MembershipUpdate removeTagFromTask(String taskId, String tagId) {
+		StoredEntity storedTask = transaction.read(store.tasks, taskId);
+
+		if (storedTask == null)
+			return MembershipUpdate.NOT_FOUND;
+		else if (!storedTask.hasMember(tagId))
+			return MembershipUpdate.NOT_MODIFIED;
+
+		transaction.write(store.tasks, taskId, storedTask.withoutMember(tagId));
+		return MembershipUpdate.MODIFIED;
+	}
+
+	@Override
+	public void removeTagFromAllTasks(String tagId) {
+		/* Memberships are stored on both sides, so the tasks of the tag are the
+		 * only ones to update, instead of walking all tasks */
+		StoredEntity storedTag = transaction.read(store.tags, tagId);
+
+		if (storedTag == null)
+			return;
+
+		for (String taskId : storedTag.getMembers()) {
+			StoredEntity storedTask = transaction.read(store.tasks, taskId);
+
+			if (storedTask != null && storedTask.hasMember(tagId))
+				transaction.write(store.tasks, taskId, storedTask.withoutMember(tagId));
+		}
+	}
+
+	private Page<Task> toTaskPage(List<StoredEntity> storedTasks, int limit) {
+		List<Task> tasks = storedTasks.stream()
+				.map(this::createTaskFromStoredEntity)
+				.collect(Collectors.toList());
+
+		if (tasks.size() <= limit)
+			return new Page<>(tasks, null);
+
+		List<Task> pageTasks = tasks.subList(0, limit);
+		return new Page<>(new ArrayList<>(pageTasks), pageTasks.get(limit - 1).getId());
+	}
+
+	private Task createTaskFromStoredEntity(StoredEntity storedTask) {
+		return new Task(storedTask.getId(), storedTask.getText());
+	}
+}
@@ -0,0 +1,142 @@
+package it.unifi.simpletodoapp.repository.memory;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import it.unifi.simpletodoapp.repository.CompositeTransactionCode;
+import it.unifi.simpletodoapp.repository.TagTransactionCode;
+import it.unifi.simpletodoapp.repository.TaskTransactionCode;
+import it.unifi.simpletodoapp.repository.TransactionManager;
+
+/* Embedded TransactionManager keeping tasks and tags in memory, without any
+ * database: every transaction and read works on the snapshot committed when
+ * it begins (snapshot isolation), readers never lock, and a transaction whose
+ * writes overlap those committed by another one after its snapshot is run
+ * again on a newer snapshot, up to the maximum number of attempts. Data is
+ * lost when the application ends, unless commits are also appended to a
+ * commit log, from which they can be replayed at startup */
+public class TransactionManagerInMemory implements TransactionManager {
+	public static final int DEFAULT_MAX_ATTEMPTS = 5;
+
+	private final MvccStore store;
+	private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+	private final AtomicLong commits = new AtomicLong();
+	private final AtomicLong writeConflicts = new AtomicLong();
+
+	public TransactionManagerInMemory() {
+		store = new MvccStore();
+	}
+
+	public TransactionManagerInMemory(CommitLog commitLog) {
+		store = new MvccStore(commitLog);
+	}
+
+	public void useMaxAttempts(int maxAttempts) {
+		if (maxAttempts <= 0) {
+			throw new IllegalArgumentException("Transaction attempts must be positive, got " + maxAttempts);
+		}
+
+		this.maxAttempts = maxAttempts;
+	}
+
+	public long getCommits() {
+		return commits.get();
+	}
+
+	public long getWriteConflicts() {
+		return writeConflicts.get();
+	}
+
+	@Override
+	public <T> T doTaskTransaction(TaskTransactionCode<T> code) {
+		return transaction(transaction -> code.apply(new TaskInMemoryRepository(store, transaction)));
+	}
+
+	@Override
+	public <T> T doTagTransaction(TagTransactionCode<T> code) {
+		return transaction(transaction -> code.apply(new TagInMemoryRepository(store, transaction)));
+	}
+
+	@Override
+	public <T> T doCompositeTransaction(CompositeTransactionCode<T> code) {
+		return transaction(transaction -> code.apply(new TaskInMemoryRepository(store, transaction),
+				new TagInMemoryRepository(store, transaction)));
+	}
+
+	@Override
+	public <T> T doTaskRead(TaskTransactionCode<T> code) {
+		return read(transaction -> code.apply(new TaskInMemoryRepository(store, transaction)));
+	}
+
+	@Override
+	public <T> T doTagRead(TagTransactionCode<T> code) {
+		return read(transaction -> code.apply(new TagInMemoryRepository(store, transaction)));
+	}
+
+	@Override
+	public <T> T doCompositeRead(CompositeTransactionCode<T> code) {
+		return read(transaction -> code.apply(new TaskInMemoryRepository(store, transaction),
+				new TagInMemoryRepository(store, transaction)));
+	}
+
+	public void replay(ByteBuffer record) {
+		// Only meant for recovery, before any transaction runs
+		store.replay(record);
+	}
+
+	public void writeSnapshot(Runnable atSnapshot, OutputStream output) throws IOException {
+		/* Writes every task and tag committed when the action runs, while
+		 * transactions go on, in the format of a single commit record */
+		MvccTransaction transaction = store.beginCheckpoint(atSnapshot);
+
+		try {
+			DataOutputStream dataOutput = new DataOutputStream(output);
+			store.writeSnapshot(transaction, dataOutput);
+			dataOutput.flush();
+		} finally {
+			store.end(transaction);
+		}
+	}
+
+	int retainedVersions() {
+		return store.retainedVersions();
+	}
+
+	private <T> T transaction(Function<MvccTransaction, T> body) {
+		/* Errors thrown by the code discard the writes and are rethrown
+		 * unchanged, while conflicts are only detected at commit */
+		for (int attempt = 1; ; attempt++) {
+			MvccTransaction transaction = store.begin(false);
+
+			try {
+				T value = body.apply(transaction);
+				store.commit(transaction);
+				commits.incrementAndGet();
+				return value;
+			} catch (WriteConflictException e) {
+				writeConflicts.incrementAndGet();
+
+				if (attempt >= maxAttempts)
+					throw e;
+			} finally {
+				store.end(transaction);
+			}
+		}
+	}
+
+	private <T> T read(Function<MvccTransaction, T> body) {
+		// Read-only code fails if it tries to write
+		MvccTransaction transaction = store.begin(true);
+
+		try {
+			return body.apply(transaction);
+		} finally {
+			store.end(transaction);
+		}
+	}
+}
@@ -0,0 +1,200 @@
+package it.unifi.simpletodoapp.repository.memory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/* Values by key, each key keeping the chain of its committed versions from
+ * the newest one, a null value marking a deletion. Readers only follow the
+ * chains, skipping the versions committed after their snapshot, so they never
+ * lock nor wait; versions are only added, and dropped once no snapshot can
+ * see them anymore, by the store while holding its commit lock */
+class VersionedMap<V> {
+	private static final class Version<V> {
+		private final long commitTimestamp;
+		private final V value;
+		private volatile Version<V> previous;
+
+		private Version(long commitTimestamp, V value, Version<V> previous) {
+			this.commitTimestamp = commitTimestamp;
+			this.value = value;
+			this.previous = previous;
+		}
+	}
+
+	// A key whose versions before the given timestamp can be dropped once no snapshot is older
+	private static final class Prunable {
+		private final long commitTimestamp;
+		private final String key;
+
+		private Prunable(long commitTimestamp, String key) {
+			this.commitTimestamp = commitTimestamp;
+			this.key = key;
+		}
+	}
+
+	private final String name;
+	private final ConcurrentSkipListMap<String, Version<V>> heads = new ConcurrentSkipListMap<>();
+
+	/* Keys in the order their versions become droppable, which is the order of
+	 * the commits installing them; only used under the commit lock */
+	private final Queue<Prunable> prunableKeys = new ArrayDeque<>();
+
+	/* Number of keys with a value after each commit, from the one seen by the
+	 * oldest snapshot on, so that counting does not walk the keys */
+	private final ConcurrentSkipListMap<Long, Integer> sizes = new ConcurrentSkipListMap<>();
+	// Number of keys with a value after the last commit; only used under the commit lock
+	private int size;
+
+	VersionedMap(String name) {
+		this.name = name;
+	}
+
+	String getName() {
+		return name;
+	}
+
+	V read(String key, long snapshot) {
+		return visible(heads.get(key), snapshot);
+	}
+
+	List<V> scan(String afterKey, int skip, int limit, long snapshot, NavigableMap<String, V> writes) {
+		/* Merges, in key order, the values visible to the snapshot with the
+		 * writes of the transaction, which take their place, stopping after the
+		 * given number of values or at the end of both; the first values to
+		 * skip are only counted */
+		Iterator<Map.Entry<String, Version<V>>> committed = tail(heads, afterKey).entrySet().iterator();
+		Iterator<Map.Entry<String, V>> written = tail(writes, afterKey).entrySet().iterator();
+		Map.Entry<String, Version<V>> nextCommitted = next(committed);
+		Map.Entry<String, V> nextWritten = next(written);
+		List<V> values = new ArrayList<>();
+		int skipped = 0;
+
+		while (values.size() < limit && (nextCommitted != null || nextWritten != null)) {
+			int order;
+			if (nextCommitted == null)
+				order = 1;
+			else if (nextWritten == null)
+				order = -1;
+			else
+				order = nextCommitted.getKey().compareTo(nextWritten.getKey());
+
+			V value;
+			if (order < 0) {
+				value = visible(nextCommitted.getValue(), snapshot);
+				nextCommitted = next(committed);
+			} else {
+				value = nextWritten.getValue();
+				if (order == 0)
+					nextCommitted = next(committed);
+				nextWritten = next(written);
+			}
+
+			if (value != null && skipped < skip)
+				skipped++;
+			else if (value != null)
+				values.add(value);
+		}
+
+		return values;
+	}
+
+	int count(long snapshot) {
+		Map.Entry<Long, Integer> visibleSize = sizes.floorEntry(snapshot);
+		return visibleSize == null ? 0 : visibleSize.getValue();
+	}
+
+	long latestCommitTimestamp(String key) {
+		// Keys never written, or whose deletion has been dropped, are as old as the store
+		Version<V> head = heads.get(key);
+		return head == null ? 0 : head.commitTimestamp;
+	}
+
+	void install(String key, V value, long commitTimestamp) {
+		Version<V> previous = heads.get(key);
+		heads.put(key, new Version<>(commitTimestamp, value, previous));
+
+		if (previous != null && previous.value != null)
+			size--;
+		if (value != null)
+			size++;
+		sizes.put(commitTimestamp, size);
+
+		// A first version has nothing to drop, unless it is a deletion
+		if (previous != null || value == null)
+			prunableKeys.add(new Prunable(commitTimestamp, key));
+	}
+
+	void collectGarbage(long oldestSnapshot) {
+		/* Every snapshot sees, for each key, the newest version not newer than
+		 * the oldest snapshot or a later one: older versions are dropped, and so
+		 * is the key when that version is a deletion with nothing newer. Only the
+		 * keys made prunable since the last collection are visited, so that an
+		 * old snapshot kept open does not make every commit scan the others */
+		while (!prunableKeys.isEmpty() && prunableKeys.peek().commitTimestamp <= oldestSnapshot)
+			prune(prunableKeys.poll().key, oldestSnapshot);
+
+		Long oldestVisibleSize = sizes.floorKey(oldestSnapshot);
+		if (oldestVisibleSize != null)
+			sizes.headMap(oldestVisibleSize).clear();
+	}
+
+	int retainedVersions() {
+		int versions = 0;
+
+		for (Version<V> head : heads.values()) {
+			for (Version<V> version = head; version != null; version = version.previous)
+				versions++;
+		}
+
+		return versions;
+	}
+
+	Stream<V> stream(long snapshot) {
+		// Walks the keys in order without copying them, skipping the ones deleted for the snapshot
+		return heads.values().stream()
+				.map(head -> visible(head, snapshot))
+				.filter(Objects::nonNull);
+	}
+
+	private void prune(String key, long oldestSnapshot) {
+		// The key may have been pruned already, through an earlier entry
+		Version<V> head = heads.get(key);
+		Version<V> version = head;
+
+		while (version != null && version.commitTimestamp > oldestSnapshot)
+			version = version.previous;
+
+		if (version == null)
+			return;
+
+		version.previous = null;
+
+		if (version == head && head.value == null)
+			heads.remove(key, head);
+	}
+
+	private V visible(Version<V> head, long snapshot) {
+		Version<V> version = head;
+
+		while (version != null && version.commitTimestamp > snapshot)
+			version = version.previous;
+
+		return version == null ? null : version.value;
+	}
+
+	private static <T> NavigableMap<String, T> tail(NavigableMap<String, T> map, String afterKey) {
+		return afterKey == null ? map : map.tailMap(afterKey, false);
+	}
+
+	private static <T> T next(Iterator<T> iterator) {
+		return iterator.hasNext() ? iterator.next() : null;
+	}
+}
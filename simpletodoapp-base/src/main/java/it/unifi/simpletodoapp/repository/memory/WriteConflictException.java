@@ -0,0 +1,9 @@
+package it.unifi.simpletodoapp.repository.memory;
+
+public class WriteConflictException extends RuntimeException {
+	private static final long serialVersionUID = -3270952146378203517L;
+
+	public WriteConflictException(String errorMessage) {
+		super(errorMessage);
+	}
+}
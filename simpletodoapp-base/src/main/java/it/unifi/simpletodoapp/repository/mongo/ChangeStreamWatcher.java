@@ -0,0 +1,351 @@
+package it.unifi.simpletodoapp.repository.mongo;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+
+import com.mongodb.MongoException;
+import com.mongodb.MongoServerException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.UpdateDescription;
+
+import it.unifi.simpletodoapp.model.Tag;
+import it.unifi.simpletodoapp.model.Task;
+import it.unifi.simpletodoapp.repository.TodoChangeListener;
+import it.unifi.simpletodoapp.repository.TodoChangeSource;
+
+/* Watches the tasks and tags collections through a single change stream on
+ * their database, on a thread of its own, notifying the listeners of every
+ * committed change. After a disconnection the stream is resumed from the last
+ * resume token received, so that no change is lost; only when the server no
+ * longer has the changes following the token are listeners told to reload.
+ * The tags of a task are read from its document, the tasks array of tags
+ * being its mirror, and are notified as assignments and unassignments.
+ * Only what is needed to map the changes is kept: the ids of the documents,
+ * deletions reporting nothing else, and the tags of the tasks having any.
+ * This mirror grows with the collections, holding an entry for every task,
+ * and is read whole before the stream is reported open, so both the memory
+ * and the time to open the stream are linear in the number of documents */
+public class ChangeStreamWatcher implements TodoChangeSource {
+	private static final String ID = "id";
+	private static final String DESCRIPTION = "description";
+	private static final String NAME = "name";
+	private static final String TAGS = "tags";
+	private static final String DOCUMENT_KEY = "_id";
+	private static final long MAX_AWAIT_MILLIS = 500;
+	// Server errors reporting that the changes following the resume token are gone
+	private static final List<Integer> HISTORY_LOST_ERRORS = Arrays.asList(136, 280, 286);
+
+	private final MongoDatabase database;
+	private final String tasksCollection;
+	private final String tagsCollection;
+	private final long retryDelayMillis;
+	private final List<ListenerRegistration> listeners = new CopyOnWriteArrayList<>();
+
+	/* Deletions only report the document key, so the id of each document is
+	 * kept, tags being few enough to be kept whole for the assignments;
+	 * only accessed by the watching thread */
+	private final Map<BsonValue, String> taskIdsByKey = new HashMap<>();
+	private final Map<String, Set<String>> tagIdsByTaskId = new HashMap<>();
+	private final Map<BsonValue, Tag> tagsByKey = new HashMap<>();
+	private final Map<String, Tag> tagsById = new HashMap<>();
+
+	private volatile BsonDocument resumeToken;
+	private volatile boolean running;
+	private volatile CountDownLatch streamOpened = new CountDownLatch(1);
+	private Thread watchingThread;
+
+	private static final class ListenerRegistration {
+		private final TodoChangeListener listener;
+		private final Executor executor;
+
+		private ListenerRegistration(TodoChangeListener listener, Executor executor) {
+			this.listener = listener;
+			this.executor = executor;
+		}
+	}
+
+	public ChangeStreamWatcher(MongoClient mongoClient, String dbName,
+			String tasksCollection, String tagsCollection, long retryDelayMillis) {
+		this.database = mongoClient.getDatabase(dbName);
+		this.tasksCollection = tasksCollection;
+		this.tagsCollection = tagsCollection;
+		this.retryDelayMillis = retryDelayMillis;
+	}
+
+	@Override
+	public void addListener(TodoChangeListener listener, Executor executor) {
+		listeners.add(new ListenerRegistration(listener, executor));
+	}
+
+	@Override
+	public void removeListener(TodoChangeListener listener) {
+		listeners.removeIf(registration -> registration.listener == listener);
+	}
+
+	public synchronized void start() {
+		if (running)
+			return;
+
+		running = true;
+		streamOpened = new CountDownLatch(1);
+		watchingThread = new Thread(this::watch, "change-stream-watcher");
+		watchingThread.setDaemon(true);
+		watchingThread.start();
+	}
+
+	public synchronized void stop() throws InterruptedException {
+		// The thread notices it within the maximum await time of the stream
+		running = false;
+
+		if (watchingThread != null)
+			watchingThread.join();
+	}
+
+	public boolean awaitStreamOpened(long timeout, TimeUnit unit) throws InterruptedException {
+		// Changes committed after the stream is opened are always notified
+		return streamOpened.await(timeout, unit);
+	}
+
+	public BsonDocument getResumeToken() {
+		return resumeToken;
+	}
+
+	private void watch() {
+		while (running) {
+			try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = openCursor()) {
+				/* Without a token the known documents are loaded after opening the
+				 * stream, so that the ones written in between are not missed */
+				if (resumeToken == null)
+					loadDocuments();
+
+				streamOpened.countDown();
+				watchChanges(cursor);
+			} catch (MongoServerException exception) {
+				if (HISTORY_LOST_ERRORS.contains(exception.getCode()))
+					restart();
+				else
+					waitBeforeRetrying();
+			} catch (MongoException exception) {
+				// Disconnected: the stream is resumed from the stored token
+				waitBeforeRetrying();
+			}
+		}
+	}
+
+	private MongoChangeStreamCursor<ChangeStreamDocument<Document>> openCursor() {
+		ChangeStreamIterable<Document> changeStream = database
+				.watch(Collections.singletonList(Aggregates.match(
+						Filters.in("ns.coll", tasksCollection, tagsCollection))))
+				.fullDocument(FullDocument.UPDATE_LOOKUP)
+				.maxAwaitTime(MAX_AWAIT_MILLIS, TimeUnit.MILLISECONDS);
+
+		if (resumeToken != null)
+			changeStream = changeStream.resumeAfter(resumeToken);
+
+		return changeStream.cursor();
+	}
+
+	private void watchChanges(MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor) {
+		while (running) {
+			ChangeStreamDocument<Document> change = cursor.tryNext();
+
+			if (change != null && !applyChange(change)) {
+				restart();
+				return;
+			}
+
+			// The token also advances without changes, keeping resumes cheap
+			BsonDocument token = cursor.getResumeToken();
+			if (token != null)
+				resumeToken = token;
+		}
+	}
+
+	private boolean applyChange(ChangeStreamDocument<Document> change) {
+		// Returns false on changes to the collections themselves, e.g. drops
+		switch (change.getOperationType()) {
+		case INSERT:
+		case UPDATE:
+		case REPLACE:
+			documentSaved(change.getNamespace().getCollectionName(),
+					change.getDocumentKey().get(DOCUMENT_KEY), change.getFullDocument(),
+					isFieldChanged(change, DESCRIPTION));
+			return true;
+		case DELETE:
+			documentDeleted(change.getNamespace().getCollectionName(),
+					change.getDocumentKey().get(DOCUMENT_KEY));
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private boolean isFieldChanged(ChangeStreamDocument<Document> change, String field) {
+		// Replacements may change any field, updates list the ones they changed
+		UpdateDescription updateDescription = change.getUpdateDescription();
+
+		if (updateDescription == null)
+			return true;
+
+		return (updateDescription.getUpdatedFields() != null
+				&& updateDescription.getUpdatedFields().containsKey(field))
+				|| (updateDescription.getRemovedFields() != null
+				&& updateDescription.getRemovedFields().contains(field));
+	}
+
+	private void documentSaved(String collection, BsonValue key, Document document, boolean descriptionChanged) {
+		// An updated document deleted in the meantime has no full document: its deletion follows
+		if (document == null)
+			return;
+
+		if (collection.equals(tasksCollection)) {
+			Task task = createTask(document);
+			String previousId = taskIdsByKey.put(key, task.getId());
+
+			if (previousId == null)
+				notifyListeners(listener -> listener.taskAdded(task));
+			else if (descriptionChanged)
+				notifyListeners(listener -> listener.taskChanged(task));
+
+			tagsSaved(task, new LinkedHashSet<>(document.getList(TAGS, String.class, Collections.emptyList())));
+		} else {
+			Tag tag = createTag(document);
+			Tag previousTag = tagsByKey.put(key, tag);
+			tagsById.put(tag.getId(), tag);
+
+			// Updates of the tasks array only mirror the tags of the tasks
+			if (previousTag == null)
+				notifyListeners(listener -> listener.tagAdded(tag));
+			else if (!previousTag.equals(tag))
+				notifyListeners(listener -> listener.tagChanged(tag));
+		}
+	}
+
+	private void tagsSaved(Task task, Set<String> tagIds) {
+		// Most tasks have no tags, and nothing is kept for them
+		Set<String> previousTagIds = tagIds.isEmpty() ?
+				tagIdsByTaskId.remove(task.getId()) : tagIdsByTaskId.put(task.getId(), tagIds);
+
+		if (previousTagIds == null)
+			previousTagIds = Collections.emptySet();
+
+		for (String tagId : tagIds)
+			if (!previousTagIds.contains(tagId))
+				notifyAssignment(task, tagId, true);
+
+		for (String tagId : previousTagIds)
+			if (!tagIds.contains(tagId))
+				notifyAssignment(task, tagId, false);
+	}
+
+	private void notifyAssignment(Task task, String tagId, boolean assigned) {
+		// A tag is always saved before being assigned, and deleted after being unassigned
+		Tag tag = tagsById.get(tagId);
+
+		if (tag == null)
+			return;
+
+		if (assigned)
+			notifyListeners(listener -> listener.tagAssigned(task, tag));
+		else
+			notifyListeners(listener -> listener.tagUnassigned(task, tag));
+	}
+
+	private void documentDeleted(String collection, BsonValue key) {
+		if (collection.equals(tasksCollection)) {
+			String taskId = taskIdsByKey.remove(key);
+			if (taskId != null) {
+				// Its description is gone with the document: listeners identify tasks by id
+				Task task = new Task(taskId, null);
+
+				// The task is removed from its tags in the same transaction
+				tagsSaved(task, Collections.emptySet());
+				notifyListeners(listener -> listener.taskDeleted(task));
+			}
+		} else {
+			Tag tag = tagsByKey.remove(key);
+			if (tag != null) {
+				tagsById.remove(tag.getId());
+				notifyListeners(listener -> listener.tagDeleted(tag));
+			}
+		}
+	}
+
+	private void loadDocuments() {
+		taskIdsByKey.clear();
+		tagIdsByTaskId.clear();
+		tagsByKey.clear();
+		tagsById.clear();
+
+		// Descriptions are not needed, and are not read
+		MongoCollection<Document> taskDocuments = database.getCollection(tasksCollection);
+		for (Document document : taskDocuments.find().projection(Projections.include(ID, TAGS))) {
+			String taskId = document.getString(ID);
+			taskIdsByKey.put(document.toBsonDocument(Document.class, taskDocuments.getCodecRegistry())
+					.get(DOCUMENT_KEY), taskId);
+
+			List<String> tagIds = document.getList(TAGS, String.class, Collections.emptyList());
+			if (!tagIds.isEmpty())
+				tagIdsByTaskId.put(taskId, new LinkedHashSet<>(tagIds));
+		}
+
+		MongoCollection<Document> tagDocuments = database.getCollection(tagsCollection);
+		for (Document document : tagDocuments.find().projection(Projections.include(ID, NAME))) {
+			Tag tag = createTag(document);
+			tagsByKey.put(document.toBsonDocument(Document.class, tagDocuments.getCodecRegistry())
+					.get(DOCUMENT_KEY), tag);
+			tagsById.put(tag.getId(), tag);
+		}
+	}
+
+	private void restart() {
+		// Starts a new stream from the current state of the collections
+		resumeToken = null;
+		notifyListeners(TodoChangeListener::changesLost);
+	}
+
+	private void waitBeforeRetrying() {
+		try {
+			Thread.sleep(retryDelayMillis);
+		} catch (InterruptedException exception) {
+			running = false;
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void notifyListeners(Consumer<TodoChangeListener> notification) {
+		for (ListenerRegistration registration : listeners)
+			registration.executor.execute(() -> notification.accept(registration.listener));
+	}
+
+	private Task createTask(Document document) {
+		return new Task(document.getString(ID), document.getString(DESCRIPTION));
+	}
+
+	private Tag createTag(Document document) {
+		return new Tag(document.getString(ID), document.getString(NAME));
+	}
+}
@@ -0,0 +1,204 @@
+package it.unifi.simpletodoapp.repository.mongo;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.bson.BsonDocument;
+import org.bson.BsonTimestamp;
+
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoClient;
+
+/* Pool of client sessions reused across transactions and reads, instead of
+ * starting and closing a session for each of them. At most maxIdleSessions
+ * are kept between operations, while callers never wait for a session: when
+ * none is idle a new one is started. A thread gets back the session it used
+ * last whenever it is idle, so that its causally consistent reads also follow
+ * its own previous writes; a session that moves to another thread is first
+ * advanced to the latest operation and cluster time of the released ones, so
+ * that its reads still follow the writes completed through the pool. Sessions
+ * are checked before being reused */
+public class ClientSessionPool {
+	// Well below the 30 minutes after which the server expires an idle session
+	public static final long DEFAULT_MAX_IDLE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+	private static final String CLUSTER_TIME = "clusterTime";
+
+	private static final ClientSessionOptions SESSION_OPTIONS = ClientSessionOptions.builder()
+			.causallyConsistent(true)
+			.build();
+
+	private final MongoClient mongoClient;
+	private final int maxIdleSessions;
+	private final long maxIdleNanos;
+	private final LongSupplier nanoClock;
+
+	// Most recently released sessions first, so that idle ones expire at the tail
+	private final Deque<IdleSession> idleSessions = new ArrayDeque<>();
+	private final ThreadLocal<ClientSession> lastSessions = new ThreadLocal<>();
+	private boolean closed;
+	private BsonTimestamp latestOperationTime;
+	private BsonDocument latestClusterTime;
+
+	private final AtomicLong createdSessions = new AtomicLong();
+	private final AtomicLong reusedSessions = new AtomicLong();
+	private final AtomicLong discardedSessions = new AtomicLong();
+
+	private static final class IdleSession {
+		private final ClientSession clientSession;
+		private final long releasedAt;
+
+		private IdleSession(ClientSession clientSession, long releasedAt) {
+			this.clientSession = clientSession;
+			this.releasedAt = releasedAt;
+		}
+	}
+
+	public ClientSessionPool(MongoClient mongoClient, int maxIdleSessions) {
+		this(mongoClient, maxIdleSessions, DEFAULT_MAX_IDLE_MILLIS, System::nanoTime);
+	}
+
+	ClientSessionPool(MongoClient mongoClient, int maxIdleSessions, long maxIdleMillis, LongSupplier nanoClock) {
+		if (maxIdleSessions <= 0) {
+			throw new IllegalArgumentException("Session pool size must be positive, got " + maxIdleSessions);
+		}
+
+		this.mongoClient = mongoClient;
+		this.maxIdleSessions = maxIdleSessions;
+		this.maxIdleNanos = TimeUnit.MILLISECONDS.toNanos(maxIdleMillis);
+		this.nanoClock = nanoClock;
+	}
+
+	public ClientSession acquire() {
+		IdleSession idleSession;
+
+		while ((idleSession = takeIdleSession()) != null) {
+			if (isHealthy(idleSession)) {
+				reusedSessions.incrementAndGet();
+
+				// A session coming back to its thread already follows that thread's writes
+				if (idleSession.clientSession == lastSessions.get())
+					return idleSession.clientSession;
+				return advanceTimes(idleSession.clientSession);
+			}
+
+			discard(idleSession.clientSession);
+		}
+
+		createdSessions.incrementAndGet();
+		return advanceTimes(mongoClient.startSession(SESSION_OPTIONS));
+	}
+
+	public void release(ClientSession clientSession, boolean reusable) {
+		/* Sessions used by failed operations are not reused, since the server
+		 * may not know the outcome of their last command */
+		recordTimes(clientSession);
+
+		if (reusable && !clientSession.hasActiveTransaction()
+				&& !clientSession.getServerSession().isMarkedDirty()
+				&& offer(clientSession)) {
+			lastSessions.set(clientSession);
+			return;
+		}
+
+		lastSessions.remove();
+		discard(clientSession);
+	}
+
+	public void close() {
+		synchronized (this) {
+			closed = true;
+		}
+
+		IdleSession idleSession;
+		while ((idleSession = takeIdleSession()) != null)
+			discard(idleSession.clientSession);
+	}
+
+	public long getCreatedSessions() {
+		return createdSessions.get();
+	}
+
+	public long getReusedSessions() {
+		return reusedSessions.get();
+	}
+
+	public long getDiscardedSessions() {
+		return discardedSessions.get();
+	}
+
+	synchronized int getIdleSessions() {
+		return idleSessions.size();
+	}
+
+	private synchronized IdleSession takeIdleSession() {
+		ClientSession lastSession = lastSessions.get();
+
+		if (lastSession != null) {
+			Iterator<IdleSession> iterator = idleSessions.iterator();
+
+			while (iterator.hasNext()) {
+				IdleSession idleSession = iterator.next();
+
+				if (idleSession.clientSession == lastSession) {
+					iterator.remove();
+					return idleSession;
+				}
+			}
+		}
+
+		return idleSessions.pollFirst();
+	}
+
+	private synchronized boolean offer(ClientSession clientSession) {
+		if (closed || idleSessions.size() >= maxIdleSessions)
+			return false;
+
+		idleSessions.addFirst(new IdleSession(clientSession, nanoClock.getAsLong()));
+		return true;
+	}
+
+	private synchronized void recordTimes(ClientSession clientSession) {
+		BsonTimestamp operationTime = clientSession.getOperationTime();
+		BsonDocument clusterTime = clientSession.getClusterTime();
+
+		if (operationTime != null && (latestOperationTime == null || operationTime.compareTo(latestOperationTime) > 0))
+			latestOperationTime = operationTime;
+
+		if (clusterTime != null && (latestClusterTime == null || clusterTime.getTimestamp(CLUSTER_TIME)
+				.compareTo(latestClusterTime.getTimestamp(CLUSTER_TIME)) > 0))
+			latestClusterTime = clusterTime;
+	}
+
+	private ClientSession advanceTimes(ClientSession clientSession) {
+		// Sessions only ever move their times forward, so older ones are ignored
+		BsonTimestamp operationTime;
+		BsonDocument clusterTime;
+
+		synchronized (this) {
+			operationTime = latestOperationTime;
+			clusterTime = latestClusterTime;
+		}
+
+		if (operationTime != null)
+			clientSession.advanceOperationTime(operationTime);
+		if (clusterTime != null)
+			clientSession.advanceClusterTime(clusterTime);
+		return clientSession;
+	}
+
+	private boolean isHealthy(IdleSession idleSession) {
+		return nanoClock.getAsLong() - idleSession.releasedAt < maxIdleNanos
+				&& !idleSession.clientSession.getServerSession().isClosed();
+	}
+
+	private void discard(ClientSession clientSession) {
+		discardedSessions.incrementAndGet();
+		clientSession.close();
+	}
+}
@@ -1,30 +1,88 @@
 package it.unifi.simpletodoapp.repository.mongo;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import org.bson.Document;
+import org.bson.conversions.Bson;
 
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.ReadConcern;
+import com.mongodb.bulk.BulkWriteError;
 import com.mongodb.client.ClientSession;
+import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.Updates;
+import com.mongodb.client.result.UpdateResult;
 
+import it.unifi.simpletodoapp.model.Page;
 import it.unifi.simpletodoapp.model.Tag;
+import it.unifi.simpletodoapp.repository.MembershipUpdate;
+import it.unifi.simpletodoapp.repository.TagRepository;
+import it.unifi.simpletodoapp.repository.TagRepositoryException;
 
 public class TagMongoRepository {
 	private static final String ID = "id";
 	private static final String NAME = "name";
 	private static final String TASKS = "tasks";
+	private static final String NAME_INDEX = "name_unique";
 
 	private MongoCollection<Document> tagCollection;
 
 	public TagMongoRepository(MongoClient mongoClient, String dbName, String dbCollection) {
+		/* Majority read concern only applies to reads outside transactions, since
+		 * operations within a transaction inherit the transaction read concern */
 		tagCollection = mongoClient.getDatabase(dbName)
-				.getCollection(dbCollection);
+				.getCollection(dbCollection)
+				.withReadConcern(ReadConcern.MAJORITY);
+	}
+
+	public void ensureIndexes() {
+		/* Unique indexes on the custom ID field, which serves every lookup by ID,
+		 * and on the tag name, so that the database itself rejects duplicates; the
+		 * multikey index on the tasks array serves the removal of a task from all
+		 * its tags. Called once at startup, since it needs the database */
+		createUniqueIndex(ID, new IndexOptions());
+		createUniqueIndex(NAME, new IndexOptions().name(NAME_INDEX));
+		tagCollection.createIndex(Indexes.ascending(TASKS));
+	}
+
+	private void createUniqueIndex(String field, IndexOptions indexOptions) {
+		// Fails when tags saved before the index existed already share a value
+		try {
+			tagCollection.createIndex(Indexes.ascending(field), indexOptions.unique(true));
+		} catch (MongoCommandException e) {
+			if (ErrorCategory.fromErrorCode(e.getErrorCode()) == ErrorCategory.DUPLICATE_KEY) {
+				throw new IllegalStateException("Cannot create the unique index on \"" + field + "\" of collection "
+						+ tagCollection.getNamespace() + ": some tags have the same " + field
+						+ ", change or delete the duplicates and restart", e);
+			}
+
+			throw e;
+		}
+	}
+
+	public TagRepository withSession(ClientSession clientSession) {
+		return new SessionTagRepository(clientSession);
 	}
 
 	public List<Tag> findAll(ClientSession clientSession) {
@@ -34,6 +92,43 @@ public class TagMongoRepository {
 				.collect(Collectors.toList());
 	}
 
+	public Stream<Tag> streamAll(ClientSession clientSession, int batchSize) {
+		/* Lazily decodes the tags fetching them from the cursor in batches of the
+		 * given size; the stream must be closed to release the server cursor and
+		 * consumed before the ClientSession is closed */
+		MongoCursor<Document> cursor = tagCollection.find(clientSession)
+				.batchSize(batchSize)
+				.iterator();
+
+		return StreamSupport
+				.stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED | Spliterator.NONNULL), false)
+				.onClose(cursor::close)
+				.map(this::createTagFromMongoDocument);
+	}
+
+	public long count(ClientSession clientSession) {
+		return tagCollection.countDocuments(clientSession);
+	}
+
+	public Page<Tag> findPage(String afterId, int limit, ClientSession clientSession) {
+		/* Keyset pagination on the indexed ID field: the page starts right after
+		 * the given ID (or from the first tag when null), and one tag more
+		 * than requested is fetched to know whether a next page exists */
+		Bson filter = afterId == null ? new Document() : Filters.gt(ID, afterId);
+		return toTagPage(tagCollection.find(clientSession, filter)
+				.sort(Sorts.ascending(ID))
+				.limit(limit + 1), limit);
+	}
+
+	public Page<Tag> findPageAt(int offset, int limit, ClientSession clientSession) {
+		/* Jumps to a page without knowing the cursor of the previous one: the
+		 * server skips the first tags along the ID index, in a single round trip */
+		return toTagPage(tagCollection.find(clientSession)
+				.sort(Sorts.ascending(ID))
+				.skip(offset)
+				.limit(limit + 1), limit);
+	}
+
 	public Tag findById(String tagId, ClientSession clientSession) {
 		Document document = tagCollection.find(clientSession, Filters.eq(ID, tagId))
 				.first();
@@ -44,12 +139,66 @@ public class TagMongoRepository {
 			return null;
 	}
 
+	public List<Tag> findByIds(List<String> tagIds, ClientSession clientSession) {
+		/* Retrieve all the requested tags with a single query, then return
+		 * them in the same order as the given IDs skipping the missing ones; a
+		 * repeated requested ID returns its tag again, the merge function only
+		 * guarding the map, since the unique index rules out repeated documents */
+		Map<String, Tag> tagsById = StreamSupport
+				.stream(tagCollection.find(clientSession, Filters.in(ID, tagIds)).spliterator(), false)
+				.map(this::createTagFromMongoDocument)
+				.collect(Collectors.toMap(Tag::getId, Function.identity(), (first, duplicate) -> first));
+
+		return tagIds.stream()
+				.map(tagsById::get)
+				.filter(Objects::nonNull)
+				.collect(Collectors.toList());
+	}
+
 	public void save(Tag tag, ClientSession clientSession) {
-		tagCollection.insertOne(clientSession, new Document()
-				.append(ID, tag.getId())
-				.append(NAME, tag.getName())
-				.append(TASKS, Collections.emptyList())
-				);		
+		try {
+			tagCollection.insertOne(clientSession, new Document()
+					.append(ID, tag.getId())
+					.append(NAME, tag.getName())
+					.append(TASKS, Collections.emptyList())
+					);
+		} catch (MongoWriteException e) {
+			if (ErrorCategory.fromErrorCode(e.getCode()) == ErrorCategory.DUPLICATE_KEY) {
+				throw duplicatedTagException(tag, false);
+			}
+
+			throw e;
+		}
+	}
+
+	public void saveAll(List<Tag> tags, ClientSession clientSession) {
+		// A single round trip for the whole batch
+		if (tags.isEmpty())
+			return;
+
+		List<Document> documents = tags.stream()
+				.map(tag -> new Document()
+						.append(ID, tag.getId())
+						.append(NAME, tag.getName())
+						.append(TASKS, Collections.emptyList()))
+				.collect(Collectors.toList());
+
+		try {
+			tagCollection.insertMany(clientSession, documents);
+		} catch (MongoBulkWriteException e) {
+			// Ordered inserts stop at the first error, which points to the tag that caused it
+			BulkWriteError error = e.getWriteErrors().get(0);
+
+			if (ErrorCategory.fromErrorCode(error.getCode()) == ErrorCategory.DUPLICATE_KEY) {
+				Tag tag = tags.get(error.getIndex());
+				boolean idInBatch = tags.subList(0, error.getIndex()).stream()
+						.anyMatch(savedTag -> savedTag.getId().equals(tag.getId()));
+
+				throw duplicatedTagException(tag, idInBatch);
+			}
+
+			throw e;
+		}
 	}
 
 	public void delete(Tag tag, ClientSession clientSession) {
@@ -63,17 +212,155 @@ public class TagMongoRepository {
 				.getList(TASKS, String.class);
 	}
 
-	public void addTaskToTag(String tagId, String taskId, ClientSession clientSession) {
-		tagCollection.updateOne(clientSession, Filters.eq(ID, tagId), 
-				Updates.push(TASKS, taskId));
+	public MembershipUpdate addTaskToTag(String tagId, String taskId, ClientSession clientSession) {
+		// The task is only added if not already present, leaving the document untouched otherwise
+		return toMembershipUpdate(tagCollection.updateOne(clientSession, Filters.eq(ID, tagId), 
+				Updates.addToSet(TASKS, taskId)));
+	}
+
+	public void addTasksToTags(Map<String, List<String>> taskIdsByTagId, ClientSession clientSession) {
+		/* One update for each tag, all sent in a single bulk write, each one only
+		 * adding the tasks not already present; missing tags are left alone */
+		if (taskIdsByTagId.isEmpty())
+			return;
+
+		List<UpdateOneModel<Document>> updates = taskIdsByTagId.entrySet().stream()
+				.map(taskIds -> new UpdateOneModel<Document>(Filters.eq(ID, taskIds.getKey()),
+						Updates.addEachToSet(TASKS, taskIds.getValue())))
+				.collect(Collectors.toList());
+
+		tagCollection.bulkWrite(clientSession, updates);
+	}
+
+	public MembershipUpdate removeTaskFromTag(String tagId, String taskId, ClientSession clientSession) {
+		return toMembershipUpdate(tagCollection.updateOne(clientSession, Filters.eq(ID, tagId), 
+				Updates.pull(TASKS, taskId)));
 	}
 
-	public void removeTaskFromTag(String tagId, String taskId, ClientSession clientSession) {
-		tagCollection.updateOne(clientSession, Filters.eq(ID, tagId), 
+	public void removeTaskFromAllTags(String taskId, ClientSession clientSession) {
+		// Single multi-document update that relies on the multikey index on the tasks array
+		tagCollection.updateMany(clientSession, Filters.eq(TASKS, taskId), 
 				Updates.pull(TASKS, taskId));
 	}
 
+	private MembershipUpdate toMembershipUpdate(UpdateResult updateResult) {
+		if (updateResult.getMatchedCount() == 0)
+			return MembershipUpdate.NOT_FOUND;
+		else if (updateResult.getModifiedCount() == 0)
+			return MembershipUpdate.NOT_MODIFIED;
+		else
+			return MembershipUpdate.MODIFIED;
+	}
+
+	private Page<Tag> toTagPage(FindIterable<Document> documents, int limit) {
+		List<Tag> tags = StreamSupport.stream(documents.spliterator(), false)
+				.map(this::createTagFromMongoDocument)
+				.collect(Collectors.toList());
+
+		if (tags.size() <= limit)
+			return new Page<>(tags, null);
+
+		List<Tag> pageTags = tags.subList(0, limit);
+		return new Page<>(new ArrayList<>(pageTags), pageTags.get(limit - 1).getId());
+	}
+
+	private TagRepositoryException duplicatedTagException(Tag tag, boolean idInBatch) {
+		/* The error does not tell which unique index was violated, and the
+		 * failed write aborts any transaction: a tag already committed with the
+		 * same ID (or saved earlier in the batch) means a duplicated ID,
+		 * otherwise the name is the duplicate */
+		if (idInBatch || tagCollection.find(Filters.eq(ID, tag.getId())).first() != null)
+			return new TagRepositoryException("Cannot add tag with duplicated ID " + tag.getId());
+
+		return new TagRepositoryException("Cannot add tag with duplicated name \"" + tag.getName() + "\"");
+	}
+
 	private Tag createTagFromMongoDocument(Document document) {
 		return new Tag(document.getString(ID), document.getString(NAME));
 	}
+
+	/* View of the repository bound to a session, handed to the code run by
+	 * TransactionManagerMongo, which only ever sees the TagRepository */
+	private class SessionTagRepository implements TagRepository {
+		private final ClientSession clientSession;
+
+		private SessionTagRepository(ClientSession clientSession) {
+			this.clientSession = clientSession;
+		}
+
+		@Override
+		public List<Tag> findAll() {
+			return TagMongoRepository.this.findAll(clientSession);
+		}
+
+		@Override
+		public Stream<Tag> streamAll(int batchSize) {
+			return TagMongoRepository.this.streamAll(clientSession, batchSize);
+		}
+
+		@Override
+		public long count() {
+			return TagMongoRepository.this.count(clientSession);
+		}
+
+		@Override
+		public Page<Tag> findPage(String afterId, int limit) {
+			return TagMongoRepository.this.findPage(afterId, limit, clientSession);
+		}
+
+		@Override
+		public Page<Tag> findPageAt(int offset, int limit) {
+			return TagMongoRepository.this.findPageAt(offset, limit, clientSession);
+		}
+
+		@Override
+		public Tag findById(String tagId) {
+			return TagMongoRepository.this.findById(tagId, clientSession);
+		}
+
+		@Override
+		public List<Tag> findByIds(List<String> tagIds) {
+			return TagMongoRepository.this.findByIds(tagIds, clientSession);
+		}
+
+		@Override
+		public void save(Tag tag) {
+			TagMongoRepository.this.save(tag, clientSession);
+		}
+
+		@Override
+		public void saveAll(List<Tag> tags) {
+			TagMongoRepository.this.saveAll(tags, clientSession);
+		}
+
+		@Override
+		public void delete(Tag tag) {
+			TagMongoRepository.this.delete(tag, clientSession);
+		}
+
+		@Override
+		public List<String> getTasksByTagId(String tagId) {
+			return TagMongoRepository.this.getTasksByTagId(tagId, clientSession);
+		}
+
+		@Override
+		public MembershipUpdate addTaskToTag(String tagId, String taskId) {
+			return TagMongoRepository.this.addTaskToTag(tagId, taskId, clientSession);
+		}
+
+		@Override
+		public void addTasksToTags(Map<String, List<String>> taskIdsByTagId) {
+			TagMongoRepository.this.addTasksToTags(taskIdsByTagId, clientSession);
+		}
+
+		@Override
+		public MembershipUpdate removeTaskFromTag(String tagId, String taskId) {
+			return TagMongoRepository.this.removeTaskFromTag(tagId, taskId, clientSession);
+		}
+
+		@Override
+		public void removeTaskFromAllTags(String taskId) {
+			TagMongoRepository.this.removeTaskFromAllTags(taskId, clientSession);
+		}
+	}
 }
\ No newline at end of file
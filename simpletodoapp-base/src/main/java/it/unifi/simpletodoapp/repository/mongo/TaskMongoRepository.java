@@ -1,19 +1,43 @@
 package it.unifi.simpletodoapp.repository.mongo;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import org.bson.Document;
+import org.bson.conversions.Bson;
 
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.ReadConcern;
+import com.mongodb.bulk.BulkWriteError;
 import com.mongodb.client.ClientSession;
+import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Sorts;
 import com.mongodb.client.model.Updates;
+import com.mongodb.client.result.UpdateResult;
 
+import it.unifi.simpletodoapp.model.Page;
 import it.unifi.simpletodoapp.model.Task;
+import it.unifi.simpletodoapp.repository.MembershipUpdate;
+import it.unifi.simpletodoapp.repository.TaskRepository;
+import it.unifi.simpletodoapp.repository.TaskRepositoryException;
 
 public class TaskMongoRepository {
 	private static final String ID = "id";
@@ -23,8 +47,35 @@ public class TaskMongoRepository {
 	private MongoCollection<Document> taskCollection;
 
 	public TaskMongoRepository(MongoClient mongoClient, String dbName, String dbCollection) {
+		/* Majority read concern only applies to reads outside transactions, since
+		 * operations within a transaction inherit the transaction read concern */
 		taskCollection = mongoClient.getDatabase(dbName)
-				.getCollection(dbCollection);
+				.getCollection(dbCollection)
+				.withReadConcern(ReadConcern.MAJORITY);
+	}
+
+	public void ensureIndexes() {
+		/* Unique index on the custom ID field: it serves every lookup by ID and
+		 * lets the database itself reject tasks with a duplicated ID; the multikey
+		 * index on the tags array serves the removal of a tag from all its tasks.
+		 * Called once at startup, since it needs the database */
+		try {
+			taskCollection.createIndex(Indexes.ascending(ID), new IndexOptions().unique(true));
+		} catch (MongoCommandException e) {
+			// Fails when tasks saved before the index existed already share an ID
+			if (ErrorCategory.fromErrorCode(e.getErrorCode()) == ErrorCategory.DUPLICATE_KEY) {
+				throw new IllegalStateException("Cannot create the unique index on \"" + ID + "\" of collection "
+						+ taskCollection.getNamespace() + ": some tasks have the same " + ID
+						+ ", change or delete the duplicates and restart", e);
+			}
+
+			throw e;
+		}
+		taskCollection.createIndex(Indexes.ascending(TAGS));
+	}
+
+	public TaskRepository withSession(ClientSession clientSession) {
+		return new SessionTaskRepository(clientSession);
 	}
 
 	public List<Task> findAll(ClientSession clientSession) {
@@ -34,6 +85,43 @@ public class TaskMongoRepository {
 				.collect(Collectors.toList());
 	}
 
+	public Stream<Task> streamAll(ClientSession clientSession, int batchSize) {
+		/* Lazily decodes the tasks fetching them from the cursor in batches of the
+		 * given size; the stream must be closed to release the server cursor and
+		 * consumed before the ClientSession is closed */
+		MongoCursor<Document> cursor = taskCollection.find(clientSession)
+				.batchSize(batchSize)
+				.iterator();
+
+		return StreamSupport
+				.stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED | Spliterator.NONNULL), false)
+				.onClose(cursor::close)
+				.map(this::createTaskFromMongoDocument);
+	}
+
+	public long count(ClientSession clientSession) {
+		return taskCollection.countDocuments(clientSession);
+	}
+
+	public Page<Task> findPage(String afterId, int limit, ClientSession clientSession) {
+		/* Keyset pagination on the indexed ID field: the page starts right after
+		 * the given ID (or from the first task when null), and one task more
+		 * than requested is fetched to know whether a next page exists */
+		Bson filter = afterId == null ? new Document() : Filters.gt(ID, afterId);
+		return toTaskPage(taskCollection.find(clientSession, filter)
+				.sort(Sorts.ascending(ID))
+				.limit(limit + 1), limit);
+	}
+
+	public Page<Task> findPageAt(int offset, int limit, ClientSession clientSession) {
+		/* Jumps to a page without knowing the cursor of the previous one: the
+		 * server skips the first tasks along the ID index, in a single round trip */
+		return toTaskPage(taskCollection.find(clientSession)
+				.sort(Sorts.ascending(ID))
+				.skip(offset)
+				.limit(limit + 1), limit);
+	}
+
 	public Task findById(String taskId, ClientSession clientSession) {
 		Document document = taskCollection.find(clientSession, Filters.eq(ID, taskId))
 				.first();
@@ -44,12 +132,63 @@ public class TaskMongoRepository {
 			return null;
 	}
 
+	public List<Task> findByIds(List<String> taskIds, ClientSession clientSession) {
+		/* Retrieve all the requested tasks with a single query, then return
+		 * them in the same order as the given IDs skipping the missing ones; a
+		 * repeated requested ID returns its task again, the merge function only
+		 * guarding the map, since the unique index rules out repeated documents */
+		Map<String, Task> tasksById = StreamSupport
+				.stream(taskCollection.find(clientSession, Filters.in(ID, taskIds)).spliterator(), false)
+				.map(this::createTaskFromMongoDocument)
+				.collect(Collectors.toMap(Task::getId, Function.identity(), (first, duplicate) -> first));
+
+		return taskIds.stream()
+				.map(tasksById::get)
+				.filter(Objects::nonNull)
+				.collect(Collectors.toList());
+	}
+
 	public void save(Task task, ClientSession clientSession) {
-		taskCollection.insertOne(clientSession, new Document()
-				.append(ID, task.getId())
-				.append(DESCRIPTION, task.getDescription())
-				.append(TAGS, Collections.emptyList())
-				);		
+		try {
+			taskCollection.insertOne(clientSession, new Document()
+					.append(ID, task.getId())
+					.append(DESCRIPTION, task.getDescription())
+					.append(TAGS, Collections.emptyList())
+					);
+		} catch (MongoWriteException e) {
+			if (ErrorCategory.fromErrorCode(e.getCode()) == ErrorCategory.DUPLICATE_KEY) {
+				throw new TaskRepositoryException("Cannot add task with duplicated ID " + task.getId());
+			}
+
+			throw e;
+		}
+	}
+
+	public void saveAll(List<Task> tasks, Map<String, List<String>> tagIdsByTaskId,
+			ClientSession clientSession) {
+		// A single round trip for the whole batch, each task inserted along with its tags
+		if (tasks.isEmpty())
+			return;
+
+		List<Document> documents = tasks.stream()
+				.map(task -> new Document()
+						.append(ID, task.getId())
+						.append(DESCRIPTION, task.getDescription())
+						.append(TAGS, tagIdsByTaskId.getOrDefault(task.getId(), Collections.emptyList())))
+				.collect(Collectors.toList());
+
+		try {
+			taskCollection.insertMany(clientSession, documents);
+		} catch (MongoBulkWriteException e) {
+			// Ordered inserts stop at the first error, which points to the task that caused it
+			BulkWriteError error = e.getWriteErrors().get(0);
+
+			if (ErrorCategory.fromErrorCode(error.getCode()) == ErrorCategory.DUPLICATE_KEY) {
+				throw new TaskRepositoryException("Cannot add task with duplicated ID " + tasks.get(error.getIndex()).getId());
+			}
+
+			throw e;
+		}
 	}
 
 	public void delete(Task task, ClientSession clientSession) {
@@ -63,17 +202,125 @@ public class TaskMongoRepository {
 
 	}
 
-	public void addTagToTask(String taskId, String tagId, ClientSession clientSession) {
-		taskCollection.updateOne(clientSession, Filters.eq(ID, taskId), 
-				Updates.push(TAGS, tagId));
+	public MembershipUpdate addTagToTask(String taskId, String tagId, ClientSession clientSession) {
+		// The tag is only added if not already present, leaving the document untouched otherwise
+		return toMembershipUpdate(taskCollection.updateOne(clientSession, Filters.eq(ID, taskId), 
+				Updates.addToSet(TAGS, tagId)));
 	}
 
-	public void removeTagFromTask(String taskId, String tagId, ClientSession clientSession) {
-		taskCollection.updateOne(clientSession, Filters.eq(ID, taskId), 
+	public MembershipUpdate removeTagFromTask(String taskId, String tagId, ClientSession clientSession) {
+		return toMembershipUpdate(taskCollection.updateOne(clientSession, Filters.eq(ID, taskId), 
+				Updates.pull(TAGS, tagId)));
+	}
+
+	public void removeTagFromAllTasks(String tagId, ClientSession clientSession) {
+		// Single multi-document update that relies on the multikey index on the tags array
+		taskCollection.updateMany(clientSession, Filters.eq(TAGS, tagId), 
 				Updates.pull(TAGS, tagId));
 	}
 
+	private MembershipUpdate toMembershipUpdate(UpdateResult updateResult) {
+		if (updateResult.getMatchedCount() == 0)
+			return MembershipUpdate.NOT_FOUND;
+		else if (updateResult.getModifiedCount() == 0)
+			return MembershipUpdate.NOT_MODIFIED;
+		else
+			return MembershipUpdate.MODIFIED;
+	}
+
+	private Page<Task> toTaskPage(FindIterable<Document> documents, int limit) {
+		List<Task> tasks = StreamSupport.stream(documents.spliterator(), false)
+				.map(this::createTaskFromMongoDocument)
+				.collect(Collectors.toList());
+
+		if (tasks.size() <= limit)
+			return new Page<>(tasks, null);
+
+		List<Task> pageTasks = tasks.subList(0, limit);
+		return new Page<>(new ArrayList<>(pageTasks), pageTasks.get(limit - 1).getId());
+	}
+
 	private Task createTaskFromMongoDocument(Document document) {
 		return new Task(document.getString(ID), document.getString(DESCRIPTION));
 	}
+
+	/* View of the repository bound to a session, handed to the code run by
+	 * TransactionManagerMongo, which only ever sees the TaskRepository */
+	private class SessionTaskRepository implements TaskRepository {
+		private final ClientSession clientSession;
+
+		private SessionTaskRepository(ClientSession clientSession) {
+			this.clientSession = clientSession;
+		}
+
+		@Override
+		public List<Task> findAll() {
+			return TaskMongoRepository.this.findAll(clientSession);
+		}
+
+		@Override
+		public Stream<Task> streamAll(int batchSize) {
+			return TaskMongoRepository.this.streamAll(clientSession, batchSize);
+		}
+
+		@Override
+		public long count() {
+			return TaskMongoRepository.this.count(clientSession);
+		}
+
+		@Override
+		public Page<Task> findPage(String afterId, int limit) {
+			return TaskMongoRepository.this.findPage(afterId, limit, clientSession);
+		}
+
+		@Override
+		public Page<Task> findPageAt(int offset, int limit) {
+			return TaskMongoRepository.this.findPageAt(offset, limit, clientSession);
+		}
+
+		@Override
+		public Task findById(String taskId) {
+			return TaskMongoRepository.this.findById(taskId, clientSession);
+		}
+
+		@Override
+		public List<Task> findByIds(List<String> taskIds) {
+			return TaskMongoRepository.this.findByIds(taskIds, clientSession);
+		}
+
+		@Override
+		public void save(Task task) {
+			TaskMongoRepository.this.save(task, clientSession);
+		}
+
+		@Override
+		public void saveAll(List<Task> tasks, Map<String, List<String>> tagIdsByTaskId) {
+			TaskMongoRepository.this.saveAll(tasks, tagIdsByTaskId, clientSession);
+		}
+
+		@Override
+		public void delete(Task task) {
+			TaskMongoRepository.this.delete(task, clientSession);
+		}
+
+		@Override
+		public List<String> getTagsByTaskId(String taskId) {
+			return TaskMongoRepository.this.getTagsByTaskId(taskId, clientSession);
+		}
+
+		@Override
+		public MembershipUpdate addTagToTask(String taskId, String tagId) {
+			return TaskMongoRepository.this.addTagToTask(taskId, tagId, clientSession);
+		}
+
+		@Override
+		public MembershipUpdate removeTagFromTask(String taskId, String tagId) {
+			return TaskMongoRepository.this.removeTagFromTask(taskId, tagId, clientSession);
+		}
+
+		@Override
+		public void removeTagFromAllTasks(String tagId) {
+			TaskMongoRepository.this.removeTagFromAllTasks(tagId, clientSession);
+		}
+	}
 }
\ No newline at end of file
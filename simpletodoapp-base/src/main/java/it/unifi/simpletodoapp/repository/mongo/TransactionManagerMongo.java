@@ -1,5 +1,10 @@
 package it.unifi.simpletodoapp.repository.mongo;
 
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.mongodb.ClientSessionOptions;
 import com.mongodb.MongoException;
 import com.mongodb.client.ClientSession;
 import com.mongodb.client.MongoClient;
@@ -11,34 +16,69 @@ import it.unifi.simpletodoapp.repository.TaskTransactionCode;
 import it.unifi.simpletodoapp.repository.TransactionManager;
 
 public class TransactionManagerMongo implements TransactionManager {
+	public enum TransactionType {
+		TASK, TAG, COMPOSITE
+	}
+
 	private MongoClient mongoClient;
 	private TaskMongoRepository taskMongoRepository;
 	private TagMongoRepository tagMongoRepository;
+	private ClientSessionPool sessionPool;
+	private TransactionRetryPolicy retryPolicy = new TransactionRetryPolicy();
+
+	// Every attempt either commits or is aborted, to be retried or not
+	private final Map<TransactionType, AtomicLong> attempts = new EnumMap<>(TransactionType.class);
+	private final Map<TransactionType, AtomicLong> aborts = new EnumMap<>(TransactionType.class);
 
 	public TransactionManagerMongo(MongoClient mongoClient, TaskMongoRepository taskMongoRepository,
 			TagMongoRepository tagMongoRepository) {
 		this.mongoClient = mongoClient;
 		this.taskMongoRepository = taskMongoRepository;
 		this.tagMongoRepository = tagMongoRepository;
+
+		for (TransactionType type : TransactionType.values()) {
+			attempts.put(type, new AtomicLong());
+			aborts.put(type, new AtomicLong());
+		}
+	}
+
+	public void useRetryPolicy(TransactionRetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy;
+	}
+
+	public long getAttempts(TransactionType type) {
+		return attempts.get(type).get();
+	}
+
+	public long getAborts(TransactionType type) {
+		return aborts.get(type).get();
+	}
+
+	public void useSessionPool(ClientSessionPool sessionPool) {
+		/* Sessions are taken from the pool and given back to it, instead of
+		 * being started and closed around every transaction and read */
+		this.sessionPool = sessionPool;
 	}
 
 	@Override
 	public <T> T doTaskTransaction(TaskTransactionCode<T> code) {
-		ClientSession clientSession = mongoClient.startSession();
+		ClientSession clientSession = acquireSession();
+		boolean failed = false;
 		T value = null;
 
 		/* TransactionBody that simply applies the TaskTransactionCode with the
-		 * given TaskMongoRepository and ClientSession */
+		 * TaskMongoRepository bound to the ClientSession */
 		TransactionBody<T> transactionBody = 
-				() -> code.apply(taskMongoRepository, clientSession);
+				() -> code.apply(taskMongoRepository.withSession(clientSession));
 
 				try {
-					// Execute the transaction within the ClientSession
-					value = clientSession.withTransaction(transactionBody);
+					// Execute the transaction within the ClientSession, retrying it if transient
+					value = runTransaction(TransactionType.TASK, clientSession, transactionBody);
 				} catch(MongoException e) {
-					throw new MongoException("Task transaction failed, aborting");
+					failed = true;
+					throw failure("Task transaction failed, aborting", e);
 				} finally {
-					clientSession.close();
+					releaseSession(clientSession, failed);
 				}
 
 				return value;
@@ -46,21 +86,23 @@ public class TransactionManagerMongo implements TransactionManager {
 
 	@Override
 	public <T> T doTagTransaction(TagTransactionCode<T> code) {
-		ClientSession clientSession = mongoClient.startSession();
+		ClientSession clientSession = acquireSession();
+		boolean failed = false;
 		T value = null;
 
 		/* TransactionBody that simply applies the TagTransactionCode with the
-		 * given TagMongoRepository and ClientSession */
+		 * TagMongoRepository bound to the ClientSession */
 		TransactionBody<T> transactionBody =
-				() -> code.apply(tagMongoRepository, clientSession);
+				() -> code.apply(tagMongoRepository.withSession(clientSession));
 
 				try {
-					// Execute the transaction within the ClientSession
-					value = clientSession.withTransaction(transactionBody);
+					// Execute the transaction within the ClientSession, retrying it if transient
+					value = runTransaction(TransactionType.TAG, clientSession, transactionBody);
 				} catch(MongoException e) {
-					throw new MongoException("Tag transaction failed, aborting");
+					failed = true;
+					throw failure("Tag transaction failed, aborting", e);
 				} finally {
-					clientSession.close();
+					releaseSession(clientSession, failed);
 				}
 
 				return value;
@@ -68,24 +110,169 @@ public class TransactionManagerMongo implements TransactionManager {
 
 	@Override
 	public <T> T doCompositeTransaction(CompositeTransactionCode<T> code) {
-		ClientSession clientSession = mongoClient.startSession();
+		ClientSession clientSession = acquireSession();
+		boolean failed = false;
 		T value = null;
 
 		/* TransactionBody that simply applies the CompositeTransactionCode with the
-		 * given TaskMongoRepository, TagMongoRepository and ClientSession */
+		 * TaskMongoRepository and TagMongoRepository bound to the ClientSession */
 		TransactionBody<T> transactionBody =
-				() -> code.apply(taskMongoRepository, tagMongoRepository, clientSession);
+				() -> code.apply(taskMongoRepository.withSession(clientSession),
+						tagMongoRepository.withSession(clientSession));
 
 				try {
-					// Execute the transaction within the ClientSession
-					value = clientSession.withTransaction(transactionBody);
+					// Execute the transaction within the ClientSession, retrying it if transient
+					value = runTransaction(TransactionType.COMPOSITE, clientSession, transactionBody);
 				} catch(MongoException e) {
-					throw new MongoException("Composite transaction failed, aborting");
+					failed = true;
+					throw failure("Composite transaction failed, aborting", e);
 				} finally {
-					clientSession.close();
+					releaseSession(clientSession, failed);
 				}
 
 				return value;
 	}
 
+	@Override
+	public <T> T doTaskRead(TaskTransactionCode<T> code) {
+		ClientSession clientSession = startReadSession();
+		boolean failed = false;
+
+		try {
+			// Read-only code runs directly within the session, without a transaction
+			return code.apply(taskMongoRepository.withSession(clientSession));
+		} catch(MongoException e) {
+			failed = true;
+			throw failure("Task read failed, aborting", e);
+		} finally {
+			releaseSession(clientSession, failed);
+		}
+	}
+
+	@Override
+	public <T> T doTagRead(TagTransactionCode<T> code) {
+		ClientSession clientSession = startReadSession();
+		boolean failed = false;
+
+		try {
+			// Read-only code runs directly within the session, without a transaction
+			return code.apply(tagMongoRepository.withSession(clientSession));
+		} catch(MongoException e) {
+			failed = true;
+			throw failure("Tag read failed, aborting", e);
+		} finally {
+			releaseSession(clientSession, failed);
+		}
+	}
+
+	@Override
+	public <T> T doCompositeRead(CompositeTransactionCode<T> code) {
+		ClientSession clientSession = startReadSession();
+		boolean failed = false;
+
+		try {
+			// Read-only code runs directly within the session, without a transaction
+			return code.apply(taskMongoRepository.withSession(clientSession),
+					tagMongoRepository.withSession(clientSession));
+		} catch(MongoException e) {
+			failed = true;
+			throw failure("Composite read failed, aborting", e);
+		} finally {
+			releaseSession(clientSession, failed);
+		}
+	}
+
+	private <T> T runTransaction(TransactionType type, ClientSession clientSession,
+			TransactionBody<T> transactionBody) {
+		/* Same protocol as ClientSession.withTransaction, whose retries are
+		 * neither delayed nor bounded but by time: a transient error restarts the
+		 * whole transaction, while an unknown commit result only retries the
+		 * commit, which is idempotent; any other error aborts it at once */
+		int attempt = 0;
+
+		while (true) {
+			attempt++;
+			attempts.get(type).incrementAndGet();
+			clientSession.startTransaction();
+			T value;
+
+			try {
+				value = transactionBody.execute();
+			} catch (RuntimeException exception) {
+				abort(type, clientSession);
+
+				if (exception instanceof MongoException
+						&& retryPolicy.retry((MongoException) exception, attempt))
+					continue;
+
+				throw exception;
+			}
+
+			while (true) {
+				try {
+					clientSession.commitTransaction();
+					retryPolicy.succeeded();
+					return value;
+				} catch (MongoException exception) {
+					if (!retryPolicy.retry(exception, attempt)) {
+						aborts.get(type).incrementAndGet();
+						throw exception;
+					}
+
+					if (!exception.hasErrorLabel(MongoException.UNKNOWN_TRANSACTION_COMMIT_RESULT_LABEL)) {
+						aborts.get(type).incrementAndGet();
+						break;
+					}
+
+					// Retried commits count against the attempts, without starting a new one
+					attempt++;
+				}
+			}
+		}
+	}
+
+	private void abort(TransactionType type, ClientSession clientSession) {
+		// Errors while aborting are ignored by the driver, the server aborting anyway
+		aborts.get(type).incrementAndGet();
+
+		if (clientSession.hasActiveTransaction())
+			clientSession.abortTransaction();
+	}
+
+	private MongoException failure(String errorMessage, MongoException cause) {
+		/* The cause is kept, along with its code and error labels, so that
+		 * callers can tell e.g. a write conflict from an unreachable server */
+		MongoException exception = new MongoException(cause.getCode(), errorMessage, cause);
+
+		for (String label : cause.getErrorLabels())
+			exception.addLabel(label);
+
+		return exception;
+	}
+
+	private ClientSession acquireSession() {
+		if (sessionPool != null)
+			return sessionPool.acquire();
+
+		return mongoClient.startSession();
+	}
+
+	private ClientSession startReadSession() {
+		/* Causally consistent session: reads within the same session observe each
+		 * other in order, while the repositories read with majority read concern;
+		 * pooled sessions are all causally consistent */
+		if (sessionPool != null)
+			return sessionPool.acquire();
+
+		return mongoClient.startSession(ClientSessionOptions.builder()
+				.causallyConsistent(true)
+				.build());
+	}
+
+	private void releaseSession(ClientSession clientSession, boolean failed) {
+		if (sessionPool != null)
+			sessionPool.release(clientSession, !failed);
+		else
+			clientSession.close();
+	}
 }
\ No newline at end of file
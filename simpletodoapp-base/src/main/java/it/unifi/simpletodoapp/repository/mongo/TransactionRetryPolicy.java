@@ -0,0 +1,149 @@
+package it.unifi.simpletodoapp.repository.mongo;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleSupplier;
+
+import com.mongodb.MongoException;
+
+/* Decides whether a failed transaction, or its commit, is attempted again and
+ * how long to wait before: only errors labeled by the server as transient or
+ * as an unknown commit result are retried, after an exponential backoff with
+ * full jitter, so that conflicting clients do not retry in lockstep. Retries
+ * are drawn from a budget refilled by successful transactions, so that when
+ * most transactions fail, e.g. during an outage, retries stop multiplying the
+ * load instead of adding to it */
+public class TransactionRetryPolicy {
+	public static final int DEFAULT_MAX_ATTEMPTS = 5;
+	public static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 10;
+	public static final long DEFAULT_MAX_BACKOFF_MILLIS = 1000;
+	public static final double DEFAULT_RETRY_BUDGET = 10;
+	public static final double DEFAULT_BUDGET_PER_SUCCESS = 0.1;
+	public static final long NO_RETRY = -1;
+
+	@FunctionalInterface
+	interface Sleeper {
+		void sleep(long millis) throws InterruptedException;
+	}
+
+	private final int maxAttempts;
+	private final long initialBackoffMillis;
+	private final long maxBackoffMillis;
+	private final double maxRetryBudget;
+	private final double budgetPerSuccess;
+	private final DoubleSupplier jitter;
+	private final Sleeper sleeper;
+
+	private double retryBudget;
+	private final AtomicLong retries = new AtomicLong();
+	private final AtomicLong deniedRetries = new AtomicLong();
+
+	public TransactionRetryPolicy() {
+		this(DEFAULT_MAX_ATTEMPTS);
+	}
+
+	public TransactionRetryPolicy(int maxAttempts) {
+		this(maxAttempts, DEFAULT_INITIAL_BACKOFF_MILLIS, DEFAULT_MAX_BACKOFF_MILLIS,
+				DEFAULT_RETRY_BUDGET, DEFAULT_BUDGET_PER_SUCCESS);
+	}
+
+	public TransactionRetryPolicy(int maxAttempts, long initialBackoffMillis, long maxBackoffMillis,
+			double maxRetryBudget, double budgetPerSuccess) {
+		this(maxAttempts, initialBackoffMillis, maxBackoffMillis, maxRetryBudget, budgetPerSuccess,
+				() -> ThreadLocalRandom.current().nextDouble(), Thread::sleep);
+	}
+
+	TransactionRetryPolicy(int maxAttempts, long initialBackoffMillis, long maxBackoffMillis,
+			double maxRetryBudget, double budgetPerSuccess, DoubleSupplier jitter, Sleeper sleeper) {
+		if (maxAttempts <= 0) {
+			throw new IllegalArgumentException("Transaction attempts must be positive, got " + maxAttempts);
+		}
+
+		this.maxAttempts = maxAttempts;
+		this.initialBackoffMillis = initialBackoffMillis;
+		this.maxBackoffMillis = maxBackoffMillis;
+		this.maxRetryBudget = maxRetryBudget;
+		this.budgetPerSuccess = budgetPerSuccess;
+		this.jitter = jitter;
+		this.sleeper = sleeper;
+		this.retryBudget = maxRetryBudget;
+	}
+
+	public boolean isRetryable(MongoException exception) {
+		return exception.hasErrorLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL)
+				|| exception.hasErrorLabel(MongoException.UNKNOWN_TRANSACTION_COMMIT_RESULT_LABEL);
+	}
+
+	public boolean retry(MongoException exception, int attempt) {
+		/* Called after the given attempt failed: waits for the backoff and
+		 * returns true when a new attempt must be made */
+		if (!allowRetry(exception, attempt))
+			return false;
+
+		try {
+			sleeper.sleep(backoffMillis(attempt));
+		} catch (InterruptedException interruptedException) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+
+		retries.incrementAndGet();
+		return true;
+	}
+
+	public long retryDelayMillis(MongoException exception, int attempt) {
+		/* Non-blocking form of retry, for callers that wait on their own:
+		 * returns the backoff before the new attempt, or NO_RETRY */
+		if (!allowRetry(exception, attempt))
+			return NO_RETRY;
+
+		retries.incrementAndGet();
+		return backoffMillis(attempt);
+	}
+
+	public synchronized void succeeded() {
+		retryBudget = Math.min(maxRetryBudget, retryBudget + budgetPerSuccess);
+	}
+
+	public long getRetries() {
+		return retries.get();
+	}
+
+	public long getDeniedRetries() {
+		return deniedRetries.get();
+	}
+
+	synchronized double getRetryBudget() {
+		return retryBudget;
+	}
+
+	long backoffMillis(int attempt) {
+		// Doubled after every attempt, capped, then drawn uniformly below it
+		long cap = initialBackoffMillis << Math.min(attempt - 1, 30);
+
+		if (cap <= 0 || cap > maxBackoffMillis)
+			cap = maxBackoffMillis;
+
+		return (long) (jitter.getAsDouble() * cap);
+	}
+
+	private boolean allowRetry(MongoException exception, int attempt) {
+		if (!isRetryable(exception) || attempt >= maxAttempts)
+			return false;
+
+		if (!withdrawRetry()) {
+			deniedRetries.incrementAndGet();
+			return false;
+		}
+
+		return true;
+	}
+
+	private synchronized boolean withdrawRetry() {
+		if (retryBudget < 1)
+			return false;
+
+		retryBudget--;
+		return true;
+	}
+}
@@ -0,0 +1,12 @@
+package it.unifi.simpletodoapp.repository.mongo.reactive;
+
+import org.reactivestreams.Publisher;
+
+import com.mongodb.reactivestreams.client.ClientSession;
+
+import it.unifi.simpletodoapp.utility.TriFunction;
+
+@FunctionalInterface
+public interface ReactiveCompositeTransactionCode<T> extends TriFunction<TaskReactiveMongoRepository, TagReactiveMongoRepository, ClientSession, Publisher<T>>{
+
+}
@@ -0,0 +1,12 @@
+package it.unifi.simpletodoapp.repository.mongo.reactive;
+
+import java.util.function.BiFunction;
+
+import org.reactivestreams.Publisher;
+
+import com.mongodb.reactivestreams.client.ClientSession;
+
+@FunctionalInterface
+public interface ReactiveTaskTransactionCode<T> extends BiFunction<TaskReactiveMongoRepository, ClientSession, Publisher<T>>{
+
+}
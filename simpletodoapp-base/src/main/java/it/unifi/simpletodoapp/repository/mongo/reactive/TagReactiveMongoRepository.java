@@ -0,0 +1,131 @@
+package it.unifi.simpletodoapp.repository.mongo.reactive;
+
+import java.util.Collections;
+
+import org.bson.Document;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
+import com.mongodb.ReadConcern;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.result.UpdateResult;
+import com.mongodb.reactivestreams.client.ClientSession;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoCollection;
+
+import it.unifi.simpletodoapp.model.Tag;
+import it.unifi.simpletodoapp.repository.MembershipUpdate;
+import it.unifi.simpletodoapp.repository.TagRepositoryException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class TagReactiveMongoRepository {
+	private static final String ID = "id";
+	private static final String NAME = "name";
+	private static final String TASKS = "tasks";
+	private static final String NAME_INDEX = "name_unique";
+
+	private MongoCollection<Document> tagCollection;
+
+	public TagReactiveMongoRepository(MongoClient mongoClient, String dbName, String dbCollection) {
+		/* Same collection and read concern as the synchronous repository, while
+		 * the indexes are only created once ensureIndexes is subscribed to */
+		tagCollection = mongoClient.getDatabase(dbName)
+				.getCollection(dbCollection)
+				.withReadConcern(ReadConcern.MAJORITY);
+	}
+
+	public Mono<Void> ensureIndexes() {
+		return Flux.concat(
+				tagCollection.createIndex(Indexes.ascending(ID), new IndexOptions().unique(true)),
+				tagCollection.createIndex(Indexes.ascending(NAME), new IndexOptions().unique(true).name(NAME_INDEX)),
+				tagCollection.createIndex(Indexes.ascending(TASKS)))
+				.then();
+	}
+
+	public Flux<Tag> findAll(ClientSession clientSession) {
+		/* Tags are fetched from the cursor as they are requested by the
+		 * subscriber, so that a slow one is never flooded */
+		return Flux.from(tagCollection.find(clientSession))
+				.map(this::createTagFromMongoDocument);
+	}
+
+	public Mono<Long> count(ClientSession clientSession) {
+		return Mono.from(tagCollection.countDocuments(clientSession));
+	}
+
+	public Mono<Tag> findById(String tagId, ClientSession clientSession) {
+		// Completes empty if there is no tag with the given ID
+		return Mono.from(tagCollection.find(clientSession, Filters.eq(ID, tagId)).first())
+				.map(this::createTagFromMongoDocument);
+	}
+
+	public Mono<Void> save(Tag tag, ClientSession clientSession) {
+		return Mono.from(tagCollection.insertOne(clientSession, new Document()
+				.append(ID, tag.getId())
+				.append(NAME, tag.getName())
+				.append(TASKS, Collections.emptyList())
+				))
+				.onErrorResume(TagReactiveMongoRepository::isDuplicateKey, e -> duplicatedTagException(tag)
+						.flatMap(Mono::error))
+				.then();
+	}
+
+	public Mono<Void> delete(Tag tag, ClientSession clientSession) {
+		return Mono.from(tagCollection.deleteOne(clientSession, Filters.eq(ID, tag.getId())))
+				.then();
+	}
+
+	public Flux<String> getTasksByTagId(String tagId, ClientSession clientSession) {
+		return Mono.from(tagCollection.find(clientSession, Filters.eq(ID, tagId)).first())
+				.flatMapIterable(document -> document.getList(TASKS, String.class));
+	}
+
+	public Mono<MembershipUpdate> addTaskToTag(String tagId, String taskId, ClientSession clientSession) {
+		// The task is only added if not already present, leaving the document untouched otherwise
+		return Mono.from(tagCollection.updateOne(clientSession, Filters.eq(ID, tagId),
+				Updates.addToSet(TASKS, taskId)))
+				.map(this::toMembershipUpdate);
+	}
+
+	public Mono<MembershipUpdate> removeTaskFromTag(String tagId, String taskId, ClientSession clientSession) {
+		return Mono.from(tagCollection.updateOne(clientSession, Filters.eq(ID, tagId),
+				Updates.pull(TASKS, taskId)))
+				.map(this::toMembershipUpdate);
+	}
+
+	public Mono<Void> removeTaskFromAllTags(String taskId, ClientSession clientSession) {
+		// Single multi-document update that relies on the multikey index on the tasks array
+		return Mono.from(tagCollection.updateMany(clientSession, Filters.eq(TASKS, taskId),
+				Updates.pull(TASKS, taskId)))
+				.then();
+	}
+
+	private Mono<TagRepositoryException> duplicatedTagException(Tag tag) {
+		// As in the synchronous repository, a tag already committed with the same ID means a duplicated ID
+		return Mono.from(tagCollection.find(Filters.eq(ID, tag.getId())).first())
+				.map(document -> new TagRepositoryException("Cannot add tag with duplicated ID " + tag.getId()))
+				.defaultIfEmpty(new TagRepositoryException("Cannot add tag with duplicated name \"" + tag.getName() + "\""));
+	}
+
+	private static boolean isDuplicateKey(Throwable error) {
+		return error instanceof MongoWriteException
+				&& ErrorCategory.fromErrorCode(((MongoWriteException) error).getCode()) == ErrorCategory.DUPLICATE_KEY;
+	}
+
+	private MembershipUpdate toMembershipUpdate(UpdateResult updateResult) {
+		if (updateResult.getMatchedCount() == 0)
+			return MembershipUpdate.NOT_FOUND;
+		else if (updateResult.getModifiedCount() == 0)
+			return MembershipUpdate.NOT_MODIFIED;
+		else
+			return MembershipUpdate.MODIFIED;
+	}
+
+	private Tag createTagFromMongoDocument(Document document) {
+		return new Tag(document.getString(ID), document.getString(NAME));
+	}
+}
@@ -0,0 +1,122 @@
+package it.unifi.simpletodoapp.repository.mongo.reactive;
+
+import java.util.Collections;
+
+import org.bson.Document;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
+import com.mongodb.ReadConcern;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.result.UpdateResult;
+import com.mongodb.reactivestreams.client.ClientSession;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoCollection;
+
+import it.unifi.simpletodoapp.model.Task;
+import it.unifi.simpletodoapp.repository.MembershipUpdate;
+import it.unifi.simpletodoapp.repository.TaskRepositoryException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class TaskReactiveMongoRepository {
+	private static final String ID = "id";
+	private static final String DESCRIPTION = "description";
+	private static final String TAGS = "tags";
+
+	private MongoCollection<Document> taskCollection;
+
+	public TaskReactiveMongoRepository(MongoClient mongoClient, String dbName, String dbCollection) {
+		/* Same collection and read concern as the synchronous repository, while
+		 * the indexes are only created once ensureIndexes is subscribed to */
+		taskCollection = mongoClient.getDatabase(dbName)
+				.getCollection(dbCollection)
+				.withReadConcern(ReadConcern.MAJORITY);
+	}
+
+	public Mono<Void> ensureIndexes() {
+		return Flux.concat(
+				taskCollection.createIndex(Indexes.ascending(ID), new IndexOptions().unique(true)),
+				taskCollection.createIndex(Indexes.ascending(TAGS)))
+				.then();
+	}
+
+	public Flux<Task> findAll(ClientSession clientSession) {
+		/* Tasks are fetched from the cursor as they are requested by the
+		 * subscriber, so that a slow one is never flooded */
+		return Flux.from(taskCollection.find(clientSession))
+				.map(this::createTaskFromMongoDocument);
+	}
+
+	public Mono<Long> count(ClientSession clientSession) {
+		return Mono.from(taskCollection.countDocuments(clientSession));
+	}
+
+	public Mono<Task> findById(String taskId, ClientSession clientSession) {
+		// Completes empty if there is no task with the given ID
+		return Mono.from(taskCollection.find(clientSession, Filters.eq(ID, taskId)).first())
+				.map(this::createTaskFromMongoDocument);
+	}
+
+	public Mono<Void> save(Task task, ClientSession clientSession) {
+		return Mono.from(taskCollection.insertOne(clientSession, new Document()
+				.append(ID, task.getId())
+				.append(DESCRIPTION, task.getDescription())
+				.append(TAGS, Collections.emptyList())
+				))
+				.onErrorMap(TaskReactiveMongoRepository::isDuplicateKey,
+						e -> new TaskRepositoryException("Cannot add task with duplicated ID " + task.getId()))
+				.then();
+	}
+
+	public Mono<Void> delete(Task task, ClientSession clientSession) {
+		return Mono.from(taskCollection.deleteOne(clientSession, Filters.eq(ID, task.getId())))
+				.then();
+	}
+
+	public Flux<String> getTagsByTaskId(String taskId, ClientSession clientSession) {
+		return Mono.from(taskCollection.find(clientSession, Filters.eq(ID, taskId)).first())
+				.flatMapIterable(document -> document.getList(TAGS, String.class));
+	}
+
+	public Mono<MembershipUpdate> addTagToTask(String taskId, String tagId, ClientSession clientSession) {
+		// The tag is only added if not already present, leaving the document untouched otherwise
+		return Mono.from(taskCollection.updateOne(clientSession, Filters.eq(ID, taskId),
+				Updates.addToSet(TAGS, tagId)))
+				.map(this::toMembershipUpdate);
+	}
+
+	public Mono<MembershipUpdate> removeTagFromTask(String taskId, String tagId, ClientSession clientSession) {
+		return Mono.from(taskCollection.updateOne(clientSession, Filters.eq(ID, taskId),
+				Updates.pull(TAGS, tagId)))
+				.map(this::toMembershipUpdate);
+	}
+
+	public Mono<Void> removeTagFromAllTasks(String tagId, ClientSession clientSession) {
+		// Single multi-document update that relies on the multikey index on the tags array
+		return Mono.from(taskCollection.updateMany(clientSession, Filters.eq(TAGS, tagId),
+				Updates.pull(TAGS, tagId)))
+				.then();
+	}
+
+	private static boolean isDuplicateKey(Throwable error) {
+		return error instanceof MongoWriteException
+				&& ErrorCategory.fromErrorCode(((MongoWriteException) error).getCode()) == ErrorCategory.DUPLICATE_KEY;
+	}
+
+	private MembershipUpdate toMembershipUpdate(UpdateResult updateResult) {
+		if (updateResult.getMatchedCount() == 0)
+			return MembershipUpdate.NOT_FOUND;
+		else if (updateResult.getModifiedCount() == 0)
+			return MembershipUpdate.NOT_MODIFIED;
+		else
+			return MembershipUpdate.MODIFIED;
+	}
+
+	private Task createTaskFromMongoDocument(Document document) {
+		return new Task(document.getString(ID), document.getString(DESCRIPTION));
+	}
+}
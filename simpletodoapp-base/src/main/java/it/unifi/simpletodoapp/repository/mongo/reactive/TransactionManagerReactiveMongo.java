@@ -0,0 +1,158 @@
+package it.unifi.simpletodoapp.repository.mongo.reactive;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.reactivestreams.Publisher;
+
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.MongoException;
+import com.mongodb.reactivestreams.client.ClientSession;
+import com.mongodb.reactivestreams.client.MongoClient;
+
+import it.unifi.simpletodoapp.repository.mongo.TransactionRetryPolicy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+/* Non-blocking counterpart of TransactionManagerMongo: nothing is sent to the
+ * database until the returned publisher is subscribed to, and no thread waits
+ * for its replies. Reads emit their results as the subscriber requests them,
+ * straight from the server cursors, while transactions emit theirs only once
+ * committed, since until then they may still be aborted and retried */
+public class TransactionManagerReactiveMongo {
+	private MongoClient mongoClient;
+	private TaskReactiveMongoRepository taskRepository;
+	private TagReactiveMongoRepository tagRepository;
+	private TransactionRetryPolicy retryPolicy = new TransactionRetryPolicy();
+
+	public TransactionManagerReactiveMongo(MongoClient mongoClient, TaskReactiveMongoRepository taskRepository,
+			TagReactiveMongoRepository tagRepository) {
+		this.mongoClient = mongoClient;
+		this.taskRepository = taskRepository;
+		this.tagRepository = tagRepository;
+	}
+
+	public void useMaxAttempts(int maxAttempts) {
+		useRetryPolicy(new TransactionRetryPolicy(maxAttempts));
+	}
+
+	public void useRetryPolicy(TransactionRetryPolicy retryPolicy) {
+		// May be shared with TransactionManagerMongo, so that both draw on the same budget
+		this.retryPolicy = retryPolicy;
+	}
+
+	public <T> Flux<T> doTaskTransaction(ReactiveTaskTransactionCode<T> code) {
+		return transaction("Task transaction failed, aborting",
+				clientSession -> code.apply(taskRepository, clientSession));
+	}
+
+	public <T> Flux<T> doTagTransaction(ReactiveTagTransactionCode<T> code) {
+		return transaction("Tag transaction failed, aborting",
+				clientSession -> code.apply(tagRepository, clientSession));
+	}
+
+	public <T> Flux<T> doCompositeTransaction(ReactiveCompositeTransactionCode<T> code) {
+		return transaction("Composite transaction failed, aborting",
+				clientSession -> code.apply(taskRepository, tagRepository, clientSession));
+	}
+
+	public <T> Flux<T> doTaskRead(ReactiveTaskTransactionCode<T> code) {
+		return read("Task read failed, aborting",
+				clientSession -> code.apply(taskRepository, clientSession));
+	}
+
+	public <T> Flux<T> doTagRead(ReactiveTagTransactionCode<T> code) {
+		return read("Tag read failed, aborting",
+				clientSession -> code.apply(tagRepository, clientSession));
+	}
+
+	public <T> Flux<T> doCompositeRead(ReactiveCompositeTransactionCode<T> code) {
+		return read("Composite read failed, aborting",
+				clientSession -> code.apply(taskRepository, tagRepository, clientSession));
+	}
+
+	private <T> Flux<T> transaction(String errorMessage, Function<ClientSession, Publisher<T>> body) {
+		/* Same protocol and retry policy as TransactionManagerMongo: a
+		 * transient error restarts the whole transaction, while an unknown
+		 * commit result only retries the commit, both counting as attempts;
+		 * the session is closed however the publisher ends, also when its
+		 * subscriber cancels */
+		return Flux.defer(() -> {
+			AtomicInteger attempt = new AtomicInteger();
+
+			return Flux.usingWhen(Mono.defer(() -> Mono.from(mongoClient.startSession())),
+					clientSession -> attempt(clientSession, body, attempt)
+					.retryWhen(retries(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL, attempt))
+					.flatMapIterable(values -> values),
+					clientSession -> Mono.fromRunnable(clientSession::close));
+		})
+				.onErrorMap(MongoException.class, exception -> failure(errorMessage, exception));
+	}
+
+	private <T> Mono<List<T>> attempt(ClientSession clientSession, Function<ClientSession, Publisher<T>> body,
+			AtomicInteger attempt) {
+		return Mono.defer(() -> {
+			attempt.incrementAndGet();
+			clientSession.startTransaction();
+
+			// Deferred so that also errors thrown by the code abort the transaction
+			return Flux.defer(() -> body.apply(clientSession))
+					.collectList()
+					.onErrorResume(error -> abort(clientSession).then(Mono.error(error)))
+					.flatMap(values -> Mono.defer(() -> Mono.from(clientSession.commitTransaction()))
+							.retryWhen(retries(MongoException.UNKNOWN_TRANSACTION_COMMIT_RESULT_LABEL, attempt))
+							.then(Mono.fromRunnable(retryPolicy::succeeded))
+							.thenReturn(values));
+		});
+	}
+
+	private Mono<Void> abort(ClientSession clientSession) {
+		// Errors while aborting are ignored, the server aborting anyway
+		if (!clientSession.hasActiveTransaction())
+			return Mono.empty();
+
+		return Mono.from(clientSession.abortTransaction())
+				.onErrorResume(error -> Mono.empty());
+	}
+
+	private <T> Flux<T> read(String errorMessage, Function<ClientSession, Publisher<T>> code) {
+		// Read-only code runs directly within a causally consistent session
+		return Flux.usingWhen(Mono.defer(() -> Mono.from(mongoClient.startSession(ClientSessionOptions.builder()
+				.causallyConsistent(true)
+				.build()))),
+				code,
+				clientSession -> Mono.fromRunnable(clientSession::close))
+				.onErrorMap(MongoException.class, exception -> failure(errorMessage, exception));
+	}
+
+	private Retry retries(String errorLabel, AtomicInteger attempt) {
+		// The policy decides as for blocking transactions, but the backoff is waited on a timer
+		return Retry.from(signals -> signals.concatMap(signal -> {
+			Throwable error = signal.failure();
+			long delayMillis = error instanceof MongoException && ((MongoException) error).hasErrorLabel(errorLabel)
+					? retryPolicy.retryDelayMillis((MongoException) error, attempt.get())
+					: TransactionRetryPolicy.NO_RETRY;
+
+			if (delayMillis == TransactionRetryPolicy.NO_RETRY)
+				return Mono.error(error);
+
+			// A retried commit is one more attempt, a restarted transaction counts itself
+			if (errorLabel.equals(MongoException.UNKNOWN_TRANSACTION_COMMIT_RESULT_LABEL))
+				attempt.incrementAndGet();
+			return Mono.delay(Duration.ofMillis(delayMillis));
+		}));
+	}
+
+	private MongoException failure(String errorMessage, MongoException cause) {
+		// The cause is kept, along with its code and error labels
+		MongoException exception = new MongoException(cause.getCode(), errorMessage, cause);
+
+		for (String label : cause.getErrorLabels())
+			exception.addLabel(label);
+
+		return exception;
+	}
+}
@@ -0,0 +1,148 @@
+package it.unifi.simpletodoapp.service;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import it.unifi.simpletodoapp.model.Page;
+import it.unifi.simpletodoapp.model.Tag;
+import it.unifi.simpletodoapp.model.Task;
+
+/* Runs every operation of a TodoService on an executor, returning a future
+ * completed with its result or, exceptionally, with its error, so that callers
+ * such as bulk importers can send many operations at once without blocking a
+ * thread of their own for each; an operation rejected by the executor throws
+ * its RejectedExecutionException right away */
+public class AsyncTodoService {
+	private final TodoService todoService;
+	private final Executor executor;
+
+	public AsyncTodoService(TodoService todoService, Executor executor) {
+		this.todoService = todoService;
+		this.executor = executor;
+	}
+
+	public static ExecutorService newBoundedExecutor(int threads, int queueCapacity) {
+		/* Operations mostly wait for the database: a fixed number of daemon
+		 * threads runs them, while the others wait in a bounded queue, beyond
+		 * which they are rejected with a RejectedExecutionException, so that
+		 * callers sending many operations at once learn that the database
+		 * cannot keep up instead of queueing them without limit */
+		if (threads <= 0) {
+			throw new IllegalArgumentException("Async threads must be positive, got " + threads);
+		}
+		if (queueCapacity <= 0) {
+			throw new IllegalArgumentException("Async queue capacity must be positive, got " + queueCapacity);
+		}
+
+		return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+					Thread thread = new Thread(runnable, "todo-service-worker");
+					thread.setDaemon(true);
+					return thread;
+				});
+	}
+
+	public CompletableFuture<List<Task>> getAllTasks() {
+		return CompletableFuture.supplyAsync(todoService::getAllTasks, executor);
+	}
+
+	public <R> CompletableFuture<R> streamAllTasks(int batchSize, Function<Stream<Task>, R> streamProcessor) {
+		return CompletableFuture.supplyAsync(() -> todoService.streamAllTasks(batchSize, streamProcessor), executor);
+	}
+
+	public CompletableFuture<Long> countTasks() {
+		return CompletableFuture.supplyAsync(todoService::countTasks, executor);
+	}
+
+	public CompletableFuture<Page<Task>> getTasksPage(String afterId, int limit) {
+		return CompletableFuture.supplyAsync(() -> todoService.getTasksPage(afterId, limit), executor);
+	}
+
+	public CompletableFuture<Page<Task>> getTasksPageAt(int offset, int limit) {
+		return CompletableFuture.supplyAsync(() -> todoService.getTasksPageAt(offset, limit), executor);
+	}
+
+	public CompletableFuture<Task> findTaskById(String taskId) {
+		return CompletableFuture.supplyAsync(() -> todoService.findTaskById(taskId), executor);
+	}
+
+	public CompletableFuture<List<Task>> findTasksByIds(List<String> taskIds) {
+		return CompletableFuture.supplyAsync(() -> todoService.findTasksByIds(taskIds), executor);
+	}
+
+	public CompletableFuture<Void> saveTask(Task task) {
+		return CompletableFuture.runAsync(() -> todoService.saveTask(task), executor);
+	}
+
+	public CompletableFuture<Void> deleteTask(Task task) {
+		return CompletableFuture.runAsync(() -> todoService.deleteTask(task), executor);
+	}
+
+	public CompletableFuture<Void> removeTaskFromTag(String taskId, String tagId) {
+		return CompletableFuture.runAsync(() -> todoService.removeTaskFromTag(taskId, tagId), executor);
+	}
+
+	public CompletableFuture<List<Tag>> getAllTags() {
+		return CompletableFuture.supplyAsync(todoService::getAllTags, executor);
+	}
+
+	public <R> CompletableFuture<R> streamAllTags(int batchSize, Function<Stream<Tag>, R> streamProcessor) {
+		return CompletableFuture.supplyAsync(() -> todoService.streamAllTags(batchSize, streamProcessor), executor);
+	}
+
+	public CompletableFuture<Long> countTags() {
+		return CompletableFuture.supplyAsync(todoService::countTags, executor);
+	}
+
+	public CompletableFuture<Page<Tag>> getTagsPage(String afterId, int limit) {
+		return CompletableFuture.supplyAsync(() -> todoService.getTagsPage(afterId, limit), executor);
+	}
+
+	public CompletableFuture<Page<Tag>> getTagsPageAt(int offset, int limit) {
+		return CompletableFuture.supplyAsync(() -> todoService.getTagsPageAt(offset, limit), executor);
+	}
+
+	public CompletableFuture<Tag> findTagById(String tagId) {
+		return CompletableFuture.supplyAsync(() -> todoService.findTagById(tagId), executor);
+	}
+
+	public CompletableFuture<List<Tag>> findTagsByIds(List<String> tagIds) {
+		return CompletableFuture.supplyAsync(() -> todoService.findTagsByIds(tagIds), executor);
+	}
+
+	public CompletableFuture<Void> saveTag(Tag tag) {
+		return CompletableFuture.runAsync(() -> todoService.saveTag(tag), executor);
+	}
+
+	public CompletableFuture<Void> deleteTag(Tag tag) {
+		return CompletableFuture.runAsync(() -> todoService.deleteTag(tag), executor);
+	}
+
+	public CompletableFuture<Void> addTagToTask(String taskId, String tagId) {
+		return CompletableFuture.runAsync(() -> todoService.addTagToTask(taskId, tagId), executor);
+	}
+
+	public CompletableFuture<List<String>> findTagsByTaskId(String taskId) {
+		return CompletableFuture.supplyAsync(() -> todoService.findTagsByTaskId(taskId), executor);
+	}
+
+	public CompletableFuture<Void> removeTagFromTask(String taskId, String tagId) {
+		return CompletableFuture.runAsync(() -> todoService.removeTagFromTask(taskId, tagId), executor);
+	}
+
+	public CompletableFuture<List<String>> findTasksByTagId(String tagId) {
+		return CompletableFuture.supplyAsync(() -> todoService.findTasksByTagId(tagId), executor);
+	}
+
+	public CompletableFuture<Void> commit(TodoBatch batch) {
+		// The batch must not be modified until the future is completed
+		return CompletableFuture.runAsync(batch::commit, executor);
+	}
+}
@@ -0,0 +1,188 @@
+package it.unifi.simpletodoapp.service;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import it.unifi.simpletodoapp.model.Tag;
+import it.unifi.simpletodoapp.model.Task;
+import it.unifi.simpletodoapp.repository.TodoChangeListener;
+
+/* Forwards the changes to a listener through its executor, merging the ones
+ * received while the previous ones are still waiting to be delivered: a slow
+ * listener, e.g. a busy GUI thread, receives the net change of each entity
+ * once per delivery instead of every intermediate change */
+class ChangeCoalescer implements TodoChangeListener {
+	private final TodoChangeListener listener;
+	private final Executor executor;
+
+	private Map<String, PendingChange<Task>> tasks = new LinkedHashMap<>();
+	private Map<String, PendingChange<Tag>> tags = new LinkedHashMap<>();
+	private Map<List<String>, PendingChange<Assignment>> assignments = new LinkedHashMap<>();
+	private boolean changesLost;
+	private boolean deliveryScheduled;
+
+	/* Net change of an entity, or of an assignment, since the last delivery:
+	 * whether it existed before the first change and whether it exists now */
+	private static final class PendingChange<T> {
+		private final boolean existedBefore;
+		private boolean exists;
+		private T latest;
+
+		private PendingChange(boolean existedBefore) {
+			this.existedBefore = existedBefore;
+		}
+	}
+
+	private static final class Assignment {
+		private final Task task;
+		private final Tag tag;
+
+		private Assignment(Task task, Tag tag) {
+			this.task = task;
+			this.tag = tag;
+		}
+	}
+
+	ChangeCoalescer(TodoChangeListener listener, Executor executor) {
+		this.listener = listener;
+		this.executor = executor;
+	}
+
+	@Override
+	public void taskAdded(Task task) {
+		record(tasks, task.getId(), task, false, true);
+	}
+
+	@Override
+	public void taskChanged(Task task) {
+		record(tasks, task.getId(), task, true, true);
+	}
+
+	@Override
+	public void taskDeleted(Task task) {
+		record(tasks, task.getId(), task, true, false);
+	}
+
+	@Override
+	public void tagAdded(Tag tag) {
+		record(tags, tag.getId(), tag, false, true);
+	}
+
+	@Override
+	public void tagChanged(Tag tag) {
+		record(tags, tag.getId(), tag, true, true);
+	}
+
+	@Override
+	public void tagDeleted(Tag tag) {
+		record(tags, tag.getId(), tag, true, false);
+	}
+
+	@Override
+	public void tagAssigned(Task task, Tag tag) {
+		record(assignments, Arrays.asList(task.getId(), tag.getId()), new Assignment(task, tag), false, true);
+	}
+
+	@Override
+	public void tagUnassigned(Task task, Tag tag) {
+		record(assignments, Arrays.asList(task.getId(), tag.getId()), new Assignment(task, tag), true, false);
+	}
+
+	@Override
+	public void changesLost() {
+		// The listener reads all data again, so the pending changes are useless
+		synchronized (this) {
+			tasks.clear();
+			tags.clear();
+			assignments.clear();
+			changesLost = true;
+		}
+
+		scheduleDelivery();
+	}
+
+	private <K, T> void record(Map<K, PendingChange<T>> pendingChanges, K key, T latest,
+			boolean existedBefore, boolean exists) {
+		synchronized (this) {
+			PendingChange<T> pendingChange = pendingChanges.computeIfAbsent(key,
+					k -> new PendingChange<>(existedBefore));
+			pendingChange.exists = exists;
+			pendingChange.latest = latest;
+		}
+
+		scheduleDelivery();
+	}
+
+	private void scheduleDelivery() {
+		// Only one delivery is waiting in the executor at any time
+		synchronized (this) {
+			if (deliveryScheduled)
+				return;
+
+			deliveryScheduled = true;
+		}
+
+		executor.execute(this::deliver);
+	}
+
+	private void deliver() {
+		Map<String, PendingChange<Task>> deliveredTasks;
+		Map<String, PendingChange<Tag>> deliveredTags;
+		Map<List<String>, PendingChange<Assignment>> deliveredAssignments;
+		boolean deliveredChangesLost;
+
+		synchronized (this) {
+			deliveredTasks = tasks;
+			deliveredTags = tags;
+			deliveredAssignments = assignments;
+			deliveredChangesLost = changesLost;
+			tasks = new LinkedHashMap<>();
+			tags = new LinkedHashMap<>();
+			assignments = new LinkedHashMap<>();
+			changesLost = false;
+			deliveryScheduled = false;
+		}
+
+		/* Tags and tasks are saved before being assigned, and unassigned before
+		 * being deleted, as they are within the transactions of the service */
+		if (deliveredChangesLost)
+			listener.changesLost();
+
+		for (PendingChange<Tag> tag : deliveredTags.values())
+			if (tag.exists)
+				deliverSaved(tag, listener::tagAdded, listener::tagChanged);
+
+		for (PendingChange<Task> task : deliveredTasks.values())
+			if (task.exists)
+				deliverSaved(task, listener::taskAdded, listener::taskChanged);
+
+		for (PendingChange<Assignment> assignment : deliveredAssignments.values()) {
+			// Assigned and then unassigned, or vice versa, is no change at all
+			if (assignment.exists && !assignment.existedBefore)
+				listener.tagAssigned(assignment.latest.task, assignment.latest.tag);
+			else if (!assignment.exists && assignment.existedBefore)
+				listener.tagUnassigned(assignment.latest.task, assignment.latest.tag);
+		}
+
+		for (PendingChange<Task> task : deliveredTasks.values())
+			if (!task.exists && task.existedBefore)
+				listener.taskDeleted(task.latest);
+
+		for (PendingChange<Tag> tag : deliveredTags.values())
+			if (!tag.exists && tag.existedBefore)
+				listener.tagDeleted(tag.latest);
+	}
+
+	private <T> void deliverSaved(PendingChange<T> pendingChange,
+			Consumer<T> added, Consumer<T> changed) {
+		// Deleted and then added again is a change of an existing entity
+		if (pendingChange.existedBefore)
+			changed.accept(pendingChange.latest);
+		else
+			added.accept(pendingChange.latest);
+	}
+}
@@ -0,0 +1,49 @@
+package it.unifi.simpletodoapp.service;
+
+// Cache keeping nothing, so that every lookup reaches the database
+public class DisabledEntityCache<T> implements EntityCache<T> {
+	@Override
+	public T get(String id) {
+		return null;
+	}
+
+	@Override
+	public void put(String id, T entity) {
+		// Nothing is cached
+	}
+
+	@Override
+	public long beginLoad(String id) {
+		return 0;
+	}
+
+	@Override
+	public void endLoad(String id, T entity, long loadStamp) {
+		// Nothing is cached
+	}
+
+	@Override
+	public void invalidate(String id) {
+		// Nothing is cached
+	}
+
+	@Override
+	public void invalidateAll() {
+		// Nothing is cached
+	}
+
+	@Override
+	public long getHits() {
+		return 0;
+	}
+
+	@Override
+	public long getMisses() {
+		return 0;
+	}
+
+	@Override
+	public long getEvictions() {
+		return 0;
+	}
+}
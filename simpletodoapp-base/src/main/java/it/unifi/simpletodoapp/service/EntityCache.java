@@ -0,0 +1,21 @@
+package it.unifi.simpletodoapp.service;
+
+/* Cache of the entities looked up by ID through the service, which keeps it
+ * consistent by invalidating the entities it writes; the writes of other
+ * clients are only seen if an EntityCacheInvalidator is notified of them */
+public interface EntityCache<T> {
+	// Returns null when the entity is not cached
+	public T get(String id);
+	public void put(String id, T entity);
+	/* A load from the database starts with beginLoad and always ends with
+	 * endLoad, which only caches the loaded entity, if any, when the entity has
+	 * not been invalidated since the load began: otherwise a write committed
+	 * during the read would be overwritten by what the read returned */
+	public long beginLoad(String id);
+	public void endLoad(String id, T entity, long loadStamp);
+	public void invalidate(String id);
+	public void invalidateAll();
+	public long getHits();
+	public long getMisses();
+	public long getEvictions();
+}
@@ -0,0 +1,64 @@
+package it.unifi.simpletodoapp.service;
+
+import it.unifi.simpletodoapp.model.Tag;
+import it.unifi.simpletodoapp.model.Task;
+import it.unifi.simpletodoapp.repository.TodoChangeListener;
+
+/* Keeps the entity caches of a service coherent with the writes of other
+ * clients, invalidating every entity reported as changed: cached entities are
+ * not replaced, so that entities never looked up do not fill the caches */
+public class EntityCacheInvalidator implements TodoChangeListener {
+	private EntityCache<Task> taskCache;
+	private EntityCache<Tag> tagCache;
+
+	public EntityCacheInvalidator(EntityCache<Task> taskCache, EntityCache<Tag> tagCache) {
+		this.taskCache = taskCache;
+		this.tagCache = tagCache;
+	}
+
+	@Override
+	public void taskAdded(Task task) {
+		taskCache.invalidate(task.getId());
+	}
+
+	@Override
+	public void taskChanged(Task task) {
+		taskCache.invalidate(task.getId());
+	}
+
+	@Override
+	public void taskDeleted(Task task) {
+		taskCache.invalidate(task.getId());
+	}
+
+	@Override
+	public void tagAdded(Tag tag) {
+		tagCache.invalidate(tag.getId());
+	}
+
+	@Override
+	public void tagChanged(Tag tag) {
+		tagCache.invalidate(tag.getId());
+	}
+
+	@Override
+	public void tagDeleted(Tag tag) {
+		tagCache.invalidate(tag.getId());
+	}
+
+	@Override
+	public void tagAssigned(Task task, Tag tag) {
+		// Cached tasks and tags do not hold their assignments
+	}
+
+	@Override
+	public void tagUnassigned(Task task, Tag tag) {
+		// Cached tasks and tags do not hold their assignments
+	}
+
+	@Override
+	public void changesLost() {
+		taskCache.invalidateAll();
+		tagCache.invalidateAll();
+	}
+}
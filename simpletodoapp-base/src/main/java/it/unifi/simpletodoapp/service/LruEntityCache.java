@@ -0,0 +1,113 @@
+package it.unifi.simpletodoapp.service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/* Cache bounded in the number of entities, evicting the least recently used
+ * one when full; all operations are synchronized, since lookups are cheap
+ * compared to the database reads they replace. Invalidations advance a clock,
+ * whose value is only remembered for the IDs being loaded, so that a load
+ * begun before the last invalidation of its ID is not cached */
+public class LruEntityCache<T> implements EntityCache<T> {
+	private final Map<String, T> entities;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	private long clock;
+	private long allInvalidatedAt;
+	private final Map<String, Integer> loadsInFlight = new HashMap<>();
+	private final Map<String, Long> invalidatedAt = new HashMap<>();
+
+	public LruEntityCache(int maxSize) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("Cache size must be positive, got " + maxSize);
+		}
+
+		// Access order makes the eldest entry the least recently used one
+		this.entities = new LinkedHashMap<String, T>(16, 0.75f, true) {
+			private static final long serialVersionUID = 4218710584338913312L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, T> eldest) {
+				if (size() <= maxSize)
+					return false;
+
+				evictions++;
+				return true;
+			}
+		};
+	}
+
+	@Override
+	public synchronized T get(String id) {
+		T entity = entities.get(id);
+
+		if (entity == null)
+			misses++;
+		else
+			hits++;
+
+		return entity;
+	}
+
+	@Override
+	public synchronized void put(String id, T entity) {
+		entities.put(id, entity);
+	}
+
+	@Override
+	public synchronized long beginLoad(String id) {
+		loadsInFlight.merge(id, 1, Integer::sum);
+		return clock;
+	}
+
+	@Override
+	public synchronized void endLoad(String id, T entity, long loadStamp) {
+		long lastInvalidation = Math.max(invalidatedAt.getOrDefault(id, 0L), allInvalidatedAt);
+
+		if (entity != null && lastInvalidation <= loadStamp)
+			entities.put(id, entity);
+
+		// The last load of the ID forgets its invalidation, which no other load can see
+		if (loadsInFlight.merge(id, -1, Integer::sum) == 0) {
+			loadsInFlight.remove(id);
+			invalidatedAt.remove(id);
+		}
+	}
+
+	@Override
+	public synchronized void invalidate(String id) {
+		entities.remove(id);
+		clock++;
+
+		if (loadsInFlight.containsKey(id))
+			invalidatedAt.put(id, clock);
+	}
+
+	@Override
+	public synchronized void invalidateAll() {
+		entities.clear();
+		allInvalidatedAt = ++clock;
+	}
+
+	@Override
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	@Override
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	@Override
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	synchronized int size() {
+		return entities.size();
+	}
+}
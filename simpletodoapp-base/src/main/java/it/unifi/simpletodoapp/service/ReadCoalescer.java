@@ -0,0 +1,69 @@
+package it.unifi.simpletodoapp.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/* Single-flight execution of reads: the first caller of a read runs it, while
+ * the callers of an identical read, i.e. one with an equal key, arriving before
+ * it ends wait for it and share its result, or its exception. A read is never
+ * shared once ended, so a caller arriving after a write always sees it as long
+ * as the writer forgets the reads in flight before returning */
+public class ReadCoalescer {
+	private final ConcurrentMap<Object, CompletableFuture<Object>> readsInFlight = new ConcurrentHashMap<>();
+	private final AtomicLong executedReads = new AtomicLong();
+	private final AtomicLong coalescedReads = new AtomicLong();
+
+	@SuppressWarnings("unchecked")
+	public <T> T execute(Object key, Supplier<T> read) {
+		CompletableFuture<Object> flight = new CompletableFuture<>();
+		CompletableFuture<Object> leader = readsInFlight.putIfAbsent(key, flight);
+
+		if (leader != null) {
+			coalescedReads.incrementAndGet();
+			return (T) await(leader);
+		}
+
+		executedReads.incrementAndGet();
+
+		try {
+			T result = read.get();
+			flight.complete(result);
+			return result;
+		} catch (RuntimeException | Error e) {
+			flight.completeExceptionally(e);
+			throw e;
+		} finally {
+			// Only removed if still in flight, it may have been forgotten meanwhile
+			readsInFlight.remove(key, flight);
+		}
+	}
+
+	public void forgetReadsInFlight() {
+		/* The reads already in flight are still shared with their current
+		 * waiters, but no later caller joins them */
+		readsInFlight.clear();
+	}
+
+	public long getExecutedReads() {
+		return executedReads.get();
+	}
+
+	public long getCoalescedReads() {
+		return coalescedReads.get();
+	}
+
+	private Object await(CompletableFuture<Object> leader) {
+		// The exception of the leader is rethrown unchanged to every waiter
+		try {
+			return leader.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof Error)
+				throw (Error) e.getCause();
+			throw (RuntimeException) e.getCause();
+		}
+	}
+}
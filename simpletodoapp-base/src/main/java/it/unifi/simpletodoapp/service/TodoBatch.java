@@ -0,0 +1,126 @@
+package it.unifi.simpletodoapp.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import it.unifi.simpletodoapp.model.Tag;
+import it.unifi.simpletodoapp.model.Task;
+import it.unifi.simpletodoapp.repository.CompositeTransactionCode;
+import it.unifi.simpletodoapp.repository.TransactionManager;
+
+/* Collects several operations of a TodoService and runs them, in the order they
+ * were added, in a single composite transaction: each operation is validated as
+ * when run on its own and sees the changes of the previous ones, while the
+ * first failure aborts the whole batch and is rethrown unchanged */
+public class TodoBatch {
+	private final TodoService todoService;
+	private final TransactionManager transactionManager;
+	private final EntityCache<Task> taskCache;
+	private final EntityCache<Tag> tagCache;
+	private final List<CompositeTransactionCode<Void>> operations = new ArrayList<>();
+	private final Set<String> modifiedTaskIds = new LinkedHashSet<>();
+	private final Set<String> modifiedTagIds = new LinkedHashSet<>();
+	private boolean committed;
+	private int failedOperation = -1;
+
+	TodoBatch(TodoService todoService, TransactionManager transactionManager,
+			EntityCache<Task> taskCache, EntityCache<Tag> tagCache) {
+		this.todoService = todoService;
+		this.transactionManager = transactionManager;
+		this.taskCache = taskCache;
+		this.tagCache = tagCache;
+	}
+
+	public TodoBatch saveTask(Task task) {
+		add((taskRepository, tagRepository) -> {
+			// Duplicated IDs are rejected by the repository unique index
+			taskRepository.save(task);
+			return null;
+		});
+		modifiedTaskIds.add(task.getId());
+		return this;
+	}
+
+	public TodoBatch deleteTask(Task task) {
+		add(todoService.deleteTaskCode(task));
+		modifiedTaskIds.add(task.getId());
+		return this;
+	}
+
+	public TodoBatch saveTag(Tag tag) {
+		add((taskRepository, tagRepository) -> {
+			// Duplicated IDs and names are rejected by the repository unique indexes
+			tagRepository.save(tag);
+			return null;
+		});
+		modifiedTagIds.add(tag.getId());
+		return this;
+	}
+
+	public TodoBatch deleteTag(Tag tag) {
+		add(todoService.deleteTagCode(tag));
+		modifiedTagIds.add(tag.getId());
+		return this;
+	}
+
+	public TodoBatch addTagToTask(String taskId, String tagId) {
+		add(todoService.addTagToTaskCode(taskId, tagId));
+		return this;
+	}
+
+	public TodoBatch removeTagFromTask(String taskId, String tagId) {
+		add(todoService.removeTagFromTaskCode(taskId, tagId));
+		return this;
+	}
+
+	public int size() {
+		return operations.size();
+	}
+
+	public void commit() {
+		if (committed) {
+			throw new IllegalStateException("Batch has already been committed");
+		}
+
+		committed = true;
+
+		if (operations.isEmpty())
+			return;
+
+		try {
+			transactionManager.doCompositeTransaction(
+					(taskRepository, tagRepository) -> {
+						/* The transaction may be run again when retried, so the index
+						 * of the failed operation is recorded again every time */
+						for (int i = 0; i < operations.size(); i++) {
+							failedOperation = i;
+							operations.get(i).apply(taskRepository, tagRepository);
+						}
+
+						failedOperation = -1;
+						return null;
+					});
+		} finally {
+			// Also when failed, since the outcome of the commit may be unknown
+			modifiedTaskIds.forEach(taskCache::invalidate);
+			modifiedTagIds.forEach(tagCache::invalidate);
+			todoService.forgetReadsInFlight();
+		}
+	}
+
+	public int getFailedOperation() {
+		/* The index, in order of addition, of the operation whose error aborted
+		 * the batch, or -1 if none did, e.g. when the commit itself failed */
+		return failedOperation;
+	}
+
+	private void add(CompositeTransactionCode<Void> operation) {
+		if (committed) {
+			throw new IllegalStateException("Batch has already been committed");
+		}
+
+		operations.add(operation);
+	}
+}
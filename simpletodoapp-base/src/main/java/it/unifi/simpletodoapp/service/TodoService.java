@@ -1,200 +1,461 @@
 package it.unifi.simpletodoapp.service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import it.unifi.simpletodoapp.model.Page;
 import it.unifi.simpletodoapp.model.Tag;
 import it.unifi.simpletodoapp.model.Task;
+import it.unifi.simpletodoapp.repository.CompositeTransactionCode;
+import it.unifi.simpletodoapp.repository.MembershipUpdate;
 import it.unifi.simpletodoapp.repository.TagRepositoryException;
 import it.unifi.simpletodoapp.repository.TaskRepositoryException;
+import it.unifi.simpletodoapp.repository.TodoChangeListener;
+import it.unifi.simpletodoapp.repository.TodoChangeSource;
 import it.unifi.simpletodoapp.repository.TransactionManager;
 
 public class TodoService {
 	private TransactionManager transactionManager;
+	private EntityCache<Task> taskCache = new DisabledEntityCache<>();
+	private EntityCache<Tag> tagCache = new DisabledEntityCache<>();
+	private ReadCoalescer readCoalescer;
+	private TodoChangeSource changeSource;
+	private final Map<TodoChangeListener, ChangeCoalescer> subscriptions = new ConcurrentHashMap<>();
 
 	public TodoService(TransactionManager transactionManager) {
 		this.transactionManager = transactionManager;
 	}
 
+	public void useEntityCaches(EntityCache<Task> taskCache, EntityCache<Tag> tagCache) {
+		/* Lookups by ID are served by the caches, which are invalidated by the
+		 * writes of this service: if the entities are also modified by other
+		 * clients, their changes must be watched with an EntityCacheInvalidator */
+		this.taskCache = taskCache;
+		this.tagCache = tagCache;
+	}
+
+	public void useReadCoalescer(ReadCoalescer readCoalescer) {
+		/* Identical reads called concurrently, e.g. by the workers of an
+		 * asynchronous controller, share a single database read */
+		this.readCoalescer = readCoalescer;
+	}
+
+	public void useChangeSource(TodoChangeSource changeSource) {
+		this.changeSource = changeSource;
+	}
+
+	public void subscribe(TodoChangeListener listener, Executor executor) {
+		/* The listener receives the changes committed by any client through its
+		 * executor, the ones received while it is busy being merged together */
+		if (changeSource == null) {
+			throw new IllegalStateException("No change source to subscribe to");
+		}
+
+		ChangeCoalescer changeCoalescer = new ChangeCoalescer(listener, executor);
+
+		if (subscriptions.putIfAbsent(listener, changeCoalescer) == null)
+			changeSource.addListener(changeCoalescer, Runnable::run);
+	}
+
+	public void unsubscribe(TodoChangeListener listener) {
+		ChangeCoalescer changeCoalescer = subscriptions.remove(listener);
+
+		if (changeCoalescer != null)
+			changeSource.removeListener(changeCoalescer);
+	}
+
 	public List<Task> getAllTasks() {
-		return transactionManager.doTaskTransaction(
-				(taskMongoRepository, clientSession) -> taskMongoRepository.findAll(clientSession)
+		return coalesceList(Arrays.asList("allTasks"), () -> transactionManager.doTaskRead(
+				taskRepository -> taskRepository.findAll()
+				));
+	}
+
+	public <R> R streamAllTasks(int batchSize, Function<Stream<Task>, R> streamProcessor) {
+		/* The stream is backed by a cursor tied to the session, so it is processed
+		 * within the read and always closed before the session ends */
+		return transactionManager.doTaskRead(
+				taskRepository -> {
+					try (Stream<Task> tasks = taskRepository.streamAll(batchSize)) {
+						return streamProcessor.apply(tasks);
+					}
+				});
+	}
+
+	public long countTasks() {
+		return coalesce(Arrays.asList("taskCount"), () -> transactionManager.doTaskRead(
+				taskRepository -> taskRepository.count()
+				));
+	}
+
+	public Page<Task> getTasksPage(String afterId, int limit) {
+		if (limit <= 0) {
+			throw new IllegalArgumentException(invalidLimitErrorMessage(limit));
+		}
+
+		return transactionManager.doTaskRead(
+				taskRepository -> taskRepository.findPage(afterId, limit)
 				);
 	}
 
-	public Task findTaskById(String tagId) {
-		return transactionManager.doTaskTransaction(
-				(taskMongoRepository, clientSession) -> taskMongoRepository.findById(tagId, clientSession)
+	public Page<Task> getTasksPageAt(int offset, int limit) {
+		if (offset < 0) {
+			throw new IllegalArgumentException(invalidOffsetErrorMessage(offset));
+		}
+
+		if (limit <= 0) {
+			throw new IllegalArgumentException(invalidLimitErrorMessage(limit));
+		}
+
+		return transactionManager.doTaskRead(
+				taskRepository -> taskRepository.findPageAt(offset, limit)
 				);
 	}
 
-	public void saveTask(Task task) {
-		transactionManager.doTaskTransaction(
-				(taskMongoRepository, clientSession) -> {
-					if (taskMongoRepository.findById(task.getId(), clientSession) != null) {
-						throw new TaskRepositoryException("Cannot add task with duplicated ID " + task.getId());
-					}
+	public Task findTaskById(String taskId) {
+		return findById(taskId, taskCache, () -> coalesce(Arrays.asList("task", taskId),
+				() -> transactionManager.doTaskRead(
+						taskRepository -> taskRepository.findById(taskId)
+						)));
+	}
 
-					taskMongoRepository.save(task, clientSession);
-					return null;
-				});
+	public List<Task> findTasksByIds(List<String> taskIds) {
+		return findByIds(taskIds, taskCache, Task::getId, missingIds -> transactionManager.doTaskRead(
+				taskRepository -> taskRepository.findByIds(missingIds)
+				));
+	}
+
+	public void saveTask(Task task) {
+		try {
+			transactionManager.doTaskTransaction(
+					taskRepository -> {
+						// Duplicated IDs are rejected by the repository unique index
+						taskRepository.save(task);
+						return null;
+					});
+		} finally {
+			// Also when failed, since the outcome of the commit may be unknown
+			taskCache.invalidate(task.getId());
+			forgetReadsInFlight();
+		}
 	}
 
 	public void deleteTask(Task task) {
 		// Delete the task and remove it from all the tags it was associated to
-		transactionManager.doCompositeTransaction(
-				(taskRepository, tagRepository, clientSession) -> {
-					if (taskRepository.findById(task.getId(), clientSession) == null) {
-						throw new TaskRepositoryException("Task with ID " + task.getId() + " has already been deleted");
-					}
-
-					taskRepository.getTagsByTaskId(task.getId(), clientSession)
-					.stream()
-					.forEach(tagId -> tagRepository.removeTaskFromTag(tagId, task.getId(), clientSession));
-
-					taskRepository.delete(task, clientSession);
-					return null;
-				});
+		try {
+			transactionManager.doCompositeTransaction(deleteTaskCode(task));
+		} finally {
+			taskCache.invalidate(task.getId());
+			forgetReadsInFlight();
+		}
 	}
 
 	public void removeTaskFromTag(String taskId, String tagId) {
-		transactionManager.doCompositeTransaction(
-				(taskRepository, tagRepository, clientSession) -> {
-					if (taskRepository.findById(taskId, clientSession) == null) {
-						throw new TaskRepositoryException(noTaskErrorMessage(taskId));
-					}
+		try {
+			transactionManager.doCompositeTransaction(
+					(taskRepository, tagRepository) -> {
+						/* Both updates report whether the document exists and whether it
+						 * changed, so no read is needed: any error aborts the transaction */
+						MembershipUpdate taskUpdate = taskRepository.removeTagFromTask(taskId, tagId);
 
-					if (tagRepository.findById(tagId, clientSession) == null) {
-						throw new TagRepositoryException(noTagErrorMessage(tagId));
-					}
+						if (taskUpdate == MembershipUpdate.NOT_FOUND) {
+							throw new TaskRepositoryException(noTaskErrorMessage(taskId));
+						}
+
+						MembershipUpdate tagUpdate = tagRepository.removeTaskFromTag(tagId, taskId);
+
+						if (tagUpdate == MembershipUpdate.NOT_FOUND) {
+							throw new TagRepositoryException(noTagErrorMessage(tagId));
+						}
 
-					List<String> currentTasks = tagRepository.getTasksByTagId(tagId, clientSession);
+						if (tagUpdate == MembershipUpdate.NOT_MODIFIED) {
+							throw new TagRepositoryException("No task with ID " + taskId + 
+									" assigned to tag with ID " + tagId);
+						}
 
-					if (currentTasks.stream().anyMatch(t -> t.equals(taskId))) {
-						taskRepository.removeTagFromTask(taskId, tagId, clientSession);
-						tagRepository.removeTaskFromTag(tagId, taskId, clientSession);
 						return null;
-					} else {
-						throw new TagRepositoryException("No task with ID " + taskId + 
-								" assigned to tag with ID " + tagId);
+					});
+		} finally {
+			forgetReadsInFlight();
+		}
+	}
+
+	public List<Tag> getAllTags() {
+		return coalesceList(Arrays.asList("allTags"), () -> transactionManager.doTagRead(
+				tagRepository -> tagRepository.findAll()
+				));
+	}
+
+	public <R> R streamAllTags(int batchSize, Function<Stream<Tag>, R> streamProcessor) {
+		/* The stream is backed by a cursor tied to the session, so it is processed
+		 * within the read and always closed before the session ends */
+		return transactionManager.doTagRead(
+				tagRepository -> {
+					try (Stream<Tag> tags = tagRepository.streamAll(batchSize)) {
+						return streamProcessor.apply(tags);
 					}
 				});
 	}
 
-	public List<Tag> getAllTags() {
-		return transactionManager.doTagTransaction(
-				(tagMongoRepository, clientSession) -> tagMongoRepository.findAll(clientSession)
-				);
+	public long countTags() {
+		return coalesce(Arrays.asList("tagCount"), () -> transactionManager.doTagRead(
+				tagRepository -> tagRepository.count()
+				));
 	}
 
-	public Tag findTagById(String tagId) {
-		return transactionManager.doTagTransaction(
-				(tagMongoRepository, clientSession) -> tagMongoRepository.findById(tagId, clientSession)
+	public Page<Tag> getTagsPage(String afterId, int limit) {
+		if (limit <= 0) {
+			throw new IllegalArgumentException(invalidLimitErrorMessage(limit));
+		}
+
+		return transactionManager.doTagRead(
+				tagRepository -> tagRepository.findPage(afterId, limit)
 				);
 	}
 
-	public void saveTag(Tag tag) {
-		transactionManager.doTagTransaction(
-				(tagMongoRepository, clientSession) -> {
-					if (tagMongoRepository.findById(tag.getId(), clientSession) != null) {
-						throw new TagRepositoryException("Cannot add tag with duplicated ID " + tag.getId());
-					}
+	public Page<Tag> getTagsPageAt(int offset, int limit) {
+		if (offset < 0) {
+			throw new IllegalArgumentException(invalidOffsetErrorMessage(offset));
+		}
 
-					List<Tag> tagList = tagMongoRepository.findAll(clientSession);
+		if (limit <= 0) {
+			throw new IllegalArgumentException(invalidLimitErrorMessage(limit));
+		}
 
-					if(tagList.stream().anyMatch(t -> t.getName().equals(tag.getName()))) {
-						throw new TagRepositoryException("Cannot add tag with duplicated name \"" + tag.getName() + "\"");
-					}
+		return transactionManager.doTagRead(
+				tagRepository -> tagRepository.findPageAt(offset, limit)
+				);
+	}
 
-					tagMongoRepository.save(tag, clientSession);
-					return null;
-				});
+	public Tag findTagById(String tagId) {
+		return findById(tagId, tagCache, () -> coalesce(Arrays.asList("tag", tagId),
+				() -> transactionManager.doTagRead(
+						tagRepository -> tagRepository.findById(tagId)
+						)));
 	}
 
-	public void deleteTag(Tag tag) {
-		// Delete the tag and remove it from all the tasks it was associated to
-		transactionManager.doCompositeTransaction(
-				(taskRepository, tagRepository, clientSession) -> {
-					if (tagRepository.findById(tag.getId(), clientSession) == null) {
-						throw new TagRepositoryException("Tag with ID " + tag.getId() + " has already been deleted");
-					}
+	public List<Tag> findTagsByIds(List<String> tagIds) {
+		return findByIds(tagIds, tagCache, Tag::getId, missingIds -> transactionManager.doTagRead(
+				tagRepository -> tagRepository.findByIds(missingIds)
+				));
+	}
 
-					tagRepository.getTasksByTagId(tag.getId(), clientSession)
-					.stream()
-					.forEach(taskId -> taskRepository.removeTagFromTask(taskId, tag.getId(), clientSession));
+	public void saveTag(Tag tag) {
+		try {
+			transactionManager.doTagTransaction(
+					tagRepository -> {
+						// Duplicated IDs and names are rejected by the repository unique indexes
+						tagRepository.save(tag);
+						return null;
+					});
+		} finally {
+			// Also when failed, since the outcome of the commit may be unknown
+			tagCache.invalidate(tag.getId());
+			forgetReadsInFlight();
+		}
+	}
 
-					tagRepository.delete(tag, clientSession);
-					return null;
-				});
+	public void deleteTag(Tag tag) {
+		// Delete the tag and remove it from all the tasks it was associated to
+		try {
+			transactionManager.doCompositeTransaction(deleteTagCode(tag));
+		} finally {
+			tagCache.invalidate(tag.getId());
+			forgetReadsInFlight();
+		}
 	}
 
 	public void addTagToTask(String taskId, String tagId) {
-		transactionManager.doCompositeTransaction(
-				(taskRepository, tagRepository, clientSession) -> {
-					if (taskRepository.findById(taskId, clientSession) == null) {
+		try {
+			transactionManager.doCompositeTransaction(addTagToTaskCode(taskId, tagId));
+		} finally {
+			forgetReadsInFlight();
+		}
+	}
+
+	public List<String> findTagsByTaskId(String taskId) {
+		return coalesceList(Arrays.asList("tagsOfTask", taskId), () -> transactionManager.doTaskRead(
+				taskRepository -> {
+					if (taskRepository.findById(taskId) == null) {
 						throw new TaskRepositoryException(noTaskErrorMessage(taskId));
 					}
 
-					if (tagRepository.findById(tagId, clientSession) == null) {
+					return taskRepository.getTagsByTaskId(taskId);
+				}));
+	}
+
+	public void removeTagFromTask(String taskId, String tagId) {
+		try {
+			transactionManager.doCompositeTransaction(removeTagFromTaskCode(taskId, tagId));
+		} finally {
+			forgetReadsInFlight();
+		}
+	}
+
+	public List<String> findTasksByTagId(String tagId) {
+		return coalesceList(Arrays.asList("tasksOfTag", tagId), () -> transactionManager.doTagRead(
+				tagRepository -> {
+					if (tagRepository.findById(tagId) == null) {
 						throw new TagRepositoryException(noTagErrorMessage(tagId));
 					}
 
-					List<String> currentTags = taskRepository.getTagsByTaskId(taskId, clientSession);
+					return tagRepository.getTasksByTagId(tagId);
+				}));
+	}
 
-					if (currentTags.stream().anyMatch(t -> t.equals(tagId))) {
-						throw new TaskRepositoryException("Tag with ID " + tagId + 
-								" is already assigned to task with ID " + taskId);
-					}
+	public TodoBatch newBatch() {
+		return new TodoBatch(this, transactionManager, taskCache, tagCache);
+	}
 
-					taskRepository.addTagToTask(taskId, tagId, clientSession);
-					tagRepository.addTaskToTag(tagId, taskId, clientSession);
-					return null;
-				});
+	CompositeTransactionCode<Void> deleteTaskCode(Task task) {
+		return (taskRepository, tagRepository) -> {
+			if (taskRepository.findById(task.getId()) == null) {
+				throw new TaskRepositoryException("Task with ID " + task.getId() + " has already been deleted");
+			}
+
+			tagRepository.removeTaskFromAllTags(task.getId());
+
+			taskRepository.delete(task);
+			return null;
+		};
 	}
 
-	public List<String> findTagsByTaskId(String taskId) {
-		return transactionManager.doTaskTransaction(
-				(taskMongoRepository, clientSession) -> {
-					if (taskMongoRepository.findById(taskId, clientSession) == null) {
-						throw new TaskRepositoryException(noTaskErrorMessage(taskId));
-					}
+	CompositeTransactionCode<Void> deleteTagCode(Tag tag) {
+		return (taskRepository, tagRepository) -> {
+			if (tagRepository.findById(tag.getId()) == null) {
+				throw new TagRepositoryException("Tag with ID " + tag.getId() + " has already been deleted");
+			}
 
-					return taskMongoRepository.getTagsByTaskId(taskId, clientSession);
-				});
+			taskRepository.removeTagFromAllTasks(tag.getId());
+
+			tagRepository.delete(tag);
+			return null;
+		};
 	}
 
-	public void removeTagFromTask(String taskId, String tagId) {
-		transactionManager.doCompositeTransaction(
-				(taskRepository, tagRepository, clientSession) -> {
-					if (taskRepository.findById(taskId, clientSession) == null) {
-						throw new TaskRepositoryException(noTaskErrorMessage(taskId));
-					}
+	CompositeTransactionCode<Void> addTagToTaskCode(String taskId, String tagId) {
+		return (taskRepository, tagRepository) -> {
+			/* Both updates report whether the document exists and whether it
+			 * changed, so no read is needed: any error aborts the transaction */
+			MembershipUpdate taskUpdate = taskRepository.addTagToTask(taskId, tagId);
 
-					if (tagRepository.findById(tagId, clientSession) == null) {
-						throw new TagRepositoryException(noTagErrorMessage(tagId));
-					}
+			if (taskUpdate == MembershipUpdate.NOT_FOUND) {
+				throw new TaskRepositoryException(noTaskErrorMessage(taskId));
+			}
 
-					List<String> currentTags = taskRepository.getTagsByTaskId(taskId, clientSession);
+			if (tagRepository.addTaskToTag(tagId, taskId) == MembershipUpdate.NOT_FOUND) {
+				throw new TagRepositoryException(noTagErrorMessage(tagId));
+			}
 
-					if (currentTags.stream().anyMatch(t -> t.equals(tagId))) {
-						taskRepository.removeTagFromTask(taskId, tagId, clientSession);
-						tagRepository.removeTaskFromTag(tagId, taskId, clientSession);
-						return null;
-					} else {
-						throw new TaskRepositoryException("No tag with ID " + tagId + 
-								" assigned to task with ID " + taskId);
-					}
-				});
+			if (taskUpdate == MembershipUpdate.NOT_MODIFIED) {
+				throw new TaskRepositoryException("Tag with ID " + tagId + 
+						" is already assigned to task with ID " + taskId);
+			}
+
+			return null;
+		};
 	}
 
-	public List<String> findTasksByTagId(String tagId) {
-		return transactionManager.doTagTransaction(
-				(tagMongoRepository, clientSession) -> {
-					if (tagMongoRepository.findById(tagId, clientSession) == null) {
-						throw new TagRepositoryException(noTagErrorMessage(tagId));
-					}
+	CompositeTransactionCode<Void> removeTagFromTaskCode(String taskId, String tagId) {
+		return (taskRepository, tagRepository) -> {
+			/* Both updates report whether the document exists and whether it
+			 * changed, so no read is needed: any error aborts the transaction */
+			MembershipUpdate taskUpdate = taskRepository.removeTagFromTask(taskId, tagId);
 
-					return tagMongoRepository.getTasksByTagId(tagId, clientSession);
-				});
+			if (taskUpdate == MembershipUpdate.NOT_FOUND) {
+				throw new TaskRepositoryException(noTaskErrorMessage(taskId));
+			}
+
+			if (tagRepository.removeTaskFromTag(tagId, taskId) == MembershipUpdate.NOT_FOUND) {
+				throw new TagRepositoryException(noTagErrorMessage(tagId));
+			}
+
+			if (taskUpdate == MembershipUpdate.NOT_MODIFIED) {
+				throw new TaskRepositoryException("No tag with ID " + tagId + 
+						" assigned to task with ID " + taskId);
+			}
+
+			return null;
+		};
+	}
+
+	void forgetReadsInFlight() {
+		// Called by every write before returning, also when failed
+		if (readCoalescer != null)
+			readCoalescer.forgetReadsInFlight();
+	}
+
+	private <T> T coalesce(List<String> key, Supplier<T> read) {
+		if (readCoalescer == null)
+			return read.get();
+
+		return readCoalescer.execute(key, read);
+	}
+
+	private <T> List<T> coalesceList(List<String> key, Supplier<List<T>> read) {
+		if (readCoalescer == null)
+			return read.get();
+
+		// Every caller gets its own copy of the shared list
+		return new ArrayList<>(readCoalescer.execute(key, read));
+	}
+
+	private <T> T findById(String id, EntityCache<T> cache, Supplier<T> loader) {
+		T entity = cache.get(id);
+
+		if (entity == null) {
+			// Missing entities are not cached, so that they are found once added
+			long loadStamp = cache.beginLoad(id);
+
+			try {
+				entity = loader.get();
+			} finally {
+				cache.endLoad(id, entity, loadStamp);
+			}
+		}
+
+		return entity;
+	}
+
+	private <T> List<T> findByIds(List<String> ids, EntityCache<T> cache,
+			Function<T, String> idExtractor, Function<List<String>, List<T>> loader) {
+		/* Only the entities missing from the cache are read, all at once, while
+		 * the result keeps the order of the IDs skipping the missing entities */
+		Map<String, T> entities = new HashMap<>();
+		Map<String, Long> loadStamps = new LinkedHashMap<>();
+
+		for (String id : ids) {
+			T entity = cache.get(id);
+
+			if (entity != null)
+				entities.put(id, entity);
+			else if (!loadStamps.containsKey(id))
+				loadStamps.put(id, cache.beginLoad(id));
+		}
+
+		if (!loadStamps.isEmpty()) {
+			try {
+				for (T entity : loader.apply(new ArrayList<>(loadStamps.keySet())))
+					entities.put(idExtractor.apply(entity), entity);
+			} finally {
+				for (Map.Entry<String, Long> loadStamp : loadStamps.entrySet())
+					cache.endLoad(loadStamp.getKey(), entities.get(loadStamp.getKey()), loadStamp.getValue());
+			}
+		}
+
+		return ids.stream()
+				.filter(entities::containsKey)
+				.map(entities::get)
+				.collect(Collectors.toList());
 	}
 
 	private String noTaskErrorMessage(String taskId) {
@@ -204,4 +465,12 @@ public class TodoService {
 	private String noTagErrorMessage(String tagId) {
 		return "No tag with ID " + tagId;
 	}
+
+	private String invalidLimitErrorMessage(int limit) {
+		return "Page limit must be positive, got " + limit;
+	}
+
+	private String invalidOffsetErrorMessage(int offset) {
+		return "Page offset must not be negative, got " + offset;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,175 @@
+package it.unifi.simpletodoapp.dataset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import it.unifi.simpletodoapp.model.Tag;
+import it.unifi.simpletodoapp.model.Task;
+import it.unifi.simpletodoapp.repository.TagRepository;
+import it.unifi.simpletodoapp.repository.TaskRepository;
+import it.unifi.simpletodoapp.repository.TransactionManager;
+import it.unifi.simpletodoapp.repository.memory.TransactionManagerInMemory;
+
+public class DatasetGeneratorTest {
+	@Test
+	public void testGeneratesTheRequestedTasksAndTags() {
+		// Setup phase
+		TransactionManager transactionManager = new TransactionManagerInMemory();
+		DatasetGenerator datasetGenerator = new DatasetGenerator(250, 12, 3, 1, 7);
+
+		// Exercise phase
+		datasetGenerator.generate(transactionManager);
+
+		// Verify phase
+		List<Task> tasks = transactionManager.doTaskRead(TaskRepository::findAll);
+		List<Tag> tags = transactionManager.doTagRead(TagRepository::findAll);
+		assertThat(tasks)
+		.hasSize(250)
+		.extracting(Task::getId)
+		.startsWith("000", "001")
+		.endsWith("249");
+		assertThat(tags)
+		.hasSize(12)
+		.extracting(Tag::getId)
+		.startsWith("00")
+		.endsWith("11");
+	}
+
+	@Test
+	public void testAssignmentsAreStoredOnBothSides() {
+		// Setup phase
+		TransactionManager transactionManager = new TransactionManagerInMemory();
+		DatasetGenerator datasetGenerator = new DatasetGenerator(300, 20, 4, 1.1, 3);
+
+		// Exercise phase
+		datasetGenerator.generate(transactionManager);
+
+		// Verify phase
+		Map<String, List<String>> tagsByTask = tagsByTask(transactionManager);
+		long assignments = 0;
+
+		for (Map.Entry<String, List<String>> tagsOfTask : tagsByTask.entrySet()) {
+			assertThat(tagsOfTask.getValue().size())
+			.isLessThanOrEqualTo(4);
+			assertThat(tagsOfTask.getValue())
+			.doesNotHaveDuplicates();
+
+			for (String tagId : tagsOfTask.getValue()) {
+				assertThat(transactionManager.<List<String>>doTagRead(tagRepository -> tagRepository.getTasksByTagId(tagId)))
+				.contains(tagsOfTask.getKey());
+			}
+
+			assignments += tagsOfTask.getValue().size();
+		}
+
+		long tagSideAssignments = transactionManager.doTagRead(tagRepository -> tagRepository.findAll().stream()
+				.mapToLong(tag -> tagRepository.getTasksByTagId(tag.getId()).size())
+				.sum());
+		assertThat(tagSideAssignments)
+		.isEqualTo(assignments)
+		.isEqualTo(datasetGenerator.getAssignments());
+	}
+
+	@Test
+	public void testTagPopularityIsSkewed() {
+		// Setup phase
+		TransactionManager transactionManager = new TransactionManagerInMemory();
+		DatasetGenerator datasetGenerator = new DatasetGenerator(2000, 50, 2, 1.5, 11);
+
+		// Exercise phase
+		datasetGenerator.generate(transactionManager);
+
+		// Verify phase
+		int[] tasksOfTags = transactionManager.doTagRead(tagRepository -> tagRepository.findAll().stream()
+				.mapToInt(tag -> tagRepository.getTasksByTagId(tag.getId()).size())
+				.sorted()
+				.toArray());
+		int mostPopular = tasksOfTags[tasksOfTags.length - 1];
+		int median = tasksOfTags[tasksOfTags.length / 2];
+		assertThat(mostPopular)
+		.isGreaterThan(10 * median);
+	}
+
+	@Test
+	public void testSameSeedGeneratesTheSameDatasetWhateverTheBatchSize() {
+		// Setup phase
+		TransactionManager transactionManager = new TransactionManagerInMemory();
+		TransactionManager otherTransactionManager = new TransactionManagerInMemory();
+		DatasetGenerator otherDatasetGenerator = new DatasetGenerator(120, 15, 3, 1, 5);
+		otherDatasetGenerator.useBatchSize(7);
+
+		// Exercise phase
+		new DatasetGenerator(120, 15, 3, 1, 5).generate(transactionManager);
+		otherDatasetGenerator.generate(otherTransactionManager);
+
+		// Verify phase
+		assertThat(transactionManager.<List<Task>>doTaskRead(TaskRepository::findAll))
+		.isEqualTo(otherTransactionManager.<List<Task>>doTaskRead(TaskRepository::findAll));
+		assertThat(tagsByTask(transactionManager))
+		.isEqualTo(tagsByTask(otherTransactionManager));
+	}
+
+	@Test
+	public void testDifferentSeedsGenerateDifferentDatasets() {
+		// Setup phase
+		TransactionManager transactionManager = new TransactionManagerInMemory();
+		TransactionManager otherTransactionManager = new TransactionManagerInMemory();
+
+		// Exercise phase
+		new DatasetGenerator(120, 15, 3, 1, 5).generate(transactionManager);
+		new DatasetGenerator(120, 15, 3, 1, 6).generate(otherTransactionManager);
+
+		// Verify phase
+		assertThat(tagsByTask(transactionManager))
+		.isNotEqualTo(tagsByTask(otherTransactionManager));
+	}
+
+	@Test
+	public void testEveryTagCanBeAssignedToATask() {
+		// Setup phase
+		TransactionManager transactionManager = new TransactionManagerInMemory();
+
+		// Exercise phase
+		new DatasetGenerator(50, 3, 3, 4, 1).generate(transactionManager);
+
+		// Verify phase
+		assertThat(tagsByTask(transactionManager).values())
+		.allSatisfy(tagIds -> assertThat(tagIds).isSubsetOf(Arrays.asList("0", "1", "2")));
+	}
+
+	@Test
+	public void testInvalidParametersAreRejected() {
+		// Exercise and verify phases
+		assertThatThrownBy(() -> new DatasetGenerator(-1, 10, 2, 1, 0))
+		.isInstanceOf(IllegalArgumentException.class)
+		.hasMessage("Tasks must not be negative, got -1");
+		assertThatThrownBy(() -> new DatasetGenerator(10, 0, 0, 1, 0))
+		.isInstanceOf(IllegalArgumentException.class)
+		.hasMessage("Tags must be positive, got 0");
+		assertThatThrownBy(() -> new DatasetGenerator(10, 5, 6, 1, 0))
+		.isInstanceOf(IllegalArgumentException.class)
+		.hasMessage("Tags per task must be between 0 and 5, got 6");
+		assertThatThrownBy(() -> new DatasetGenerator(10, 5, 2, 1, 0).useBatchSize(0))
+		.isInstanceOf(IllegalArgumentException.class)
+		.hasMessage("Batch size must be positive, got 0");
+	}
+
+	private Map<String, List<String>> tagsByTask(TransactionManager transactionManager) {
+		// Private method to read the tags of every task in a single read
+		return transactionManager.doTaskRead(taskRepository -> {
+			Map<String, List<String>> tagsByTask = new HashMap<>();
+
+			for (Task task : taskRepository.findAll())
+				tagsByTask.put(task.getId(), taskRepository.getTagsByTaskId(task.getId()));
+
+			return tagsByTask;
+		});
+	}
+}
@@ -0,0 +1,67 @@
+package it.unifi.simpletodoapp.dataset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+public class ZipfDistributionTest {
+	private static final int SAMPLES = 100000;
+
+	@Test
+	public void testProbabilitiesDecreaseWithTheRank() {
+		// Setup phase
+		ZipfDistribution distribution = new ZipfDistribution(3, 1);
+
+		// Exercise and verify phases
+		assertThat(distribution.probability(0))
+		.isCloseTo(6.0 / 11, within(1e-9));
+		assertThat(distribution.probability(1))
+		.isCloseTo(3.0 / 11, within(1e-9));
+		assertThat(distribution.probability(2))
+		.isCloseTo(2.0 / 11, within(1e-9));
+	}
+
+	@Test
+	public void testSamplesFollowTheProbabilities() {
+		// Setup phase
+		ZipfDistribution distribution = new ZipfDistribution(10, 1.2);
+		SplittableRandom random = new SplittableRandom(42);
+		int[] counts = new int[10];
+
+		// Exercise phase
+		for (int sample = 0; sample < SAMPLES; sample++)
+			counts[distribution.sample(random)]++;
+
+		// Verify phase
+		for (int rank = 0; rank < 10; rank++) {
+			assertThat((double) counts[rank] / SAMPLES)
+			.isCloseTo(distribution.probability(rank), within(0.01));
+		}
+	}
+
+	@Test
+	public void testZeroExponentIsUniform() {
+		// Setup phase
+		ZipfDistribution distribution = new ZipfDistribution(4, 0);
+
+		// Exercise and verify phases
+		assertThat(distribution.probability(0))
+		.isEqualTo(distribution.probability(3))
+		.isEqualTo(0.25);
+	}
+
+	@Test
+	public void testInvalidParametersAreRejected() {
+		// Exercise and verify phases
+		assertThatThrownBy(() -> new ZipfDistribution(0, 1))
+		.isInstanceOf(IllegalArgumentException.class)
+		.hasMessage("Zipf distribution size must be positive, got 0");
+		assertThatThrownBy(() -> new ZipfDistribution(10, -0.5))
+		.isInstanceOf(IllegalArgumentException.class)
+		.hasMessage("Zipf exponent must not be negative, got -0.5");
+	}
+}
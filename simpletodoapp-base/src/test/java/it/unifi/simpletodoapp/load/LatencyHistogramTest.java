@@ -0,0 +1,129 @@
+package it.unifi.simpletodoapp.load;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+	@Test
+	public void testSmallValuesAreExact() {
+		// Setup phase
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		// Exercise phase
+		for (long value = 1; value <= 100; value++)
+			histogram.recordValue(value);
+
+		// Verify phase
+		assertThat(histogram.getTotalCount())
+		.isEqualTo(100);
+		assertThat(histogram.getValueAtPercentile(50))
+		.isEqualTo(50);
+		assertThat(histogram.getValueAtPercentile(99))
+		.isEqualTo(99);
+		assertThat(histogram.getValueAtPercentile(100))
+		.isEqualTo(100);
+	}
+
+	@Test
+	public void testLargeValuesAreWithinOnePercent() {
+		// Setup phase
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		// Exercise phase
+		for (long value = 1; value <= 10000; value++)
+			histogram.recordValue(value * 1000003);
+
+		// Verify phase
+		assertThat(histogram.getValueAtPercentile(50))
+		.isBetween(5000L * 1000003, 5050L * 1000003);
+		assertThat(histogram.getValueAtPercentile(99.9))
+		.isBetween(9990L * 1000003, 10000L * 1000003);
+		assertThat(histogram.getMaxValue())
+		.isEqualTo(histogram.getValueAtPercentile(100))
+		.isEqualTo(10000L * 1000003);
+	}
+
+	@Test
+	public void testValuesAboveTheHighestTrackableOneKeepTheExactMaximum() {
+		// Setup phase
+		LatencyHistogram histogram = new LatencyHistogram(1000);
+
+		// Exercise phase
+		histogram.recordValue(10);
+		histogram.recordValue(5000);
+
+		// Verify phase
+		assertThat(histogram.getValueAtPercentile(50))
+		.isEqualTo(10);
+		assertThat(histogram.getValueAtPercentile(100))
+		.isBetween(1000L, 5000L);
+		assertThat(histogram.getMaxValue())
+		.isEqualTo(5000);
+	}
+
+	@Test
+	public void testExpectedIntervalRecordsTheValuesMissedWhileStalled() {
+		// Setup phase
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		// Exercise phase
+		histogram.recordValueWithExpectedInterval(10, 100);
+		histogram.recordValueWithExpectedInterval(1000, 100);
+
+		// Verify phase: 1000 also stands for the values 900, 800, ... 100 it delayed
+		assertThat(histogram.getTotalCount())
+		.isEqualTo(11);
+		assertThat(histogram.getValueAtPercentile(50))
+		.isBetween(500L, 505L);
+	}
+
+	@Test
+	public void testAddMergesTheCounts() {
+		// Setup phase
+		LatencyHistogram histogram = new LatencyHistogram();
+		LatencyHistogram otherHistogram = new LatencyHistogram();
+		histogram.recordValue(1);
+		otherHistogram.recordValue(2);
+		otherHistogram.recordValue(3);
+
+		// Exercise phase
+		histogram.add(otherHistogram);
+
+		// Verify phase
+		assertThat(histogram.getTotalCount())
+		.isEqualTo(3);
+		assertThat(histogram.getValueAtPercentile(50))
+		.isEqualTo(2);
+		assertThat(histogram.getMaxValue())
+		.isEqualTo(3);
+	}
+
+	@Test
+	public void testEmptyHistogramReportsZero() {
+		// Exercise and verify phases
+		assertThat(new LatencyHistogram().getValueAtPercentile(99))
+		.isZero();
+	}
+
+	@Test
+	public void testInvalidArgumentsAreRejected() {
+		// Setup phase
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		// Exercise and verify phases
+		assertThatThrownBy(() -> histogram.recordValue(-1))
+		.isInstanceOf(IllegalArgumentException.class)
+		.hasMessage("Latency must not be negative, got -1");
+		assertThatThrownBy(() -> histogram.getValueAtPercentile(101))
+		.isInstanceOf(IllegalArgumentException.class)
+		.hasMessage("Percentile must be between 0 and 100, got 101.0");
+		assertThatThrownBy(() -> histogram.add(new LatencyHistogram(1000)))
+		.isInstanceOf(IllegalArgumentException.class)
+		.hasMessage("Cannot add a histogram with a different highest trackable value");
+		assertThatThrownBy(() -> new LatencyHistogram(100))
+		.isInstanceOf(IllegalArgumentException.class)
+		.hasMessage("Highest trackable value must be at least 256, got 100");
+	}
+}
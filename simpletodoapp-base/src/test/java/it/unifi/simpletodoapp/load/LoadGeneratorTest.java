@@ -0,0 +1,203 @@
+package it.unifi.simpletodoapp.load;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import it.unifi.simpletodoapp.model.Tag;
+import it.unifi.simpletodoapp.repository.TaskRepositoryException;
+import it.unifi.simpletodoapp.repository.memory.TransactionManagerInMemory;
+import it.unifi.simpletodoapp.service.TodoService;
+
+public class LoadGeneratorTest {
+	private static final long STALL_MILLIS = 200;
+	private static final long LATE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+	private TodoService todoService;
+	private List<String> tagIds;
+
+	@Before
+	public void setup() {
+		todoService = new TodoService(new TransactionManagerInMemory());
+		tagIds = Arrays.asList("1", "2", "3");
+
+		for (String tagId : tagIds)
+			todoService.saveTag(new Tag(tagId, "Tag " + tagId));
+	}
+
+	@Test
+	public void testClosedLoopRunsTheWholeMixAndDeletesItsTasks() throws InterruptedException {
+		// Setup phase
+		LoadGenerator loadGenerator = new LoadGenerator(todoService, tagIds, 4, 1);
+		loadGenerator.useTasksPerWorker(10);
+
+		// Exercise phase
+		LoadResult result = loadGenerator.run(50, 200, TimeUnit.MILLISECONDS);
+
+		// Verify phase
+		for (LoadOperation operation : LoadOperation.values()) {
+			assertThat(result.getCompleted(operation))
+			.isPositive()
+			.isEqualTo(result.getHistogram(operation).getTotalCount());
+			assertThat(result.getErrors(operation))
+			.isZero();
+		}
+
+		assertThat(result.getThroughput(LoadOperation.READ))
+		.isEqualTo(result.getCompleted(LoadOperation.READ) * 5.0);
+		assertThat(todoService.countTasks())
+		.isZero();
+
+		for (String tagId : tagIds) {
+			assertThat(todoService.findTasksByTagId(tagId))
+			.isEmpty();
+		}
+	}
+
+	@Test
+	public void testAssignmentsFavourTheMostPopularTags() throws InterruptedException {
+		// Setup phase
+		TodoService observedService = spy(todoService);
+		LoadGenerator loadGenerator = new LoadGenerator(observedService, tagIds, 1, 1);
+		loadGenerator.useOperationMix(Collections.singletonMap(LoadOperation.ASSIGN, 1));
+		loadGenerator.useTagPopularity(3);
+		loadGenerator.useTasksPerWorker(1000);
+
+		// Exercise phase
+		LoadResult result = loadGenerator.run(0, 100, TimeUnit.MILLISECONDS);
+
+		// Verify phase
+		ArgumentCaptor<String> assignedTagIds = ArgumentCaptor.forClass(String.class);
+		verify(observedService, atLeastOnce()).addTagToTask(anyString(), assignedTagIds.capture());
+		assertThat(result.getErrors(LoadOperation.ASSIGN))
+		.isZero();
+		assertThat(Collections.frequency(assignedTagIds.getAllValues(), "1"))
+		.isGreaterThan(Collections.frequency(assignedTagIds.getAllValues(), "3") * 4);
+	}
+
+	@Test
+	public void testFailedOperationsAreCountedApart() throws InterruptedException {
+		// Setup phase
+		TodoService failingService = mock(TodoService.class);
+		doThrow(new TaskRepositoryException("Write conflict"))
+		.when(failingService).addTagToTask(anyString(), anyString());
+		LoadGenerator loadGenerator = new LoadGenerator(failingService, tagIds, 2, 1);
+		loadGenerator.useOperationMix(Collections.singletonMap(LoadOperation.ASSIGN, 1));
+
+		// Exercise phase
+		LoadResult result = loadGenerator.run(0, 50, TimeUnit.MILLISECONDS);
+
+		// Verify phase
+		assertThat(result.getErrors(LoadOperation.ASSIGN))
+		.isPositive();
+		assertThat(result.getCompleted(LoadOperation.ASSIGN))
+		.isZero();
+		assertThat(result.getHistogram(LoadOperation.ASSIGN).getTotalCount())
+		.isZero();
+	}
+
+	@Test
+	public void testUnthrottledClosedLoopRecordsAStallOnce() throws InterruptedException {
+		// Setup phase
+		LoadGenerator loadGenerator = stallingReadLoad();
+
+		// Exercise phase
+		LoadResult result = loadGenerator.run(0, 500, TimeUnit.MILLISECONDS);
+
+		// Verify phase
+		LatencyHistogram histogram = result.getHistogram(LoadOperation.READ);
+		assertThat(histogram.getMaxValue())
+		.isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(STALL_MILLIS));
+		assertThat(histogram.getValueAtPercentile(90))
+		.isLessThan(LATE_NANOS);
+	}
+
+	@Test
+	public void testOpenLoopMeasuresFromWhenOperationsWereDue() throws InterruptedException {
+		// Setup phase
+		LoadGenerator loadGenerator = stallingReadLoad();
+		loadGenerator.useTargetRate(LoadMode.OPEN_LOOP, 200);
+
+		// Exercise phase
+		LoadResult result = loadGenerator.run(0, 500, TimeUnit.MILLISECONDS);
+
+		// Verify phase: the operations due during the stall waited for it
+		assertThat(result.getHistogram(LoadOperation.READ).getValueAtPercentile(90))
+		.isGreaterThan(LATE_NANOS);
+	}
+
+	@Test
+	public void testThrottledClosedLoopCorrectsTheOperationsMissedWhileStalled() throws InterruptedException {
+		// Setup phase
+		LoadGenerator loadGenerator = stallingReadLoad();
+		loadGenerator.useTargetRate(LoadMode.CLOSED_LOOP, 200);
+
+		// Exercise phase
+		LoadResult result = loadGenerator.run(0, 500, TimeUnit.MILLISECONDS);
+
+		// Verify phase
+		assertThat(result.getHistogram(LoadOperation.READ).getValueAtPercentile(90))
+		.isGreaterThan(LATE_NANOS);
+		assertThat(result.getHistogram(LoadOperation.READ).getTotalCount())
+		.isGreaterThan(result.getCompleted(LoadOperation.READ));
+	}
+
+	@Test
+	public void testInvalidSettingsAreRejected() {
+		// Setup phase
+		LoadGenerator loadGenerator = new LoadGenerator(todoService, Collections.emptyList(), 1, 1);
+
+		// Exercise and verify phases
+		assertThatThrownBy(() -> new LoadGenerator(todoService, tagIds, 0, 1))
+		.isInstanceOf(IllegalArgumentException.class)
+		.hasMessage("Concurrency must be positive, got 0");
+		assertThatThrownBy(() -> loadGenerator.useTargetRate(LoadMode.OPEN_LOOP, 0))
+		.isInstanceOf(IllegalArgumentException.class)
+		.hasMessage("Open-loop load needs a positive target rate");
+		assertThatThrownBy(() -> loadGenerator.useTargetRate(LoadMode.CLOSED_LOOP, -1))
+		.isInstanceOf(IllegalArgumentException.class)
+		.hasMessage("Target rate must not be negative, got -1.0");
+		assertThatThrownBy(() -> loadGenerator.useOperationMix(Collections.singletonMap(LoadOperation.READ, 0)))
+		.isInstanceOf(IllegalArgumentException.class)
+		.hasMessage("Operation mix must have a positive weight, got {READ=0}");
+		assertThatThrownBy(() -> loadGenerator.useTagPopularity(1))
+		.isInstanceOf(IllegalArgumentException.class)
+		.hasMessage("Tag popularity needs at least one tag");
+		assertThatThrownBy(() -> loadGenerator.run(0, 100, TimeUnit.MILLISECONDS))
+		.isInstanceOf(IllegalArgumentException.class)
+		.hasMessage("Tag assignments need at least one tag");
+	}
+
+	private LoadGenerator stallingReadLoad() {
+		// Private method to create a load of reads only, the first of which stalls
+		TodoService stallingService = mock(TodoService.class);
+		AtomicBoolean stalled = new AtomicBoolean();
+		when(stallingService.findTagsByTaskId(anyString())).thenAnswer(invocation -> {
+			if (stalled.compareAndSet(false, true))
+				Thread.sleep(STALL_MILLIS);
+
+			return Collections.emptyList();
+		});
+
+		LoadGenerator loadGenerator = new LoadGenerator(stallingService, tagIds, 1, 1);
+		loadGenerator.useOperationMix(Collections.singletonMap(LoadOperation.READ, 1));
+		loadGenerator.useTasksPerWorker(1);
+		return loadGenerator;
+	}
+}
@@ -0,0 +1,231 @@
+package it.unifi.simpletodoapp.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.AdditionalAnswers.answer;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import it.unifi.simpletodoapp.model.Task;
+
+public class GroupCommitTransactionManagerTest {
+	private static final long LONG_WINDOW_MICROS = TimeUnit.SECONDS.toMicros(10);
+	private static final int GROUP_SIZE = 3;
+	private static final long TIMEOUT_SECONDS = 5;
+
+	@Mock
+	private TransactionManager transactionManager;
+
+	@Mock
+	private TaskRepository taskRepository;
+
+	@Mock
+	private TagRepository tagRepository;
+
+	private ExecutorService callers;
+	private GroupCommitTransactionManager groupCommitTransactionManager;
+
+	@Before
+	public void setup() {
+		/* The wrapped manager runs the code of composite transactions on the
+		 * mocked repositories, while groups are closed when full, not by time */
+		MockitoAnnotations.initMocks(this);
+		when(transactionManager.doCompositeTransaction(any()))
+		.thenAnswer(answer(
+				(CompositeTransactionCode<?> code) -> code.apply(taskRepository, tagRepository)
+				));
+		callers = Executors.newFixedThreadPool(GROUP_SIZE);
+		groupCommitTransactionManager = new GroupCommitTransactionManager(
+				transactionManager, LONG_WINDOW_MICROS, GROUP_SIZE);
+	}
+
+	@After
+	public void tearDown() throws InterruptedException {
+		callers.shutdownNow();
+		groupCommitTransactionManager.stop();
+	}
+
+	@Test
+	public void testConcurrentWritesShareOneTransactionKeepingTheirOwnResults() throws Exception {
+		// Setup phase
+		groupCommitTransactionManager.start();
+
+		// Exercise phase
+		Future<String> taskWrite = callers.submit(() -> groupCommitTransactionManager.doTaskTransaction(
+				taskRepository -> "task"));
+		Future<String> tagWrite = callers.submit(() -> groupCommitTransactionManager.doTagTransaction(
+				tagRepository -> "tag"));
+		Future<String> compositeWrite = callers.submit(() -> groupCommitTransactionManager.doCompositeTransaction(
+				(taskRepository, tagRepository) -> "composite"));
+
+		// Verify phase
+		assertThat(taskWrite.get(TIMEOUT_SECONDS, TimeUnit.SECONDS))
+		.isEqualTo("task");
+		assertThat(tagWrite.get(TIMEOUT_SECONDS, TimeUnit.SECONDS))
+		.isEqualTo("tag");
+		assertThat(compositeWrite.get(TIMEOUT_SECONDS, TimeUnit.SECONDS))
+		.isEqualTo("composite");
+		verify(transactionManager, times(1)).doCompositeTransaction(any());
+		assertThat(groupCommitTransactionManager.getGroups())
+		.isEqualTo(1);
+		assertThat(groupCommitTransactionManager.getGroupedWrites())
+		.isEqualTo(GROUP_SIZE);
+	}
+
+	@Test
+	public void testFailedWriteIsRunAloneWhileTheOthersAreCommittedTogether() throws Exception {
+		// Setup phase
+		Task task = new Task("1", "Buy groceries");
+		groupCommitTransactionManager.start();
+		List<Future<String>> writes = new ArrayList<>();
+
+		// Exercise phase
+		for (int i = 0; i < GROUP_SIZE; i++) {
+			String taskId = String.valueOf(i);
+			writes.add(callers.submit(() -> groupCommitTransactionManager.doTaskTransaction(
+					taskRepository -> {
+						if (taskId.equals(task.getId()))
+							throw new TaskRepositoryException("No task with ID " + taskId);
+
+						taskRepository.save(new Task(taskId, "Task " + taskId));
+						return taskId;
+					})));
+		}
+
+		// Verify phase: only the failed write gets the error
+		assertThat(writes.get(0).get(TIMEOUT_SECONDS, TimeUnit.SECONDS))
+		.isEqualTo("0");
+		ExecutionException exception = assertThrows(ExecutionException.class,
+				() -> writes.get(1).get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+		assertThat(exception.getCause())
+		.isInstanceOf(TaskRepositoryException.class)
+		.hasMessage("No task with ID 1");
+		assertThat(writes.get(2).get(TIMEOUT_SECONDS, TimeUnit.SECONDS))
+		.isEqualTo("2");
+		verify(transactionManager, times(3)).doCompositeTransaction(any());
+		assertThat(groupCommitTransactionManager.getFallbackGroups())
+		.isEqualTo(1);
+	}
+
+	@Test
+	public void testGroupWhoseCommitFailsIsSplitInHalves() throws Exception {
+		// Setup phase: only the first commit fails, after running the writes
+		doAnswer(answer((CompositeTransactionCode<?> code) -> {
+			code.apply(taskRepository, tagRepository);
+			throw new RuntimeException("Commit failed");
+		}))
+		.doAnswer(answer(
+				(CompositeTransactionCode<?> code) -> code.apply(taskRepository, tagRepository)
+				))
+		.when(transactionManager).doCompositeTransaction(any());
+		groupCommitTransactionManager.start();
+		List<Future<String>> writes = new ArrayList<>();
+
+		// Exercise phase
+		for (int i = 0; i < GROUP_SIZE; i++) {
+			String taskId = String.valueOf(i);
+			writes.add(callers.submit(() -> groupCommitTransactionManager.doTaskTransaction(
+					taskRepository -> taskId)));
+		}
+
+		// Verify phase: one half is a single write, the other a group of two
+		for (int i = 0; i < GROUP_SIZE; i++) {
+			assertThat(writes.get(i).get(TIMEOUT_SECONDS, TimeUnit.SECONDS))
+			.isEqualTo(String.valueOf(i));
+		}
+		verify(transactionManager, times(3)).doCompositeTransaction(any());
+		assertThat(groupCommitTransactionManager.getGroups())
+		.isEqualTo(2);
+		assertThat(groupCommitTransactionManager.getFallbackGroups())
+		.isEqualTo(1);
+	}
+
+	@Test
+	public void testLoneWriteIsCommittedWhenTheWindowEnds() {
+		// Setup phase
+		groupCommitTransactionManager = new GroupCommitTransactionManager(transactionManager, 1000, GROUP_SIZE);
+		groupCommitTransactionManager.start();
+
+		// Exercise phase
+		String result = groupCommitTransactionManager.doTaskTransaction(taskRepository -> "task");
+
+		// Verify phase
+		assertThat(result)
+		.isEqualTo("task");
+		assertThat(groupCommitTransactionManager.getGroups())
+		.isZero();
+	}
+
+	@Test
+	public void testWritesRunDirectlyWhenNotStarted() {
+		// Exercise phase
+		String result = groupCommitTransactionManager.doTagTransaction(tagRepository -> "tag");
+
+		// Verify phase
+		assertThat(result)
+		.isEqualTo("tag");
+		verify(transactionManager).doCompositeTransaction(any());
+	}
+
+	@Test
+	public void testWritesRunDirectlyOnceStopped() throws InterruptedException {
+		// Setup phase
+		groupCommitTransactionManager.start();
+		groupCommitTransactionManager.stop();
+
+		// Exercise phase
+		String result = groupCommitTransactionManager.doTaskTransaction(taskRepository -> "task");
+
+		// Verify phase
+		assertThat(result)
+		.isEqualTo("task");
+	}
+
+	@Test
+	public void testReadsAreDelegatedWithoutDelay() {
+		// Setup phase
+		TaskTransactionCode<String> taskRead = taskRepository -> "task";
+		TagTransactionCode<String> tagRead = tagRepository -> "tag";
+		CompositeTransactionCode<String> compositeRead = (taskRepository, tagRepository) -> "composite";
+		groupCommitTransactionManager.start();
+
+		// Exercise phase
+		groupCommitTransactionManager.doTaskRead(taskRead);
+		groupCommitTransactionManager.doTagRead(tagRead);
+		groupCommitTransactionManager.doCompositeRead(compositeRead);
+
+		// Verify phase
+		verify(transactionManager).doTaskRead(taskRead);
+		verify(transactionManager).doTagRead(tagRead);
+		verify(transactionManager).doCompositeRead(compositeRead);
+	}
+
+	@Test
+	public void testInvalidWindowOrGroupSizeIsRejected() {
+		// Verify phase
+		assertThatThrownBy(() -> new GroupCommitTransactionManager(transactionManager, -1))
+		.isInstanceOf(IllegalArgumentException.class)
+		.hasMessage("Group commit window must not be negative, got -1");
+		assertThatThrownBy(() -> new GroupCommitTransactionManager(transactionManager, 0, 0))
+		.isInstanceOf(IllegalArgumentException.class)
+		.hasMessage("Group size must be positive, got 0");
+	}
+}
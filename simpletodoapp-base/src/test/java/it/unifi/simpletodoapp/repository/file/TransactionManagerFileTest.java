@@ -0,0 +1,264 @@
+package it.unifi.simpletodoapp.repository.file;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import it.unifi.simpletodoapp.model.Tag;
+import it.unifi.simpletodoapp.model.Task;
+import it.unifi.simpletodoapp.repository.TagRepository;
+import it.unifi.simpletodoapp.repository.TaskRepository;
+
+public class TransactionManagerFileTest {
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private Path directory;
+	private TransactionManagerFile transactionManager;
+
+	@Before
+	public void setup() throws IOException {
+		directory = temporaryFolder.getRoot().toPath();
+		transactionManager = new TransactionManagerFile(directory);
+		transactionManager.open();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		transactionManager.close();
+	}
+
+	@Test
+	public void testCommitsSurviveReopeningTheDirectory() throws IOException {
+		// Setup phase
+		saveTaskWithTag(new Task("1", "Buy groceries"), new Tag("1", "Work"));
+
+		// Exercise phase
+		reopen(TransactionManagerFile.DEFAULT_CHECKPOINT_BYTES);
+
+		// Verify phase
+		assertThat(transactionManager.<List<Task>>doTaskRead(TaskRepository::findAll))
+		.containsExactly(new Task("1", "Buy groceries"));
+		assertThat(transactionManager.<List<String>>doTaskRead(taskRepository -> taskRepository.getTagsByTaskId("1")))
+		.containsExactly("1");
+		assertThat(transactionManager.<List<String>>doTagRead(tagRepository -> tagRepository.getTasksByTagId("1")))
+		.containsExactly("1");
+	}
+
+	@Test
+	public void testEachCommitIsFlushedBeforeReturning() {
+		// Exercise phase
+		saveTaskWithTag(new Task("1", "Buy groceries"), new Tag("1", "Work"));
+
+		// Verify phase
+		assertThat(transactionManager.getSyncs())
+		.isEqualTo(transactionManager.getCommits())
+		.isEqualTo(1);
+	}
+
+	@Test
+	public void testRecoveryDropsATornLastRecord() throws IOException {
+		// Setup phase
+		saveTaskWithTag(new Task("1", "Buy groceries"), new Tag("1", "Work"));
+		transactionManager.close();
+		Path segmentFile = directory.resolve(WriteAheadLog.segmentFileName(0));
+		long validBytes = Files.size(segmentFile);
+
+		try (RandomAccessFile segment = new RandomAccessFile(segmentFile.toFile(), "rw")) {
+			segment.seek(validBytes);
+			segment.write(new byte[] { 0, 0, 1, 0, 42 });
+		}
+
+		// Exercise phase
+		transactionManager.open();
+		saveTask(new Task("2", "Start using TDD"));
+		reopen(TransactionManagerFile.DEFAULT_CHECKPOINT_BYTES);
+
+		// Verify phase
+		assertThat(transactionManager.<List<Task>>doTaskRead(TaskRepository::findAll))
+		.containsExactly(new Task("1", "Buy groceries"), new Task("2", "Start using TDD"));
+	}
+
+	@Test
+	public void testCheckpointReplacesTheLogWithASnapshot() throws IOException {
+		// Setup phase
+		saveTaskWithTag(new Task("1", "Buy groceries"), new Tag("1", "Work"));
+		transactionManager.doTagTransaction(tagRepository -> {
+			tagRepository.delete(new Tag("1", "Work"));
+			return null;
+		});
+
+		// Exercise phase
+		transactionManager.checkpoint();
+		saveTask(new Task("2", "Start using TDD"));
+		reopen(TransactionManagerFile.DEFAULT_CHECKPOINT_BYTES);
+
+		// Verify phase
+		assertThat(fileNames())
+		.containsExactlyInAnyOrder("lock", TransactionManagerFile.snapshotFileName(1),
+				WriteAheadLog.segmentFileName(1));
+		assertThat(transactionManager.<List<Task>>doTaskRead(TaskRepository::findAll))
+		.containsExactly(new Task("1", "Buy groceries"), new Task("2", "Start using TDD"));
+		assertThat(transactionManager.<List<Tag>>doTagRead(TagRepository::findAll))
+		.isEmpty();
+	}
+
+	@Test
+	public void testTagNamesAreStillUniqueAfterRecovery() throws IOException {
+		// Setup phase
+		saveTaskWithTag(new Task("1", "Buy groceries"), new Tag("1", "Work"));
+		transactionManager.checkpoint();
+
+		// Exercise phase
+		reopen(TransactionManagerFile.DEFAULT_CHECKPOINT_BYTES);
+
+		// Verify phase
+		assertThatThrownBy(() -> transactionManager.doTagTransaction(tagRepository -> {
+			tagRepository.save(new Tag("2", "Work"));
+			return null;
+		}))
+		.hasMessage("Cannot add tag with duplicated name \"Work\"");
+	}
+
+	@Test
+	public void testCheckpointStartsOnceTheLogOutgrowsTheCheckpointSize() throws IOException {
+		// Setup phase
+		reopen(1);
+
+		// Exercise phase
+		saveTask(new Task("1", "Buy groceries"));
+		// Closing waits for the checkpoint started in background
+		transactionManager.close();
+
+		// Verify phase
+		assertThat(transactionManager.getCheckpoints())
+		.isEqualTo(1);
+		assertThat(fileNames())
+		.contains(TransactionManagerFile.snapshotFileName(1))
+		.doesNotContain(WriteAheadLog.segmentFileName(0));
+	}
+
+	@Test
+	public void testCommitsAreRefusedAfterTooManyFailedCheckpointsInARow() throws Exception {
+		// Setup phase: the temporary snapshot cannot be written over a directory
+		reopen(1);
+		Files.createDirectory(directory.resolve("snapshot.tmp"));
+		for (int i = 1; i <= TransactionManagerFile.MAX_FAILED_CHECKPOINTS; i++) {
+			saveTask(new Task(String.valueOf(i), "Buy groceries"));
+			awaitFailedCheckpoints(i);
+		}
+
+		// Exercise and verify phases
+		assertThatThrownBy(() -> saveTask(new Task("4", "Start using TDD")))
+		.isInstanceOf(IllegalStateException.class)
+		.hasMessageStartingWith("Checkpoints of storage directory " + directory + " failed 3 times in a row")
+		.hasCauseInstanceOf(IOException.class);
+	}
+
+	@Test
+	public void testCommitsAreAcceptedAgainOnceACheckpointSucceeds() throws Exception {
+		// Setup phase
+		reopen(1);
+		Path temporarySnapshot = Files.createDirectory(directory.resolve("snapshot.tmp"));
+		for (int i = 1; i <= TransactionManagerFile.MAX_FAILED_CHECKPOINTS; i++) {
+			saveTask(new Task(String.valueOf(i), "Buy groceries"));
+			awaitFailedCheckpoints(i);
+		}
+		Files.delete(temporarySnapshot);
+
+		// Exercise phase: the refused commit starts the checkpoint that succeeds
+		assertThatThrownBy(() -> saveTask(new Task("4", "Start using TDD")))
+		.isInstanceOf(IllegalStateException.class);
+		for (int i = 0; i < 500 && transactionManager.getCheckpoints() == 0; i++)
+			Thread.sleep(10);
+		saveTask(new Task("4", "Start using TDD"));
+
+		// Verify phase
+		assertThat(transactionManager.<Long>doTaskRead(TaskRepository::count))
+		.isEqualTo(4);
+	}
+
+	@Test
+	public void testDirectoryCannotBeOpenedTwice() {
+		// Setup phase
+		TransactionManagerFile otherTransactionManager = new TransactionManagerFile(directory);
+
+		// Exercise and verify phases
+		assertThatThrownBy(otherTransactionManager::open)
+		.isInstanceOf(IOException.class)
+		.hasMessage("Storage directory " + directory + " is already in use");
+	}
+
+	@Test
+	public void testTransactionsFailWhileTheDirectoryIsClosed() throws IOException {
+		// Setup phase
+		transactionManager.close();
+
+		// Exercise and verify phases
+		assertThatThrownBy(() -> transactionManager.doTaskRead(TaskRepository::count))
+		.isInstanceOf(IllegalStateException.class)
+		.hasMessage("Storage directory " + directory + " is not open");
+	}
+
+	@Test
+	public void testNonPositiveCheckpointSizeIsRejected() {
+		// Exercise and verify phases
+		assertThatThrownBy(() -> new TransactionManagerFile(directory, 0))
+		.isInstanceOf(IllegalArgumentException.class)
+		.hasMessage("Checkpoint size must be positive, got 0");
+	}
+
+	private void reopen(long checkpointBytes) throws IOException {
+		// Private method to open the directory again, as a restarted application would
+		transactionManager.close();
+		transactionManager = new TransactionManagerFile(directory, checkpointBytes);
+		transactionManager.open();
+	}
+
+	private void awaitFailedCheckpoints(long failedCheckpoints) throws InterruptedException {
+		// Private method to wait for the checkpoints failing in background
+		for (int i = 0; i < 500 && transactionManager.getFailedCheckpoints() < failedCheckpoints; i++)
+			Thread.sleep(10);
+		assertThat(transactionManager.getFailedCheckpoints())
+		.isEqualTo(failedCheckpoints);
+	}
+
+	private void saveTask(Task task) {
+		// Private method to commit a task in a transaction of its own
+		transactionManager.doTaskTransaction(taskRepository -> {
+			taskRepository.save(task);
+			return null;
+		});
+	}
+
+	private void saveTaskWithTag(Task task, Tag tag) {
+		// Private method to commit a task along with a tag assigned to it
+		transactionManager.doCompositeTransaction((taskRepository, tagRepository) -> {
+			taskRepository.save(task);
+			tagRepository.save(tag);
+			taskRepository.addTagToTask(task.getId(), tag.getId());
+			return tagRepository.addTaskToTag(tag.getId(), task.getId());
+		});
+	}
+
+	private List<String> fileNames() throws IOException {
+		// Private method to list the files left in the storage directory
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.map(file -> file.getFileName().toString())
+					.collect(Collectors.toList());
+		}
+	}
+}
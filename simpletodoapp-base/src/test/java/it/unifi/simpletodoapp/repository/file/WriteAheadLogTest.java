@@ -0,0 +1,153 @@
+package it.unifi.simpletodoapp.repository.file;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class WriteAheadLogTest {
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private Path directory;
+	private WriteAheadLog writeAheadLog;
+
+	@Before
+	public void setup() throws IOException {
+		directory = temporaryFolder.getRoot().toPath();
+		writeAheadLog = new WriteAheadLog(directory);
+		writeAheadLog.open(0);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		writeAheadLog.close();
+	}
+
+	@Test
+	public void testReplayReturnsTheRecordsInAppendOrder() throws IOException {
+		// Setup phase
+		writeAheadLog.append(bytes("first"));
+		long position = writeAheadLog.append(bytes("second"));
+		writeAheadLog.sync(position);
+
+		// Exercise phase
+		List<String> records = new ArrayList<>();
+		long validBytes = WriteAheadLog.replay(segmentFile(0), record -> records.add(string(record)));
+
+		// Verify phase
+		assertThat(records)
+		.containsExactly("first", "second");
+		assertThat(validBytes)
+		.isEqualTo(Files.size(segmentFile(0)));
+	}
+
+	@Test
+	public void testReplayStopsAtACorruptedRecord() throws IOException {
+		// Setup phase
+		long firstPosition = writeAheadLog.append(bytes("first"));
+		long position = writeAheadLog.append(bytes("second"));
+		writeAheadLog.sync(position);
+
+		try (RandomAccessFile segment = new RandomAccessFile(segmentFile(0).toFile(), "rw")) {
+			segment.seek(segment.length() - 1);
+			segment.write('?');
+		}
+
+		// Exercise phase
+		List<String> records = new ArrayList<>();
+		long validBytes = WriteAheadLog.replay(segmentFile(0), record -> records.add(string(record)));
+
+		// Verify phase
+		assertThat(records)
+		.containsExactly("first");
+		assertThat(validBytes)
+		.isEqualTo(firstPosition);
+	}
+
+	@Test
+	public void testReplayStopsAtATruncatedRecord() throws IOException {
+		// Setup phase
+		long firstPosition = writeAheadLog.append(bytes("first"));
+		long position = writeAheadLog.append(bytes("second"));
+		writeAheadLog.sync(position);
+
+		try (RandomAccessFile segment = new RandomAccessFile(segmentFile(0).toFile(), "rw")) {
+			segment.setLength(segment.length() - 3);
+		}
+
+		// Exercise phase
+		List<String> records = new ArrayList<>();
+		long validBytes = WriteAheadLog.replay(segmentFile(0), record -> records.add(string(record)));
+
+		// Verify phase
+		assertThat(records)
+		.containsExactly("first");
+		assertThat(validBytes)
+		.isEqualTo(firstPosition);
+	}
+
+	@Test
+	public void testOneFlushCoversEveryRecordAppendedBeforeIt() {
+		// Setup phase
+		long firstPosition = writeAheadLog.append(bytes("first"));
+		writeAheadLog.append(bytes("second"));
+		long lastPosition = writeAheadLog.append(bytes("third"));
+
+		// Exercise phase
+		writeAheadLog.sync(lastPosition);
+		writeAheadLog.sync(firstPosition);
+
+		// Verify phase
+		assertThat(writeAheadLog.getSyncs())
+		.isEqualTo(1);
+	}
+
+	@Test
+	public void testRotateMovesTheFollowingRecordsToANewSegment() throws IOException {
+		// Setup phase
+		writeAheadLog.append(bytes("first"));
+
+		// Exercise phase
+		long segment = writeAheadLog.rotate();
+		long position = writeAheadLog.append(bytes("second"));
+		writeAheadLog.sync(position);
+
+		// Verify phase
+		List<String> records = new ArrayList<>();
+		WriteAheadLog.replay(segmentFile(0), record -> records.add(string(record)));
+		WriteAheadLog.replay(segmentFile(1), record -> records.add(string(record)));
+		assertThat(segment)
+		.isEqualTo(1);
+		assertThat(records)
+		.containsExactly("first", "second");
+		assertThat(writeAheadLog.getSegmentBytes())
+		.isEqualTo(Files.size(segmentFile(1)));
+	}
+
+	private Path segmentFile(long segment) {
+		return directory.resolve(WriteAheadLog.segmentFileName(segment));
+	}
+
+	private static byte[] bytes(String record) {
+		return record.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static String string(ByteBuffer record) {
+		byte[] bytes = new byte[record.remaining()];
+		record.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
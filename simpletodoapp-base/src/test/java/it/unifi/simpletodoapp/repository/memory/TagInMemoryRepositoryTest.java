@@ -0,0 +1,199 @@
+package it.unifi.simpletodoapp.repository.memory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import it.unifi.simpletodoapp.model.Tag;
+import it.unifi.simpletodoapp.model.Task;
+import it.unifi.simpletodoapp.repository.MembershipUpdate;
+import it.unifi.simpletodoapp.repository.TagRepository;
+import it.unifi.simpletodoapp.repository.TagRepositoryException;
+import it.unifi.simpletodoapp.repository.TaskRepository;
+
+public class TagInMemoryRepositoryTest {
+	private MvccStore store;
+
+	@Before
+	public void setup() {
+		store = new MvccStore();
+	}
+
+	@Test
+	public void testSaveAndFindById() {
+		// Setup phase
+		Tag tag = new Tag("1", "Work");
+
+		// Exercise phase
+		addTags(tag);
+
+		// Verify phase
+		assertThat(this.<Tag>inTransaction(tagRepository -> tagRepository.findById(tag.getId())))
+		.isEqualTo(tag);
+	}
+
+	@Test
+	public void testSaveTagWithDuplicatedIdOrNameFails() {
+		// Setup phase
+		addTags(new Tag("1", "Work"));
+
+		// Exercise phase
+		TagRepositoryException duplicatedId = assertThrows(TagRepositoryException.class,
+				() -> addTags(new Tag("1", "Home")));
+		TagRepositoryException duplicatedName = assertThrows(TagRepositoryException.class,
+				() -> addTags(new Tag("2", "Work")));
+
+		// Verify phase
+		assertThat(duplicatedId.getMessage())
+		.isEqualTo("Cannot add tag with duplicated ID 1");
+		assertThat(duplicatedName.getMessage())
+		.isEqualTo("Cannot add tag with duplicated name \"Work\"");
+	}
+
+	@Test
+	public void testDeleteFreesTheNameOfTheTag() {
+		// Setup phase
+		Tag tag = new Tag("1", "Work");
+		addTags(tag);
+
+		// Exercise phase
+		inTransaction(tagRepository -> {
+			tagRepository.delete(tag);
+			return null;
+		});
+		addTags(new Tag("2", "Work"));
+
+		// Verify phase
+		assertThat(this.<List<Tag>>inTransaction(TagRepository::findAll))
+		.containsExactly(new Tag("2", "Work"));
+	}
+
+	@Test
+	public void testTaskMembershipUpdates() {
+		// Setup phase
+		addTags(new Tag("1", "Work"));
+
+		// Exercise and verify phases
+		assertThat(this.<MembershipUpdate>inTransaction(tagRepository -> tagRepository.addTaskToTag("1", "2")))
+		.isEqualTo(MembershipUpdate.MODIFIED);
+		assertThat(this.<MembershipUpdate>inTransaction(tagRepository -> tagRepository.removeTaskFromTag("1", "3")))
+		.isEqualTo(MembershipUpdate.NOT_MODIFIED);
+		assertThat(this.<MembershipUpdate>inTransaction(tagRepository -> tagRepository.addTaskToTag("2", "2")))
+		.isEqualTo(MembershipUpdate.NOT_FOUND);
+		assertThat(this.<List<String>>inTransaction(tagRepository -> tagRepository.getTasksByTagId("1")))
+		.containsExactly("2");
+	}
+
+	@Test
+	public void testRemoveTaskFromAllTags() {
+		// Setup phase
+		addTags(new Tag("1", "Work"), new Tag("2", "Home"));
+		inTransaction(tagRepository -> {
+			tagRepository.addTaskToTag("1", "1");
+			return tagRepository.addTaskToTag("2", "1");
+		});
+		// Tasks list their tags as well, like the service stores every membership on both sides
+		inTaskTransaction(taskRepository -> {
+			taskRepository.save(new Task("1", "Buy groceries"));
+			taskRepository.addTagToTask("1", "1");
+			return taskRepository.addTagToTask("1", "2");
+		});
+
+		// Exercise phase
+		inTransaction(tagRepository -> {
+			tagRepository.removeTaskFromAllTags("1");
+			return null;
+		});
+
+		// Verify phase
+		assertThat(this.<List<String>>inTransaction(tagRepository -> tagRepository.getTasksByTagId("1")))
+		.isEmpty();
+		assertThat(this.<List<String>>inTransaction(tagRepository -> tagRepository.getTasksByTagId("2")))
+		.isEmpty();
+	}
+
+	@Test
+	public void testSaveAllWithDuplicatedNameFails() {
+		// Exercise phase
+		TagRepositoryException exception = assertThrows(TagRepositoryException.class,
+				() -> inTransaction(tagRepository -> {
+					tagRepository.saveAll(Arrays.asList(new Tag("1", "Work"), new Tag("2", "Work")));
+					return null;
+				}));
+
+		// Verify phase
+		assertThat(exception.getMessage())
+		.isEqualTo("Cannot add tag with duplicated name \"Work\"");
+		assertThat(this.<List<Tag>>inTransaction(TagRepository::findAll))
+		.isEmpty();
+	}
+
+	@Test
+	public void testAddTasksToTagsSkipsMissingTagsAndKnownTasks() {
+		// Setup phase
+		addTags(new Tag("1", "Work"), new Tag("2", "Home"));
+		inTransaction(tagRepository -> tagRepository.addTaskToTag("1", "1"));
+		Map<String, List<String>> taskIdsByTagId = new LinkedHashMap<>();
+		taskIdsByTagId.put("1", Arrays.asList("1", "2"));
+		taskIdsByTagId.put("2", Arrays.asList("3"));
+		taskIdsByTagId.put("3", Arrays.asList("1"));
+
+		// Exercise phase
+		inTransaction(tagRepository -> {
+			tagRepository.addTasksToTags(taskIdsByTagId);
+			return null;
+		});
+
+		// Verify phase
+		assertThat(this.<List<String>>inTransaction(tagRepository -> tagRepository.getTasksByTagId("1")))
+		.containsExactly("1", "2");
+		assertThat(this.<List<String>>inTransaction(tagRepository -> tagRepository.getTasksByTagId("2")))
+		.containsExactly("3");
+		assertThat(this.<List<Tag>>inTransaction(TagRepository::findAll))
+		.hasSize(2);
+	}
+
+	private void addTags(Tag... tags) {
+		// Private method to save the tags in a single transaction
+		inTransaction(tagRepository -> {
+			for (Tag tag : tags)
+				tagRepository.save(tag);
+
+			return null;
+		});
+	}
+
+	private <T> T inTransaction(Function<TagRepository, T> code) {
+		// Private method to run the code in a committed transaction of the store
+		MvccTransaction transaction = store.begin(false);
+
+		try {
+			T value = code.apply(new TagInMemoryRepository(store, transaction));
+			store.commit(transaction);
+			return value;
+		} finally {
+			store.end(transaction);
+		}
+	}
+
+	private <T> T inTaskTransaction(Function<TaskRepository, T> code) {
+		// Private method to run the code on the tasks in a committed transaction of the store
+		MvccTransaction transaction = store.begin(false);
+
+		try {
+			T value = code.apply(new TaskInMemoryRepository(store, transaction));
+			store.commit(transaction);
+			return value;
+		} finally {
+			store.end(transaction);
+		}
+	}
+}
@@ -0,0 +1,280 @@
+package it.unifi.simpletodoapp.repository.memory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import it.unifi.simpletodoapp.model.Page;
+import it.unifi.simpletodoapp.model.Tag;
+import it.unifi.simpletodoapp.model.Task;
+import it.unifi.simpletodoapp.repository.MembershipUpdate;
+import it.unifi.simpletodoapp.repository.TagRepository;
+import it.unifi.simpletodoapp.repository.TaskRepository;
+import it.unifi.simpletodoapp.repository.TaskRepositoryException;
+
+public class TaskInMemoryRepositoryTest {
+	private MvccStore store;
+
+	@Before
+	public void setup() {
+		store = new MvccStore();
+	}
+
+	@Test
+	public void testFindAllListsTasksInIdOrder() {
+		// Setup phase
+		addTasks(new Task("2", "Start using TDD"), new Task("1", "Buy groceries"));
+
+		// Exercise and verify phases
+		assertThat(this.<List<Task>>inTransaction(TaskRepository::findAll))
+		.containsExactly(new Task("1", "Buy groceries"), new Task("2", "Start using TDD"));
+		assertThat(this.<Long>inTransaction(TaskRepository::count))
+		.isEqualTo(2);
+	}
+
+	@Test
+	public void testFindPageStartsAfterTheGivenId() {
+		// Setup phase
+		addTasks(new Task("1", "Buy groceries"), new Task("2", "Start using TDD"), new Task("3", "Read a book"));
+
+		// Exercise phase
+		Page<Task> firstPage = inTransaction(taskRepository -> taskRepository.findPage(null, 2));
+		Page<Task> lastPage = inTransaction(taskRepository -> taskRepository.findPage(firstPage.getNextCursor(), 2));
+
+		// Verify phase
+		assertThat(firstPage)
+		.isEqualTo(new Page<>(Arrays.asList(new Task("1", "Buy groceries"), new Task("2", "Start using TDD")), "2"));
+		assertThat(lastPage)
+		.isEqualTo(new Page<>(Arrays.asList(new Task("3", "Read a book")), null));
+	}
+
+	@Test
+	public void testFindPageAtSkipsTheTasksBeforeTheOffset() {
+		// Setup phase
+		addTasks(new Task("1", "Buy groceries"), new Task("2", "Start using TDD"), new Task("3", "Read a book"));
+
+		// Exercise phase
+		Page<Task> middlePage = inTransaction(taskRepository -> taskRepository.findPageAt(1, 1));
+		Page<Task> lastPage = inTransaction(taskRepository -> taskRepository.findPageAt(2, 2));
+
+		// Verify phase
+		assertThat(middlePage)
+		.isEqualTo(new Page<>(Arrays.asList(new Task("2", "Start using TDD")), "2"));
+		assertThat(lastPage)
+		.isEqualTo(new Page<>(Arrays.asList(new Task("3", "Read a book")), null));
+	}
+
+	@Test
+	public void testFindByIdsKeepsTheOrderOfTheIdsSkippingMissingTasks() {
+		// Setup phase
+		addTasks(new Task("1", "Buy groceries"), new Task("2", "Start using TDD"));
+
+		// Exercise and verify phases
+		assertThat(this.<List<Task>>inTransaction(taskRepository -> taskRepository.findByIds(Arrays.asList("2", "3", "1"))))
+		.containsExactly(new Task("2", "Start using TDD"), new Task("1", "Buy groceries"));
+	}
+
+	@Test
+	public void testSaveTaskWithDuplicatedIdFails() {
+		// Setup phase
+		addTasks(new Task("1", "Buy groceries"));
+
+		// Exercise phase
+		TaskRepositoryException exception = assertThrows(TaskRepositoryException.class,
+				() -> addTasks(new Task("1", "Start using TDD")));
+
+		// Verify phase
+		assertThat(exception.getMessage())
+		.isEqualTo("Cannot add task with duplicated ID 1");
+	}
+
+	@Test
+	public void testDelete() {
+		// Setup phase
+		Task task = new Task("1", "Buy groceries");
+		addTasks(task);
+
+		// Exercise phase
+		inTransaction(taskRepository -> {
+			taskRepository.delete(task);
+			return null;
+		});
+
+		// Verify phase
+		assertThat(this.<Task>inTransaction(taskRepository -> taskRepository.findById(task.getId())))
+		.isNull();
+	}
+
+	@Test
+	public void testTagMembershipUpdates() {
+		// Setup phase
+		addTasks(new Task("1", "Buy groceries"));
+
+		// Exercise and verify phases
+		assertThat(this.<MembershipUpdate>inTransaction(taskRepository -> taskRepository.addTagToTask("1", "2")))
+		.isEqualTo(MembershipUpdate.MODIFIED);
+		assertThat(this.<MembershipUpdate>inTransaction(taskRepository -> taskRepository.addTagToTask("1", "2")))
+		.isEqualTo(MembershipUpdate.NOT_MODIFIED);
+		assertThat(this.<MembershipUpdate>inTransaction(taskRepository -> taskRepository.removeTagFromTask("3", "2")))
+		.isEqualTo(MembershipUpdate.NOT_FOUND);
+		assertThat(this.<List<String>>inTransaction(taskRepository -> taskRepository.getTagsByTaskId("1")))
+		.containsExactly("2");
+	}
+
+	@Test
+	public void testRemoveTagFromAllTasks() {
+		// Setup phase
+		addTasks(new Task("1", "Buy groceries"), new Task("2", "Start using TDD"));
+		inTransaction(taskRepository -> {
+			taskRepository.addTagToTask("1", "1");
+			taskRepository.addTagToTask("1", "2");
+			return taskRepository.addTagToTask("2", "1");
+		});
+		// Tags list their tasks as well, like the service stores every membership on both sides
+		inTagTransaction(tagRepository -> {
+			tagRepository.saveAll(Arrays.asList(new Tag("1", "Work"), new Tag("2", "Home")));
+			tagRepository.addTaskToTag("1", "1");
+			tagRepository.addTaskToTag("1", "2");
+			return tagRepository.addTaskToTag("2", "1");
+		});
+
+		// Exercise phase
+		inTransaction(taskRepository -> {
+			taskRepository.removeTagFromAllTasks("1");
+			return null;
+		});
+
+		// Verify phase
+		assertThat(this.<List<String>>inTransaction(taskRepository -> taskRepository.getTagsByTaskId("1")))
+		.containsExactly("2");
+		assertThat(this.<List<String>>inTransaction(taskRepository -> taskRepository.getTagsByTaskId("2")))
+		.isEmpty();
+	}
+
+	@Test
+	public void testCountIncludesTheWritesOfTheTransaction() {
+		// Setup phase
+		addTasks(new Task("1", "Buy groceries"), new Task("2", "Start using TDD"));
+
+		// Exercise phase
+		long count = inTransaction(taskRepository -> {
+			taskRepository.save(new Task("3", "Read a book"));
+			taskRepository.delete(new Task("1", "Buy groceries"));
+			taskRepository.delete(new Task("4", "Missing task"));
+			return taskRepository.count();
+		});
+
+		// Verify phase
+		assertThat(count)
+		.isEqualTo(2);
+	}
+
+	@Test
+	public void testCountIgnoresTheTasksCommittedAfterTheSnapshot() {
+		// Setup phase
+		addTasks(new Task("1", "Buy groceries"));
+		MvccTransaction transaction = store.begin(true);
+		addTasks(new Task("2", "Start using TDD"));
+		inTransaction(taskRepository -> {
+			taskRepository.delete(new Task("1", "Buy groceries"));
+			return null;
+		});
+
+		try {
+			// Exercise and verify phases
+			assertThat(new TaskInMemoryRepository(store, transaction).count())
+			.isEqualTo(1);
+			assertThat(this.<Long>inTransaction(TaskRepository::count))
+			.isEqualTo(1);
+		} finally {
+			store.end(transaction);
+		}
+	}
+
+	@Test
+	public void testSaveAllStoresTheTasksWithTheirTags() {
+		// Setup phase
+		Map<String, List<String>> tagIdsByTaskId = new HashMap<>();
+		tagIdsByTaskId.put("1", Arrays.asList("1", "2"));
+
+		// Exercise phase
+		inTransaction(taskRepository -> {
+			taskRepository.saveAll(Arrays.asList(new Task("1", "Buy groceries"), new Task("2", "Start using TDD")),
+					tagIdsByTaskId);
+			return null;
+		});
+
+		// Verify phase
+		assertThat(this.<List<Task>>inTransaction(TaskRepository::findAll))
+		.containsExactly(new Task("1", "Buy groceries"), new Task("2", "Start using TDD"));
+		assertThat(this.<List<String>>inTransaction(taskRepository -> taskRepository.getTagsByTaskId("1")))
+		.containsExactly("1", "2");
+		assertThat(this.<List<String>>inTransaction(taskRepository -> taskRepository.getTagsByTaskId("2")))
+		.isEmpty();
+	}
+
+	@Test
+	public void testSaveAllWithDuplicatedIdFails() {
+		// Setup phase
+		addTasks(new Task("1", "Buy groceries"));
+
+		// Exercise phase
+		TaskRepositoryException exception = assertThrows(TaskRepositoryException.class,
+				() -> inTransaction(taskRepository -> {
+					taskRepository.saveAll(Arrays.asList(new Task("2", "Read a book"), new Task("1", "Start using TDD")),
+							Collections.emptyMap());
+					return null;
+				}));
+
+		// Verify phase
+		assertThat(exception.getMessage())
+		.isEqualTo("Cannot add task with duplicated ID 1");
+		assertThat(this.<Long>inTransaction(TaskRepository::count))
+		.isEqualTo(1);
+	}
+
+	private void addTasks(Task... tasks) {
+		// Private method to save the tasks in a single transaction
+		inTransaction(taskRepository -> {
+			for (Task task : tasks)
+				taskRepository.save(task);
+
+			return null;
+		});
+	}
+
+	private <T> T inTransaction(Function<TaskRepository, T> code) {
+		// Private method to run the code in a committed transaction of the store
+		MvccTransaction transaction = store.begin(false);
+
+		try {
+			T value = code.apply(new TaskInMemoryRepository(store, transaction));
+			store.commit(transaction);
+			return value;
+		} finally {
+			store.end(transaction);
+		}
+	}
+
+	private <T> T inTagTransaction(Function<TagRepository, T> code) {
+		// Private method to run the code on the tags in a committed transaction of the store
+		MvccTransaction transaction = store.begin(false);
+
+		try {
+			T value = code.apply(new TagInMemoryRepository(store, transaction));
+			store.commit(transaction);
+			return value;
+		} finally {
+			store.end(transaction);
+		}
+	}
+}
@@ -0,0 +1,245 @@
+package it.unifi.simpletodoapp.repository.memory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.Assert.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import it.unifi.simpletodoapp.model.Tag;
+import it.unifi.simpletodoapp.model.Task;
+import it.unifi.simpletodoapp.repository.TagRepositoryException;
+import it.unifi.simpletodoapp.repository.TaskRepositoryException;
+
+public class TransactionManagerInMemoryTest {
+	private static final int THREADS = 8;
+
+	private TransactionManagerInMemory transactionManager;
+
+	@Before
+	public void setup() {
+		transactionManager = new TransactionManagerInMemory();
+	}
+
+	@Test
+	public void testCommittedWritesAreVisibleToLaterReads() {
+		// Setup phase
+		Task task = new Task("1", "Buy groceries");
+
+		// Exercise phase
+		transactionManager.doTaskTransaction(taskRepository -> {
+			taskRepository.save(task);
+			return null;
+		});
+
+		// Verify phase
+		assertThat(transactionManager.<Task>doTaskRead(taskRepository -> taskRepository.findById(task.getId())))
+		.isEqualTo(task);
+		assertThat(transactionManager.getCommits())
+		.isEqualTo(1);
+	}
+
+	@Test
+	public void testTransactionSeesItsOwnWritesBeforeCommit() {
+		// Exercise phase
+		List<Task> tasks = transactionManager.doTaskTransaction(taskRepository -> {
+			taskRepository.save(new Task("2", "Start using TDD"));
+			taskRepository.save(new Task("1", "Buy groceries"));
+			return taskRepository.findAll();
+		});
+
+		// Verify phase
+		assertThat(tasks)
+		.containsExactly(new Task("1", "Buy groceries"), new Task("2", "Start using TDD"));
+	}
+
+	@Test
+	public void testReadKeepsSeeingTheSnapshotTakenWhenItBegan() {
+		// Setup phase
+		saveTask(new Task("1", "Buy groceries"));
+
+		// Exercise phase
+		List<Long> counts = transactionManager.doTaskRead(taskRepository -> {
+			List<Long> seenCounts = new ArrayList<>();
+			seenCounts.add(taskRepository.count());
+			saveTask(new Task("2", "Start using TDD"));
+			seenCounts.add(taskRepository.count());
+			return seenCounts;
+		});
+
+		// Verify phase
+		assertThat(counts)
+		.containsExactly(1L, 1L);
+		assertThat(transactionManager.<Long>doTaskRead(taskRepository -> taskRepository.count()))
+		.isEqualTo(2);
+	}
+
+	@Test
+	public void testFailedCodeDiscardsItsWrites() {
+		// Setup phase
+		TaskRepositoryException exception = new TaskRepositoryException("No task with ID 2");
+
+		// Exercise phase
+		TaskRepositoryException thrown = assertThrows(TaskRepositoryException.class,
+				() -> transactionManager.doTaskTransaction(taskRepository -> {
+					taskRepository.save(new Task("1", "Buy groceries"));
+					throw exception;
+				}));
+
+		// Verify phase
+		assertThat(thrown)
+		.isSameAs(exception);
+		assertThat(transactionManager.<Long>doTaskRead(taskRepository -> taskRepository.count()))
+		.isZero();
+	}
+
+	@Test
+	public void testWriteConflictRunsTheTransactionAgainOnANewerSnapshot() {
+		// Setup phase
+		saveTask(new Task("1", "Buy groceries"));
+		AtomicInteger executions = new AtomicInteger();
+
+		// Exercise phase
+		transactionManager.doCompositeTransaction((taskRepository, tagRepository) -> {
+			// The first execution loses the race for the task to another transaction
+			if (executions.incrementAndGet() == 1)
+				transactionManager.doTaskTransaction(concurrentRepository -> concurrentRepository.addTagToTask("1", "2"));
+
+			return taskRepository.addTagToTask("1", "3");
+		});
+
+		// Verify phase
+		assertThat(executions.get())
+		.isEqualTo(2);
+		assertThat(transactionManager.<List<String>>doTaskRead(taskRepository -> taskRepository.getTagsByTaskId("1")))
+		.containsExactly("2", "3");
+		assertThat(transactionManager.getWriteConflicts())
+		.isEqualTo(1);
+	}
+
+	@Test
+	public void testWriteConflictIsThrownOnceAttemptsAreExhausted() {
+		// Setup phase
+		transactionManager.useMaxAttempts(1);
+		saveTask(new Task("1", "Buy groceries"));
+
+		// Exercise and verify phases
+		assertThatThrownBy(() -> transactionManager.doTaskTransaction(taskRepository -> {
+			transactionManager.doTaskTransaction(concurrentRepository -> concurrentRepository.addTagToTask("1", "2"));
+			return taskRepository.addTagToTask("1", "3");
+		}))
+		.isInstanceOf(WriteConflictException.class)
+		.hasMessage("Write conflict on task 1");
+		assertThat(transactionManager.<List<String>>doTaskRead(taskRepository -> taskRepository.getTagsByTaskId("1")))
+		.containsExactly("2");
+	}
+
+	@Test
+	public void testConcurrentTagsWithTheSameNameConflict() {
+		// Exercise phase
+		TagRepositoryException exception = assertThrows(TagRepositoryException.class,
+				() -> transactionManager.doTagTransaction(tagRepository -> {
+					// Both names are free in the snapshot, but the other tag commits first
+					if (tagRepository.count() == 0) {
+						transactionManager.doTagTransaction(concurrentRepository -> {
+							concurrentRepository.save(new Tag("1", "Work"));
+							return null;
+						});
+					}
+
+					tagRepository.save(new Tag("2", "Work"));
+					return null;
+				}));
+
+		// Verify phase
+		assertThat(exception.getMessage())
+		.isEqualTo("Cannot add tag with duplicated name \"Work\"");
+		assertThat(transactionManager.getWriteConflicts())
+		.isEqualTo(1);
+	}
+
+	@Test
+	public void testWriteWithinReadIsRejected() {
+		// Exercise and verify phases
+		assertThatThrownBy(() -> transactionManager.doTaskRead(taskRepository -> {
+			taskRepository.save(new Task("1", "Buy groceries"));
+			return null;
+		}))
+		.isInstanceOf(IllegalStateException.class)
+		.hasMessage("Cannot write within a read");
+	}
+
+	@Test
+	public void testVersionsAreRetainedOnlyWhileSomeSnapshotNeedsThem() {
+		// Setup phase
+		saveTask(new Task("1", "Buy groceries"));
+
+		// Exercise phase
+		int retainedDuringRead = transactionManager.doTaskRead(taskRepository -> {
+			transactionManager.doTaskTransaction(concurrentRepository -> concurrentRepository.addTagToTask("1", "2"));
+			transactionManager.doTaskTransaction(concurrentRepository -> concurrentRepository.addTagToTask("1", "3"));
+			return transactionManager.retainedVersions();
+		});
+		transactionManager.doTaskTransaction(taskRepository -> {
+			taskRepository.delete(new Task("1", "Buy groceries"));
+			return null;
+		});
+		saveTask(new Task("2", "Start using TDD"));
+
+		// Verify phase
+		assertThat(retainedDuringRead)
+		.isEqualTo(3);
+		assertThat(transactionManager.retainedVersions())
+		.isEqualTo(1);
+	}
+
+	@Test
+	public void testConcurrentWritesToTheSameTaskAreAllApplied() throws Exception {
+		// Setup phase
+		transactionManager.useMaxAttempts(Integer.MAX_VALUE);
+		saveTask(new Task("1", "Buy groceries"));
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		List<CompletableFuture<Void>> writes = new ArrayList<>();
+
+		// Exercise phase
+		for (int thread = 0; thread < THREADS; thread++) {
+			String tagId = String.valueOf(thread);
+			writes.add(CompletableFuture.runAsync(() -> transactionManager.doTaskTransaction(
+					taskRepository -> taskRepository.addTagToTask("1", tagId)), executor));
+		}
+		CompletableFuture.allOf(writes.toArray(new CompletableFuture<?>[0]))
+		.get(5, TimeUnit.SECONDS);
+		executor.shutdown();
+
+		// Verify phase
+		assertThat(transactionManager.<List<String>>doTaskRead(taskRepository -> taskRepository.getTagsByTaskId("1")))
+		.containsExactlyInAnyOrder("0", "1", "2", "3", "4", "5", "6", "7");
+		assertThat(transactionManager.getCommits())
+		.isEqualTo(THREADS + 1L);
+	}
+
+	@Test
+	public void testNonPositiveAttemptsAreRejected() {
+		// Exercise and verify phases
+		assertThatThrownBy(() -> transactionManager.useMaxAttempts(0))
+		.isInstanceOf(IllegalArgumentException.class)
+		.hasMessage("Transaction attempts must be positive, got 0");
+	}
+
+	private void saveTask(Task task) {
+		// Private method to commit a task in a transaction of its own
+		transactionManager.doTaskTransaction(taskRepository -> {
+			taskRepository.save(task);
+			return null;
+		});
+	}
+}
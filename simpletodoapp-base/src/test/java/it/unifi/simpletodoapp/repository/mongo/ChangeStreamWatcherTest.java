@@ -0,0 +1,318 @@
+package it.unifi.simpletodoapp.repository.mongo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.Document;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.testcontainers.containers.MongoDBContainer;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import it.unifi.simpletodoapp.model.Tag;
+import it.unifi.simpletodoapp.model.Task;
+import it.unifi.simpletodoapp.repository.TodoChangeListener;
+
+public class ChangeStreamWatcherTest {
+	private static final String DB_NAME = "todoappdb";
+	private static final String TASKS_COLLECTION = "tasks";
+	private static final String TAGS_COLLECTION = "tags";
+	private static final int MONGO_PORT = 27017;
+	private static final long TIMEOUT_SECONDS = 10;
+
+	private MongoClient mongoClient;
+	private MongoCollection<Document> taskCollection;
+	private MongoCollection<Document> tagCollection;
+	private ChangeStreamWatcher changeStreamWatcher;
+	private BlockingQueue<String> notifications;
+
+	@ClassRule
+	public static final MongoDBContainer mongoContainer = new MongoDBContainer()
+	.withExposedPorts(MONGO_PORT);
+
+	@BeforeClass
+	public static void setupMongoLogger() {
+		LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+		Logger rootLogger = loggerContext.getLogger("org.mongodb.driver");
+		rootLogger.setLevel(Level.INFO);
+	}
+
+	@Before
+	public void setup() {
+		/* Creates the mongo client, empties the database and creates the watcher,
+		 * whose notifications are recorded as they are received */
+		String mongoRsUrl = mongoContainer.getReplicaSetUrl();
+		mongoClient = MongoClients.create(mongoRsUrl);
+
+		MongoDatabase database = mongoClient.getDatabase(DB_NAME);
+		database.drop();
+		database.createCollection(TASKS_COLLECTION);
+		database.createCollection(TAGS_COLLECTION);
+		taskCollection = database.getCollection(TASKS_COLLECTION);
+		tagCollection = database.getCollection(TAGS_COLLECTION);
+
+		notifications = new LinkedBlockingQueue<>();
+		changeStreamWatcher = new ChangeStreamWatcher(mongoClient, DB_NAME,
+				TASKS_COLLECTION, TAGS_COLLECTION, 100);
+		changeStreamWatcher.addListener(new RecordingListener(), Runnable::run);
+	}
+
+	@After
+	public void tearDown() throws InterruptedException {
+		changeStreamWatcher.stop();
+		mongoClient.close();
+	}
+
+	@AfterClass
+	public static void stopContainer() {
+		// Stops the container after all methods have been executed
+		mongoContainer.stop();
+	}
+
+	@Test
+	public void testAddedTaskAndTagAreNotified() throws InterruptedException {
+		// Setup phase
+		startWatcher();
+
+		// Exercise phase
+		addTaskToDatabase(new Task("1", "Buy groceries"));
+		addTagToDatabase(new Tag("1", "Work"));
+
+		// Verify phase
+		assertThat(nextNotification())
+		.isEqualTo("taskAdded #1 Buy groceries");
+		assertThat(nextNotification())
+		.isEqualTo("tagAdded #1 Work");
+	}
+
+	@Test
+	public void testDeletedTaskExistingBeforeStartIsNotified() throws InterruptedException {
+		// Setup phase: only the document key of deleted documents is reported
+		addTaskToDatabase(new Task("1", "Buy groceries"));
+		startWatcher();
+
+		// Exercise phase
+		taskCollection.deleteOne(Filters.eq("id", "1"));
+
+		// Verify phase
+		assertThat(nextNotification())
+		.isEqualTo("taskDeleted #1");
+	}
+
+	@Test
+	public void testDeletedTagAddedAfterStartIsNotified() throws InterruptedException {
+		// Setup phase
+		startWatcher();
+		addTagToDatabase(new Tag("1", "Work"));
+		nextNotification();
+
+		// Exercise phase
+		tagCollection.deleteOne(Filters.eq("id", "1"));
+
+		// Verify phase
+		assertThat(nextNotification())
+		.isEqualTo("tagDeleted #1 Work");
+	}
+
+	@Test
+	public void testUpdatedTaskAndTagAreNotifiedAsChanged() throws InterruptedException {
+		// Setup phase
+		addTaskToDatabase(new Task("1", "Buy groceries"));
+		addTagToDatabase(new Tag("1", "Work"));
+		startWatcher();
+
+		// Exercise phase
+		taskCollection.updateOne(Filters.eq("id", "1"), Updates.set("description", "Buy more groceries"));
+		tagCollection.updateOne(Filters.eq("id", "1"), Updates.set("name", "Office"));
+
+		// Verify phase
+		assertThat(nextNotification())
+		.isEqualTo("taskChanged #1 Buy more groceries");
+		assertThat(nextNotification())
+		.isEqualTo("tagChanged #1 Office");
+	}
+
+	@Test
+	public void testTagsOfTasksAreNotifiedAsAssignments() throws InterruptedException {
+		// Setup phase: the tasks array of the tag only mirrors the tags of the task
+		addTaskToDatabase(new Task("1", "Buy groceries"));
+		addTagToDatabase(new Tag("1", "Work"));
+		startWatcher();
+
+		// Exercise phase
+		taskCollection.updateOne(Filters.eq("id", "1"), Updates.addToSet("tags", "1"));
+		tagCollection.updateOne(Filters.eq("id", "1"), Updates.addToSet("tasks", "1"));
+		taskCollection.updateOne(Filters.eq("id", "1"), Updates.pull("tags", "1"));
+
+		// Verify phase
+		assertThat(nextNotification())
+		.isEqualTo("tagAssigned #1 #1 Work");
+		assertThat(nextNotification())
+		.isEqualTo("tagUnassigned #1 #1 Work");
+	}
+
+	@Test
+	public void testUpdatedTagsOfTaskAreNotNotifiedAsTaskChanged() throws InterruptedException {
+		// Setup phase
+		addTaskToDatabase(new Task("1", "Buy groceries"));
+		addTagToDatabase(new Tag("1", "Work"));
+		startWatcher();
+
+		// Exercise phase
+		taskCollection.updateOne(Filters.eq("id", "1"), Updates.addToSet("tags", "1"));
+		taskCollection.updateOne(Filters.eq("id", "1"), Updates.set("description", "Buy more groceries"));
+
+		// Verify phase
+		assertThat(nextNotification())
+		.isEqualTo("tagAssigned #1 #1 Work");
+		assertThat(nextNotification())
+		.isEqualTo("taskChanged #1 Buy more groceries");
+	}
+
+	@Test
+	public void testDeletedTaskIsUnassignedFromItsTagsFirst() throws InterruptedException {
+		// Setup phase
+		taskCollection.insertOne(new Document()
+				.append("id", "1")
+				.append("description", "Buy groceries")
+				.append("tags", Collections.singletonList("1")));
+		addTagToDatabase(new Tag("1", "Work"));
+		startWatcher();
+
+		// Exercise phase
+		taskCollection.deleteOne(Filters.eq("id", "1"));
+
+		// Verify phase
+		assertThat(nextNotification())
+		.isEqualTo("tagUnassigned #1 #1 Work");
+		assertThat(nextNotification())
+		.isEqualTo("taskDeleted #1");
+	}
+
+	@Test
+	public void testChangesWhileStoppedAreNotifiedAfterRestartFromResumeToken() throws InterruptedException {
+		// Setup phase
+		startWatcher();
+		addTaskToDatabase(new Task("1", "Buy groceries"));
+		nextNotification();
+		changeStreamWatcher.stop();
+
+		// Exercise phase
+		addTaskToDatabase(new Task("2", "Start using TDD"));
+		taskCollection.deleteOne(Filters.eq("id", "1"));
+		startWatcher();
+
+		// Verify phase: no reload is needed
+		assertThat(changeStreamWatcher.getResumeToken())
+		.isNotNull();
+		assertThat(nextNotification())
+		.isEqualTo("taskAdded #2 Start using TDD");
+		assertThat(nextNotification())
+		.isEqualTo("taskDeleted #1");
+	}
+
+	@Test
+	public void testDroppedCollectionNotifiesChangesLost() throws InterruptedException {
+		// Setup phase
+		addTaskToDatabase(new Task("1", "Buy groceries"));
+		startWatcher();
+
+		// Exercise phase
+		taskCollection.drop();
+
+		// Verify phase
+		assertThat(nextNotification())
+		.isEqualTo("changesLost");
+	}
+
+	private void startWatcher() throws InterruptedException {
+		// Private method to start the watcher, waiting for its stream to be opened
+		changeStreamWatcher.start();
+		assertThat(changeStreamWatcher.awaitStreamOpened(TIMEOUT_SECONDS, TimeUnit.SECONDS))
+		.isTrue();
+	}
+
+	private String nextNotification() throws InterruptedException {
+		return notifications.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+	}
+
+	private void addTaskToDatabase(Task task) {
+		// Private method to directly insert a task in the collection
+		taskCollection.insertOne(new Document()
+				.append("id", task.getId())
+				.append("description", task.getDescription()));
+	}
+
+	private void addTagToDatabase(Tag tag) {
+		// Private method to directly insert a tag in the collection
+		tagCollection.insertOne(new Document()
+				.append("id", tag.getId())
+				.append("name", tag.getName()));
+	}
+
+	private class RecordingListener implements TodoChangeListener {
+		@Override
+		public void taskAdded(Task task) {
+			notifications.add("taskAdded #" + task.getId() + " " + task.getDescription());
+		}
+
+		@Override
+		public void taskChanged(Task task) {
+			notifications.add("taskChanged #" + task.getId() + " " + task.getDescription());
+		}
+
+		@Override
+		public void taskDeleted(Task task) {
+			// Only the id of deleted tasks is known
+			notifications.add("taskDeleted #" + task.getId());
+		}
+
+		@Override
+		public void tagAdded(Tag tag) {
+			notifications.add("tagAdded #" + tag.getId() + " " + tag.getName());
+		}
+
+		@Override
+		public void tagChanged(Tag tag) {
+			notifications.add("tagChanged #" + tag.getId() + " " + tag.getName());
+		}
+
+		@Override
+		public void tagDeleted(Tag tag) {
+			notifications.add("tagDeleted #" + tag.getId() + " " + tag.getName());
+		}
+
+		@Override
+		public void tagAssigned(Task task, Tag tag) {
+			notifications.add("tagAssigned #" + task.getId() + " #" + tag.getId() + " " + tag.getName());
+		}
+
+		@Override
+		public void tagUnassigned(Task task, Tag tag) {
+			notifications.add("tagUnassigned #" + task.getId() + " #" + tag.getId() + " " + tag.getName());
+		}
+
+		@Override
+		public void changesLost() {
+			notifications.add("changesLost");
+		}
+	}
+}
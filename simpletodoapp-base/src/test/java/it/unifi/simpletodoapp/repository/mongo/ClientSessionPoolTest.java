@@ -0,0 +1,267 @@
+package it.unifi.simpletodoapp.repository.mongo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bson.BsonDocument;
+import org.bson.BsonTimestamp;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoClient;
+import com.mongodb.session.ServerSession;
+
+public class ClientSessionPoolTest {
+	private static final int MAX_IDLE_SESSIONS = 2;
+	private static final long MAX_IDLE_MILLIS = 1000;
+
+	@Mock
+	private MongoClient mongoClient;
+
+	private AtomicLong nanoClock;
+	private ClientSessionPool clientSessionPool;
+
+	@Before
+	public void setup() {
+		// Every started session is a new mock, whose server session is healthy
+		MockitoAnnotations.initMocks(this);
+		when(mongoClient.startSession(any(ClientSessionOptions.class)))
+		.thenAnswer(invocation -> newClientSession());
+		nanoClock = new AtomicLong();
+		clientSessionPool = new ClientSessionPool(mongoClient, MAX_IDLE_SESSIONS,
+				MAX_IDLE_MILLIS, nanoClock::get);
+	}
+
+	@Test
+	public void testAcquireStartsCausallyConsistentSessionWhenNoneIsIdle() {
+		// Exercise phase
+		clientSessionPool.acquire();
+
+		// Verify phase
+		verify(mongoClient).startSession(ClientSessionOptions.builder()
+				.causallyConsistent(true)
+				.build());
+		assertThat(clientSessionPool.getCreatedSessions())
+		.isEqualTo(1);
+	}
+
+	@Test
+	public void testReleasedSessionIsReusedWithoutBeingClosed() {
+		// Setup phase
+		ClientSession clientSession = clientSessionPool.acquire();
+
+		// Exercise phase
+		clientSessionPool.release(clientSession, true);
+		ClientSession reusedSession = clientSessionPool.acquire();
+
+		// Verify phase
+		assertThat(reusedSession)
+		.isSameAs(clientSession);
+		verify(clientSession, never()).close();
+		assertThat(clientSessionPool.getCreatedSessions())
+		.isEqualTo(1);
+		assertThat(clientSessionPool.getReusedSessions())
+		.isEqualTo(1);
+	}
+
+	@Test
+	public void testThreadGetsBackTheSessionItReleasedLast() throws Exception {
+		// Setup phase: another thread releases its session after this one
+		ClientSession ownSession = clientSessionPool.acquire();
+		ClientSession otherSession = clientSessionPool.acquire();
+		clientSessionPool.release(ownSession, true);
+		CompletableFuture.runAsync(() -> clientSessionPool.release(otherSession, true))
+		.get(1, TimeUnit.SECONDS);
+
+		// Exercise phase
+		ClientSession reusedSession = clientSessionPool.acquire();
+
+		// Verify phase
+		assertThat(reusedSession)
+		.isSameAs(ownSession);
+		verify(ownSession, never()).advanceOperationTime(any());
+	}
+
+	@Test
+	public void testThreadWithoutIdleSessionGetsTheMostRecentlyReleasedOne() throws Exception {
+		// Setup phase
+		ClientSession firstSession = clientSessionPool.acquire();
+		ClientSession secondSession = clientSessionPool.acquire();
+		clientSessionPool.release(firstSession, true);
+		clientSessionPool.release(secondSession, true);
+
+		// Exercise phase
+		ClientSession reusedSession = CompletableFuture.supplyAsync(clientSessionPool::acquire)
+				.get(1, TimeUnit.SECONDS);
+
+		// Verify phase
+		assertThat(reusedSession)
+		.isSameAs(secondSession);
+	}
+
+	@Test
+	public void testAcquiredSessionsAreAdvancedToTheLatestReleasedTimes() {
+		// Setup phase: the session released last is the one that saw older times
+		BsonTimestamp latestOperationTime = new BsonTimestamp(20, 1);
+		BsonDocument latestClusterTime = clusterTime(new BsonTimestamp(21, 1));
+		ClientSession firstSession = clientSessionPool.acquire();
+		ClientSession secondSession = clientSessionPool.acquire();
+		when(firstSession.getOperationTime()).thenReturn(latestOperationTime);
+		when(firstSession.getClusterTime()).thenReturn(latestClusterTime);
+		when(secondSession.getOperationTime()).thenReturn(new BsonTimestamp(10, 1));
+		when(secondSession.getClusterTime()).thenReturn(clusterTime(new BsonTimestamp(11, 1)));
+		clientSessionPool.release(firstSession, true);
+		clientSessionPool.release(secondSession, false);
+
+		// Exercise phase
+		ClientSession reusedSession = clientSessionPool.acquire();
+		ClientSession newSession = clientSessionPool.acquire();
+
+		// Verify phase
+		assertThat(reusedSession)
+		.isSameAs(firstSession);
+		verify(firstSession).advanceOperationTime(latestOperationTime);
+		verify(firstSession).advanceClusterTime(latestClusterTime);
+		verify(newSession).advanceOperationTime(latestOperationTime);
+		verify(newSession).advanceClusterTime(latestClusterTime);
+	}
+
+	@Test
+	public void testSessionReleasedWhenPoolIsFullIsClosed() {
+		// Setup phase
+		ClientSession firstSession = clientSessionPool.acquire();
+		ClientSession secondSession = clientSessionPool.acquire();
+		ClientSession thirdSession = clientSessionPool.acquire();
+
+		// Exercise phase
+		clientSessionPool.release(firstSession, true);
+		clientSessionPool.release(secondSession, true);
+		clientSessionPool.release(thirdSession, true);
+
+		// Verify phase
+		verify(thirdSession).close();
+		assertThat(clientSessionPool.getIdleSessions())
+		.isEqualTo(MAX_IDLE_SESSIONS);
+		assertThat(clientSessionPool.getDiscardedSessions())
+		.isEqualTo(1);
+	}
+
+	@Test
+	public void testSessionOfFailedOperationIsClosed() {
+		// Setup phase
+		ClientSession clientSession = clientSessionPool.acquire();
+
+		// Exercise phase
+		clientSessionPool.release(clientSession, false);
+
+		// Verify phase
+		verify(clientSession).close();
+		assertThat(clientSessionPool.getIdleSessions())
+		.isZero();
+	}
+
+	@Test
+	public void testSessionWithActiveTransactionOrDirtyServerSessionIsClosed() {
+		// Setup phase
+		ClientSession transactionSession = clientSessionPool.acquire();
+		when(transactionSession.hasActiveTransaction()).thenReturn(true);
+		ClientSession dirtySession = clientSessionPool.acquire();
+		when(dirtySession.getServerSession().isMarkedDirty()).thenReturn(true);
+
+		// Exercise phase
+		clientSessionPool.release(transactionSession, true);
+		clientSessionPool.release(dirtySession, true);
+
+		// Verify phase
+		verify(transactionSession).close();
+		verify(dirtySession).close();
+		assertThat(clientSessionPool.getIdleSessions())
+		.isZero();
+	}
+
+	@Test
+	public void testSessionIdleForTooLongIsClosedInsteadOfReused() {
+		// Setup phase
+		ClientSession clientSession = clientSessionPool.acquire();
+		clientSessionPool.release(clientSession, true);
+		nanoClock.addAndGet(TimeUnit.MILLISECONDS.toNanos(MAX_IDLE_MILLIS));
+
+		// Exercise phase
+		ClientSession newSession = clientSessionPool.acquire();
+
+		// Verify phase
+		assertThat(newSession)
+		.isNotSameAs(clientSession);
+		verify(clientSession).close();
+		verify(mongoClient, times(2)).startSession(any(ClientSessionOptions.class));
+	}
+
+	@Test
+	public void testSessionWithClosedServerSessionIsClosedInsteadOfReused() {
+		// Setup phase
+		ClientSession clientSession = clientSessionPool.acquire();
+		clientSessionPool.release(clientSession, true);
+		when(clientSession.getServerSession().isClosed()).thenReturn(true);
+
+		// Exercise phase
+		ClientSession newSession = clientSessionPool.acquire();
+
+		// Verify phase
+		assertThat(newSession)
+		.isNotSameAs(clientSession);
+		verify(clientSession).close();
+	}
+
+	@Test
+	public void testCloseClosesIdleSessionsAndLaterReleasedOnes() {
+		// Setup phase
+		ClientSession idleSession = clientSessionPool.acquire();
+		ClientSession busySession = clientSessionPool.acquire();
+		clientSessionPool.release(idleSession, true);
+
+		// Exercise phase
+		clientSessionPool.close();
+		clientSessionPool.release(busySession, true);
+
+		// Verify phase
+		verify(idleSession).close();
+		verify(busySession).close();
+		assertThat(clientSessionPool.getIdleSessions())
+		.isZero();
+	}
+
+	@Test
+	public void testNonPositivePoolSizeIsRejected() {
+		// Verify phase
+		assertThatThrownBy(() -> new ClientSessionPool(mongoClient, 0))
+		.isInstanceOf(IllegalArgumentException.class)
+		.hasMessage("Session pool size must be positive, got 0");
+	}
+
+	private BsonDocument clusterTime(BsonTimestamp timestamp) {
+		// Private method to create a cluster time as gossiped by the server
+		return new BsonDocument("clusterTime", timestamp);
+	}
+
+	private ClientSession newClientSession() {
+		// Private method to create a session whose server session can be stubbed
+		ClientSession clientSession = mock(ClientSession.class);
+		ServerSession serverSession = mock(ServerSession.class);
+		when(clientSession.getServerSession()).thenReturn(serverSession);
+		return clientSession;
+	}
+}
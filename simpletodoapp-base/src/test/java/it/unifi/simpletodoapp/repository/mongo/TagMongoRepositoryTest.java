@@ -1,10 +1,15 @@
 package it.unifi.simpletodoapp.repository.mongo;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertThrows;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import org.bson.Document;
@@ -26,7 +31,10 @@ import com.mongodb.client.MongoDatabase;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
+import it.unifi.simpletodoapp.model.Page;
 import it.unifi.simpletodoapp.model.Tag;
+import it.unifi.simpletodoapp.repository.MembershipUpdate;
+import it.unifi.simpletodoapp.repository.TagRepositoryException;
 
 public class TagMongoRepositoryTest {
 	private static final String DB_NAME = "todoappdb";
@@ -62,7 +70,7 @@ public class TagMongoRepositoryTest {
 		MongoDatabase database = mongoClient.getDatabase(DB_NAME);
 
 		database.drop();
-		database.createCollection(DB_COLLECTION);
+		tagMongoRepository.ensureIndexes();
 		tagCollection = database.getCollection(DB_COLLECTION);
 	}
 
@@ -80,6 +88,21 @@ public class TagMongoRepositoryTest {
 		mongoContainer.stop();
 	}
 
+	@Test
+	public void testUniqueIndexOnDuplicatedExistingDataIsReported() {
+		// Setup phase
+		tagCollection.dropIndexes();
+		addTagToDatabase(new Tag("1", "Work"), Collections.emptyList());
+		addTagToDatabase(new Tag("2", "Work"), Collections.emptyList());
+
+		// Exercise and verify phases
+		IllegalStateException exception = assertThrows(IllegalStateException.class,
+				() -> tagMongoRepository.ensureIndexes());
+		assertThat(exception.getMessage())
+		.isEqualTo("Cannot create the unique index on \"name\" of collection " + DB_NAME + "." + DB_COLLECTION
+				+ ": some tags have the same name, change or delete the duplicates and restart");
+	}
+
 	@Test
 	public void testFindAllTagsWhenCollectionIsEmpty() {
 		// Exercise and verify phases (no setup phase needed)
@@ -101,6 +124,93 @@ public class TagMongoRepositoryTest {
 		.containsExactly(tag);
 	}
 
+	@Test
+	public void testStreamAllTagsWithSmallerBatchSize() {
+		// Setup phase
+		Tag firstTag = new Tag("1", "Work");
+		Tag secondTag = new Tag("2", "Important");
+		Tag thirdTag = new Tag("3", "Third");
+		addTagToDatabase(firstTag, Collections.emptyList());
+		addTagToDatabase(secondTag, Collections.emptyList());
+		addTagToDatabase(thirdTag, Collections.emptyList());
+
+		// Exercise phase: the cursor needs more than one batch to return all tags
+		List<Tag> retrievedTags;
+		try (Stream<Tag> tags = tagMongoRepository.streamAll(clientSession, 2)) {
+			retrievedTags = tags.collect(Collectors.toList());
+		}
+
+		// Verify phase
+		assertThat(retrievedTags)
+		.containsExactly(firstTag, secondTag, thirdTag);
+	}
+
+	@Test
+	public void testCountTags() {
+		// Setup phase
+		addTagToDatabase(new Tag("1", "First"), Collections.emptyList());
+		addTagToDatabase(new Tag("2", "Second"), Collections.emptyList());
+
+		// Exercise and verify phases
+		assertThat(tagMongoRepository.count(clientSession))
+		.isEqualTo(2L);
+	}
+
+	@Test
+	public void testFindTagPagesFollowingCursor() {
+		// Setup phase: tags are inserted out of order
+		Tag firstTag = new Tag("1", "First");
+		Tag secondTag = new Tag("2", "Second");
+		Tag thirdTag = new Tag("3", "Third");
+		addTagToDatabase(thirdTag, Collections.emptyList());
+		addTagToDatabase(firstTag, Collections.emptyList());
+		addTagToDatabase(secondTag, Collections.emptyList());
+
+		// Exercise phase
+		Page<Tag> firstPage = tagMongoRepository.findPage(null, 2, clientSession);
+		Page<Tag> secondPage = tagMongoRepository.findPage(firstPage.getNextCursor(), 2, clientSession);
+
+		// Verify phase
+		assertThat(firstPage)
+		.isEqualTo(new Page<>(Arrays.asList(firstTag, secondTag), "2"));
+		assertThat(secondPage)
+		.isEqualTo(new Page<>(Collections.singletonList(thirdTag), null));
+	}
+
+	@Test
+	public void testFindTagPageAtOffset() {
+		// Setup phase: tags are inserted out of order
+		Tag firstTag = new Tag("1", "First");
+		Tag secondTag = new Tag("2", "Second");
+		Tag thirdTag = new Tag("3", "Third");
+		addTagToDatabase(thirdTag, Collections.emptyList());
+		addTagToDatabase(firstTag, Collections.emptyList());
+		addTagToDatabase(secondTag, Collections.emptyList());
+
+		// Exercise phase
+		Page<Tag> page = tagMongoRepository.findPageAt(1, 1, clientSession);
+
+		// Verify phase
+		assertThat(page)
+		.isEqualTo(new Page<>(Collections.singletonList(secondTag), "2"));
+	}
+
+	@Test
+	public void testFindTagPageWhenExactlyFilled() {
+		// Setup phase
+		Tag tag = new Tag("1", "First");
+		addTagToDatabase(tag, Collections.emptyList());
+
+		// Exercise phase
+		Page<Tag> page = tagMongoRepository.findPage(null, 1, clientSession);
+
+		// Verify phase: no next page exists, so no cursor is returned
+		assertThat(page.getItems())
+		.containsExactly(tag);
+		assertThat(page.hasNext())
+		.isFalse();
+	}
+
 	@Test
 	public void testFindTagByIdWhenCollectionIsEmpty() {
 		// Exercise and verify phases (no setup phase required)
@@ -121,6 +231,52 @@ public class TagMongoRepositoryTest {
 		.isEqualTo(secondTag);
 	}
 
+	@Test
+	public void testFindTagsByIdsKeepsRequestedOrder() {
+		// Setup phase
+		Tag firstTag = new Tag("1", "Work");
+		Tag secondTag = new Tag("2", "Important");
+		addTagToDatabase(firstTag, Collections.emptyList());
+		addTagToDatabase(secondTag, Collections.emptyList());
+
+		// Exercise phase
+		List<Tag> retrievedTags = tagMongoRepository.findByIds(Arrays.asList("2", "1"), clientSession);
+
+		// Verify phase
+		assertThat(retrievedTags)
+		.containsExactly(secondTag, firstTag);
+	}
+
+	@Test
+	public void testFindTagsByIdsSkipsMissingTags() {
+		// Setup phase
+		Tag tag = new Tag("1", "Work");
+		addTagToDatabase(tag, Collections.emptyList());
+
+		// Exercise phase
+		List<Tag> retrievedTags = tagMongoRepository.findByIds(Arrays.asList("3", "1"), clientSession);
+
+		// Verify phase
+		assertThat(retrievedTags)
+		.containsExactly(tag);
+	}
+
+	@Test
+	public void testFindTagsByIdsReturnsRepeatedIdsAgain() {
+		// Setup phase
+		Tag firstTag = new Tag("1", "Work");
+		Tag secondTag = new Tag("2", "Important");
+		addTagToDatabase(firstTag, Collections.emptyList());
+		addTagToDatabase(secondTag, Collections.emptyList());
+
+		// Exercise phase
+		List<Tag> retrievedTags = tagMongoRepository.findByIds(Arrays.asList("1", "2", "1"), clientSession);
+
+		// Verify phase
+		assertThat(retrievedTags)
+		.containsExactly(firstTag, secondTag, firstTag);
+	}
+
 	@Test
 	public void testSaveTag() {
 		// Setup phase
@@ -134,6 +290,37 @@ public class TagMongoRepositoryTest {
 		.isEqualTo(Collections.singletonList(tag));
 	}
 
+	@Test
+	public void testSaveTagWithDuplicatedId() {
+		// Setup phase
+		Tag tag = new Tag("1", "Work");
+		addTagToDatabase(tag, Collections.emptyList());
+		Tag duplicatedTag = new Tag("1", "Duplicated");
+
+		// Exercise and verify phases
+		TagRepositoryException exception = assertThrows(TagRepositoryException.class,
+				() -> tagMongoRepository.save(duplicatedTag, clientSession));
+		assertThat(exception.getMessage())
+		.isEqualTo("Cannot add tag with duplicated ID 1");
+		assertThat(getTagsFromDatabase())
+		.containsExactly(tag);
+	}
+
+	@Test
+	public void testSaveTagWithDuplicatedName() {
+		// Setup phase
+		Tag tag = new Tag("1", "Work");
+		addTagToDatabase(tag, Collections.emptyList());
+
+		// Exercise and verify phases
+		TagRepositoryException exception = assertThrows(TagRepositoryException.class,
+				() -> tagMongoRepository.save(new Tag("2", "Work"), clientSession));
+		assertThat(exception.getMessage())
+		.isEqualTo("Cannot add tag with duplicated name \"Work\"");
+		assertThat(getTagsFromDatabase())
+		.containsExactly(tag);
+	}
+
 	@Test
 	public void testDeleteTag() {
 		// Setup phase
@@ -183,9 +370,11 @@ public class TagMongoRepositoryTest {
 		addTagToDatabase(tag, Collections.emptyList());
 
 		// Exercise phase
-		tagMongoRepository.addTaskToTag(tag.getId(), "1", clientSession);
+		MembershipUpdate membershipUpdate = tagMongoRepository.addTaskToTag(tag.getId(), "1", clientSession);
 
 		// Verify phase
+		assertThat(membershipUpdate)
+		.isEqualTo(MembershipUpdate.MODIFIED);
 		assertThat(tagMongoRepository.getTasksByTagId(tag.getId(), clientSession))
 		.containsExactly("1");
 	}
@@ -197,13 +386,131 @@ public class TagMongoRepositoryTest {
 		addTagToDatabase(tag, Collections.singletonList("1"));
 
 		// Exercise phase
-		tagMongoRepository.removeTaskFromTag(tag.getId(), "1", clientSession);
+		MembershipUpdate membershipUpdate = tagMongoRepository.removeTaskFromTag(tag.getId(), "1", clientSession);
+
+		// Verify phase
+		assertThat(membershipUpdate)
+		.isEqualTo(MembershipUpdate.MODIFIED);
+		assertThat(tagMongoRepository.getTasksByTagId(tag.getId(), clientSession))
+		.isEmpty();
+	}
+
+	@Test
+	public void testAddTaskToTagWhenAlreadyAssigned() {
+		// Setup phase
+		Tag tag = new Tag("1", "Work");
+		addTagToDatabase(tag, Collections.singletonList("1"));
+
+		// Exercise phase
+		MembershipUpdate membershipUpdate = tagMongoRepository.addTaskToTag(tag.getId(), "1", clientSession);
 
 		// Verify phase
+		assertThat(membershipUpdate)
+		.isEqualTo(MembershipUpdate.NOT_MODIFIED);
 		assertThat(tagMongoRepository.getTasksByTagId(tag.getId(), clientSession))
+		.containsExactly("1");
+	}
+
+	@Test
+	public void testAddTaskToTagWhenTagNonExistent() {
+		// Exercise and verify phases (no setup phase needed)
+		assertThat(tagMongoRepository.addTaskToTag("1", "1", clientSession))
+		.isEqualTo(MembershipUpdate.NOT_FOUND);
+	}
+
+	@Test
+	public void testRemoveTaskFromTagWhenNotAssigned() {
+		// Setup phase
+		Tag tag = new Tag("1", "Work");
+		addTagToDatabase(tag, Collections.singletonList("2"));
+
+		// Exercise phase
+		MembershipUpdate membershipUpdate = tagMongoRepository.removeTaskFromTag(tag.getId(), "1", clientSession);
+
+		// Verify phase
+		assertThat(membershipUpdate)
+		.isEqualTo(MembershipUpdate.NOT_MODIFIED);
+		assertThat(tagMongoRepository.getTasksByTagId(tag.getId(), clientSession))
+		.containsExactly("2");
+	}
+
+	@Test
+	public void testRemoveTaskFromTagWhenTagNonExistent() {
+		// Exercise and verify phases (no setup phase needed)
+		assertThat(tagMongoRepository.removeTaskFromTag("1", "1", clientSession))
+		.isEqualTo(MembershipUpdate.NOT_FOUND);
+	}
+
+	@Test
+	public void testRemoveTaskFromAllTags() {
+		// Setup phase
+		Tag firstTag = new Tag("1", "Work");
+		Tag secondTag = new Tag("2", "Important");
+		addTagToDatabase(firstTag, Arrays.asList("1", "2"));
+		addTagToDatabase(secondTag, Collections.singletonList("2"));
+
+		// Exercise phase
+		tagMongoRepository.removeTaskFromAllTags("2", clientSession);
+
+		// Verify phase
+		assertThat(tagMongoRepository.getTasksByTagId(firstTag.getId(), clientSession))
+		.containsExactly("1");
+		assertThat(tagMongoRepository.getTasksByTagId(secondTag.getId(), clientSession))
+		.isEmpty();
+	}
+
+	@Test
+	public void testSaveAllTags() {
+		// Setup phase
+		Tag firstTag = new Tag("1", "Work");
+		Tag secondTag = new Tag("2", "Important");
+
+		// Exercise phase
+		tagMongoRepository.saveAll(Arrays.asList(firstTag, secondTag), clientSession);
+
+		// Verify phase
+		assertThat(getTagsFromDatabase())
+		.containsExactly(firstTag, secondTag);
+		assertThat(tagMongoRepository.getTasksByTagId(firstTag.getId(), clientSession))
 		.isEmpty();
 	}
 
+	@Test
+	public void testSaveAllTagsWithDuplicatedName() {
+		// Setup phase
+		Tag tag = new Tag("1", "Work");
+		addTagToDatabase(tag, Collections.emptyList());
+
+		// Exercise and verify phases
+		TagRepositoryException exception = assertThrows(TagRepositoryException.class,
+				() -> tagMongoRepository.saveAll(Collections.singletonList(new Tag("2", "Work")), clientSession));
+		assertThat(exception.getMessage())
+		.isEqualTo("Cannot add tag with duplicated name \"Work\"");
+		assertThat(getTagsFromDatabase())
+		.containsExactly(tag);
+	}
+
+	@Test
+	public void testAddTasksToTagsInASingleBulkWrite() {
+		// Setup phase
+		Tag firstTag = new Tag("1", "Work");
+		Tag secondTag = new Tag("2", "Important");
+		addTagToDatabase(firstTag, Collections.singletonList("1"));
+		addTagToDatabase(secondTag, Collections.emptyList());
+		Map<String, List<String>> taskIdsByTagId = new LinkedHashMap<>();
+		taskIdsByTagId.put(firstTag.getId(), Arrays.asList("1", "2"));
+		taskIdsByTagId.put(secondTag.getId(), Collections.singletonList("3"));
+
+		// Exercise phase
+		tagMongoRepository.addTasksToTags(taskIdsByTagId, clientSession);
+
+		// Verify phase
+		assertThat(tagMongoRepository.getTasksByTagId(firstTag.getId(), clientSession))
+		.containsExactly("1", "2");
+		assertThat(tagMongoRepository.getTasksByTagId(secondTag.getId(), clientSession))
+		.containsExactly("3");
+	}
+
 	private void addTagToDatabase(Tag tag, List<String> tasks) {
 		// Private method to directly insert a tag in the collection
 		tagCollection.insertOne(new Document()
@@ -1,10 +1,15 @@
 package it.unifi.simpletodoapp.repository.mongo;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertThrows;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import org.bson.Document;
@@ -26,7 +31,10 @@ import com.mongodb.client.MongoDatabase;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
+import it.unifi.simpletodoapp.model.Page;
 import it.unifi.simpletodoapp.model.Task;
+import it.unifi.simpletodoapp.repository.MembershipUpdate;
+import it.unifi.simpletodoapp.repository.TaskRepositoryException;
 
 public class TaskMongoRepositoryTest {
 	private static final String DB_NAME = "todoappdb";
@@ -62,7 +70,7 @@ public class TaskMongoRepositoryTest {
 		MongoDatabase database = mongoClient.getDatabase(DB_NAME);
 
 		database.drop();
-		database.createCollection(DB_COLLECTION);
+		taskMongoRepository.ensureIndexes();
 		taskCollection = database.getCollection(DB_COLLECTION);
 	}
 
@@ -80,6 +88,21 @@ public class TaskMongoRepositoryTest {
 		mongoContainer.stop();
 	}
 
+	@Test
+	public void testUniqueIndexOnDuplicatedExistingDataIsReported() {
+		// Setup phase
+		taskCollection.dropIndexes();
+		addTaskToDatabase(new Task("1", "Buy groceries"), Collections.emptyList());
+		addTaskToDatabase(new Task("1", "Start using TDD"), Collections.emptyList());
+
+		// Exercise and verify phases
+		IllegalStateException exception = assertThrows(IllegalStateException.class,
+				() -> taskMongoRepository.ensureIndexes());
+		assertThat(exception.getMessage())
+		.isEqualTo("Cannot create the unique index on \"id\" of collection " + DB_NAME + "." + DB_COLLECTION
+				+ ": some tasks have the same id, change or delete the duplicates and restart");
+	}
+
 	@Test
 	public void testFindAllTasksWhenCollectionIsEmpty() {
 		// Exercise and verify phases (no setup phase needed)
@@ -101,6 +124,93 @@ public class TaskMongoRepositoryTest {
 		.containsExactly(task);
 	}
 
+	@Test
+	public void testStreamAllTasksWithSmallerBatchSize() {
+		// Setup phase
+		Task firstTask = new Task("1", "Buy groceries");
+		Task secondTask = new Task("2", "Start using TDD");
+		Task thirdTask = new Task("3", "Third");
+		addTaskToDatabase(firstTask, Collections.emptyList());
+		addTaskToDatabase(secondTask, Collections.emptyList());
+		addTaskToDatabase(thirdTask, Collections.emptyList());
+
+		// Exercise phase: the cursor needs more than one batch to return all tasks
+		List<Task> retrievedTasks;
+		try (Stream<Task> tasks = taskMongoRepository.streamAll(clientSession, 2)) {
+			retrievedTasks = tasks.collect(Collectors.toList());
+		}
+
+		// Verify phase
+		assertThat(retrievedTasks)
+		.containsExactly(firstTask, secondTask, thirdTask);
+	}
+
+	@Test
+	public void testCountTasks() {
+		// Setup phase
+		addTaskToDatabase(new Task("1", "First"), Collections.emptyList());
+		addTaskToDatabase(new Task("2", "Second"), Collections.emptyList());
+
+		// Exercise and verify phases
+		assertThat(taskMongoRepository.count(clientSession))
+		.isEqualTo(2L);
+	}
+
+	@Test
+	public void testFindTaskPagesFollowingCursor() {
+		// Setup phase: tasks are inserted out of order
+		Task firstTask = new Task("1", "First");
+		Task secondTask = new Task("2", "Second");
+		Task thirdTask = new Task("3", "Third");
+		addTaskToDatabase(thirdTask, Collections.emptyList());
+		addTaskToDatabase(firstTask, Collections.emptyList());
+		addTaskToDatabase(secondTask, Collections.emptyList());
+
+		// Exercise phase
+		Page<Task> firstPage = taskMongoRepository.findPage(null, 2, clientSession);
+		Page<Task> secondPage = taskMongoRepository.findPage(firstPage.getNextCursor(), 2, clientSession);
+
+		// Verify phase
+		assertThat(firstPage)
+		.isEqualTo(new Page<>(Arrays.asList(firstTask, secondTask), "2"));
+		assertThat(secondPage)
+		.isEqualTo(new Page<>(Collections.singletonList(thirdTask), null));
+	}
+
+	@Test
+	public void testFindTaskPageAtOffset() {
+		// Setup phase: tasks are inserted out of order
+		Task firstTask = new Task("1", "First");
+		Task secondTask = new Task("2", "Second");
+		Task thirdTask = new Task("3", "Third");
+		addTaskToDatabase(thirdTask, Collections.emptyList());
+		addTaskToDatabase(firstTask, Collections.emptyList());
+		addTaskToDatabase(secondTask, Collections.emptyList());
+
+		// Exercise phase
+		Page<Task> page = taskMongoRepository.findPageAt(1, 1, clientSession);
+
+		// Verify phase
+		assertThat(page)
+		.isEqualTo(new Page<>(Collections.singletonList(secondTask), "2"));
+	}
+
+	@Test
+	public void testFindTaskPageWhenExactlyFilled() {
+		// Setup phase
+		Task task = new Task("1", "First");
+		addTaskToDatabase(task, Collections.emptyList());
+
+		// Exercise phase
+		Page<Task> page = taskMongoRepository.findPage(null, 1, clientSession);
+
+		// Verify phase: no next page exists, so no cursor is returned
+		assertThat(page.getItems())
+		.containsExactly(task);
+		assertThat(page.hasNext())
+		.isFalse();
+	}
+
 	@Test
 	public void testFindTaskByIdWhenCollectionIsEmpty() {
 		// Exercise and verify phases (no setup phase required)
@@ -121,6 +231,52 @@ public class TaskMongoRepositoryTest {
 		.isEqualTo(secondTask);
 	}
 
+	@Test
+	public void testFindTasksByIdsKeepsRequestedOrder() {
+		// Setup phase
+		Task firstTask = new Task("1", "Buy groceries");
+		Task secondTask = new Task("2", "Start using TDD");
+		addTaskToDatabase(firstTask, Collections.emptyList());
+		addTaskToDatabase(secondTask, Collections.emptyList());
+
+		// Exercise phase
+		List<Task> retrievedTasks = taskMongoRepository.findByIds(Arrays.asList("2", "1"), clientSession);
+
+		// Verify phase
+		assertThat(retrievedTasks)
+		.containsExactly(secondTask, firstTask);
+	}
+
+	@Test
+	public void testFindTasksByIdsSkipsMissingTasks() {
+		// Setup phase
+		Task task = new Task("1", "Buy groceries");
+		addTaskToDatabase(task, Collections.emptyList());
+
+		// Exercise phase
+		List<Task> retrievedTasks = taskMongoRepository.findByIds(Arrays.asList("3", "1"), clientSession);
+
+		// Verify phase
+		assertThat(retrievedTasks)
+		.containsExactly(task);
+	}
+
+	@Test
+	public void testFindTasksByIdsReturnsRepeatedIdsAgain() {
+		// Setup phase
+		Task firstTask = new Task("1", "Buy groceries");
+		Task secondTask = new Task("2", "Start using TDD");
+		addTaskToDatabase(firstTask, Collections.emptyList());
+		addTaskToDatabase(secondTask, Collections.emptyList());
+
+		// Exercise phase
+		List<Task> retrievedTasks = taskMongoRepository.findByIds(Arrays.asList("1", "2", "1"), clientSession);
+
+		// Verify phase
+		assertThat(retrievedTasks)
+		.containsExactly(firstTask, secondTask, firstTask);
+	}
+
 	@Test
 	public void testSaveTask() {
 		// Setup phase
@@ -134,6 +290,22 @@ public class TaskMongoRepositoryTest {
 		.isEqualTo(Collections.singletonList(task));
 	}
 
+	@Test
+	public void testSaveTaskWithDuplicatedId() {
+		// Setup phase
+		Task task = new Task("1", "Buy groceries");
+		addTaskToDatabase(task, Collections.emptyList());
+		Task duplicatedTask = new Task("1", "Duplicated");
+
+		// Exercise and verify phases
+		TaskRepositoryException exception = assertThrows(TaskRepositoryException.class,
+				() -> taskMongoRepository.save(duplicatedTask, clientSession));
+		assertThat(exception.getMessage())
+		.isEqualTo("Cannot add task with duplicated ID 1");
+		assertThat(getTasksFromDatabase())
+		.containsExactly(task);
+	}
+
 	@Test
 	public void testDeleteTask() {
 		// Setup phase
@@ -183,9 +355,11 @@ public class TaskMongoRepositoryTest {
 		addTaskToDatabase(task, Collections.emptyList());
 
 		// Exercise phase
-		taskMongoRepository.addTagToTask(task.getId(), "1", clientSession);
+		MembershipUpdate membershipUpdate = taskMongoRepository.addTagToTask(task.getId(), "1", clientSession);
 
 		// Verify phase
+		assertThat(membershipUpdate)
+		.isEqualTo(MembershipUpdate.MODIFIED);
 		assertThat(taskMongoRepository.getTagsByTaskId(task.getId(), clientSession))
 		.containsExactly("1");
 	}
@@ -197,13 +371,115 @@ public class TaskMongoRepositoryTest {
 		addTaskToDatabase(task, Collections.singletonList("1"));
 
 		// Exercise phase
-		taskMongoRepository.removeTagFromTask(task.getId(), "1", clientSession);
+		MembershipUpdate membershipUpdate = taskMongoRepository.removeTagFromTask(task.getId(), "1", clientSession);
+
+		// Verify phase
+		assertThat(membershipUpdate)
+		.isEqualTo(MembershipUpdate.MODIFIED);
+		assertThat(taskMongoRepository.getTagsByTaskId(task.getId(), clientSession))
+		.isEmpty();
+	}
+
+	@Test
+	public void testAddTagToTaskWhenAlreadyAssigned() {
+		// Setup phase
+		Task task = new Task("1", "Start using TDD");
+		addTaskToDatabase(task, Collections.singletonList("1"));
+
+		// Exercise phase
+		MembershipUpdate membershipUpdate = taskMongoRepository.addTagToTask(task.getId(), "1", clientSession);
+
+		// Verify phase
+		assertThat(membershipUpdate)
+		.isEqualTo(MembershipUpdate.NOT_MODIFIED);
+		assertThat(taskMongoRepository.getTagsByTaskId(task.getId(), clientSession))
+		.containsExactly("1");
+	}
+
+	@Test
+	public void testAddTagToTaskWhenTaskNonExistent() {
+		// Exercise and verify phases (no setup phase needed)
+		assertThat(taskMongoRepository.addTagToTask("1", "1", clientSession))
+		.isEqualTo(MembershipUpdate.NOT_FOUND);
+	}
+
+	@Test
+	public void testRemoveTagFromTaskWhenNotAssigned() {
+		// Setup phase
+		Task task = new Task("1", "Start using TDD");
+		addTaskToDatabase(task, Collections.singletonList("2"));
+
+		// Exercise phase
+		MembershipUpdate membershipUpdate = taskMongoRepository.removeTagFromTask(task.getId(), "1", clientSession);
 
 		// Verify phase
+		assertThat(membershipUpdate)
+		.isEqualTo(MembershipUpdate.NOT_MODIFIED);
 		assertThat(taskMongoRepository.getTagsByTaskId(task.getId(), clientSession))
+		.containsExactly("2");
+	}
+
+	@Test
+	public void testRemoveTagFromTaskWhenTaskNonExistent() {
+		// Exercise and verify phases (no setup phase needed)
+		assertThat(taskMongoRepository.removeTagFromTask("1", "1", clientSession))
+		.isEqualTo(MembershipUpdate.NOT_FOUND);
+	}
+
+	@Test
+	public void testRemoveTagFromAllTasks() {
+		// Setup phase
+		Task firstTask = new Task("1", "Start using TDD");
+		Task secondTask = new Task("2", "Buy groceries");
+		addTaskToDatabase(firstTask, Arrays.asList("1", "2"));
+		addTaskToDatabase(secondTask, Collections.singletonList("2"));
+
+		// Exercise phase
+		taskMongoRepository.removeTagFromAllTasks("2", clientSession);
+
+		// Verify phase
+		assertThat(taskMongoRepository.getTagsByTaskId(firstTask.getId(), clientSession))
+		.containsExactly("1");
+		assertThat(taskMongoRepository.getTagsByTaskId(secondTask.getId(), clientSession))
+		.isEmpty();
+	}
+
+	@Test
+	public void testSaveAllTasksWithTheirTags() {
+		// Setup phase
+		Task firstTask = new Task("1", "Buy groceries");
+		Task secondTask = new Task("2", "Start using TDD");
+		Map<String, List<String>> tagIdsByTaskId = new HashMap<>();
+		tagIdsByTaskId.put(firstTask.getId(), Arrays.asList("1", "2"));
+
+		// Exercise phase
+		taskMongoRepository.saveAll(Arrays.asList(firstTask, secondTask), tagIdsByTaskId, clientSession);
+
+		// Verify phase
+		assertThat(getTasksFromDatabase())
+		.containsExactly(firstTask, secondTask);
+		assertThat(taskMongoRepository.getTagsByTaskId(firstTask.getId(), clientSession))
+		.containsExactly("1", "2");
+		assertThat(taskMongoRepository.getTagsByTaskId(secondTask.getId(), clientSession))
 		.isEmpty();
 	}
 
+	@Test
+	public void testSaveAllTasksWithDuplicatedId() {
+		// Setup phase
+		Task task = new Task("1", "Buy groceries");
+		addTaskToDatabase(task, Collections.emptyList());
+
+		// Exercise and verify phases
+		TaskRepositoryException exception = assertThrows(TaskRepositoryException.class,
+				() -> taskMongoRepository.saveAll(Collections.singletonList(new Task("1", "Duplicated")),
+						Collections.emptyMap(), clientSession));
+		assertThat(exception.getMessage())
+		.isEqualTo("Cannot add task with duplicated ID 1");
+		assertThat(getTasksFromDatabase())
+		.containsExactly(task);
+	}
+
 	private void addTaskToDatabase(Task task, List<String> tags) {
 		// Private method to directly insert a task in the collection
 		taskCollection.insertOne(new Document()
@@ -0,0 +1,276 @@
+package it.unifi.simpletodoapp.repository.mongo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.MongoException;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoClient;
+import com.mongodb.session.ServerSession;
+
+import it.unifi.simpletodoapp.repository.TagRepository;
+import it.unifi.simpletodoapp.repository.TaskRepository;
+import it.unifi.simpletodoapp.repository.TaskRepositoryException;
+import it.unifi.simpletodoapp.repository.mongo.TransactionManagerMongo.TransactionType;
+
+public class TransactionManagerMongoTest {
+	private static final int MAX_ATTEMPTS = 3;
+
+	@Mock
+	private MongoClient mongoClient;
+
+	@Mock
+	private ClientSession clientSession;
+
+	@Mock
+	private TaskMongoRepository taskMongoRepository;
+
+	@Mock
+	private TagMongoRepository tagMongoRepository;
+
+	private TransactionManagerMongo transactionManagerMongo;
+
+	@Before
+	public void setup() {
+		/* Every session is the same mock, whose transaction is active until it
+		 * is committed or aborted, and retries are never delayed */
+		MockitoAnnotations.initMocks(this);
+		when(mongoClient.startSession()).thenReturn(clientSession);
+		when(mongoClient.startSession(any(ClientSessionOptions.class))).thenReturn(clientSession);
+		when(clientSession.hasActiveTransaction()).thenReturn(true);
+		transactionManagerMongo = new TransactionManagerMongo(mongoClient, taskMongoRepository, tagMongoRepository);
+		transactionManagerMongo.useRetryPolicy(new TransactionRetryPolicy(MAX_ATTEMPTS, 1, 1, 10, 0.1,
+				() -> 0, millis -> {}));
+	}
+
+	@Test
+	public void testTransactionIsCommittedAndSessionClosed() {
+		// Exercise phase
+		String value = transactionManagerMongo.doTaskTransaction(taskRepository -> "done");
+
+		// Verify phase
+		assertThat(value)
+		.isEqualTo("done");
+		InOrder inOrder = inOrder(clientSession);
+		inOrder.verify(clientSession).startTransaction();
+		inOrder.verify(clientSession).commitTransaction();
+		inOrder.verify(clientSession).close();
+		assertThat(transactionManagerMongo.getAttempts(TransactionType.TASK))
+		.isEqualTo(1);
+		assertThat(transactionManagerMongo.getAborts(TransactionType.TASK))
+		.isZero();
+	}
+
+	@Test
+	public void testCodeRunsOnRepositoriesBoundToTheSession() {
+		// Setup phase
+		TaskRepository taskRepository = mock(TaskRepository.class);
+		TagRepository tagRepository = mock(TagRepository.class);
+		when(taskMongoRepository.withSession(clientSession))
+		.thenReturn(taskRepository);
+		when(tagMongoRepository.withSession(clientSession))
+		.thenReturn(tagRepository);
+
+		// Exercise phase
+		transactionManagerMongo.doCompositeTransaction((boundTaskRepository, boundTagRepository) -> {
+			boundTaskRepository.count();
+			boundTagRepository.count();
+			return null;
+		});
+
+		// Verify phase
+		verify(taskRepository).count();
+		verify(tagRepository).count();
+	}
+
+	@Test
+	public void testTransientErrorRetriesTheWholeTransaction() {
+		// Setup phase
+		AtomicInteger executions = new AtomicInteger();
+
+		// Exercise phase
+		transactionManagerMongo.doTagTransaction(tagRepository -> {
+			if (executions.incrementAndGet() == 1)
+				throw labeledException(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL);
+			return null;
+		});
+
+		// Verify phase
+		assertThat(executions.get())
+		.isEqualTo(2);
+		verify(clientSession, times(2)).startTransaction();
+		verify(clientSession).abortTransaction();
+		verify(clientSession).commitTransaction();
+		assertThat(transactionManagerMongo.getAttempts(TransactionType.TAG))
+		.isEqualTo(2);
+		assertThat(transactionManagerMongo.getAborts(TransactionType.TAG))
+		.isEqualTo(1);
+	}
+
+	@Test
+	public void testUnknownCommitResultOnlyRetriesTheCommit() {
+		// Setup phase
+		doThrow(labeledException(MongoException.UNKNOWN_TRANSACTION_COMMIT_RESULT_LABEL))
+		.doNothing()
+		.when(clientSession).commitTransaction();
+
+		// Exercise phase
+		transactionManagerMongo.doCompositeTransaction((taskRepository, tagRepository) -> null);
+
+		// Verify phase
+		verify(clientSession, times(1)).startTransaction();
+		verify(clientSession, times(2)).commitTransaction();
+		assertThat(transactionManagerMongo.getAttempts(TransactionType.COMPOSITE))
+		.isEqualTo(1);
+		assertThat(transactionManagerMongo.getAborts(TransactionType.COMPOSITE))
+		.isZero();
+	}
+
+	@Test
+	public void testTransientErrorOnCommitRetriesTheWholeTransaction() {
+		// Setup phase
+		doThrow(labeledException(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL))
+		.doNothing()
+		.when(clientSession).commitTransaction();
+
+		// Exercise phase
+		transactionManagerMongo.doTaskTransaction(taskRepository -> null);
+
+		// Verify phase
+		verify(clientSession, times(2)).startTransaction();
+		verify(clientSession, times(2)).commitTransaction();
+		assertThat(transactionManagerMongo.getAborts(TransactionType.TASK))
+		.isEqualTo(1);
+	}
+
+	@Test
+	public void testExhaustedRetriesThrowKeepingCauseCodeAndLabels() {
+		// Setup phase
+		MongoException writeConflict = labeledException(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL);
+
+		// Exercise phase
+		MongoException exception = assertThrows(MongoException.class,
+				() -> transactionManagerMongo.doTaskTransaction(taskRepository -> {
+					throw writeConflict;
+				}));
+
+		// Verify phase
+		assertThat(exception.getMessage())
+		.isEqualTo("Task transaction failed, aborting");
+		assertThat(exception.getCause())
+		.isSameAs(writeConflict);
+		assertThat(exception.getCode())
+		.isEqualTo(112);
+		assertThat(exception.hasErrorLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL))
+		.isTrue();
+		assertThat(transactionManagerMongo.getAttempts(TransactionType.TASK))
+		.isEqualTo(MAX_ATTEMPTS);
+		assertThat(transactionManagerMongo.getAborts(TransactionType.TASK))
+		.isEqualTo(MAX_ATTEMPTS);
+	}
+
+	@Test
+	public void testNonTransientErrorIsNotRetried() {
+		// Setup phase
+		doThrow(new MongoException(13, "Unauthorized"))
+		.when(clientSession).commitTransaction();
+
+		// Exercise phase
+		MongoException exception = assertThrows(MongoException.class,
+				() -> transactionManagerMongo.doTagTransaction(tagRepository -> null));
+
+		// Verify phase
+		assertThat(exception.getCode())
+		.isEqualTo(13);
+		verify(clientSession, times(1)).startTransaction();
+		assertThat(transactionManagerMongo.getAborts(TransactionType.TAG))
+		.isEqualTo(1);
+	}
+
+	@Test
+	public void testRepositoryErrorAbortsTransactionAndIsRethrownUnchanged() {
+		// Setup phase
+		TaskRepositoryException repositoryException = new TaskRepositoryException("No task with ID 1");
+
+		// Exercise phase
+		TaskRepositoryException exception = assertThrows(TaskRepositoryException.class,
+				() -> transactionManagerMongo.doTaskTransaction(taskRepository -> {
+					throw repositoryException;
+				}));
+
+		// Verify phase
+		assertThat(exception)
+		.isSameAs(repositoryException);
+		verify(clientSession).abortTransaction();
+		verify(clientSession, never()).commitTransaction();
+		verify(clientSession).close();
+	}
+
+	@Test
+	public void testFailedReadKeepsItsCause() {
+		// Setup phase
+		MongoException timeout = new MongoException(-3, "Timed out waiting for a server");
+
+		// Exercise phase
+		MongoException exception = assertThrows(MongoException.class,
+				() -> transactionManagerMongo.doTagRead(tagRepository -> {
+					throw timeout;
+				}));
+
+		// Verify phase
+		assertThat(exception.getMessage())
+		.isEqualTo("Tag read failed, aborting");
+		assertThat(exception.getCause())
+		.isSameAs(timeout);
+		verify(clientSession, never()).startTransaction();
+	}
+
+	@Test
+	public void testPooledSessionOfFailedTransactionIsNotReused() {
+		// Setup phase
+		ClientSessionPool clientSessionPool = new ClientSessionPool(mongoClient, 1);
+		transactionManagerMongo.useSessionPool(clientSessionPool);
+		when(clientSession.getServerSession()).thenReturn(mock(ServerSession.class));
+		when(clientSession.hasActiveTransaction()).thenReturn(false);
+		doNothing().when(clientSession).commitTransaction();
+		transactionManagerMongo.doTaskTransaction(taskRepository -> null);
+		doThrow(new MongoException(13, "Unauthorized"))
+		.when(clientSession).commitTransaction();
+
+		// Exercise phase
+		assertThrows(MongoException.class,
+				() -> transactionManagerMongo.doTaskTransaction(taskRepository -> null));
+
+		// Verify phase
+		verify(clientSession).close();
+		assertThat(clientSessionPool.getReusedSessions())
+		.isEqualTo(1);
+		assertThat(clientSessionPool.getDiscardedSessions())
+		.isEqualTo(1);
+	}
+
+	private MongoException labeledException(String label) {
+		// Private method to create an exception as labeled by the server
+		MongoException exception = new MongoException(112, "WriteConflict");
+		exception.addLabel(label);
+		return exception;
+	}
+}
@@ -0,0 +1,208 @@
+package it.unifi.simpletodoapp.repository.mongo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mongodb.MongoException;
+
+public class TransactionRetryPolicyTest {
+	private static final int MAX_ATTEMPTS = 4;
+	private static final long INITIAL_BACKOFF_MILLIS = 10;
+	private static final long MAX_BACKOFF_MILLIS = 50;
+	private static final double RETRY_BUDGET = 3;
+	private static final double BUDGET_PER_SUCCESS = 0.5;
+
+	private List<Long> sleeps;
+	private double jitter;
+	private TransactionRetryPolicy retryPolicy;
+
+	@Before
+	public void setup() {
+		// Sleeps are recorded instead of waited, and the jitter is chosen by tests
+		sleeps = new ArrayList<>();
+		jitter = 1;
+		retryPolicy = new TransactionRetryPolicy(MAX_ATTEMPTS, INITIAL_BACKOFF_MILLIS, MAX_BACKOFF_MILLIS,
+				RETRY_BUDGET, BUDGET_PER_SUCCESS, () -> jitter, sleeps::add);
+	}
+
+	@After
+	public void clearInterrupt() {
+		Thread.interrupted();
+	}
+
+	@Test
+	public void testTransientErrorIsRetried() {
+		// Exercise phase
+		boolean retried = retryPolicy.retry(labeledException(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL), 1);
+
+		// Verify phase
+		assertThat(retried)
+		.isTrue();
+		assertThat(sleeps)
+		.containsExactly(INITIAL_BACKOFF_MILLIS);
+		assertThat(retryPolicy.getRetries())
+		.isEqualTo(1);
+	}
+
+	@Test
+	public void testUnknownCommitResultIsRetried() {
+		// Exercise and verify phases
+		assertThat(retryPolicy.retry(labeledException(MongoException.UNKNOWN_TRANSACTION_COMMIT_RESULT_LABEL), 1))
+		.isTrue();
+	}
+
+	@Test
+	public void testErrorWithoutRetryableLabelIsNotRetried() {
+		// Exercise phase
+		boolean retried = retryPolicy.retry(new MongoException(11000, "Duplicate key"), 1);
+
+		// Verify phase
+		assertThat(retried)
+		.isFalse();
+		assertThat(sleeps)
+		.isEmpty();
+		assertThat(retryPolicy.getRetryBudget())
+		.isEqualTo(RETRY_BUDGET);
+	}
+
+	@Test
+	public void testLastAttemptIsNotRetried() {
+		// Exercise and verify phases
+		assertThat(retryPolicy.retry(labeledException(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL), MAX_ATTEMPTS))
+		.isFalse();
+	}
+
+	@Test
+	public void testRetryDelayIsReturnedWithoutSleeping() {
+		// Exercise phase
+		long delay = retryPolicy.retryDelayMillis(labeledException(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL), 2);
+
+		// Verify phase
+		assertThat(delay)
+		.isEqualTo(20);
+		assertThat(sleeps)
+		.isEmpty();
+		assertThat(retryPolicy.getRetries())
+		.isEqualTo(1);
+		assertThat(retryPolicy.getRetryBudget())
+		.isEqualTo(RETRY_BUDGET - 1);
+	}
+
+	@Test
+	public void testNoRetryDelayWhenTheBudgetIsExhausted() {
+		// Setup phase
+		MongoException exception = labeledException(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL);
+		for (int i = 0; i < RETRY_BUDGET; i++)
+			retryPolicy.retryDelayMillis(exception, 1);
+
+		// Exercise and verify phases
+		assertThat(retryPolicy.retryDelayMillis(exception, 1))
+		.isEqualTo(TransactionRetryPolicy.NO_RETRY);
+		assertThat(retryPolicy.getDeniedRetries())
+		.isEqualTo(1);
+	}
+
+	@Test
+	public void testBackoffDoublesUpToTheMaximum() {
+		// Exercise and verify phases
+		assertThat(retryPolicy.backoffMillis(1))
+		.isEqualTo(10);
+		assertThat(retryPolicy.backoffMillis(2))
+		.isEqualTo(20);
+		assertThat(retryPolicy.backoffMillis(3))
+		.isEqualTo(40);
+		assertThat(retryPolicy.backoffMillis(4))
+		.isEqualTo(MAX_BACKOFF_MILLIS);
+		assertThat(retryPolicy.backoffMillis(100))
+		.isEqualTo(MAX_BACKOFF_MILLIS);
+	}
+
+	@Test
+	public void testBackoffIsScaledByTheJitter() {
+		// Setup phase
+		jitter = 0.25;
+
+		// Exercise and verify phases
+		assertThat(retryPolicy.backoffMillis(3))
+		.isEqualTo(10);
+	}
+
+	@Test
+	public void testRetriesAreDeniedWhenTheBudgetIsExhausted() {
+		// Setup phase
+		MongoException exception = labeledException(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL);
+
+		// Exercise phase
+		for (int i = 0; i < RETRY_BUDGET; i++)
+			retryPolicy.retry(exception, 1);
+		boolean retried = retryPolicy.retry(exception, 1);
+
+		// Verify phase
+		assertThat(retried)
+		.isFalse();
+		assertThat(retryPolicy.getRetries())
+		.isEqualTo(3);
+		assertThat(retryPolicy.getDeniedRetries())
+		.isEqualTo(1);
+	}
+
+	@Test
+	public void testSuccessesRefillTheBudgetUpToItsMaximum() {
+		// Setup phase
+		MongoException exception = labeledException(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL);
+		for (int i = 0; i < RETRY_BUDGET; i++)
+			retryPolicy.retry(exception, 1);
+
+		// Exercise phase
+		retryPolicy.succeeded();
+		retryPolicy.succeeded();
+
+		// Verify phase
+		assertThat(retryPolicy.retry(exception, 1))
+		.isTrue();
+		for (int i = 0; i < 10; i++)
+			retryPolicy.succeeded();
+		assertThat(retryPolicy.getRetryBudget())
+		.isEqualTo(RETRY_BUDGET);
+	}
+
+	@Test
+	public void testInterruptedBackoffIsNotRetried() {
+		// Setup phase
+		retryPolicy = new TransactionRetryPolicy(MAX_ATTEMPTS, INITIAL_BACKOFF_MILLIS, MAX_BACKOFF_MILLIS,
+				RETRY_BUDGET, BUDGET_PER_SUCCESS, () -> jitter, millis -> {
+					throw new InterruptedException();
+				});
+
+		// Exercise phase
+		boolean retried = retryPolicy.retry(labeledException(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL), 1);
+
+		// Verify phase
+		assertThat(retried)
+		.isFalse();
+		assertThat(Thread.currentThread().isInterrupted())
+		.isTrue();
+	}
+
+	@Test
+	public void testNonPositiveAttemptsAreRejected() {
+		// Verify phase
+		assertThatThrownBy(() -> new TransactionRetryPolicy(0))
+		.isInstanceOf(IllegalArgumentException.class)
+		.hasMessage("Transaction attempts must be positive, got 0");
+	}
+
+	private MongoException labeledException(String label) {
+		// Private method to create an exception as labeled by the server
+		MongoException exception = new MongoException(112, "WriteConflict");
+		exception.addLabel(label);
+		return exception;
+	}
+}
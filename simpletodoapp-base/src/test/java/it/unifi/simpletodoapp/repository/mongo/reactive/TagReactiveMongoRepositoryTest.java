@@ -0,0 +1,175 @@
+package it.unifi.simpletodoapp.repository.mongo.reactive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.bson.Document;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.testcontainers.containers.MongoDBContainer;
+
+import com.mongodb.reactivestreams.client.ClientSession;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import it.unifi.simpletodoapp.model.Tag;
+import it.unifi.simpletodoapp.repository.MembershipUpdate;
+import it.unifi.simpletodoapp.repository.TagRepositoryException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class TagReactiveMongoRepositoryTest {
+	private static final String DB_NAME = "todoappdb";
+	private static final String DB_COLLECTION = "tags";
+	private static final int MONGO_PORT = 27017;
+
+	private MongoClient mongoClient;
+	private ClientSession clientSession;
+	private TagReactiveMongoRepository tagRepository;
+	private MongoCollection<Document> tagCollection;
+
+	@ClassRule
+	public static final MongoDBContainer mongoContainer = new MongoDBContainer()
+	.withExposedPorts(MONGO_PORT);
+
+	@BeforeClass
+	public static void setupMongoLogger() {
+		LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+		Logger rootLogger = loggerContext.getLogger("org.mongodb.driver");
+		rootLogger.setLevel(Level.INFO);
+	}
+
+	@Before
+	public void setup() {
+		/* Creates the reactive mongo client, a session and the tag repository,
+		 * blocking only here to empty the database before each test */
+		String mongoRsUrl = mongoContainer.getReplicaSetUrl();
+		mongoClient = MongoClients.create(mongoRsUrl);
+		clientSession = Mono.from(mongoClient.startSession()).block();
+
+		tagRepository = new TagReactiveMongoRepository(mongoClient, DB_NAME, DB_COLLECTION);
+
+		MongoDatabase database = mongoClient.getDatabase(DB_NAME);
+
+		Mono.from(database.drop()).block();
+		tagRepository.ensureIndexes().block();
+		tagCollection = database.getCollection(DB_COLLECTION);
+	}
+
+	@After
+	public void tearDown() {
+		clientSession.close();
+		mongoClient.close();
+	}
+
+	@AfterClass
+	public static void stopContainer() {
+		mongoContainer.stop();
+	}
+
+	@Test
+	public void testFindAllEmitsTagsAsRequested() {
+		// Setup phase
+		addTagToCollection(new Tag("1", "Work"), Collections.emptyList());
+		addTagToCollection(new Tag("2", "Home"), Collections.emptyList());
+
+		// Exercise and verify phases
+		StepVerifier.create(tagRepository.findAll(clientSession), 1)
+		.expectNext(new Tag("1", "Work"))
+		.thenRequest(1)
+		.expectNext(new Tag("2", "Home"))
+		.verifyComplete();
+	}
+
+	@Test
+	public void testSaveAndFindById() {
+		// Setup phase
+		Tag tag = new Tag("1", "Work");
+
+		// Exercise phase
+		tagRepository.save(tag, clientSession).block();
+
+		// Verify phase
+		StepVerifier.create(tagRepository.findById(tag.getId(), clientSession))
+		.expectNext(tag)
+		.verifyComplete();
+	}
+
+	@Test
+	public void testSaveTagWithDuplicatedIdOrNameFails() {
+		// Setup phase
+		addTagToCollection(new Tag("1", "Work"), Collections.emptyList());
+
+		// Exercise and verify phases
+		StepVerifier.create(tagRepository.save(new Tag("1", "Home"), clientSession))
+		.expectErrorSatisfies(error -> assertThat(error)
+				.isInstanceOf(TagRepositoryException.class)
+				.hasMessage("Cannot add tag with duplicated ID 1"))
+		.verify();
+		StepVerifier.create(tagRepository.save(new Tag("2", "Work"), clientSession))
+		.expectErrorSatisfies(error -> assertThat(error)
+				.isInstanceOf(TagRepositoryException.class)
+				.hasMessage("Cannot add tag with duplicated name \"Work\""))
+		.verify();
+	}
+
+	@Test
+	public void testTaskMembershipUpdates() {
+		// Setup phase
+		addTagToCollection(new Tag("1", "Work"), Collections.singletonList("1"));
+
+		// Exercise and verify phases
+		StepVerifier.create(tagRepository.addTaskToTag("1", "2", clientSession))
+		.expectNext(MembershipUpdate.MODIFIED)
+		.verifyComplete();
+		StepVerifier.create(tagRepository.removeTaskFromTag("1", "3", clientSession))
+		.expectNext(MembershipUpdate.NOT_MODIFIED)
+		.verifyComplete();
+		StepVerifier.create(tagRepository.getTasksByTagId("1", clientSession))
+		.expectNext("1", "2")
+		.verifyComplete();
+	}
+
+	@Test
+	public void testRemoveTaskFromAllTagsAndDelete() {
+		// Setup phase
+		Tag tag = new Tag("1", "Work");
+		addTagToCollection(tag, Arrays.asList("1", "2"));
+		addTagToCollection(new Tag("2", "Home"), Collections.singletonList("1"));
+
+		// Exercise phase
+		tagRepository.removeTaskFromAllTags("1", clientSession).block();
+		tagRepository.delete(tag, clientSession).block();
+
+		// Verify phase
+		StepVerifier.create(tagRepository.getTasksByTagId("2", clientSession))
+		.verifyComplete();
+		StepVerifier.create(tagRepository.count(clientSession))
+		.expectNext(1L)
+		.verifyComplete();
+	}
+
+	private void addTagToCollection(Tag tag, List<String> tasks) {
+		// Private method to directly insert a tag in the collection
+		Flux.from(tagCollection.insertOne(new Document()
+				.append("id", tag.getId())
+				.append("name", tag.getName())
+				.append("tasks", tasks)
+				))
+		.blockLast();
+	}
+}
@@ -0,0 +1,197 @@
+package it.unifi.simpletodoapp.repository.mongo.reactive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.bson.Document;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.testcontainers.containers.MongoDBContainer;
+
+import com.mongodb.reactivestreams.client.ClientSession;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import it.unifi.simpletodoapp.model.Task;
+import it.unifi.simpletodoapp.repository.MembershipUpdate;
+import it.unifi.simpletodoapp.repository.TaskRepositoryException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class TaskReactiveMongoRepositoryTest {
+	private static final String DB_NAME = "todoappdb";
+	private static final String DB_COLLECTION = "tasks";
+	private static final int MONGO_PORT = 27017;
+
+	private MongoClient mongoClient;
+	private ClientSession clientSession;
+	private TaskReactiveMongoRepository taskRepository;
+	private MongoCollection<Document> taskCollection;
+
+	@ClassRule
+	public static final MongoDBContainer mongoContainer = new MongoDBContainer()
+	.withExposedPorts(MONGO_PORT);
+
+	@BeforeClass
+	public static void setupMongoLogger() {
+		LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+		Logger rootLogger = loggerContext.getLogger("org.mongodb.driver");
+		rootLogger.setLevel(Level.INFO);
+	}
+
+	@Before
+	public void setup() {
+		/* Creates the reactive mongo client, a session and the task repository,
+		 * blocking only here to empty the database before each test */
+		String mongoRsUrl = mongoContainer.getReplicaSetUrl();
+		mongoClient = MongoClients.create(mongoRsUrl);
+		clientSession = Mono.from(mongoClient.startSession()).block();
+
+		taskRepository = new TaskReactiveMongoRepository(mongoClient, DB_NAME, DB_COLLECTION);
+
+		MongoDatabase database = mongoClient.getDatabase(DB_NAME);
+
+		Mono.from(database.drop()).block();
+		taskRepository.ensureIndexes().block();
+		taskCollection = database.getCollection(DB_COLLECTION);
+	}
+
+	@After
+	public void tearDown() {
+		clientSession.close();
+		mongoClient.close();
+	}
+
+	@AfterClass
+	public static void stopContainer() {
+		mongoContainer.stop();
+	}
+
+	@Test
+	public void testFindAllEmitsTasksAsRequested() {
+		// Setup phase
+		addTaskToCollection(new Task("1", "Buy groceries"), Collections.emptyList());
+		addTaskToCollection(new Task("2", "Start using TDD"), Collections.emptyList());
+		addTaskToCollection(new Task("3", "Read a book"), Collections.emptyList());
+
+		// Exercise and verify phases
+		StepVerifier.create(taskRepository.findAll(clientSession), 1)
+		.expectNext(new Task("1", "Buy groceries"))
+		.thenRequest(2)
+		.expectNext(new Task("2", "Start using TDD"), new Task("3", "Read a book"))
+		.verifyComplete();
+	}
+
+	@Test
+	public void testFindByIdCompletesEmptyWhenTaskIsMissing() {
+		// Exercise and verify phases
+		StepVerifier.create(taskRepository.findById("1", clientSession))
+		.verifyComplete();
+	}
+
+	@Test
+	public void testSaveAndCount() {
+		// Setup phase
+		Task task = new Task("1", "Buy groceries");
+
+		// Exercise phase
+		taskRepository.save(task, clientSession).block();
+
+		// Verify phase
+		StepVerifier.create(taskRepository.findById(task.getId(), clientSession))
+		.expectNext(task)
+		.verifyComplete();
+		StepVerifier.create(taskRepository.count(clientSession))
+		.expectNext(1L)
+		.verifyComplete();
+	}
+
+	@Test
+	public void testSaveTaskWithDuplicatedIdFails() {
+		// Setup phase
+		addTaskToCollection(new Task("1", "Buy groceries"), Collections.emptyList());
+
+		// Exercise and verify phases
+		StepVerifier.create(taskRepository.save(new Task("1", "Start using TDD"), clientSession))
+		.expectErrorSatisfies(error -> assertThat(error)
+				.isInstanceOf(TaskRepositoryException.class)
+				.hasMessage("Cannot add task with duplicated ID 1"))
+		.verify();
+	}
+
+	@Test
+	public void testDelete() {
+		// Setup phase
+		Task task = new Task("1", "Buy groceries");
+		addTaskToCollection(task, Collections.emptyList());
+
+		// Exercise phase
+		taskRepository.delete(task, clientSession).block();
+
+		// Verify phase
+		StepVerifier.create(taskRepository.count(clientSession))
+		.expectNext(0L)
+		.verifyComplete();
+	}
+
+	@Test
+	public void testTagMembershipUpdates() {
+		// Setup phase
+		addTaskToCollection(new Task("1", "Buy groceries"), Collections.singletonList("1"));
+
+		// Exercise and verify phases
+		StepVerifier.create(taskRepository.addTagToTask("1", "2", clientSession))
+		.expectNext(MembershipUpdate.MODIFIED)
+		.verifyComplete();
+		StepVerifier.create(taskRepository.addTagToTask("1", "2", clientSession))
+		.expectNext(MembershipUpdate.NOT_MODIFIED)
+		.verifyComplete();
+		StepVerifier.create(taskRepository.removeTagFromTask("2", "1", clientSession))
+		.expectNext(MembershipUpdate.NOT_FOUND)
+		.verifyComplete();
+		StepVerifier.create(taskRepository.getTagsByTaskId("1", clientSession))
+		.expectNext("1", "2")
+		.verifyComplete();
+	}
+
+	@Test
+	public void testRemoveTagFromAllTasks() {
+		// Setup phase
+		addTaskToCollection(new Task("1", "Buy groceries"), Arrays.asList("1", "2"));
+		addTaskToCollection(new Task("2", "Start using TDD"), Collections.singletonList("1"));
+
+		// Exercise phase
+		taskRepository.removeTagFromAllTasks("1", clientSession).block();
+
+		// Verify phase
+		StepVerifier.create(taskRepository.getTagsByTaskId("1", clientSession))
+		.expectNext("2")
+		.verifyComplete();
+		StepVerifier.create(taskRepository.getTagsByTaskId("2", clientSession))
+		.verifyComplete();
+	}
+
+	private void addTaskToCollection(Task task, List<String> tags) {
+		// Private method to directly insert a task in the collection
+		Flux.from(taskCollection.insertOne(new Document()
+				.append("id", task.getId())
+				.append("description", task.getDescription())
+				.append("tags", tags)
+				))
+		.blockLast();
+	}
+}
@@ -0,0 +1,210 @@
+package it.unifi.simpletodoapp.repository.mongo.reactive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.MongoException;
+import com.mongodb.reactivestreams.client.ClientSession;
+import com.mongodb.reactivestreams.client.MongoClient;
+
+import it.unifi.simpletodoapp.repository.TaskRepositoryException;
+import it.unifi.simpletodoapp.repository.mongo.TransactionRetryPolicy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class TransactionManagerReactiveMongoTest {
+	@Mock
+	private MongoClient mongoClient;
+
+	@Mock
+	private ClientSession clientSession;
+
+	@Mock
+	private TaskReactiveMongoRepository taskRepository;
+
+	@Mock
+	private TagReactiveMongoRepository tagRepository;
+
+	private TransactionManagerReactiveMongo transactionManager;
+
+	@Before
+	public void setup() {
+		/* Every session is the same mock, whose transaction is active until it
+		 * is committed or aborted, both of which succeed */
+		MockitoAnnotations.initMocks(this);
+		when(mongoClient.startSession()).thenReturn(Mono.just(clientSession));
+		when(mongoClient.startSession(any(ClientSessionOptions.class))).thenReturn(Mono.just(clientSession));
+		when(clientSession.hasActiveTransaction()).thenReturn(true);
+		when(clientSession.commitTransaction()).thenReturn(Mono.empty());
+		when(clientSession.abortTransaction()).thenReturn(Mono.empty());
+		transactionManager = new TransactionManagerReactiveMongo(mongoClient, taskRepository, tagRepository);
+	}
+
+	@Test
+	public void testNothingRunsUntilSubscribed() {
+		// Exercise phase
+		transactionManager.doTaskTransaction((taskMongoRepository, session) -> Mono.just("task"));
+
+		// Verify phase
+		verify(mongoClient, never()).startSession();
+	}
+
+	@Test
+	public void testTransactionEmitsItsValuesOnceCommitted() {
+		// Exercise and verify phases
+		StepVerifier.create(transactionManager.doTagTransaction(
+				(tagMongoRepository, session) -> Flux.just("first", "second")))
+		.expectNext("first", "second")
+		.verifyComplete();
+		InOrder inOrder = inOrder(clientSession);
+		inOrder.verify(clientSession).startTransaction();
+		inOrder.verify(clientSession).commitTransaction();
+		inOrder.verify(clientSession).close();
+	}
+
+	@Test
+	public void testTransientErrorRetriesTheWholeTransaction() {
+		// Setup phase
+		AtomicInteger executions = new AtomicInteger();
+
+		// Exercise and verify phases
+		StepVerifier.create(transactionManager.doCompositeTransaction(
+				(taskMongoRepository, tagMongoRepository, session) -> executions.incrementAndGet() == 1
+				? Mono.error(labeledException(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL))
+						: Mono.just("composite")))
+		.expectNext("composite")
+		.verifyComplete();
+		verify(clientSession, times(2)).startTransaction();
+		verify(clientSession).abortTransaction();
+		verify(clientSession).commitTransaction();
+	}
+
+	@Test
+	public void testUnknownCommitResultOnlyRetriesTheCommit() {
+		// Setup phase
+		when(clientSession.commitTransaction())
+		.thenReturn(Mono.error(labeledException(MongoException.UNKNOWN_TRANSACTION_COMMIT_RESULT_LABEL)))
+		.thenReturn(Mono.empty());
+
+		// Exercise and verify phases
+		StepVerifier.create(transactionManager.doTaskTransaction((taskMongoRepository, session) -> Mono.just("task")))
+		.expectNext("task")
+		.verifyComplete();
+		verify(clientSession, times(2)).commitTransaction();
+		verify(clientSession, times(1)).startTransaction();
+	}
+
+	@Test
+	public void testRepositoryErrorAbortsTransactionAndIsPropagatedUnchanged() {
+		// Setup phase
+		TaskRepositoryException repositoryException = new TaskRepositoryException("No task with ID 1");
+
+		// Exercise and verify phases
+		StepVerifier.create(transactionManager.doTaskTransaction(
+				(taskMongoRepository, session) -> {
+					throw repositoryException;
+				}))
+		.expectErrorMatches(error -> error == repositoryException)
+		.verify();
+		verify(clientSession).abortTransaction();
+		verify(clientSession, never()).commitTransaction();
+		verify(clientSession).close();
+	}
+
+	@Test
+	public void testFailedTransactionKeepsCauseCodeAndLabels() {
+		// Setup phase
+		MongoException writeConflict = labeledException(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL);
+		transactionManager.useMaxAttempts(2);
+
+		// Exercise and verify phases
+		StepVerifier.create(transactionManager.doTagTransaction(
+				(tagMongoRepository, session) -> Mono.error(writeConflict)))
+		.expectErrorSatisfies(error -> {
+			MongoException exception = (MongoException) error;
+			assertThat(exception.getMessage())
+			.isEqualTo("Tag transaction failed, aborting");
+			assertThat(exception.getCause())
+			.isSameAs(writeConflict);
+			assertThat(exception.getCode())
+			.isEqualTo(112);
+			assertThat(exception.hasErrorLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL))
+			.isTrue();
+		})
+		.verify();
+		verify(clientSession, times(2)).startTransaction();
+	}
+
+	@Test
+	public void testTransientErrorIsNotRetriedOnceTheRetryBudgetIsExhausted() {
+		// Setup phase
+		TransactionRetryPolicy retryPolicy = new TransactionRetryPolicy(5, 1, 1, 0, 0.1);
+		transactionManager.useRetryPolicy(retryPolicy);
+
+		// Exercise and verify phases
+		StepVerifier.create(transactionManager.doTaskTransaction((taskMongoRepository, session) ->
+		Mono.error(labeledException(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL))))
+		.expectError(MongoException.class)
+		.verify();
+		verify(clientSession, times(1)).startTransaction();
+		assertThat(retryPolicy.getDeniedRetries())
+		.isEqualTo(1);
+	}
+
+	@Test
+	public void testCommitRetriesCountAsAttemptsOfTheTransaction() {
+		// Setup phase
+		when(clientSession.commitTransaction())
+		.thenReturn(Mono.error(labeledException(MongoException.UNKNOWN_TRANSACTION_COMMIT_RESULT_LABEL)));
+		transactionManager.useMaxAttempts(3);
+
+		// Exercise and verify phases
+		StepVerifier.create(transactionManager.doTaskTransaction((taskMongoRepository, session) -> Mono.just("task")))
+		.expectError(MongoException.class)
+		.verify();
+		verify(clientSession, times(3)).commitTransaction();
+	}
+
+	@Test
+	public void testReadEmitsAsRequestedAndClosesSessionWhenCancelled() {
+		// Exercise and verify phases
+		StepVerifier.create(transactionManager.doTaskRead(
+				(taskMongoRepository, session) -> Flux.range(1, 1000)), 2)
+		.expectNext(1, 2)
+		.thenCancel()
+		.verify();
+		verify(clientSession, never()).startTransaction();
+		verify(clientSession).close();
+	}
+
+	@Test
+	public void testNonPositiveAttemptsAreRejected() {
+		// Exercise and verify phases
+		assertThatThrownBy(() -> transactionManager.useMaxAttempts(0))
+		.isInstanceOf(IllegalArgumentException.class)
+		.hasMessage("Transaction attempts must be positive, got 0");
+	}
+
+	private MongoException labeledException(String label) {
+		// Private method to create an exception as labeled by the server
+		MongoException exception = new MongoException(112, "WriteConflict");
+		exception.addLabel(label);
+		return exception;
+	}
+}
@@ -0,0 +1,178 @@
+package it.unifi.simpletodoapp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import it.unifi.simpletodoapp.model.Tag;
+import it.unifi.simpletodoapp.model.Task;
+import it.unifi.simpletodoapp.repository.TagRepositoryException;
+
+public class AsyncTodoServiceTest {
+	@Mock
+	private TodoService todoService;
+
+	private List<Runnable> queuedOperations;
+	private AsyncTodoService asyncTodoService;
+
+	@Before
+	public void setup() {
+		// Operations are queued by the executor and run by the tests
+		MockitoAnnotations.initMocks(this);
+		queuedOperations = new ArrayList<>();
+		asyncTodoService = new AsyncTodoService(todoService, queuedOperations::add);
+	}
+
+	@Test
+	public void testReadRunsOnTheExecutorAndCompletesWithItsResult() throws Exception {
+		// Setup phase
+		List<Task> tasks = Arrays.asList(new Task("1", "Buy groceries"));
+		when(todoService.getAllTasks())
+		.thenReturn(tasks);
+
+		// Exercise phase
+		CompletableFuture<List<Task>> result = asyncTodoService.getAllTasks();
+
+		// Verify phase: nothing is read until the executor runs the operation
+		assertThat(result)
+		.isNotDone();
+		verifyNoInteractions(todoService);
+		runQueuedOperations();
+		assertThat(result.get())
+		.isSameAs(tasks);
+	}
+
+	@Test
+	public void testUpdateCompletesOnceDone() {
+		// Setup phase
+		Tag tag = new Tag("1", "Work");
+
+		// Exercise phase
+		CompletableFuture<Void> result = asyncTodoService.saveTag(tag);
+		runQueuedOperations();
+
+		// Verify phase
+		assertThat(result)
+		.isCompleted();
+		verify(todoService).saveTag(tag);
+	}
+
+	@Test
+	public void testErrorCompletesFutureExceptionally() {
+		// Setup phase
+		TagRepositoryException error = new TagRepositoryException("No tag with ID 1");
+		doThrow(error)
+		.when(todoService).addTagToTask("1", "1");
+
+		// Exercise phase
+		CompletableFuture<Void> result = asyncTodoService.addTagToTask("1", "1");
+		runQueuedOperations();
+
+		// Verify phase
+		ExecutionException exception = assertThrows(ExecutionException.class, result::get);
+		assertThat(exception.getCause())
+		.isSameAs(error);
+	}
+
+	@Test
+	public void testOperationsAreSentWithoutWaitingForEachOther() throws Exception {
+		// Setup phase
+		when(todoService.findTagsByTaskId("1"))
+		.thenReturn(Arrays.asList("1"));
+		when(todoService.findTasksByTagId("1"))
+		.thenReturn(Arrays.asList("2"));
+
+		// Exercise phase
+		CompletableFuture<List<String>> tags = asyncTodoService.findTagsByTaskId("1");
+		CompletableFuture<List<String>> tasks = asyncTodoService.findTasksByTagId("1");
+
+		// Verify phase
+		assertThat(queuedOperations)
+		.hasSize(2);
+		runQueuedOperations();
+		assertThat(tags.get())
+		.containsExactly("1");
+		assertThat(tasks.get())
+		.containsExactly("2");
+	}
+
+	@Test
+	public void testBoundedExecutorRunsOperationsOffTheCallingThread() throws Exception {
+		// Setup phase
+		ExecutorService executor = AsyncTodoService.newBoundedExecutor(2, 10);
+		asyncTodoService = new AsyncTodoService(todoService, executor);
+		AtomicReference<Thread> operationThread = new AtomicReference<>();
+		when(todoService.countTasks())
+		.thenAnswer(invocation -> {
+			operationThread.set(Thread.currentThread());
+			return 1L;
+		});
+
+		// Exercise phase
+		long count = asyncTodoService.countTasks().get(5, TimeUnit.SECONDS);
+
+		// Verify phase
+		assertThat(count)
+		.isEqualTo(1);
+		assertThat(operationThread.get())
+		.isNotSameAs(Thread.currentThread());
+		executor.shutdown();
+	}
+
+	@Test
+	public void testBoundedExecutorRejectsOperationsBeyondItsQueue() throws Exception {
+		// Setup phase: the only thread is busy and the queue holds one operation
+		ExecutorService executor = AsyncTodoService.newBoundedExecutor(1, 1);
+		asyncTodoService = new AsyncTodoService(todoService, executor);
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch started = new CountDownLatch(1);
+		when(todoService.countTasks())
+		.thenAnswer(invocation -> {
+			started.countDown();
+			release.await();
+			return 1L;
+		});
+		asyncTodoService.countTasks();
+		started.await(5, TimeUnit.SECONDS);
+		asyncTodoService.countTags();
+
+		// Exercise and verify phases
+		assertThrows(RejectedExecutionException.class, () -> asyncTodoService.getAllTasks());
+		release.countDown();
+		executor.shutdown();
+	}
+
+	@Test
+	public void testNonPositiveThreadsAreRejected() {
+		// Exercise and verify phases
+		IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+				() -> AsyncTodoService.newBoundedExecutor(0, 10));
+		assertThat(exception.getMessage())
+		.isEqualTo("Async threads must be positive, got 0");
+	}
+
+	private void runQueuedOperations() {
+		// Private method to run the operations as the executor would
+		queuedOperations.forEach(Runnable::run);
+		queuedOperations.clear();
+	}
+}
@@ -0,0 +1,192 @@
+package it.unifi.simpletodoapp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import it.unifi.simpletodoapp.model.Tag;
+import it.unifi.simpletodoapp.model.Task;
+import it.unifi.simpletodoapp.repository.TodoChangeListener;
+
+public class ChangeCoalescerTest {
+	@Mock
+	private TodoChangeListener listener;
+
+	private List<Runnable> deliveries;
+	private ChangeCoalescer changeCoalescer;
+
+	@Before
+	public void setup() {
+		/* Deliveries are queued, as if posted to a busy GUI thread, so that
+		 * tests decide which changes arrive before the listener runs */
+		MockitoAnnotations.initMocks(this);
+		deliveries = new ArrayList<>();
+		changeCoalescer = new ChangeCoalescer(listener, deliveries::add);
+	}
+
+	@Test
+	public void testChangeIsDeliveredThroughTheExecutor() {
+		// Setup phase
+		Task task = new Task("1", "Buy groceries");
+
+		// Exercise phase
+		changeCoalescer.taskAdded(task);
+
+		// Verify phase
+		verifyNoInteractions(listener);
+		deliver();
+		verify(listener).taskAdded(task);
+	}
+
+	@Test
+	public void testOnlyOneDeliveryIsPendingAtAnyTime() {
+		// Exercise phase
+		changeCoalescer.taskAdded(new Task("1", "Buy groceries"));
+		changeCoalescer.tagAdded(new Tag("1", "Work"));
+		changeCoalescer.taskAdded(new Task("2", "Start using TDD"));
+
+		// Verify phase
+		assertThat(deliveries)
+		.hasSize(1);
+	}
+
+	@Test
+	public void testChangeAfterDeliveryIsDeliveredAgain() {
+		// Setup phase
+		Task task = new Task("1", "Buy groceries");
+		changeCoalescer.taskAdded(task);
+		deliver();
+
+		// Exercise phase
+		changeCoalescer.taskDeleted(task);
+		deliver();
+
+		// Verify phase
+		InOrder inOrder = inOrder(listener);
+		inOrder.verify(listener).taskAdded(task);
+		inOrder.verify(listener).taskDeleted(task);
+		inOrder.verifyNoMoreInteractions();
+	}
+
+	@Test
+	public void testAddedAndChangedIsDeliveredAsAddedWithLatestValue() {
+		// Exercise phase
+		changeCoalescer.taskAdded(new Task("1", "Buy groceries"));
+		changeCoalescer.taskChanged(new Task("1", "Buy more groceries"));
+		deliver();
+
+		// Verify phase
+		verify(listener).taskAdded(new Task("1", "Buy more groceries"));
+		verify(listener, never()).taskChanged(any());
+	}
+
+	@Test
+	public void testAddedAndDeletedIsNotDelivered() {
+		// Setup phase
+		Tag tag = new Tag("1", "Work");
+
+		// Exercise phase
+		changeCoalescer.tagAdded(tag);
+		changeCoalescer.tagDeleted(tag);
+		deliver();
+
+		// Verify phase
+		verifyNoInteractions(listener);
+	}
+
+	@Test
+	public void testDeletedAndAddedAgainIsDeliveredAsChanged() {
+		// Exercise phase
+		changeCoalescer.tagDeleted(new Tag("1", "Work"));
+		changeCoalescer.tagAdded(new Tag("1", "Home"));
+		deliver();
+
+		// Verify phase
+		InOrder inOrder = inOrder(listener);
+		inOrder.verify(listener).tagChanged(new Tag("1", "Home"));
+		inOrder.verifyNoMoreInteractions();
+	}
+
+	@Test
+	public void testAssignedAndUnassignedIsNotDelivered() {
+		// Setup phase
+		Task task = new Task("1", "Buy groceries");
+		Tag tag = new Tag("1", "Work");
+
+		// Exercise phase
+		changeCoalescer.tagAssigned(task, tag);
+		changeCoalescer.tagUnassigned(task, tag);
+		changeCoalescer.tagUnassigned(task, new Tag("2", "Home"));
+		changeCoalescer.tagAssigned(task, new Tag("2", "Home"));
+		deliver();
+
+		// Verify phase
+		verifyNoInteractions(listener);
+	}
+
+	@Test
+	public void testSavesAreDeliveredBeforeAssignmentsAndDeletionsAfter() {
+		// Setup phase
+		Task newTask = new Task("1", "Buy groceries");
+		Task oldTask = new Task("2", "Start using TDD");
+		Tag newTag = new Tag("1", "Work");
+		Tag oldTag = new Tag("2", "Home");
+
+		// Exercise phase
+		changeCoalescer.tagUnassigned(oldTask, oldTag);
+		changeCoalescer.tagDeleted(oldTag);
+		changeCoalescer.taskDeleted(oldTask);
+		changeCoalescer.taskAdded(newTask);
+		changeCoalescer.tagAdded(newTag);
+		changeCoalescer.tagAssigned(newTask, newTag);
+		deliver();
+
+		// Verify phase
+		InOrder inOrder = inOrder(listener);
+		inOrder.verify(listener).tagAdded(newTag);
+		inOrder.verify(listener).taskAdded(newTask);
+		inOrder.verify(listener).tagUnassigned(oldTask, oldTag);
+		inOrder.verify(listener).tagAssigned(newTask, newTag);
+		inOrder.verify(listener).taskDeleted(oldTask);
+		inOrder.verify(listener).tagDeleted(oldTag);
+		inOrder.verifyNoMoreInteractions();
+	}
+
+	@Test
+	public void testChangesLostDiscardsPendingChangesAndIsDeliveredFirst() {
+		// Setup phase
+		Task task = new Task("1", "Buy groceries");
+		Tag tag = new Tag("1", "Work");
+
+		// Exercise phase
+		changeCoalescer.taskAdded(task);
+		changeCoalescer.changesLost();
+		changeCoalescer.tagAdded(tag);
+		deliver();
+
+		// Verify phase
+		InOrder inOrder = inOrder(listener);
+		inOrder.verify(listener).changesLost();
+		inOrder.verify(listener).tagAdded(tag);
+		inOrder.verifyNoMoreInteractions();
+	}
+
+	private void deliver() {
+		// Private method to run the queued deliveries, including the ones they queue
+		while (!deliveries.isEmpty()) {
+			deliveries.remove(0).run();
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package it.unifi.simpletodoapp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class DisabledEntityCacheTest {
+	private DisabledEntityCache<String> disabledEntityCache = new DisabledEntityCache<>();
+
+	@Test
+	public void testPutEntityIsNeverReturned() {
+		// Exercise phase
+		disabledEntityCache.put("1", "Buy groceries");
+
+		// Verify phase
+		assertThat(disabledEntityCache.get("1"))
+		.isNull();
+	}
+
+	@Test
+	public void testLoadedEntityIsNeverReturned() {
+		// Exercise phase
+		long loadStamp = disabledEntityCache.beginLoad("1");
+		disabledEntityCache.endLoad("1", "Buy groceries", loadStamp);
+
+		// Verify phase
+		assertThat(disabledEntityCache.get("1"))
+		.isNull();
+	}
+
+	@Test
+	public void testCountersAreAlwaysZero() {
+		// Exercise phase
+		disabledEntityCache.put("1", "Buy groceries");
+		disabledEntityCache.get("1");
+		disabledEntityCache.invalidate("1");
+		disabledEntityCache.invalidateAll();
+
+		// Verify phase
+		assertThat(disabledEntityCache.getHits())
+		.isZero();
+		assertThat(disabledEntityCache.getMisses())
+		.isZero();
+		assertThat(disabledEntityCache.getEvictions())
+		.isZero();
+	}
+}
@@ -0,0 +1,112 @@
+package it.unifi.simpletodoapp.service;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import it.unifi.simpletodoapp.model.Tag;
+import it.unifi.simpletodoapp.model.Task;
+
+public class EntityCacheInvalidatorTest {
+	@Mock
+	private EntityCache<Task> taskCache;
+
+	@Mock
+	private EntityCache<Tag> tagCache;
+
+	private EntityCacheInvalidator entityCacheInvalidator;
+
+	@Before
+	public void setup() {
+		MockitoAnnotations.initMocks(this);
+		entityCacheInvalidator = new EntityCacheInvalidator(taskCache, tagCache);
+	}
+
+	@Test
+	public void testTaskAddedInvalidatesTask() {
+		// Exercise phase
+		entityCacheInvalidator.taskAdded(new Task("1", "Buy groceries"));
+
+		// Verify phase
+		verify(taskCache).invalidate("1");
+		verifyNoInteractions(tagCache);
+	}
+
+	@Test
+	public void testTaskChangedInvalidatesTask() {
+		// Exercise phase
+		entityCacheInvalidator.taskChanged(new Task("1", "Buy groceries"));
+
+		// Verify phase
+		verify(taskCache).invalidate("1");
+		verifyNoInteractions(tagCache);
+	}
+
+	@Test
+	public void testTaskDeletedInvalidatesTask() {
+		// Exercise phase
+		entityCacheInvalidator.taskDeleted(new Task("1", "Buy groceries"));
+
+		// Verify phase
+		verify(taskCache).invalidate("1");
+		verifyNoInteractions(tagCache);
+	}
+
+	@Test
+	public void testTagAddedInvalidatesTag() {
+		// Exercise phase
+		entityCacheInvalidator.tagAdded(new Tag("1", "Work"));
+
+		// Verify phase
+		verify(tagCache).invalidate("1");
+		verifyNoInteractions(taskCache);
+	}
+
+	@Test
+	public void testTagChangedInvalidatesTag() {
+		// Exercise phase
+		entityCacheInvalidator.tagChanged(new Tag("1", "Work"));
+
+		// Verify phase
+		verify(tagCache).invalidate("1");
+		verifyNoInteractions(taskCache);
+	}
+
+	@Test
+	public void testTagDeletedInvalidatesTag() {
+		// Exercise phase
+		entityCacheInvalidator.tagDeleted(new Tag("1", "Work"));
+
+		// Verify phase
+		verify(tagCache).invalidate("1");
+		verifyNoInteractions(taskCache);
+	}
+
+	@Test
+	public void testAssignmentsDoNotInvalidateCaches() {
+		// Setup phase
+		Task task = new Task("1", "Buy groceries");
+		Tag tag = new Tag("1", "Work");
+
+		// Exercise phase
+		entityCacheInvalidator.tagAssigned(task, tag);
+		entityCacheInvalidator.tagUnassigned(task, tag);
+
+		// Verify phase
+		verifyNoInteractions(taskCache, tagCache);
+	}
+
+	@Test
+	public void testChangesLostInvalidatesBothCaches() {
+		// Exercise phase
+		entityCacheInvalidator.changesLost();
+
+		// Verify phase
+		verify(taskCache).invalidateAll();
+		verify(tagCache).invalidateAll();
+	}
+}
@@ -0,0 +1,190 @@
+package it.unifi.simpletodoapp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class LruEntityCacheTest {
+	private static final int MAX_SIZE = 2;
+
+	private LruEntityCache<String> lruEntityCache;
+
+	@Before
+	public void setup() {
+		lruEntityCache = new LruEntityCache<>(MAX_SIZE);
+	}
+
+	@Test
+	public void testGetOfCachedEntityCountsHit() {
+		// Setup phase
+		lruEntityCache.put("1", "Buy groceries");
+
+		// Exercise phase
+		String entity = lruEntityCache.get("1");
+
+		// Verify phase
+		assertThat(entity)
+		.isEqualTo("Buy groceries");
+		assertThat(lruEntityCache.getHits())
+		.isEqualTo(1);
+		assertThat(lruEntityCache.getMisses())
+		.isZero();
+	}
+
+	@Test
+	public void testGetOfMissingEntityCountsMiss() {
+		// Exercise phase
+		String entity = lruEntityCache.get("1");
+
+		// Verify phase
+		assertThat(entity)
+		.isNull();
+		assertThat(lruEntityCache.getMisses())
+		.isEqualTo(1);
+		assertThat(lruEntityCache.getHits())
+		.isZero();
+	}
+
+	@Test
+	public void testInvalidateRemovesEntity() {
+		// Setup phase
+		lruEntityCache.put("1", "Buy groceries");
+
+		// Exercise phase
+		lruEntityCache.invalidate("1");
+
+		// Verify phase
+		assertThat(lruEntityCache.get("1"))
+		.isNull();
+		assertThat(lruEntityCache.size())
+		.isZero();
+	}
+
+	@Test
+	public void testInvalidateAllRemovesAllEntities() {
+		// Setup phase
+		lruEntityCache.put("1", "Buy groceries");
+		lruEntityCache.put("2", "Start using TDD");
+
+		// Exercise phase
+		lruEntityCache.invalidateAll();
+
+		// Verify phase
+		assertThat(lruEntityCache.size())
+		.isZero();
+		assertThat(lruEntityCache.getEvictions())
+		.isZero();
+	}
+
+	@Test
+	public void testPutOfCachedEntityReplacesItWithoutEvictions() {
+		// Setup phase
+		lruEntityCache.put("1", "Buy groceries");
+		lruEntityCache.put("2", "Start using TDD");
+
+		// Exercise phase
+		lruEntityCache.put("1", "Buy more groceries");
+
+		// Verify phase
+		assertThat(lruEntityCache.get("1"))
+		.isEqualTo("Buy more groceries");
+		assertThat(lruEntityCache.size())
+		.isEqualTo(MAX_SIZE);
+		assertThat(lruEntityCache.getEvictions())
+		.isZero();
+	}
+
+	@Test
+	public void testPutBeyondMaxSizeEvictsLeastRecentlyUsedEntity() {
+		// Setup phase
+		lruEntityCache.put("1", "Buy groceries");
+		lruEntityCache.put("2", "Start using TDD");
+		lruEntityCache.get("1");
+
+		// Exercise phase
+		lruEntityCache.put("3", "Write the report");
+
+		// Verify phase
+		assertThat(lruEntityCache.size())
+		.isEqualTo(MAX_SIZE);
+		assertThat(lruEntityCache.getEvictions())
+		.isEqualTo(1);
+		assertThat(lruEntityCache.get("2"))
+		.isNull();
+		assertThat(lruEntityCache.get("1"))
+		.isEqualTo("Buy groceries");
+		assertThat(lruEntityCache.get("3"))
+		.isEqualTo("Write the report");
+	}
+
+	@Test
+	public void testEndLoadCachesEntityNotInvalidatedDuringTheLoad() {
+		// Setup phase
+		long loadStamp = lruEntityCache.beginLoad("1");
+		lruEntityCache.invalidate("2");
+
+		// Exercise phase
+		lruEntityCache.endLoad("1", "Buy groceries", loadStamp);
+
+		// Verify phase
+		assertThat(lruEntityCache.get("1"))
+		.isEqualTo("Buy groceries");
+	}
+
+	@Test
+	public void testEndLoadDoesNotCacheEntityInvalidatedDuringTheLoad() {
+		// Setup phase
+		long loadStamp = lruEntityCache.beginLoad("1");
+		lruEntityCache.invalidate("1");
+
+		// Exercise phase
+		lruEntityCache.endLoad("1", "Stale groceries", loadStamp);
+
+		// Verify phase
+		assertThat(lruEntityCache.get("1"))
+		.isNull();
+	}
+
+	@Test
+	public void testEndLoadDoesNotCacheEntityLoadedBeforeInvalidateAll() {
+		// Setup phase
+		long loadStamp = lruEntityCache.beginLoad("1");
+		lruEntityCache.invalidateAll();
+
+		// Exercise phase
+		lruEntityCache.endLoad("1", "Stale groceries", loadStamp);
+
+		// Verify phase
+		assertThat(lruEntityCache.get("1"))
+		.isNull();
+	}
+
+	@Test
+	public void testInvalidationIsForgottenOnceTheLastLoadEnds() {
+		// Setup phase
+		long firstLoadStamp = lruEntityCache.beginLoad("1");
+		long secondLoadStamp = lruEntityCache.beginLoad("1");
+		lruEntityCache.invalidate("1");
+		lruEntityCache.endLoad("1", "Stale groceries", firstLoadStamp);
+		lruEntityCache.endLoad("1", "Stale groceries", secondLoadStamp);
+
+		// Exercise phase
+		long loadStamp = lruEntityCache.beginLoad("1");
+		lruEntityCache.endLoad("1", "Buy groceries", loadStamp);
+
+		// Verify phase
+		assertThat(lruEntityCache.get("1"))
+		.isEqualTo("Buy groceries");
+	}
+
+	@Test
+	public void testNonPositiveMaxSizeIsRejected() {
+		// Exercise and verify phases
+		IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+				() -> new LruEntityCache<>(0));
+		assertThat(exception.getMessage())
+		.isEqualTo("Cache size must be positive, got 0");
+	}
+}
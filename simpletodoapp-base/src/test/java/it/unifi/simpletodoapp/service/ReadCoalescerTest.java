@@ -0,0 +1,174 @@
+package it.unifi.simpletodoapp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import it.unifi.simpletodoapp.repository.TaskRepositoryException;
+
+public class ReadCoalescerTest {
+	private static final long TIMEOUT_SECONDS = 5;
+
+	private ReadCoalescer readCoalescer;
+	private ExecutorService executor;
+	private CountDownLatch readStarted;
+	private CountDownLatch readReleased;
+	private AtomicInteger reads;
+
+	@Before
+	public void setup() {
+		readCoalescer = new ReadCoalescer();
+		executor = Executors.newCachedThreadPool();
+		readStarted = new CountDownLatch(1);
+		readReleased = new CountDownLatch(1);
+		reads = new AtomicInteger();
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testSequentialReadsAreAllExecuted() {
+		// Exercise phase
+		readCoalescer.execute("key", () -> reads.incrementAndGet());
+		readCoalescer.execute("key", () -> reads.incrementAndGet());
+
+		// Verify phase
+		assertThat(reads.get())
+		.isEqualTo(2);
+		assertThat(readCoalescer.getExecutedReads())
+		.isEqualTo(2);
+		assertThat(readCoalescer.getCoalescedReads())
+		.isZero();
+	}
+
+	@Test
+	public void testConcurrentIdenticalReadsShareTheResult() throws Exception {
+		// Setup phase
+		CompletableFuture<String> leader = startRead("key", () -> "Buy groceries");
+
+		// Exercise phase
+		CompletableFuture<String> follower = startWaitingRead("key");
+		readReleased.countDown();
+
+		// Verify phase
+		assertThat(leader.get(TIMEOUT_SECONDS, TimeUnit.SECONDS))
+		.isEqualTo("Buy groceries");
+		assertThat(follower.get(TIMEOUT_SECONDS, TimeUnit.SECONDS))
+		.isEqualTo("Buy groceries");
+		assertThat(reads.get())
+		.isEqualTo(1);
+		assertThat(readCoalescer.getExecutedReads())
+		.isEqualTo(1);
+		assertThat(readCoalescer.getCoalescedReads())
+		.isEqualTo(1);
+	}
+
+	@Test
+	public void testConcurrentReadsWithDifferentKeysAreBothExecuted() {
+		// Setup phase
+		startRead("key", () -> "Buy groceries");
+
+		// Exercise phase
+		String result = readCoalescer.execute("other key", () -> "Start using TDD");
+		readReleased.countDown();
+
+		// Verify phase
+		assertThat(result)
+		.isEqualTo("Start using TDD");
+		assertThat(readCoalescer.getCoalescedReads())
+		.isZero();
+	}
+
+	@Test
+	public void testExceptionOfTheLeaderIsRethrownUnchangedToWaiters() throws Exception {
+		// Setup phase
+		TaskRepositoryException exception = new TaskRepositoryException("No task with ID 1");
+		CompletableFuture<String> leader = startRead("key", () -> {
+			throw exception;
+		});
+
+		// Exercise phase
+		CompletableFuture<String> follower = startWaitingRead("key");
+		readReleased.countDown();
+
+		// Verify phase
+		ExecutionException leaderException = assertThrows(ExecutionException.class,
+				() -> leader.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+		assertThat(leaderException.getCause())
+		.isSameAs(exception);
+		ExecutionException followerException = assertThrows(ExecutionException.class,
+				() -> follower.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+		assertThat(followerException.getCause())
+		.isSameAs(exception);
+	}
+
+	@Test
+	public void testReadsStartedAfterForgettingAreNotShared() throws Exception {
+		// Setup phase
+		CompletableFuture<String> leader = startRead("key", () -> "Buy groceries");
+
+		// Exercise phase
+		readCoalescer.forgetReadsInFlight();
+		String result = readCoalescer.execute("key", () -> "Start using TDD");
+		readReleased.countDown();
+
+		// Verify phase
+		assertThat(result)
+		.isEqualTo("Start using TDD");
+		assertThat(leader.get(TIMEOUT_SECONDS, TimeUnit.SECONDS))
+		.isEqualTo("Buy groceries");
+		assertThat(readCoalescer.getExecutedReads())
+		.isEqualTo(2);
+	}
+
+	private CompletableFuture<String> startRead(String key, Supplier<String> read) {
+		/* Private method to start a read that stays in flight until released,
+		 * returning once it has started */
+		CompletableFuture<String> result = CompletableFuture.supplyAsync(
+				() -> readCoalescer.execute(key, () -> {
+					reads.incrementAndGet();
+					readStarted.countDown();
+					awaitUninterruptibly(readReleased);
+					return read.get();
+				}), executor);
+		awaitUninterruptibly(readStarted);
+		return result;
+	}
+
+	private CompletableFuture<String> startWaitingRead(String key) {
+		/* Private method to start an identical read, returning once it waits
+		 * for the one in flight */
+		long coalescedReads = readCoalescer.getCoalescedReads();
+		CompletableFuture<String> result = CompletableFuture.supplyAsync(
+				() -> readCoalescer.execute(key, () -> "Not shared"), executor);
+
+		while (readCoalescer.getCoalescedReads() == coalescedReads)
+			Thread.yield();
+
+		return result;
+	}
+
+	private void awaitUninterruptibly(CountDownLatch latch) {
+		try {
+			assertThat(latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS))
+			.isTrue();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
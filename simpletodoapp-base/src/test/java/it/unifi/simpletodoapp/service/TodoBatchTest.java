@@ -0,0 +1,174 @@
+package it.unifi.simpletodoapp.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.AdditionalAnswers.answer;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.mongodb.MongoException;
+
+import it.unifi.simpletodoapp.model.Tag;
+import it.unifi.simpletodoapp.model.Task;
+import it.unifi.simpletodoapp.repository.CompositeTransactionCode;
+import it.unifi.simpletodoapp.repository.MembershipUpdate;
+import it.unifi.simpletodoapp.repository.TagRepository;
+import it.unifi.simpletodoapp.repository.TagRepositoryException;
+import it.unifi.simpletodoapp.repository.TaskRepository;
+import it.unifi.simpletodoapp.repository.TaskTransactionCode;
+import it.unifi.simpletodoapp.repository.TransactionManager;
+
+public class TodoBatchTest {
+	@Mock
+	private TransactionManager transactionManager;
+
+	@Mock
+	private TaskRepository taskRepository;
+
+	@Mock
+	private TagRepository tagRepository;
+
+	@InjectMocks
+	private TodoService todoService;
+
+	@Before
+	public void setUp() {
+		// Composite transactions and task reads run their code on the mocked repositories
+		MockitoAnnotations.initMocks(this);
+		when(transactionManager.doCompositeTransaction(any()))
+		.thenAnswer(answer(
+				(CompositeTransactionCode<?> code) -> code.apply(taskRepository, tagRepository)
+				));
+		when(transactionManager.doTaskRead(any()))
+		.thenAnswer(answer(
+				(TaskTransactionCode<?> code) -> code.apply(taskRepository)
+				));
+	}
+
+	@Test
+	public void testOperationsRunInOrderInOneCompositeTransaction() {
+		// Setup phase
+		Task task = new Task("1", "Buy groceries");
+		Tag tag = new Tag("1", "Shopping");
+		when(taskRepository.addTagToTask(task.getId(), tag.getId()))
+		.thenReturn(MembershipUpdate.MODIFIED);
+		when(tagRepository.addTaskToTag(tag.getId(), task.getId()))
+		.thenReturn(MembershipUpdate.MODIFIED);
+		TodoBatch batch = todoService.newBatch()
+				.saveTask(task)
+				.saveTag(tag)
+				.addTagToTask(task.getId(), tag.getId());
+
+		// Exercise phase
+		batch.commit();
+
+		// Verify phase
+		InOrder inOrder = inOrder(transactionManager, taskRepository, tagRepository);
+		inOrder.verify(transactionManager).doCompositeTransaction(any());
+		inOrder.verify(taskRepository).save(task);
+		inOrder.verify(tagRepository).save(tag);
+		inOrder.verify(taskRepository).addTagToTask(task.getId(), tag.getId());
+		inOrder.verify(tagRepository).addTaskToTag(tag.getId(), task.getId());
+		assertThat(batch.size())
+		.isEqualTo(3);
+		assertThat(batch.getFailedOperation())
+		.isEqualTo(-1);
+	}
+
+	@Test
+	public void testFailedOperationAbortsBatchWithItsOwnError() {
+		// Setup phase
+		Task task = new Task("1", "Buy groceries");
+		Tag tag = new Tag("1", "Shopping");
+		when(tagRepository.findById(tag.getId()))
+		.thenReturn(null);
+		TodoBatch batch = todoService.newBatch()
+				.saveTask(task)
+				.deleteTag(tag)
+				.deleteTask(task);
+
+		// Exercise phase
+		TagRepositoryException exception = assertThrows(TagRepositoryException.class, batch::commit);
+
+		// Verify phase: the error is the one of the operation run on its own
+		assertThat(exception.getMessage())
+		.isEqualTo("Tag with ID " + tag.getId() + " has already been deleted");
+		assertThat(batch.getFailedOperation())
+		.isEqualTo(1);
+		verify(taskRepository, never()).delete(task);
+	}
+
+	@Test
+	public void testFailedCommitIsNotAttributedToAnOperation() {
+		// Setup phase
+		Task task = new Task("1", "Buy groceries");
+		TodoBatch batch = todoService.newBatch()
+				.saveTask(task);
+		doThrow(new MongoException("Composite transaction failed, aborting"))
+		.when(transactionManager).doCompositeTransaction(any());
+
+		// Exercise phase
+		assertThrows(MongoException.class, batch::commit);
+
+		// Verify phase
+		assertThat(batch.getFailedOperation())
+		.isEqualTo(-1);
+	}
+
+	@Test
+	public void testEmptyBatchDoesNotStartTransaction() {
+		// Exercise phase
+		todoService.newBatch().commit();
+
+		// Verify phase
+		verifyNoInteractions(transactionManager);
+	}
+
+	@Test
+	public void testBatchCannotBeModifiedOrCommittedOnceCommitted() {
+		// Setup phase
+		TodoBatch batch = todoService.newBatch();
+		batch.commit();
+
+		// Exercise and verify phases
+		assertThatThrownBy(() -> batch.saveTask(new Task("1", "Buy groceries")))
+		.isInstanceOf(IllegalStateException.class)
+		.hasMessage("Batch has already been committed");
+		assertThatThrownBy(batch::commit)
+		.isInstanceOf(IllegalStateException.class)
+		.hasMessage("Batch has already been committed");
+	}
+
+	@Test
+	public void testCommitInvalidatesCachedTasksAndTags() {
+		// Setup phase
+		todoService.useEntityCaches(new LruEntityCache<>(10), new LruEntityCache<>(10));
+		Task task = new Task("1", "Buy groceries");
+		when(taskRepository.findById(task.getId()))
+		.thenReturn(task);
+		todoService.findTaskById(task.getId());
+
+		// Exercise phase
+		todoService.newBatch()
+		.saveTask(task)
+		.commit();
+		todoService.findTaskById(task.getId());
+
+		// Verify phase
+		verify(taskRepository, times(2)).findById(task.getId());
+	}
+}
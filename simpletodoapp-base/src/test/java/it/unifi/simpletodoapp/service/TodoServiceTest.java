@@ -4,50 +4,65 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertThrows;
 import static org.mockito.AdditionalAnswers.answer;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
-import com.mongodb.client.ClientSession;
-
+import it.unifi.simpletodoapp.model.Page;
 import it.unifi.simpletodoapp.model.Tag;
 import it.unifi.simpletodoapp.model.Task;
 import it.unifi.simpletodoapp.repository.CompositeTransactionCode;
+import it.unifi.simpletodoapp.repository.MembershipUpdate;
+import it.unifi.simpletodoapp.repository.TagRepository;
 import it.unifi.simpletodoapp.repository.TagRepositoryException;
 import it.unifi.simpletodoapp.repository.TagTransactionCode;
+import it.unifi.simpletodoapp.repository.TaskRepository;
 import it.unifi.simpletodoapp.repository.TaskRepositoryException;
 import it.unifi.simpletodoapp.repository.TaskTransactionCode;
+import it.unifi.simpletodoapp.repository.TodoChangeListener;
+import it.unifi.simpletodoapp.repository.TodoChangeSource;
 import it.unifi.simpletodoapp.repository.TransactionManager;
-import it.unifi.simpletodoapp.repository.mongo.TagMongoRepository;
-import it.unifi.simpletodoapp.repository.mongo.TaskMongoRepository;
 
 public class TodoServiceTest {
 	@Mock
 	private TransactionManager transactionManager;
 
 	@Mock
-	private TaskMongoRepository taskRepository;
+	private TaskRepository taskRepository;
+
+	@Mock
+	private TagRepository tagRepository;
 
 	@Mock
-	private TagMongoRepository tagRepository;
+	private TodoChangeSource todoChangeSource;
+
+	@Mock
+	private TodoChangeListener todoChangeListener;
 
 	@InjectMocks
 	private TodoService todoService;
 
-	private ClientSession clientSession;
-
 	@Before
 	public void setUp() {
 		/* Initializes all annotated fields (transactionManager, taskRepository)
@@ -58,15 +73,27 @@ public class TodoServiceTest {
 		 * duplication, since each method would have the same stub in every test*/
 		when(transactionManager.doTaskTransaction(any()))
 		.thenAnswer(answer(
-				(TaskTransactionCode<?> code) -> code.apply(taskRepository, clientSession)
+				(TaskTransactionCode<?> code) -> code.apply(taskRepository)
 				));
 		when(transactionManager.doTagTransaction(any()))
 		.thenAnswer(answer(
-				(TagTransactionCode<?> code) -> code.apply(tagRepository, clientSession)
+				(TagTransactionCode<?> code) -> code.apply(tagRepository)
 				));
 		when(transactionManager.doCompositeTransaction(any()))
 		.thenAnswer(answer(
-				(CompositeTransactionCode<?> code) -> code.apply(taskRepository, tagRepository, clientSession)
+				(CompositeTransactionCode<?> code) -> code.apply(taskRepository, tagRepository)
+				));
+		when(transactionManager.doTaskRead(any()))
+		.thenAnswer(answer(
+				(TaskTransactionCode<?> code) -> code.apply(taskRepository)
+				));
+		when(transactionManager.doTagRead(any()))
+		.thenAnswer(answer(
+				(TagTransactionCode<?> code) -> code.apply(tagRepository)
+				));
+		when(transactionManager.doCompositeRead(any()))
+		.thenAnswer(answer(
+				(CompositeTransactionCode<?> code) -> code.apply(taskRepository, tagRepository)
 				));
 	}
 
@@ -76,7 +103,7 @@ public class TodoServiceTest {
 		List<Task> tasks = Arrays.asList(
 				new Task("1", "Buy groceries"),
 				new Task("2", "Start using TDD"));
-		when(taskRepository.findAll(clientSession))
+		when(taskRepository.findAll())
 		.thenReturn(tasks);
 
 		// Exercise phase
@@ -84,19 +111,124 @@ public class TodoServiceTest {
 
 		// Verify phase: we also verify the order of the invocation
 		InOrder inOrder = inOrder(transactionManager, taskRepository);
-		inOrder.verify(transactionManager).doTaskTransaction(any());
-		inOrder.verify(taskRepository).findAll(clientSession);
+		inOrder.verify(transactionManager).doTaskRead(any());
+		inOrder.verify(taskRepository).findAll();
 		inOrder.verifyNoMoreInteractions();
 
 		assertThat(tasks)
 		.isEqualTo(retrievedTasks);
 	}
 
+	@Test
+	public void testStreamAllTasks() {
+		// Setup phase
+		AtomicBoolean streamClosed = new AtomicBoolean(false);
+		Stream<Task> tasks = Stream.of(
+				new Task("1", "Buy groceries"),
+				new Task("2", "Start using TDD"))
+				.onClose(() -> streamClosed.set(true));
+		when(taskRepository.streamAll(100))
+		.thenReturn(tasks);
+
+		// Exercise phase
+		long taskCount = todoService.streamAllTasks(100, Stream::count);
+
+		// Verify phase: we also verify the order of the invocation and that the stream is closed
+		InOrder inOrder = inOrder(transactionManager, taskRepository);
+		inOrder.verify(transactionManager).doTaskRead(any());
+		inOrder.verify(taskRepository).streamAll(100);
+		inOrder.verifyNoMoreInteractions();
+
+		assertThat(taskCount)
+		.isEqualTo(2);
+		assertThat(streamClosed)
+		.isTrue();
+	}
+
+	@Test
+	public void testCountTasks() {
+		// Setup phase
+		when(taskRepository.count())
+		.thenReturn(42L);
+
+		// Exercise phase
+		long taskCount = todoService.countTasks();
+
+		// Verify phase: we also verify the order of the invocation
+		InOrder inOrder = inOrder(transactionManager, taskRepository);
+		inOrder.verify(transactionManager).doTaskRead(any());
+		inOrder.verify(taskRepository).count();
+		inOrder.verifyNoMoreInteractions();
+
+		assertThat(taskCount)
+		.isEqualTo(42L);
+	}
+
+	@Test
+	public void testGetTasksPage() {
+		// Setup phase
+		Page<Task> page = new Page<>(Collections.singletonList(new Task("2", "Buy groceries")), "2");
+		when(taskRepository.findPage("1", 1))
+		.thenReturn(page);
+
+		// Exercise phase
+		Page<Task> retrievedPage = todoService.getTasksPage("1", 1);
+
+		// Verify phase: we also verify the order of the invocation
+		InOrder inOrder = inOrder(transactionManager, taskRepository);
+		inOrder.verify(transactionManager).doTaskRead(any());
+		inOrder.verify(taskRepository).findPage("1", 1);
+		inOrder.verifyNoMoreInteractions();
+
+		assertThat(retrievedPage)
+		.isEqualTo(page);
+	}
+
+	@Test
+	public void testGetTasksPageAt() {
+		// Setup phase
+		Page<Task> page = new Page<>(Collections.singletonList(new Task("3", "Buy groceries")), "3");
+		when(taskRepository.findPageAt(2, 1))
+		.thenReturn(page);
+
+		// Exercise phase
+		Page<Task> retrievedPage = todoService.getTasksPageAt(2, 1);
+
+		// Verify phase: we also verify the order of the invocation
+		InOrder inOrder = inOrder(transactionManager, taskRepository);
+		inOrder.verify(transactionManager).doTaskRead(any());
+		inOrder.verify(taskRepository).findPageAt(2, 1);
+		inOrder.verifyNoMoreInteractions();
+
+		assertThat(retrievedPage)
+		.isEqualTo(page);
+	}
+
+	@Test
+	public void testGetTasksPageWithNonPositiveLimit() {
+		// Exercise and verify phases (no setup phase needed)
+		IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+				() -> todoService.getTasksPage(null, 0));
+		assertThat(exception.getMessage())
+		.isEqualTo("Page limit must be positive, got 0");
+		verifyNoMoreInteractions(transactionManager);
+	}
+
+	@Test
+	public void testGetTasksPageAtNegativeOffset() {
+		// Exercise and verify phases (no setup phase needed)
+		IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+				() -> todoService.getTasksPageAt(-1, 1));
+		assertThat(exception.getMessage())
+		.isEqualTo("Page offset must not be negative, got -1");
+		verifyNoMoreInteractions(transactionManager);
+	}
+
 	@Test
 	public void testFindTaskById() {
 		// Setup phase
 		Task task = new Task("1", "Buy groceries");
-		when(taskRepository.findById(task.getId(), clientSession))
+		when(taskRepository.findById(task.getId()))
 		.thenReturn(task);
 
 		// Exercise phase
@@ -104,14 +236,37 @@ public class TodoServiceTest {
 
 		// Verify phase: we also verify the order of the invocation
 		InOrder inOrder = inOrder(transactionManager, taskRepository);
-		inOrder.verify(transactionManager).doTaskTransaction(any());
-		inOrder.verify(taskRepository).findById(task.getId(), clientSession);
+		inOrder.verify(transactionManager).doTaskRead(any());
+		inOrder.verify(taskRepository).findById(task.getId());
 		inOrder.verifyNoMoreInteractions();
 
 		assertThat(task)
 		.isEqualTo(retrievedTask);
 	}
 
+	@Test
+	public void testFindTasksByIds() {
+		// Setup phase
+		List<String> taskIds = Arrays.asList("2", "1");
+		List<Task> tasks = Arrays.asList(
+				new Task("2", "Start using TDD"),
+				new Task("1", "Buy groceries"));
+		when(taskRepository.findByIds(taskIds))
+		.thenReturn(tasks);
+
+		// Exercise phase
+		List<Task> retrievedTasks = todoService.findTasksByIds(taskIds);
+
+		// Verify phase: we also verify the order of the invocation
+		InOrder inOrder = inOrder(transactionManager, taskRepository);
+		inOrder.verify(transactionManager).doTaskRead(any());
+		inOrder.verify(taskRepository).findByIds(taskIds);
+		inOrder.verifyNoMoreInteractions();
+
+		assertThat(tasks)
+		.isEqualTo(retrievedTasks);
+	}
+
 	@Test
 	public void testSaveTaskWithUniqueId() {
 		// Setup phase
@@ -123,7 +278,7 @@ public class TodoServiceTest {
 		// Verify phase: we also verify the order of the invocation
 		InOrder inOrder = inOrder(transactionManager, taskRepository);
 		inOrder.verify(transactionManager).doTaskTransaction(any());
-		inOrder.verify(taskRepository).save(task, clientSession);
+		inOrder.verify(taskRepository).save(task);
 		inOrder.verifyNoMoreInteractions();
 	}
 
@@ -131,25 +286,23 @@ public class TodoServiceTest {
 	public void testSaveTaskWithDuplicatedId() {
 		// Setup phase
 		Task task = new Task("1", "Buy groceries");
-		when(taskRepository.findById(task.getId(), clientSession))
-		.thenReturn(task);
+		doThrow(new TaskRepositoryException("Cannot add task with duplicated ID " + task.getId()))
+		.when(taskRepository).save(task);
 
 		// Exercise and verify phases
 		TaskRepositoryException exception = assertThrows(TaskRepositoryException.class,
 				() -> todoService.saveTask(task));
 		assertThat(exception.getMessage())
 		.isEqualTo("Cannot add task with duplicated ID " + task.getId());
-		verify(taskRepository, never()).save(task, clientSession);
+		verify(taskRepository, never()).findById(task.getId());
 	}
 
 	@Test
 	public void testDeleteExistingTask() {
 		// Setup phase
 		Task task = new Task("1", "Buy groceries");
-		when(taskRepository.findById(task.getId(), clientSession))
+		when(taskRepository.findById(task.getId()))
 		.thenReturn(task);
-		when(taskRepository.getTagsByTaskId(task.getId(), clientSession))
-		.thenReturn(Collections.singletonList("1"));
 
 		// Exercise phase
 		todoService.deleteTask(task);
@@ -157,9 +310,8 @@ public class TodoServiceTest {
 		// Verify phase: we also verify the order of the invocation
 		InOrder inOrder = inOrder(transactionManager, taskRepository, tagRepository);
 		inOrder.verify(transactionManager).doCompositeTransaction(any());
-		inOrder.verify(taskRepository).getTagsByTaskId(task.getId(), clientSession);
-		inOrder.verify(tagRepository).removeTaskFromTag("1", task.getId(), clientSession);
-		inOrder.verify(taskRepository).delete(task, clientSession);
+		inOrder.verify(tagRepository).removeTaskFromAllTags(task.getId());
+		inOrder.verify(taskRepository).delete(task);
 		inOrder.verifyNoMoreInteractions();
 	}
 
@@ -167,7 +319,7 @@ public class TodoServiceTest {
 	public void testDeleteNonExistingTask() {
 		// Setup phase
 		Task task = new Task("1", "Buy groceries");
-		when(taskRepository.findById(task.getId(), clientSession))
+		when(taskRepository.findById(task.getId()))
 		.thenReturn(null);
 
 		// Exercise and verify phases
@@ -175,7 +327,7 @@ public class TodoServiceTest {
 				() -> todoService.deleteTask(task));
 		assertThat(exception.getMessage())
 		.isEqualTo("Task with ID " + task.getId() + " has already been deleted");
-		verify(taskRepository, never()).delete(task, clientSession);
+		verify(taskRepository, never()).delete(task);
 	}
 
 	@Test
@@ -185,7 +337,7 @@ public class TodoServiceTest {
 				new Tag("1", "Work"),
 				new Tag("2", "Important")
 				);
-		when(tagRepository.findAll(clientSession))
+		when(tagRepository.findAll())
 		.thenReturn(tags);
 
 		// Exercise phase
@@ -193,19 +345,114 @@ public class TodoServiceTest {
 
 		// Verify phase: we also verify the order of the invocation
 		InOrder inOrder = inOrder(transactionManager, tagRepository);
-		inOrder.verify(transactionManager).doTagTransaction(any());
-		inOrder.verify(tagRepository).findAll(clientSession);
+		inOrder.verify(transactionManager).doTagRead(any());
+		inOrder.verify(tagRepository).findAll();
 		inOrder.verifyNoMoreInteractions();
 
 		assertThat(tags)
 		.isEqualTo(retrievedTags);
 	}
 
+	@Test
+	public void testStreamAllTags() {
+		// Setup phase
+		AtomicBoolean streamClosed = new AtomicBoolean(false);
+		Stream<Tag> tags = Stream.of(
+				new Tag("1", "Work"),
+				new Tag("2", "Important"))
+				.onClose(() -> streamClosed.set(true));
+		when(tagRepository.streamAll(100))
+		.thenReturn(tags);
+
+		// Exercise phase
+		long tagCount = todoService.streamAllTags(100, Stream::count);
+
+		// Verify phase: we also verify the order of the invocation and that the stream is closed
+		InOrder inOrder = inOrder(transactionManager, tagRepository);
+		inOrder.verify(transactionManager).doTagRead(any());
+		inOrder.verify(tagRepository).streamAll(100);
+		inOrder.verifyNoMoreInteractions();
+
+		assertThat(tagCount)
+		.isEqualTo(2);
+		assertThat(streamClosed)
+		.isTrue();
+	}
+
+	@Test
+	public void testCountTags() {
+		// Setup phase
+		when(tagRepository.count())
+		.thenReturn(42L);
+
+		// Exercise phase
+		long tagCount = todoService.countTags();
+
+		// Verify phase: we also verify the order of the invocation
+		InOrder inOrder = inOrder(transactionManager, tagRepository);
+		inOrder.verify(transactionManager).doTagRead(any());
+		inOrder.verify(tagRepository).count();
+		inOrder.verifyNoMoreInteractions();
+
+		assertThat(tagCount)
+		.isEqualTo(42L);
+	}
+
+	@Test
+	public void testGetTagsPage() {
+		// Setup phase
+		Page<Tag> page = new Page<>(Collections.singletonList(new Tag("2", "Work")), "2");
+		when(tagRepository.findPage("1", 1))
+		.thenReturn(page);
+
+		// Exercise phase
+		Page<Tag> retrievedPage = todoService.getTagsPage("1", 1);
+
+		// Verify phase: we also verify the order of the invocation
+		InOrder inOrder = inOrder(transactionManager, tagRepository);
+		inOrder.verify(transactionManager).doTagRead(any());
+		inOrder.verify(tagRepository).findPage("1", 1);
+		inOrder.verifyNoMoreInteractions();
+
+		assertThat(retrievedPage)
+		.isEqualTo(page);
+	}
+
+	@Test
+	public void testGetTagsPageAt() {
+		// Setup phase
+		Page<Tag> page = new Page<>(Collections.singletonList(new Tag("3", "Work")), "3");
+		when(tagRepository.findPageAt(2, 1))
+		.thenReturn(page);
+
+		// Exercise phase
+		Page<Tag> retrievedPage = todoService.getTagsPageAt(2, 1);
+
+		// Verify phase: we also verify the order of the invocation
+		InOrder inOrder = inOrder(transactionManager, tagRepository);
+		inOrder.verify(transactionManager).doTagRead(any());
+		inOrder.verify(tagRepository).findPageAt(2, 1);
+		inOrder.verifyNoMoreInteractions();
+
+		assertThat(retrievedPage)
+		.isEqualTo(page);
+	}
+
+	@Test
+	public void testGetTagsPageWithNonPositiveLimit() {
+		// Exercise and verify phases (no setup phase needed)
+		IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+				() -> todoService.getTagsPage(null, 0));
+		assertThat(exception.getMessage())
+		.isEqualTo("Page limit must be positive, got 0");
+		verifyNoMoreInteractions(transactionManager);
+	}
+
 	@Test
 	public void testFindTagById() {
 		// Setup phase
 		Tag tag = new Tag("1", "Work");
-		when(tagRepository.findById(tag.getId(), clientSession))
+		when(tagRepository.findById(tag.getId()))
 		.thenReturn(tag);
 
 		// Exercise phase
@@ -213,22 +460,41 @@ public class TodoServiceTest {
 
 		// Verify phase: we also verify the order of the invocation
 		InOrder inOrder = inOrder(transactionManager, tagRepository);
-		inOrder.verify(transactionManager).doTagTransaction(any());
-		inOrder.verify(tagRepository).findById(tag.getId(), clientSession);
+		inOrder.verify(transactionManager).doTagRead(any());
+		inOrder.verify(tagRepository).findById(tag.getId());
 		inOrder.verifyNoMoreInteractions();
 
 		assertThat(tag)
 		.isEqualTo(retrievedTag);
 	}
 
+	@Test
+	public void testFindTagsByIds() {
+		// Setup phase
+		List<String> tagIds = Arrays.asList("2", "1");
+		List<Tag> tags = Arrays.asList(
+				new Tag("2", "Important"),
+				new Tag("1", "Work"));
+		when(tagRepository.findByIds(tagIds))
+		.thenReturn(tags);
+
+		// Exercise phase
+		List<Tag> retrievedTags = todoService.findTagsByIds(tagIds);
+
+		// Verify phase: we also verify the order of the invocation
+		InOrder inOrder = inOrder(transactionManager, tagRepository);
+		inOrder.verify(transactionManager).doTagRead(any());
+		inOrder.verify(tagRepository).findByIds(tagIds);
+		inOrder.verifyNoMoreInteractions();
+
+		assertThat(tags)
+		.isEqualTo(retrievedTags);
+	}
+
 	@Test
 	public void testSaveTagWithUniqueIdAndName() {
 		// Setup phase
 		Tag tag = new Tag("1", "Work");
-		when(tagRepository.findById(tag.getId(), clientSession))
-		.thenReturn(null);
-		when(tagRepository.findAll(clientSession))
-		.thenReturn(Collections.emptyList());
 
 		// Exercise phase
 		todoService.saveTag(tag);
@@ -236,7 +502,7 @@ public class TodoServiceTest {
 		// Verify phase: we also verify the order of the invocation
 		InOrder inOrder = inOrder(transactionManager, tagRepository);
 		inOrder.verify(transactionManager).doTagTransaction(any());
-		inOrder.verify(tagRepository).save(tag, clientSession);
+		inOrder.verify(tagRepository).save(tag);
 		inOrder.verifyNoMoreInteractions();
 	}
 
@@ -244,63 +510,38 @@ public class TodoServiceTest {
 	public void testSaveTagWithDuplicatedId() {
 		// Setup phase
 		Tag tag = new Tag("1", "Work");
-		when(tagRepository.findById(tag.getId(), clientSession))
-		.thenReturn(tag);
+		doThrow(new TagRepositoryException("Cannot add tag with duplicated ID " + tag.getId()))
+		.when(tagRepository).save(tag);
 
 		// Exercise and verify phases
 		TagRepositoryException exception = assertThrows(TagRepositoryException.class,
 				() -> todoService.saveTag(tag));
 		assertThat(exception.getMessage())
 		.isEqualTo("Cannot add tag with duplicated ID " + tag.getId());
-		verify(tagRepository, never()).save(tag, clientSession);
+		verify(tagRepository, never()).findById(tag.getId());
 	}
 
 	@Test
 	public void testSaveTagWithDuplicatedName() {
 		// Setup phase
 		Tag tag = new Tag("1", "Work");
-		when(tagRepository.findById(tag.getId(), clientSession))
-		.thenReturn(null);
-		when(tagRepository.findAll(clientSession))
-		.thenReturn(Arrays.asList(new Tag("2", "Work")));
+		doThrow(new TagRepositoryException("Cannot add tag with duplicated name \"" + tag.getName() + "\""))
+		.when(tagRepository).save(tag);
 
 		// Exercise and verify phases
 		TagRepositoryException exception = assertThrows(TagRepositoryException.class,
 				() -> todoService.saveTag(tag));
 		assertThat(exception.getMessage())
 		.isEqualTo("Cannot add tag with duplicated name \"" + tag.getName() + "\"");
-		verify(tagRepository, never()).save(tag, clientSession);
-	}
-
-	@Test
-	public void testSaveTagWithUniqueIdAndNameWithOtherTags() {
-		Tag tag = new Tag("1", "Work");
-		when(tagRepository.findById(tag.getId(), clientSession))
-		.thenReturn(null);
-		when(tagRepository.findAll(clientSession))
-		.thenReturn(Arrays.asList(
-				new Tag("2", "Important"),
-				new Tag("3", "Free time")
-				));
-
-		// Exercise phase
-		todoService.saveTag(tag);
-
-		// Verify phase: we also verify the order of the invocation
-		InOrder inOrder = inOrder(transactionManager, tagRepository);
-		inOrder.verify(transactionManager).doTagTransaction(any());
-		inOrder.verify(tagRepository).save(tag, clientSession);
-		inOrder.verifyNoMoreInteractions();
+		verify(tagRepository, never()).findAll();
 	}
 
 	@Test
 	public void testDeleteExistingTag() {
 		// Setup phase
 		Tag tag = new Tag("1", "Work");
-		when(tagRepository.findById(tag.getId(), clientSession))
+		when(tagRepository.findById(tag.getId()))
 		.thenReturn(tag);
-		when(tagRepository.getTasksByTagId(tag.getId(), clientSession))
-		.thenReturn(Collections.singletonList("1"));
 
 		// Exercise phase
 		todoService.deleteTag(tag);
@@ -308,9 +549,8 @@ public class TodoServiceTest {
 		// Verify phase: we also verify the order of the invocation
 		InOrder inOrder = inOrder(transactionManager, taskRepository, tagRepository);
 		inOrder.verify(transactionManager).doCompositeTransaction(any());
-		inOrder.verify(tagRepository).getTasksByTagId(tag.getId(), clientSession);
-		inOrder.verify(taskRepository).removeTagFromTask("1", tag.getId(), clientSession);
-		inOrder.verify(tagRepository).delete(tag, clientSession);
+		inOrder.verify(taskRepository).removeTagFromAllTasks(tag.getId());
+		inOrder.verify(tagRepository).delete(tag);
 		inOrder.verifyNoMoreInteractions();
 	}
 
@@ -318,7 +558,7 @@ public class TodoServiceTest {
 	public void testDeleteNonExistingTag() {
 		// Setup phase
 		Tag tag = new Tag("1", "Work");
-		when(tagRepository.findById(tag.getId(), clientSession))
+		when(tagRepository.findById(tag.getId()))
 		.thenReturn(null);
 
 		// Exercise and verify phases
@@ -326,7 +566,7 @@ public class TodoServiceTest {
 				() -> todoService.deleteTag(tag));
 		assertThat(exception.getMessage())
 		.isEqualTo("Tag with ID " + tag.getId() + " has already been deleted");
-		verify(tagRepository, never()).delete(tag, clientSession);
+		verify(tagRepository, never()).delete(tag);
 	}
 
 	@Test
@@ -334,9 +574,9 @@ public class TodoServiceTest {
 		// Setup phase
 		List<String> tasks = Collections.singletonList("1");
 		Tag tag = new Tag("1", "Work");
-		when(tagRepository.findById("1", clientSession))
+		when(tagRepository.findById("1"))
 		.thenReturn(tag);
-		when(tagRepository.getTasksByTagId(tag.getId(), clientSession))
+		when(tagRepository.getTasksByTagId(tag.getId()))
 		.thenReturn(Collections.singletonList(tag.getId()));
 
 		// Exercise phase
@@ -344,8 +584,8 @@ public class TodoServiceTest {
 
 		// Verify phase: we also verify the order of the invocation
 		InOrder inOrder = inOrder(transactionManager, tagRepository);
-		inOrder.verify(transactionManager).doTagTransaction(any());
-		inOrder.verify(tagRepository).getTasksByTagId(tag.getId(), clientSession);
+		inOrder.verify(transactionManager).doTagRead(any());
+		inOrder.verify(tagRepository).getTasksByTagId(tag.getId());
 		inOrder.verifyNoMoreInteractions();
 
 		assertThat(tasks)
@@ -356,7 +596,7 @@ public class TodoServiceTest {
 	public void testFindTasksByTagIdWhenTagNonExistent() {
 		// Setup phase
 		String tagId = "1";
-		when(tagRepository.findById(tagId, clientSession))
+		when(tagRepository.findById(tagId))
 		.thenReturn(null);
 
 		// Exercise and verify phases
@@ -364,7 +604,7 @@ public class TodoServiceTest {
 				() -> todoService.findTasksByTagId(tagId));
 		assertThat(exception.getMessage())
 		.isEqualTo("No tag with ID " + tagId);
-		verify(tagRepository, never()).getTasksByTagId(tagId, clientSession);
+		verify(tagRepository, never()).getTasksByTagId(tagId);
 	}
 
 	@Test
@@ -372,9 +612,9 @@ public class TodoServiceTest {
 		// Setup phase
 		List<String> tags = Collections.singletonList("1");
 		Task task = new Task("1", "Start using TDD");
-		when(taskRepository.findById("1", clientSession))
+		when(taskRepository.findById("1"))
 		.thenReturn(task);
-		when(taskRepository.getTagsByTaskId(task.getId(), clientSession))
+		when(taskRepository.getTagsByTaskId(task.getId()))
 		.thenReturn(Collections.singletonList(task.getId()));
 
 		// Exercise phase
@@ -382,8 +622,8 @@ public class TodoServiceTest {
 
 		// Verify phase: we also verify the order of the invocation
 		InOrder inOrder = inOrder(transactionManager, taskRepository);
-		inOrder.verify(transactionManager).doTaskTransaction(any());
-		inOrder.verify(taskRepository).getTagsByTaskId(task.getId(), clientSession);
+		inOrder.verify(transactionManager).doTaskRead(any());
+		inOrder.verify(taskRepository).getTagsByTaskId(task.getId());
 		inOrder.verifyNoMoreInteractions();
 
 		assertThat(tags)
@@ -394,7 +634,7 @@ public class TodoServiceTest {
 	public void testFindTagsByTaskIdWhenTaskNonExistent() {
 		// Setup phase
 		String taskId = "1";
-		when(taskRepository.findById(taskId, clientSession))
+		when(taskRepository.findById(taskId))
 		.thenReturn(null);
 
 		// Exercise and verify phases
@@ -402,53 +642,29 @@ public class TodoServiceTest {
 				() -> todoService.findTagsByTaskId(taskId));
 		assertThat(exception.getMessage())
 		.isEqualTo("No task with ID " + taskId);
-		verify(taskRepository, never()).getTagsByTaskId(taskId, clientSession);
+		verify(taskRepository, never()).getTagsByTaskId(taskId);
 	}
 
 	@Test
 	public void testSuccessfulTagAdditionToTask() {
 		// Setup phase
-		Task task = new Task("1", "Start using TDD");
-		Tag tag = new Tag("1", "Work");
-		when(taskRepository.findById(task.getId(), clientSession))
-		.thenReturn(task);
-		when(tagRepository.findById(tag.getId(), clientSession))
-		.thenReturn(tag);
-		when(taskRepository.getTagsByTaskId(task.getId(), clientSession))
-		.thenReturn(Collections.emptyList());
-
-		// Exercise phase
-		todoService.addTagToTask(task.getId(), tag.getId());
-
-		// Verify phase: we also verify the order of the invocation
-		InOrder inOrder = inOrder(transactionManager, taskRepository, tagRepository);
-		inOrder.verify(transactionManager).doCompositeTransaction(any());
-		inOrder.verify(taskRepository).addTagToTask(task.getId(), tag.getId(), clientSession);
-		inOrder.verify(tagRepository).addTaskToTag(tag.getId(), task.getId(), clientSession);
-		inOrder.verifyNoMoreInteractions();
-	}
-
-	@Test
-	public void testSuccessfulTagAdditionToTaskWithOtherTags() {
-		// Setup phase
-		Task task = new Task("1", "Start using TDD");
-		Tag tag = new Tag("1", "Work");
-		when(taskRepository.findById(task.getId(), clientSession))
-		.thenReturn(task);
-		when(tagRepository.findById(tag.getId(), clientSession))
-		.thenReturn(tag);
-		when(taskRepository.getTagsByTaskId(task.getId(), clientSession))
-		.thenReturn(Arrays.asList("2"));
+		String taskId = "1";
+		String tagId = "1";
+		when(taskRepository.addTagToTask(taskId, tagId))
+		.thenReturn(MembershipUpdate.MODIFIED);
+		when(tagRepository.addTaskToTag(tagId, taskId))
+		.thenReturn(MembershipUpdate.MODIFIED);
 
 		// Exercise phase
-		todoService.addTagToTask(task.getId(), tag.getId());
+		todoService.addTagToTask(taskId, tagId);
 
-		// Verify phase: we also verify the order of the invocation
+		// Verify phase: we also verify the order of the invocation and that no reads are made
 		InOrder inOrder = inOrder(transactionManager, taskRepository, tagRepository);
 		inOrder.verify(transactionManager).doCompositeTransaction(any());
-		inOrder.verify(taskRepository).addTagToTask(task.getId(), tag.getId(), clientSession);
-		inOrder.verify(tagRepository).addTaskToTag(tag.getId(), task.getId(), clientSession);
+		inOrder.verify(taskRepository).addTagToTask(taskId, tagId);
+		inOrder.verify(tagRepository).addTaskToTag(tagId, taskId);
 		inOrder.verifyNoMoreInteractions();
+		verifyNoMoreInteractions(taskRepository, tagRepository);
 	}
 
 	@Test
@@ -456,22 +672,16 @@ public class TodoServiceTest {
 		// Setup phase
 		String taskId = "1";
 		String tagId = "1";
-		Task task = new Task(taskId, "Start using TDD");
-		Tag tag = new Tag(tagId, "Work");
-		when(taskRepository.findById(taskId, clientSession))
-		.thenReturn(task);
-		when(tagRepository.findById(tagId, clientSession))
-		.thenReturn(tag);
-		when(taskRepository.getTagsByTaskId(taskId, clientSession))
-		.thenReturn(Arrays.asList(tagId));
+		when(taskRepository.addTagToTask(taskId, tagId))
+		.thenReturn(MembershipUpdate.NOT_MODIFIED);
+		when(tagRepository.addTaskToTag(tagId, taskId))
+		.thenReturn(MembershipUpdate.NOT_MODIFIED);
 
 		// Exercise and verify phases
 		TaskRepositoryException exception = assertThrows(TaskRepositoryException.class,
 				() -> todoService.addTagToTask(taskId, tagId));
 		assertThat(exception.getMessage())
 		.isEqualTo("Tag with ID " + tagId +	" is already assigned to task with ID " + taskId);
-		verify(taskRepository, never()).addTagToTask(taskId, tagId, clientSession);
-		verify(tagRepository, never()).addTaskToTag(tagId, taskId, clientSession);
 	}
 
 	@Test
@@ -479,16 +689,15 @@ public class TodoServiceTest {
 		// Setup phase
 		String taskId = "1";
 		String tagId = "1";
-		when(taskRepository.findById(taskId, clientSession))
-		.thenReturn(null);
+		when(taskRepository.addTagToTask(taskId, tagId))
+		.thenReturn(MembershipUpdate.NOT_FOUND);
 
 		// Exercise and verify phases
 		TaskRepositoryException exception = assertThrows(TaskRepositoryException.class,
 				() -> todoService.addTagToTask(taskId, tagId));
 		assertThat(exception.getMessage())
 		.isEqualTo("No task with ID " + taskId);
-		verify(taskRepository, never()).addTagToTask(taskId, tagId, clientSession);
-		verify(tagRepository, never()).addTaskToTag(tagId, taskId, clientSession);
+		verify(tagRepository, never()).addTaskToTag(tagId, taskId);
 	}
 
 	@Test
@@ -496,42 +705,55 @@ public class TodoServiceTest {
 		// Setup phase
 		String taskId = "1";
 		String tagId = "1";
-		Task task = new Task(taskId, "Start using TDD");
-		when(taskRepository.findById(taskId, clientSession))
-		.thenReturn(task);
-		when(tagRepository.findById(tagId, clientSession))
-		.thenReturn(null);
+		when(taskRepository.addTagToTask(taskId, tagId))
+		.thenReturn(MembershipUpdate.MODIFIED);
+		when(tagRepository.addTaskToTag(tagId, taskId))
+		.thenReturn(MembershipUpdate.NOT_FOUND);
+
+		// Exercise and verify phases
+		TagRepositoryException exception = assertThrows(TagRepositoryException.class,
+				() -> todoService.addTagToTask(taskId, tagId));
+		assertThat(exception.getMessage())
+		.isEqualTo("No tag with ID " + tagId);
+	}
+
+	@Test
+	public void testTagAdditionToTaskWhenTagNonExistentTakesPrecedenceOverDuplicate() {
+		// Setup phase
+		String taskId = "1";
+		String tagId = "1";
+		when(taskRepository.addTagToTask(taskId, tagId))
+		.thenReturn(MembershipUpdate.NOT_MODIFIED);
+		when(tagRepository.addTaskToTag(tagId, taskId))
+		.thenReturn(MembershipUpdate.NOT_FOUND);
 
 		// Exercise and verify phases
 		TagRepositoryException exception = assertThrows(TagRepositoryException.class,
 				() -> todoService.addTagToTask(taskId, tagId));
 		assertThat(exception.getMessage())
 		.isEqualTo("No tag with ID " + tagId);
-		verify(taskRepository, never()).addTagToTask(taskId, tagId, clientSession);
-		verify(tagRepository, never()).addTaskToTag(tagId, taskId, clientSession);
 	}
 
 	@Test
 	public void testSuccessfulTagRemovalFromTask() {
 		// Setup phase
-		Task task = new Task("1", "Start using TDD");
-		Tag tag = new Tag("1", "Work");
-		when(taskRepository.findById(task.getId(), clientSession))
-		.thenReturn(task);
-		when(tagRepository.findById(tag.getId(), clientSession))
-		.thenReturn(tag);
-		when(taskRepository.getTagsByTaskId(task.getId(), clientSession))
-		.thenReturn(Arrays.asList(tag.getId()));
+		String taskId = "1";
+		String tagId = "1";
+		when(taskRepository.removeTagFromTask(taskId, tagId))
+		.thenReturn(MembershipUpdate.MODIFIED);
+		when(tagRepository.removeTaskFromTag(tagId, taskId))
+		.thenReturn(MembershipUpdate.MODIFIED);
 
 		// Exercise phase
-		todoService.removeTagFromTask(task.getId(), tag.getId());
+		todoService.removeTagFromTask(taskId, tagId);
 
-		// Verify phase: we also verify the order of the invocation
+		// Verify phase: we also verify the order of the invocation and that no reads are made
 		InOrder inOrder = inOrder(transactionManager, taskRepository, tagRepository);
 		inOrder.verify(transactionManager).doCompositeTransaction(any());
-		inOrder.verify(taskRepository).removeTagFromTask(task.getId(), tag.getId(), clientSession);
-		inOrder.verify(tagRepository).removeTaskFromTag(tag.getId(), task.getId(), clientSession);
+		inOrder.verify(taskRepository).removeTagFromTask(taskId, tagId);
+		inOrder.verify(tagRepository).removeTaskFromTag(tagId, taskId);
 		inOrder.verifyNoMoreInteractions();
+		verifyNoMoreInteractions(taskRepository, tagRepository);
 	}
 
 	@Test
@@ -539,16 +761,15 @@ public class TodoServiceTest {
 		// Setup phase
 		String taskId = "1";
 		String tagId = "1";
-		when(taskRepository.findById(taskId, clientSession))
-		.thenReturn(null);
+		when(taskRepository.removeTagFromTask(taskId, tagId))
+		.thenReturn(MembershipUpdate.NOT_FOUND);
 
 		// Exercise and verify phases
 		TaskRepositoryException exception = assertThrows(TaskRepositoryException.class,
 				() -> todoService.removeTagFromTask(taskId, tagId));
 		assertThat(exception.getMessage())
 		.isEqualTo("No task with ID " + taskId);
-		verify(taskRepository, never()).removeTagFromTask(taskId, tagId, clientSession);
-		verify(tagRepository, never()).removeTaskFromTag(tagId, taskId, clientSession);
+		verify(tagRepository, never()).removeTaskFromTag(tagId, taskId);
 	}
 
 	@Test
@@ -556,19 +777,16 @@ public class TodoServiceTest {
 		// Setup phase
 		String taskId = "1";
 		String tagId = "1";
-		Task task = new Task(taskId, "Start using TDD");
-		when(taskRepository.findById(taskId, clientSession))
-		.thenReturn(task);
-		when(tagRepository.findById(tagId, clientSession))
-		.thenReturn(null);
+		when(taskRepository.removeTagFromTask(taskId, tagId))
+		.thenReturn(MembershipUpdate.NOT_MODIFIED);
+		when(tagRepository.removeTaskFromTag(tagId, taskId))
+		.thenReturn(MembershipUpdate.NOT_FOUND);
 
 		// Exercise and verify phases
 		TagRepositoryException exception = assertThrows(TagRepositoryException.class,
 				() -> todoService.removeTagFromTask(taskId, tagId));
 		assertThat(exception.getMessage())
 		.isEqualTo("No tag with ID " + tagId);
-		verify(taskRepository, never()).removeTagFromTask(taskId, tagId, clientSession);
-		verify(tagRepository, never()).removeTaskFromTag(tagId, taskId, clientSession);
 	}
 
 	@Test
@@ -576,45 +794,38 @@ public class TodoServiceTest {
 		// Setup phase
 		String taskId = "1";
 		String tagId = "1";
-		Task task = new Task(taskId, "Start using TDD");
-		Tag tag = new Tag(tagId, "Work");
-		when(taskRepository.findById(taskId, clientSession))
-		.thenReturn(task);
-		when(tagRepository.findById(tagId, clientSession))
-		.thenReturn(tag);
-		when(taskRepository.getTagsByTaskId(taskId, clientSession))
-		.thenReturn(Arrays.asList("2"));
+		when(taskRepository.removeTagFromTask(taskId, tagId))
+		.thenReturn(MembershipUpdate.NOT_MODIFIED);
+		when(tagRepository.removeTaskFromTag(tagId, taskId))
+		.thenReturn(MembershipUpdate.MODIFIED);
 
 		// Exercise and verify phases
 		TaskRepositoryException exception = assertThrows(TaskRepositoryException.class,
 				() -> todoService.removeTagFromTask(taskId, tagId));
 		assertThat(exception.getMessage())
 		.isEqualTo("No tag with ID " + tagId +  " assigned to task with ID " + taskId);
-		verify(taskRepository, never()).removeTagFromTask(taskId, tagId, clientSession);
-		verify(tagRepository, never()).removeTaskFromTag(tagId, taskId, clientSession);
 	}
 
 	@Test
 	public void testSuccessfulTaskRemovalFromTag() {
 		// Setup phase
-		Task task = new Task("1", "Start using TDD");
-		Tag tag = new Tag("1", "Work");
-		when(taskRepository.findById(task.getId(), clientSession))
-		.thenReturn(task);
-		when(tagRepository.findById(tag.getId(), clientSession))
-		.thenReturn(tag);
-		when(tagRepository.getTasksByTagId(tag.getId(), clientSession))
-		.thenReturn(Arrays.asList(task.getId()));
+		String taskId = "1";
+		String tagId = "1";
+		when(taskRepository.removeTagFromTask(taskId, tagId))
+		.thenReturn(MembershipUpdate.MODIFIED);
+		when(tagRepository.removeTaskFromTag(tagId, taskId))
+		.thenReturn(MembershipUpdate.MODIFIED);
 
 		// Exercise phase
-		todoService.removeTaskFromTag(task.getId(), tag.getId());
+		todoService.removeTaskFromTag(taskId, tagId);
 
-		// Verify phase: we also verify the order of the invocation
+		// Verify phase: we also verify the order of the invocation and that no reads are made
 		InOrder inOrder = inOrder(transactionManager, taskRepository, tagRepository);
 		inOrder.verify(transactionManager).doCompositeTransaction(any());
-		inOrder.verify(taskRepository).removeTagFromTask(task.getId(), tag.getId(), clientSession);
-		inOrder.verify(tagRepository).removeTaskFromTag(tag.getId(), task.getId(), clientSession);
+		inOrder.verify(taskRepository).removeTagFromTask(taskId, tagId);
+		inOrder.verify(tagRepository).removeTaskFromTag(tagId, taskId);
 		inOrder.verifyNoMoreInteractions();
+		verifyNoMoreInteractions(taskRepository, tagRepository);
 	}
 
 	@Test
@@ -622,16 +833,15 @@ public class TodoServiceTest {
 		// Setup phase
 		String taskId = "1";
 		String tagId = "1";
-		when(taskRepository.findById(taskId, clientSession))
-		.thenReturn(null);
+		when(taskRepository.removeTagFromTask(taskId, tagId))
+		.thenReturn(MembershipUpdate.NOT_FOUND);
 
 		// Exercise and verify phases
 		TaskRepositoryException exception = assertThrows(TaskRepositoryException.class,
 				() -> todoService.removeTaskFromTag(taskId, tagId));
 		assertThat(exception.getMessage())
 		.isEqualTo("No task with ID " + taskId);
-		verify(taskRepository, never()).removeTagFromTask(taskId, tagId, clientSession);
-		verify(tagRepository, never()).removeTaskFromTag(tagId, taskId, clientSession);
+		verify(tagRepository, never()).removeTaskFromTag(tagId, taskId);
 	}
 
 	@Test
@@ -639,19 +849,16 @@ public class TodoServiceTest {
 		// Setup phase
 		String taskId = "1";
 		String tagId = "1";
-		Task task = new Task(taskId, "Start using TDD");
-		when(taskRepository.findById(taskId, clientSession))
-		.thenReturn(task);
-		when(tagRepository.findById(tagId, clientSession))
-		.thenReturn(null);
+		when(taskRepository.removeTagFromTask(taskId, tagId))
+		.thenReturn(MembershipUpdate.MODIFIED);
+		when(tagRepository.removeTaskFromTag(tagId, taskId))
+		.thenReturn(MembershipUpdate.NOT_FOUND);
 
 		// Exercise and verify phases
 		TagRepositoryException exception = assertThrows(TagRepositoryException.class,
 				() -> todoService.removeTaskFromTag(taskId, tagId));
 		assertThat(exception.getMessage())
 		.isEqualTo("No tag with ID " + tagId);
-		verify(taskRepository, never()).removeTagFromTask(taskId, tagId, clientSession);
-		verify(tagRepository, never()).removeTaskFromTag(tagId, taskId, clientSession);
 	}
 
 	@Test
@@ -659,21 +866,343 @@ public class TodoServiceTest {
 		// Setup phase
 		String taskId = "1";
 		String tagId = "1";
-		Task task = new Task(taskId, "Start using TDD");
-		Tag tag = new Tag(tagId, "Work");
-		when(taskRepository.findById(taskId, clientSession))
-		.thenReturn(task);
-		when(tagRepository.findById(tagId, clientSession))
-		.thenReturn(tag);
-		when(tagRepository.getTasksByTagId(tagId, clientSession))
-		.thenReturn(Arrays.asList("2"));
+		when(taskRepository.removeTagFromTask(taskId, tagId))
+		.thenReturn(MembershipUpdate.MODIFIED);
+		when(tagRepository.removeTaskFromTag(tagId, taskId))
+		.thenReturn(MembershipUpdate.NOT_MODIFIED);
 
 		// Exercise and verify phases
 		TagRepositoryException exception = assertThrows(TagRepositoryException.class,
 				() -> todoService.removeTaskFromTag(taskId, tagId));
 		assertThat(exception.getMessage())
 		.isEqualTo("No task with ID " + taskId +  " assigned to tag with ID " + tagId);
-		verify(taskRepository, never()).removeTagFromTask(taskId, tagId, clientSession);
-		verify(tagRepository, never()).removeTaskFromTag(tagId, taskId, clientSession);
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testCachedFindTaskByIdReadsTaskOnce() {
+		// Setup phase
+		LruEntityCache<Task> taskCache = useCaches();
+		Task task = new Task("1", "Buy groceries");
+		when(taskRepository.findById(task.getId()))
+		.thenReturn(task);
+
+		// Exercise phase
+		todoService.findTaskById(task.getId());
+		Task retrievedTask = todoService.findTaskById(task.getId());
+
+		// Verify phase
+		assertThat(retrievedTask)
+		.isEqualTo(task);
+		verify(taskRepository, times(1)).findById(task.getId());
+		assertThat(taskCache.getHits())
+		.isEqualTo(1);
+		assertThat(taskCache.getMisses())
+		.isEqualTo(1);
+	}
+
+	@Test
+	public void testCachedFindTaskByIdDoesNotCacheMissingTask() {
+		// Setup phase
+		useCaches();
+
+		// Exercise phase
+		todoService.findTaskById("1");
+		Task retrievedTask = todoService.findTaskById("1");
+
+		// Verify phase
+		assertThat(retrievedTask)
+		.isNull();
+		verify(taskRepository, times(2)).findById("1");
+	}
+
+	@Test
+	public void testCachedFindTaskByIdDoesNotCacheTaskInvalidatedDuringTheRead() {
+		// Setup phase
+		LruEntityCache<Task> taskCache = useCaches();
+		Task task = new Task("1", "Buy groceries");
+		when(taskRepository.findById(task.getId()))
+		.thenAnswer(invocation -> {
+			// A write committed while the read is running
+			taskCache.invalidate(task.getId());
+			return task;
+		});
+
+		// Exercise phase
+		todoService.findTaskById(task.getId());
+		todoService.findTaskById(task.getId());
+
+		// Verify phase
+		verify(taskRepository, times(2)).findById(task.getId());
+	}
+
+	@Test
+	public void testCachedFindTasksByIdsDoesNotCacheTasksInvalidatedDuringTheRead() {
+		// Setup phase
+		LruEntityCache<Task> taskCache = useCaches();
+		Task firstTask = new Task("1", "Buy groceries");
+		Task secondTask = new Task("2", "Start using TDD");
+		when(taskRepository.findByIds(Arrays.asList("1", "2")))
+		.thenAnswer(invocation -> {
+			taskCache.invalidate(firstTask.getId());
+			return Arrays.asList(firstTask, secondTask);
+		});
+
+		// Exercise phase
+		todoService.findTasksByIds(Arrays.asList("1", "2"));
+
+		// Verify phase
+		assertThat(taskCache.get(firstTask.getId()))
+		.isNull();
+		assertThat(taskCache.get(secondTask.getId()))
+		.isEqualTo(secondTask);
+	}
+
+	@Test
+	public void testCachedFindTasksByIdsOnlyReadsMissingTasks() {
+		// Setup phase
+		useCaches();
+		Task firstTask = new Task("1", "Buy groceries");
+		Task secondTask = new Task("2", "Start using TDD");
+		when(taskRepository.findById(firstTask.getId()))
+		.thenReturn(firstTask);
+		when(taskRepository.findByIds(Arrays.asList("2", "3")))
+		.thenReturn(Collections.singletonList(secondTask));
+		todoService.findTaskById(firstTask.getId());
+
+		// Exercise phase
+		List<Task> retrievedTasks = todoService.findTasksByIds(Arrays.asList("2", "3", "1"));
+
+		// Verify phase: the order of the IDs is kept, skipping the missing task
+		assertThat(retrievedTasks)
+		.containsExactly(secondTask, firstTask);
+		verify(taskRepository).findByIds(Arrays.asList("2", "3"));
+	}
+
+	@Test
+	public void testCachedFindTasksByIdsWithAllTasksCachedDoesNotRead() {
+		// Setup phase
+		useCaches();
+		Task task = new Task("1", "Buy groceries");
+		when(taskRepository.findByIds(Collections.singletonList("1")))
+		.thenReturn(Collections.singletonList(task));
+		todoService.findTasksByIds(Collections.singletonList("1"));
+
+		// Exercise phase
+		List<Task> retrievedTasks = todoService.findTasksByIds(Collections.singletonList("1"));
+
+		// Verify phase
+		assertThat(retrievedTasks)
+		.containsExactly(task);
+		verify(transactionManager, times(1)).doTaskRead(any());
+	}
+
+	@Test
+	public void testSaveTaskInvalidatesCachedTask() {
+		// Setup phase
+		useCaches();
+		Task task = new Task("1", "Buy groceries");
+		when(taskRepository.findById(task.getId()))
+		.thenReturn(task);
+		todoService.findTaskById(task.getId());
+
+		// Exercise phase
+		todoService.saveTask(task);
+		todoService.findTaskById(task.getId());
+
+		// Verify phase
+		verify(taskRepository, times(2)).findById(task.getId());
+	}
+
+	@Test
+	public void testFailedDeleteTaskInvalidatesCachedTask() {
+		// Setup phase
+		useCaches();
+		Task task = new Task("1", "Buy groceries");
+		when(taskRepository.findById(task.getId()))
+		.thenReturn(task);
+		todoService.findTaskById(task.getId());
+		doThrow(new TaskRepositoryException("Task transaction failed"))
+		.when(taskRepository).delete(task);
+
+		// Exercise phase
+		assertThrows(TaskRepositoryException.class, () -> todoService.deleteTask(task));
+		todoService.findTaskById(task.getId());
+
+		// Verify phase: once by the first lookup, once by the deletion, once by the second lookup
+		verify(taskRepository, times(3)).findById(task.getId());
+	}
+
+	@Test
+	public void testCachedFindTagByIdReadsTagOnce() {
+		// Setup phase
+		useCaches();
+		Tag tag = new Tag("1", "Work");
+		when(tagRepository.findById(tag.getId()))
+		.thenReturn(tag);
+
+		// Exercise phase
+		todoService.findTagById(tag.getId());
+		Tag retrievedTag = todoService.findTagById(tag.getId());
+
+		// Verify phase
+		assertThat(retrievedTag)
+		.isEqualTo(tag);
+		verify(tagRepository, times(1)).findById(tag.getId());
+	}
+
+	@Test
+	public void testCachedFindTagsByIdsOnlyReadsMissingTags() {
+		// Setup phase
+		useCaches();
+		Tag firstTag = new Tag("1", "Work");
+		Tag secondTag = new Tag("2", "Home");
+		when(tagRepository.findById(firstTag.getId()))
+		.thenReturn(firstTag);
+		when(tagRepository.findByIds(Collections.singletonList("2")))
+		.thenReturn(Collections.singletonList(secondTag));
+		todoService.findTagById(firstTag.getId());
+
+		// Exercise phase
+		List<Tag> retrievedTags = todoService.findTagsByIds(Arrays.asList("1", "2"));
+
+		// Verify phase
+		assertThat(retrievedTags)
+		.containsExactly(firstTag, secondTag);
+		verify(tagRepository).findByIds(Collections.singletonList("2"));
+	}
+
+	@Test
+	public void testSaveTagInvalidatesCachedTag() {
+		// Setup phase
+		useCaches();
+		Tag tag = new Tag("1", "Work");
+		when(tagRepository.findById(tag.getId()))
+		.thenReturn(tag);
+		todoService.findTagById(tag.getId());
+
+		// Exercise phase
+		todoService.saveTag(tag);
+		todoService.findTagById(tag.getId());
+
+		// Verify phase
+		verify(tagRepository, times(2)).findById(tag.getId());
+	}
+
+	@Test
+	public void testDeleteTagInvalidatesCachedTag() {
+		// Setup phase
+		useCaches();
+		Tag tag = new Tag("1", "Work");
+		when(tagRepository.findById(tag.getId()))
+		.thenReturn(tag);
+		todoService.findTagById(tag.getId());
+
+		// Exercise phase
+		todoService.deleteTag(tag);
+		todoService.findTagById(tag.getId());
+
+		// Verify phase: once by the first lookup, once by the deletion, once by the second lookup
+		verify(tagRepository, times(3)).findById(tag.getId());
+	}
+
+	@Test
+	public void testCoalescedGetAllTasksGivesEveryCallerItsOwnList() {
+		// Setup phase
+		ReadCoalescer readCoalescer = new ReadCoalescer();
+		todoService.useReadCoalescer(readCoalescer);
+		List<Task> tasks = Arrays.asList(new Task("1", "Buy groceries"));
+		when(taskRepository.findAll())
+		.thenReturn(tasks);
+
+		// Exercise phase
+		List<Task> retrievedTasks = todoService.getAllTasks();
+
+		// Verify phase
+		assertThat(retrievedTasks)
+		.isEqualTo(tasks)
+		.isNotSameAs(tasks);
+		assertThat(readCoalescer.getExecutedReads())
+		.isEqualTo(1);
+	}
+
+	@Test
+	public void testFailedWriteForgetsReadsInFlight() {
+		// Setup phase
+		ReadCoalescer readCoalescer = mock(ReadCoalescer.class);
+		todoService.useReadCoalescer(readCoalescer);
+		Task task = new Task("1", "Buy groceries");
+		doThrow(new TaskRepositoryException("Cannot add task with duplicated ID 1"))
+		.when(taskRepository).save(task);
+
+		// Exercise phase
+		assertThrows(TaskRepositoryException.class,
+				() -> todoService.saveTask(task));
+
+		// Verify phase
+		verify(readCoalescer).forgetReadsInFlight();
+	}
+
+	@Test
+	public void testSubscribeWithoutChangeSourceThrows() {
+		// Exercise and verify phases
+		IllegalStateException exception = assertThrows(IllegalStateException.class,
+				() -> todoService.subscribe(todoChangeListener, Runnable::run));
+		assertThat(exception.getMessage())
+		.isEqualTo("No change source to subscribe to");
+	}
+
+	@Test
+	public void testSubscribedListenerReceivesChangesThroughItsExecutor() {
+		// Setup phase
+		todoService.useChangeSource(todoChangeSource);
+		List<Runnable> listenerTasks = new ArrayList<>();
+		Task task = new Task("1", "Buy groceries");
+
+		// Exercise phase
+		todoService.subscribe(todoChangeListener, listenerTasks::add);
+		ArgumentCaptor<TodoChangeListener> sourceListener = ArgumentCaptor.forClass(TodoChangeListener.class);
+		verify(todoChangeSource).addListener(sourceListener.capture(), any());
+		sourceListener.getValue().taskAdded(task);
+
+		// Verify phase
+		verifyNoInteractions(todoChangeListener);
+		listenerTasks.forEach(Runnable::run);
+		verify(todoChangeListener).taskAdded(task);
+	}
+
+	@Test
+	public void testListenerIsSubscribedOnlyOnce() {
+		// Setup phase
+		todoService.useChangeSource(todoChangeSource);
+
+		// Exercise phase
+		todoService.subscribe(todoChangeListener, Runnable::run);
+		todoService.subscribe(todoChangeListener, Runnable::run);
+
+		// Verify phase
+		verify(todoChangeSource, times(1)).addListener(any(), any());
+	}
+
+	@Test
+	public void testUnsubscribeRemovesTheRegisteredListener() {
+		// Setup phase
+		todoService.useChangeSource(todoChangeSource);
+		todoService.subscribe(todoChangeListener, Runnable::run);
+		ArgumentCaptor<TodoChangeListener> sourceListener = ArgumentCaptor.forClass(TodoChangeListener.class);
+		verify(todoChangeSource).addListener(sourceListener.capture(), any());
+
+		// Exercise phase
+		todoService.unsubscribe(todoChangeListener);
+		todoService.unsubscribe(todoChangeListener);
+
+		// Verify phase
+		verify(todoChangeSource, times(1)).removeListener(sourceListener.getValue());
+	}
+
+	private LruEntityCache<Task> useCaches() {
+		// Private method to make the service use caches, returning the task one
+		LruEntityCache<Task> taskCache = new LruEntityCache<>(10);
+		todoService.useEntityCaches(taskCache, new LruEntityCache<>(10));
+		return taskCache;
+	}
+}
@@ -0,0 +1,65 @@
+package it.unifi.simpletodoapp.benchmark;
+
+import it.unifi.simpletodoapp.model.Tag;
+import it.unifi.simpletodoapp.model.Task;
+import it.unifi.simpletodoapp.repository.TransactionManager;
+
+/* Dataset of the benchmarks: tasks and tags with sequential IDs, each task
+ * assigned to a few tags spread over all of them, committed in chunks so that
+ * a million documents are stored in seconds rather than in a million commits */
+final class BenchmarkData {
+	static final int TAGS_PER_TASK = 2;
+	static final int TASKS_PER_TAG = 20;
+	private static final int CHUNK_SIZE = 1000;
+
+	private BenchmarkData() {
+	}
+
+	static String taskId(int index) {
+		return "task-" + index;
+	}
+
+	static String tagId(int index) {
+		return "tag-" + index;
+	}
+
+	static int tagsFor(int tasks) {
+		// Every tag ends up with the same number of tasks, whatever the size of the dataset
+		return Math.max(TAGS_PER_TASK, tasks * TAGS_PER_TASK / TASKS_PER_TAG);
+	}
+
+	static void populate(TransactionManager transactionManager, int tasks) {
+		int tags = tagsFor(tasks);
+
+		for (int first = 0; first < tags; first += CHUNK_SIZE)
+			saveTags(transactionManager, first, Math.min(first + CHUNK_SIZE, tags));
+
+		for (int first = 0; first < tasks; first += CHUNK_SIZE)
+			saveTasks(transactionManager, first, Math.min(first + CHUNK_SIZE, tasks), tags);
+	}
+
+	private static void saveTags(TransactionManager transactionManager, int first, int last) {
+		transactionManager.doTagTransaction(tagRepository -> {
+			for (int index = first; index < last; index++)
+				tagRepository.save(new Tag(tagId(index), "Tag " + index));
+
+			return null;
+		});
+	}
+
+	private static void saveTasks(TransactionManager transactionManager, int first, int last, int tags) {
+		transactionManager.doCompositeTransaction((taskRepository, tagRepository) -> {
+			for (int index = first; index < last; index++) {
+				taskRepository.save(new Task(taskId(index), "Task " + index));
+
+				for (int tag = 0; tag < TAGS_PER_TASK; tag++) {
+					String tagId = tagId((index * TAGS_PER_TASK + tag) % tags);
+					taskRepository.addTagToTask(taskId(index), tagId);
+					tagRepository.addTaskToTag(tagId, taskId(index));
+				}
+			}
+
+			return null;
+		});
+	}
+}
@@ -0,0 +1,45 @@
+package it.unifi.simpletodoapp.benchmark;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/* Entry point of benchmarks.jar, taking the same options as the JMH launcher,
+ * but writing the results as JSON to jmh-result.json unless told otherwise,
+ * so that the reports of different builds can be compared by tools */
+public class BenchmarkRunner {
+	static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+	private BenchmarkRunner() {
+	}
+
+	public static void main(String[] args) throws CommandLineOptionException, IOException, RunnerException {
+		CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+
+		if (commandLineOptions.shouldHelp()) {
+			commandLineOptions.showHelp();
+			return;
+		}
+
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLineOptions);
+
+		if (!commandLineOptions.getResultFormat().hasValue())
+			options.resultFormat(ResultFormatType.JSON);
+
+		if (!commandLineOptions.getResult().hasValue())
+			options.result(DEFAULT_RESULT_FILE);
+
+		Runner runner = new Runner(options.build());
+
+		if (commandLineOptions.shouldList())
+			runner.list();
+		else
+			runner.run();
+	}
+}
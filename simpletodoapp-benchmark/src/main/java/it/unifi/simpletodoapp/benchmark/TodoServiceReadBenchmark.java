@@ -0,0 +1,89 @@
+package it.unifi.simpletodoapp.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.unifi.simpletodoapp.model.Task;
+import it.unifi.simpletodoapp.repository.TaskRepository;
+import it.unifi.simpletodoapp.repository.TransactionManager;
+import it.unifi.simpletodoapp.repository.memory.TransactionManagerInMemory;
+import it.unifi.simpletodoapp.service.TodoService;
+
+/* Latency distribution of the reads of TodoService, and of the same reads
+ * made straight on the repositories, so that the overhead of the service
+ * stands out, on the in-memory engine standing in for the database */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+@State(Scope.Benchmark)
+public class TodoServiceReadBenchmark {
+	@Param({ "1000", "100000", "1000000" })
+	public int documents;
+
+	private TransactionManager transactionManager;
+	private TodoService todoService;
+	private String[] taskIds;
+	private String[] tagIds;
+
+	@Setup(Level.Trial)
+	public void populate() {
+		transactionManager = new TransactionManagerInMemory();
+		BenchmarkData.populate(transactionManager, documents);
+		todoService = new TodoService(transactionManager);
+
+		// IDs are built in advance, to keep string concatenation out of the measurements
+		taskIds = new String[documents];
+		for (int index = 0; index < documents; index++)
+			taskIds[index] = BenchmarkData.taskId(index);
+
+		tagIds = new String[BenchmarkData.tagsFor(documents)];
+		for (int index = 0; index < tagIds.length; index++)
+			tagIds[index] = BenchmarkData.tagId(index);
+	}
+
+	@Benchmark
+	public List<Task> getAllTasks() {
+		return todoService.getAllTasks();
+	}
+
+	@Benchmark
+	public List<String> findTagsByTaskId() {
+		return todoService.findTagsByTaskId(randomId(taskIds));
+	}
+
+	@Benchmark
+	public List<String> findTasksByTagId() {
+		return todoService.findTasksByTagId(randomId(tagIds));
+	}
+
+	@Benchmark
+	public List<Task> repositoryFindAll() {
+		return transactionManager.doTaskRead(TaskRepository::findAll);
+	}
+
+	@Benchmark
+	public List<String> repositoryGetTagsByTaskId() {
+		String taskId = randomId(taskIds);
+		return transactionManager.doTaskRead(taskRepository -> taskRepository.getTagsByTaskId(taskId));
+	}
+
+	private static String randomId(String[] ids) {
+		return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+	}
+}
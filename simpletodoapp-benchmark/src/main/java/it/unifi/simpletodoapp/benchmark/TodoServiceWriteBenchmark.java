@@ -0,0 +1,83 @@
+package it.unifi.simpletodoapp.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.unifi.simpletodoapp.model.Tag;
+import it.unifi.simpletodoapp.model.Task;
+import it.unifi.simpletodoapp.repository.memory.TransactionManagerInMemory;
+import it.unifi.simpletodoapp.service.TodoService;
+
+/* Writes of TodoService on the in-memory engine. Each write can only be made
+ * once, e.g. a tag cannot be deleted twice, so every iteration runs a batch of
+ * writes on a dataset prepared beforehand, and the time of the whole batch is
+ * reported: the throughput is the batch size over that time */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10, batchSize = TodoServiceWriteBenchmark.BATCH_SIZE)
+@Measurement(iterations = 20, batchSize = TodoServiceWriteBenchmark.BATCH_SIZE)
+@Fork(1)
+@State(Scope.Thread)
+public class TodoServiceWriteBenchmark {
+	static final int BATCH_SIZE = 1000;
+	private static final int DOCUMENTS = 1000;
+
+	private TodoService todoService;
+	private Task[] newTasks;
+	private String[] taskIdsToTag;
+	private String tagIdToAdd;
+	private Tag[] tagsToDelete;
+	private int operation;
+
+	@Setup(Level.Iteration)
+	public void prepareBatch() {
+		TransactionManagerInMemory transactionManager = new TransactionManagerInMemory();
+		BenchmarkData.populate(transactionManager, DOCUMENTS);
+		todoService = new TodoService(transactionManager);
+		operation = 0;
+
+		newTasks = new Task[BATCH_SIZE];
+		taskIdsToTag = new String[BATCH_SIZE];
+		tagsToDelete = new Tag[BATCH_SIZE];
+		tagIdToAdd = "tag-to-add";
+		todoService.saveTag(new Tag(tagIdToAdd, "Tag to add"));
+
+		for (int index = 0; index < BATCH_SIZE; index++) {
+			newTasks[index] = new Task("new-task-" + index, "New task " + index);
+
+			taskIdsToTag[index] = "task-to-tag-" + index;
+			todoService.saveTask(new Task(taskIdsToTag[index], "Task to tag " + index));
+
+			// Assigned to a task, so that deleting it also updates the task
+			tagsToDelete[index] = new Tag("tag-to-delete-" + index, "Tag to delete " + index);
+			todoService.saveTag(tagsToDelete[index]);
+			todoService.addTagToTask(BenchmarkData.taskId(index % DOCUMENTS), tagsToDelete[index].getId());
+		}
+	}
+
+	@Benchmark
+	public void saveTask() {
+		todoService.saveTask(newTasks[operation++]);
+	}
+
+	@Benchmark
+	public void addTagToTask() {
+		todoService.addTagToTask(taskIdsToTag[operation++], tagIdToAdd);
+	}
+
+	@Benchmark
+	public void deleteTag() {
+		todoService.deleteTag(tagsToDelete[operation++]);
+	}
+}
@@ -0,0 +1,67 @@
+package it.unifi.simpletodoapp.view.swing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.unifi.simpletodoapp.model.Tag;
+import it.unifi.simpletodoapp.model.Task;
+import it.unifi.simpletodoapp.view.swing.TodoSwingView.TagListModel;
+import it.unifi.simpletodoapp.view.swing.TodoSwingView.TaskListModel;
+
+/* Repopulation of the list models of TodoSwingView, as when all the tasks or
+ * tags are shown again. Placed in the package of the view to reach its models,
+ * which are measured without any JList, so no display is needed */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class TodoSwingViewModelBenchmark {
+	@Param({ "1000", "100000", "1000000" })
+	public int documents;
+
+	private List<Task> tasks;
+	private List<Tag> tags;
+	private TaskListModel taskListModel;
+	private TagListModel tagListModel;
+
+	@Setup
+	public void prepareModels() {
+		tasks = new ArrayList<>(documents);
+		tags = new ArrayList<>(documents);
+
+		for (int index = 0; index < documents; index++) {
+			tasks.add(new Task("task-" + index, "Task " + index));
+			tags.add(new Tag("tag-" + index, "Tag " + index));
+		}
+
+		taskListModel = new TaskListModel();
+		tagListModel = new TagListModel();
+	}
+
+	@Benchmark
+	public TaskListModel showTasks() {
+		taskListModel.showTasks(tasks);
+		return taskListModel;
+	}
+
+	@Benchmark
+	public TagListModel showTags() {
+		tagListModel.showTags(tags);
+		return tagListModel;
+	}
+}
@@ -83,8 +83,8 @@ public class TodoSwingViewControllerIT extends AssertJSwingJUnitTestCase {
 		MongoDatabase database = mongoClient.getDatabase(DB_NAME);
 
 		database.drop();
-		database.createCollection(TASKS_COLLECTION);
-		database.createCollection(TAGS_COLLECTION);
+		taskMongoRepository.ensureIndexes();
+		tagMongoRepository.ensureIndexes();
 		taskCollection = database.getCollection(TASKS_COLLECTION);
 		tagCollection = database.getCollection(TAGS_COLLECTION);
 
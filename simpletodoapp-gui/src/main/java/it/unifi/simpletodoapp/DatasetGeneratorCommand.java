@@ -0,0 +1,67 @@
+package it.unifi.simpletodoapp;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import com.mongodb.client.MongoClient;
+
+import it.unifi.simpletodoapp.dataset.DatasetGenerator;
+import it.unifi.simpletodoapp.repository.TransactionManager;
+import it.unifi.simpletodoapp.repository.file.TransactionManagerFile;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParentCommand;
+
+@Command(name = "generate-dataset", mixinStandardHelpOptions = true,
+description = "Fill the storage selected by the application options with synthetic tasks and tags")
+public class DatasetGeneratorCommand implements Callable<Void> {
+	@ParentCommand
+	private TodoApplication todoApplication;
+
+	@Option(names = { "--tasks" }, description = "Tasks to generate")
+	private int tasks = 1000000;
+
+	@Option(names = { "--tags" }, description = "Tags to generate")
+	private int tags = 1000;
+
+	@Option(names = { "--max-tags-per-task" }, description = "Maximum tags assigned to each task, the actual number being uniformly drawn from 0")
+	private int maxTagsPerTask = 5;
+
+	@Option(names = { "--zipf-exponent" }, description = "Exponent of the Zipf distribution of the tag popularity, 0 for uniform")
+	private double zipfExponent = 1.0;
+
+	@Option(names = { "--seed" }, description = "Seed of the random generator, the same seed generating the same dataset")
+	private long seed = 1;
+
+	@Option(names = { "--batch-size" }, description = "Tasks, or tags, inserted by each transaction")
+	private int batchSize = DatasetGenerator.DEFAULT_BATCH_SIZE;
+
+	@Override
+	public Void call() throws Exception {
+		// Batches are committed one at a time, so the storage is never left with half an assignment
+		DatasetGenerator datasetGenerator = new DatasetGenerator(tasks, tags, maxTagsPerTask, zipfExponent, seed);
+		datasetGenerator.useBatchSize(batchSize);
+		MongoClient mongoClient = todoApplication.createMongoClient();
+
+		try {
+			TransactionManager transactionManager = todoApplication.createTransactionManager(mongoClient);
+			long start = System.nanoTime();
+
+			try {
+				datasetGenerator.generate(transactionManager);
+			} finally {
+				if (transactionManager instanceof TransactionManagerFile)
+					((TransactionManagerFile) transactionManager).close();
+			}
+
+			long elapsedMillis = Math.max(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), 1);
+			System.out.printf("Generated %d tasks, %d tags and %d tag assignments in %d ms (%d tasks/s)%n",
+					tasks, tags, datasetGenerator.getAssignments(), elapsedMillis, tasks * 1000L / elapsedMillis);
+		} finally {
+			if (mongoClient != null)
+				mongoClient.close();
+		}
+
+		return null;
+	}
+}
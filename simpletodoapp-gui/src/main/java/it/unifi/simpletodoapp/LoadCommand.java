@@ -0,0 +1,126 @@
+package it.unifi.simpletodoapp;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import com.mongodb.client.MongoClient;
+
+import it.unifi.simpletodoapp.load.LatencyHistogram;
+import it.unifi.simpletodoapp.load.LoadGenerator;
+import it.unifi.simpletodoapp.load.LoadMode;
+import it.unifi.simpletodoapp.load.LoadOperation;
+import it.unifi.simpletodoapp.load.LoadResult;
+import it.unifi.simpletodoapp.model.Tag;
+import it.unifi.simpletodoapp.repository.TransactionManager;
+import it.unifi.simpletodoapp.repository.file.TransactionManagerFile;
+import it.unifi.simpletodoapp.service.TodoService;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParentCommand;
+
+@Command(name = "load", mixinStandardHelpOptions = true,
+description = "Run a mix of operations on the storage selected by the application options and report their latencies")
+public class LoadCommand implements Callable<Void> {
+	private static final double NANOS_PER_MILLI = 1e6;
+
+	@ParentCommand
+	private TodoApplication todoApplication;
+
+	@Option(names = { "--concurrency" }, description = "Workers running operations at the same time")
+	private int concurrency = 8;
+
+	@Option(names = { "--mix" }, split = ",", description = "Weights of the operations, e.g. READ=70,SAVE=10,ASSIGN=15,DELETE=5")
+	private Map<LoadOperation, Integer> mix;
+
+	@Option(names = { "--zipf-exponent" }, description = "Exponent of the Zipf distribution of the popularity of the tags assigned, 0 for uniform")
+	private double zipfExponent = 1.0;
+
+	@Option(names = { "--rate" }, description = "Operations per second of all workers together, 0 to run as fast as possible")
+	private double rate = 0;
+
+	@Option(names = { "--open-loop" }, description = "Send operations when due even if the previous ones did not complete, measuring from when they were due")
+	private boolean openLoop = false;
+
+	@Option(names = { "--warmup" }, description = "Seconds of load before measuring")
+	private long warmupSeconds = 5;
+
+	@Option(names = { "--duration" }, description = "Seconds of measured load")
+	private long durationSeconds = 30;
+
+	@Option(names = { "--tasks-per-worker" }, description = "Tasks saved by each worker before the load starts")
+	private int tasksPerWorker = LoadGenerator.DEFAULT_TASKS_PER_WORKER;
+
+	@Option(names = { "--seed" }, description = "Seed of the random generator of the operations")
+	private long seed = 1;
+
+	@Override
+	public Void call() throws Exception {
+		// Tags are never created nor deleted by the load, so they must be there already
+		MongoClient mongoClient = todoApplication.createMongoClient();
+
+		try {
+			TransactionManager transactionManager = todoApplication.createTransactionManager(mongoClient);
+
+			try {
+				TodoService todoService = todoApplication.createTodoService(transactionManager);
+				List<String> tagIds = todoService.getAllTags().stream()
+						.map(Tag::getId)
+						.collect(Collectors.toList());
+				LoadGenerator loadGenerator = new LoadGenerator(todoService, tagIds, concurrency, seed);
+				if (mix != null)
+					loadGenerator.useOperationMix(mix);
+				if (!tagIds.isEmpty())
+					loadGenerator.useTagPopularity(zipfExponent);
+				loadGenerator.useTargetRate(openLoop ? LoadMode.OPEN_LOOP : LoadMode.CLOSED_LOOP, rate);
+				loadGenerator.useTasksPerWorker(tasksPerWorker);
+
+				printResult(loadGenerator.run(warmupSeconds, durationSeconds, TimeUnit.SECONDS));
+			} finally {
+				if (transactionManager instanceof TransactionManagerFile)
+					((TransactionManagerFile) transactionManager).close();
+			}
+		} finally {
+			if (mongoClient != null)
+				mongoClient.close();
+		}
+
+		return null;
+	}
+
+	private void printResult(LoadResult result) {
+		System.out.printf("%-10s %10s %10s %10s %10s %10s %8s%n",
+				"Operation", "ops/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "errors");
+
+		for (LoadOperation operation : LoadOperation.values()) {
+			if (result.getCompleted(operation) + result.getErrors(operation) > 0) {
+				printRow(operation.name(), result.getThroughput(operation), result.getHistogram(operation),
+						result.getErrors(operation));
+			}
+		}
+
+		double totalThroughput = 0;
+		long totalErrors = 0;
+		for (LoadOperation operation : LoadOperation.values()) {
+			totalThroughput += result.getThroughput(operation);
+			totalErrors += result.getErrors(operation);
+		}
+
+		printRow("ALL", totalThroughput, result.getTotalHistogram(), totalErrors);
+		System.out.println(openLoop
+				? "Latencies are measured from when each operation was due"
+				: rate > 0
+						? "Latencies include the operations missed while stalled"
+						: "Latencies are not corrected for coordinated omission without a --rate");
+	}
+
+	private static void printRow(String name, double throughput, LatencyHistogram histogram, long errors) {
+		System.out.printf("%-10s %10.1f %10.3f %10.3f %10.3f %10.3f %8d%n", name, throughput,
+				histogram.getValueAtPercentile(50) / NANOS_PER_MILLI,
+				histogram.getValueAtPercentile(99) / NANOS_PER_MILLI,
+				histogram.getValueAtPercentile(99.9) / NANOS_PER_MILLI,
+				histogram.getMaxValue() / NANOS_PER_MILLI, errors);
+	}
+}
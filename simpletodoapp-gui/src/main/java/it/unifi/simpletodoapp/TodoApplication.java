@@ -1,23 +1,45 @@
 package it.unifi.simpletodoapp;
 
 import java.awt.EventQueue;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 
 import it.unifi.simpletodoapp.controller.TodoController;
+import it.unifi.simpletodoapp.model.Tag;
+import it.unifi.simpletodoapp.model.Task;
+import it.unifi.simpletodoapp.repository.GroupCommitTransactionManager;
+import it.unifi.simpletodoapp.repository.TransactionManager;
+import it.unifi.simpletodoapp.repository.file.TransactionManagerFile;
+import it.unifi.simpletodoapp.repository.memory.TransactionManagerInMemory;
+import it.unifi.simpletodoapp.repository.mongo.ChangeStreamWatcher;
+import it.unifi.simpletodoapp.repository.mongo.ClientSessionPool;
 import it.unifi.simpletodoapp.repository.mongo.TagMongoRepository;
 import it.unifi.simpletodoapp.repository.mongo.TaskMongoRepository;
 import it.unifi.simpletodoapp.repository.mongo.TransactionManagerMongo;
+import it.unifi.simpletodoapp.repository.mongo.TransactionRetryPolicy;
+import it.unifi.simpletodoapp.service.AsyncTodoService;
+import it.unifi.simpletodoapp.service.EntityCacheInvalidator;
+import it.unifi.simpletodoapp.service.LruEntityCache;
+import it.unifi.simpletodoapp.service.ReadCoalescer;
 import it.unifi.simpletodoapp.service.TodoService;
 import it.unifi.simpletodoapp.view.swing.TodoSwingView;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 
-@Command(mixinStandardHelpOptions = true)
+@Command(mixinStandardHelpOptions = true, subcommands = { DatasetGeneratorCommand.class, LoadCommand.class })
 public class TodoApplication implements Callable<Void> {
+	private static final int ASYNC_QUEUE_CAPACITY = 64;
+	private static final long WATCHER_RETRY_DELAY_MILLIS = 1000;
+	private static final long WATCHER_OPEN_TIMEOUT_SECONDS = 10;
+
 	@Option(names = { "--mongo-url" }, description = "MongoDB replica set URL")
 	private String mongoReplicaUrl = "mongodb://mongo-primary:27017";
 
@@ -30,27 +52,170 @@ public class TodoApplication implements Callable<Void> {
 	@Option(names = { "--db-tagsCollection" }, description = "Tags collection name")
 	private String tagsCollection = "tags";
 
+	@Option(names = { "--lazy-page-size" }, description = "Page size of the lazily loaded lists, 0 to load all elements")
+	private int lazyPageSize = 0;
+
+	@Option(names = { "--lazy-cached-pages" }, description = "Pages kept in memory by each lazily loaded list")
+	private int lazyCachedPages = 10;
+
+	@Option(names = { "--cache-size" }, description = "Tasks and tags cached by ID, each, 0 to disable the caches")
+	private int cacheSize = 0;
+
+	@Option(names = { "--coalesce-reads" }, description = "Share a single database read between identical concurrent reads")
+	private boolean coalesceReads = false;
+
+	@Option(names = { "--watch-changes" }, description = "Show the changes made by other clients as they happen")
+	private boolean watchChanges = false;
+
+	@Option(names = { "--async-workers" }, description = "Threads calling the database off the GUI thread, 0 to call it from the GUI thread")
+	private int asyncWorkers = 0;
+
+	@Option(names = { "--session-pool-size" }, description = "Database sessions kept for reuse, 0 to start a session for each operation")
+	private int sessionPoolSize = 0;
+
+	@Option(names = { "--transaction-attempts" }, description = "Attempts of transactions failed for transient errors, 1 to never retry them")
+	private int transactionAttempts = TransactionRetryPolicy.DEFAULT_MAX_ATTEMPTS;
+
+	@Option(names = { "--group-commit-window" }, description = "Microseconds concurrent writes wait to share a transaction, 0 to commit each write alone")
+	private long groupCommitWindowMicros = 0;
+
+	@Option(names = { "--in-memory" }, description = "Keep tasks and tags in memory instead of MongoDB, losing them on exit")
+	private boolean inMemory = false;
+
+	@Option(names = { "--data-dir" }, description = "Keep tasks and tags in files of this directory instead of MongoDB")
+	private Path dataDirectory = null;
+
+	private LruEntityCache<Task> taskCache;
+	private LruEntityCache<Tag> tagCache;
+
 	public static void main(String[] args) {
 		new CommandLine(new TodoApplication()).execute(args);
 	}
 
 	@Override
 	public Void call() throws Exception {
+		/* The database and the change stream are set up by the calling thread,
+		 * so that the Event Dispatch Thread only builds and shows the window */
+		MongoClient mongoClient = createMongoClient();
+		TodoService todoService = createTodoService(createTransactionManager(mongoClient));
+		ChangeStreamWatcher changeStreamWatcher = watchChanges && mongoClient != null
+				? startChangeStreamWatcher(mongoClient, todoService)
+				: null;
+		boolean streamOpened = changeStreamWatcher == null || awaitStreamOpened(changeStreamWatcher);
+		AtomicReference<TodoController> todoControllerReference = new AtomicReference<>();
+
 		EventQueue.invokeLater(() -> {
-			MongoClient mongoClient = MongoClients.create(mongoReplicaUrl);
-			TaskMongoRepository taskRepository = 
-					new TaskMongoRepository(mongoClient, dbName, tasksCollection);
-			TagMongoRepository tagRepository =
-					new TagMongoRepository(mongoClient, dbName, tagsCollection);
-			TransactionManagerMongo transactionManagerMongo = 
-					new TransactionManagerMongo(mongoClient, taskRepository, tagRepository);
-			TodoService todoService = new TodoService(transactionManagerMongo);
 			TodoSwingView todoSwingView = new TodoSwingView();
 			TodoController todoController = new TodoController(todoService, todoSwingView);
+			// Requests beyond the queue of the bounded executor are reported in the view
+			if (asyncWorkers > 0)
+				todoController.useAsynchronousMode(
+						AsyncTodoService.newBoundedExecutor(asyncWorkers, ASYNC_QUEUE_CAPACITY), EventQueue::invokeLater);
+			if (lazyPageSize > 0)
+				todoSwingView.useLazyLists(lazyPageSize, lazyCachedPages);
+			// Subscribed before the first read, so that no change following it is missed
+			if (changeStreamWatcher != null)
+				todoService.subscribe(todoController, EventQueue::invokeLater);
+			todoControllerReference.set(todoController);
 			todoSwingView.setTodoController(todoController);
 			todoSwingView.setVisible(true);
 		});
 
+		/* A stream opened after the first reads may have missed the changes
+		 * committed in between: once it is open, the lists are read again */
+		if (!streamOpened) {
+			while (!awaitStreamOpened(changeStreamWatcher)) {
+				// The watcher keeps trying to open the stream until the database answers
+			}
+
+			EventQueue.invokeLater(() -> todoControllerReference.get().changesLost());
+		}
+
 		return null;
 	}
-}
\ No newline at end of file
+
+	MongoClient createMongoClient() {
+		// No client at all when tasks and tags are not kept in MongoDB
+		return inMemory || dataDirectory != null ? null : MongoClients.create(mongoReplicaUrl);
+	}
+
+	TransactionManager createTransactionManager(MongoClient mongoClient) {
+		// Without a database, the transaction attempts only bound the retries of write conflicts
+		if (inMemory) {
+			TransactionManagerInMemory transactionManagerInMemory = new TransactionManagerInMemory();
+			transactionManagerInMemory.useMaxAttempts(transactionAttempts);
+			return transactionManagerInMemory;
+		}
+
+		if (dataDirectory != null) {
+			// Every commit is durable when it returns, so nothing is lost without closing it
+			TransactionManagerFile transactionManagerFile = new TransactionManagerFile(dataDirectory);
+			transactionManagerFile.useMaxAttempts(transactionAttempts);
+			try {
+				transactionManagerFile.open();
+			} catch (IOException exception) {
+				throw new UncheckedIOException(exception);
+			}
+			return transactionManagerFile;
+		}
+
+		TaskMongoRepository taskRepository = 
+				new TaskMongoRepository(mongoClient, dbName, tasksCollection);
+		TagMongoRepository tagRepository =
+				new TagMongoRepository(mongoClient, dbName, tagsCollection);
+		// Created, or checked, once at startup, failing it when the existing data breaks a unique index
+		taskRepository.ensureIndexes();
+		tagRepository.ensureIndexes();
+		TransactionManagerMongo transactionManagerMongo = 
+				new TransactionManagerMongo(mongoClient, taskRepository, tagRepository);
+		transactionManagerMongo.useRetryPolicy(new TransactionRetryPolicy(transactionAttempts));
+		if (sessionPoolSize > 0)
+			transactionManagerMongo.useSessionPool(new ClientSessionPool(mongoClient, sessionPoolSize));
+		return transactionManagerMongo;
+	}
+
+	TodoService createTodoService(TransactionManager transactionManager) {
+		// Group commit, caches and read coalescing as requested by the options
+		if (groupCommitWindowMicros > 0) {
+			GroupCommitTransactionManager groupCommitTransactionManager =
+					new GroupCommitTransactionManager(transactionManager, groupCommitWindowMicros);
+			groupCommitTransactionManager.start();
+			transactionManager = groupCommitTransactionManager;
+		}
+		TodoService todoService = new TodoService(transactionManager);
+		if (cacheSize > 0) {
+			taskCache = new LruEntityCache<>(cacheSize);
+			tagCache = new LruEntityCache<>(cacheSize);
+			todoService.useEntityCaches(taskCache, tagCache);
+		}
+		if (coalesceReads)
+			todoService.useReadCoalescer(new ReadCoalescer());
+		return todoService;
+	}
+
+	private ChangeStreamWatcher startChangeStreamWatcher(MongoClient mongoClient, TodoService todoService) {
+		/* Caches are invalidated as soon as a change arrives, while the view,
+		 * subscribed once created, is notified on the Event Dispatch Thread, the
+		 * changes arriving while it is busy being merged together */
+		ChangeStreamWatcher changeStreamWatcher = new ChangeStreamWatcher(
+				mongoClient, dbName, tasksCollection, tagsCollection, WATCHER_RETRY_DELAY_MILLIS);
+
+		if (taskCache != null)
+			changeStreamWatcher.addListener(new EntityCacheInvalidator(taskCache, tagCache), Runnable::run);
+
+		todoService.useChangeSource(changeStreamWatcher);
+		changeStreamWatcher.start();
+		return changeStreamWatcher;
+	}
+
+	private boolean awaitStreamOpened(ChangeStreamWatcher changeStreamWatcher) {
+		// The stream is opened by the thread of the watcher, which first reads the IDs of all documents
+		try {
+			return changeStreamWatcher.awaitStreamOpened(WATCHER_OPEN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		} catch (InterruptedException exception) {
+			// The application is exiting, so there is nothing left to wait for
+			Thread.currentThread().interrupt();
+			return true;
+		}
+	}
+}
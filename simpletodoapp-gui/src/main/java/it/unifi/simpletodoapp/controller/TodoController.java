@@ -1,137 +1,357 @@
 package it.unifi.simpletodoapp.controller;
 
-import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
+import it.unifi.simpletodoapp.model.Page;
 import it.unifi.simpletodoapp.model.Tag;
 import it.unifi.simpletodoapp.model.Task;
 import it.unifi.simpletodoapp.repository.TagRepositoryException;
 import it.unifi.simpletodoapp.repository.TaskRepositoryException;
+import it.unifi.simpletodoapp.repository.TodoChangeListener;
 import it.unifi.simpletodoapp.service.TodoService;
 import it.unifi.simpletodoapp.view.TodoView;
 
-public class TodoController {
+public class TodoController implements TodoChangeListener {
+	/* Kinds of requests sent to the service: a read result is dropped when a
+	 * newer read of the same kind has been sent in the meantime, and sent again
+	 * when an update that may change it completed after it started, while
+	 * updates are never dropped; errors are shown in the tab the request
+	 * comes from */
+	private enum Request {
+		ALL_TASKS(false, true),
+		TASK_TAGS(false, true),
+		TASK_UPDATE(true, true),
+		ALL_TAGS(false, false),
+		TAG_TASKS(false, false),
+		TAG_UPDATE(true, false);
+
+		private final boolean update;
+		private final boolean fromTasksTab;
+
+		private Request(boolean update, boolean fromTasksTab) {
+			this.update = update;
+			this.fromTasksTab = fromTasksTab;
+		}
+
+		private boolean affects(Request read) {
+			// Any update may change the tags of tasks and the tasks of tags, not the list of the other tab
+			return update && read != (fromTasksTab ? ALL_TAGS : ALL_TASKS);
+		}
+	}
+
+	static final String TOO_MANY_REQUESTS_MESSAGE = "Too many pending requests, please retry";
+
 	private TodoService todoService;
 	private TodoView todoView;
+	private boolean asynchronous;
+	private Executor serviceExecutor;
+	private Executor viewExecutor;
+	private final Map<Request, AtomicLong> latestRequests = new EnumMap<>(Request.class);
+	// Updates completed that may change the result of each kind of read
+	private final Map<Request, AtomicLong> completedUpdates = new EnumMap<>(Request.class);
+	private int updatesInFlight;
 
 	public TodoController(TodoService todoService, TodoView todoView) {
 		this.todoService = todoService;
 		this.todoView = todoView;
+
+		for (Request request : Request.values()) {
+			latestRequests.put(request, new AtomicLong());
+			completedUpdates.put(request, new AtomicLong());
+		}
+	}
+
+	public void useAsynchronousMode(Executor serviceExecutor, Executor viewExecutor) {
+		/* Service calls run on the (bounded) service executor, so that the thread
+		 * calling the controller is never blocked, while the view is only updated
+		 * through the view executor; must be called before any other method */
+		this.serviceExecutor = serviceExecutor;
+		this.viewExecutor = viewExecutor;
+		this.asynchronous = true;
 	}
 
 	public void getAllTasks() {
-		todoView.showAllTasks(todoService.getAllTasks());
+		send(Request.ALL_TASKS, () -> {
+			List<Task> allTasks = todoService.getAllTasks();
+			return view -> view.showAllTasks(allTasks);
+		});
 	}
 
 	public void addTask(Task task) {
-		try {
-			todoService.saveTask(task);
-			todoView.taskAdded(task);
-		} catch (TaskRepositoryException exception) {
-			todoView.taskError(exception.getMessage());
-		}
+		send(Request.TASK_UPDATE, () -> {
+			try {
+				todoService.saveTask(task);
+				return view -> view.taskAdded(task);
+			} catch (TaskRepositoryException exception) {
+				return view -> view.taskError(exception.getMessage());
+			}
+		});
 	}
 
 	public void deleteTask(Task task) {
-		try {
-			todoService.deleteTask(task);
-			todoView.taskDeleted(task);
-		} catch (TaskRepositoryException exception) {
-			todoView.taskError(exception.getMessage());
-		}
+		send(Request.TASK_UPDATE, () -> {
+			try {
+				todoService.deleteTask(task);
+				return view -> view.taskDeleted(task);
+			} catch (TaskRepositoryException exception) {
+				return view -> view.taskError(exception.getMessage());
+			}
+		});
 	}
 
 	public void getAllTags() {
-		todoView.showAllTags(todoService.getAllTags());
+		send(Request.ALL_TAGS, () -> {
+			List<Tag> allTags = todoService.getAllTags();
+			return view -> view.showAllTags(allTags);
+		});
 	}
 
 	public void addTag(Tag tag) {
-		try {
-			todoService.saveTag(tag);
-			todoView.tagAdded(tag);
-		} catch (TagRepositoryException exception) {
-			todoView.tagError(exception.getMessage());
-		}
-
+		send(Request.TAG_UPDATE, () -> {
+			try {
+				todoService.saveTag(tag);
+				return view -> view.tagAdded(tag);
+			} catch (TagRepositoryException exception) {
+				return view -> view.tagError(exception.getMessage());
+			}
+		});
 	}
 
 	public void deleteTag(Tag tag) {
-		try {
-			todoService.deleteTag(tag);
-			todoView.tagDeleted(tag);
-		} catch (TagRepositoryException exception) {
-			todoView.tagError(exception.getMessage());
-		}
+		send(Request.TAG_UPDATE, () -> {
+			try {
+				todoService.deleteTag(tag);
+				return view -> view.tagDeleted(tag);
+			} catch (TagRepositoryException exception) {
+				return view -> view.tagError(exception.getMessage());
+			}
+		});
 	}
 
 	public void addTagToTask(Task task, Tag tag) {
-		try {
-			todoService.addTagToTask(task.getId(), tag.getId());
-			todoView.tagAddedToTask(tag);
-		} catch (TaskRepositoryException exception) {
-			todoView.taskError(exception.getMessage());
-		} catch (TagRepositoryException exception) {
-			todoView.tagError(exception.getMessage());
-		}
+		send(Request.TASK_UPDATE, () -> {
+			try {
+				todoService.addTagToTask(task.getId(), tag.getId());
+				return view -> view.tagAddedToTask(tag);
+			} catch (TaskRepositoryException exception) {
+				return view -> view.taskError(exception.getMessage());
+			} catch (TagRepositoryException exception) {
+				return view -> view.tagError(exception.getMessage());
+			}
+		});
 	}
 
 	public void removeTagFromTask(Task task, Tag tag) {
-		try {
-			todoService.removeTagFromTask(task.getId(), tag.getId());
-			todoView.tagRemovedFromTask(tag);
-		} catch (TaskRepositoryException exception) {
-			todoView.taskError(exception.getMessage());
-		} catch (TagRepositoryException exception) {
-			todoView.tagError(exception.getMessage());
-		}
+		send(Request.TASK_UPDATE, () -> {
+			try {
+				todoService.removeTagFromTask(task.getId(), tag.getId());
+				return view -> view.tagRemovedFromTask(tag);
+			} catch (TaskRepositoryException exception) {
+				return view -> view.taskError(exception.getMessage());
+			} catch (TagRepositoryException exception) {
+				return view -> view.tagError(exception.getMessage());
+			}
+		});
 	}
 
 	public void removeTaskFromTag(Tag tag, Task task) {
-		try {
-			todoService.removeTaskFromTag(task.getId(), tag.getId());
-			todoView.taskRemovedFromTag(task);
-		} catch (TaskRepositoryException exception) {
-			todoView.taskError(exception.getMessage());
-		} catch (TagRepositoryException exception) {
-			todoView.tagError(exception.getMessage());
-		}
+		send(Request.TAG_UPDATE, () -> {
+			try {
+				todoService.removeTaskFromTag(task.getId(), tag.getId());
+				return view -> view.taskRemovedFromTag(task);
+			} catch (TaskRepositoryException exception) {
+				return view -> view.taskError(exception.getMessage());
+			} catch (TagRepositoryException exception) {
+				return view -> view.tagError(exception.getMessage());
+			}
+		});
 	}
 
 	public void getTagsByTask(Task task) {
-		try {
-			List<String> tags = todoService.findTagsByTaskId(task.getId());
-			todoView.showTaskTags(getTags(tags));
-		} catch (TaskRepositoryException exception) {
-			todoView.taskError(exception.getMessage());
-		}
+		send(Request.TASK_TAGS, () -> {
+			try {
+				List<String> tags = todoService.findTagsByTaskId(task.getId());
+				List<Tag> taskTags = todoService.findTagsByIds(tags);
+				return view -> view.showTaskTags(taskTags);
+			} catch (TaskRepositoryException exception) {
+				return view -> view.taskError(exception.getMessage());
+			}
+		});
 	}
 
 	public void getTasksByTag(Tag tag) {
+		send(Request.TAG_TASKS, () -> {
+			try {
+				List<String> tasks = todoService.findTasksByTagId(tag.getId());
+				List<Task> tagTasks = todoService.findTasksByIds(tasks);
+				return view -> view.showTagTasks(tagTasks);
+			} catch (TagRepositoryException exception) {
+				return view -> view.tagError(exception.getMessage());
+			}
+		});
+	}
+
+	/* Changes made by any client, this one included, as notified by the
+	 * subscription to the service: the view ignores the ones it already shows */
+	@Override
+	public void taskAdded(Task task) {
+		todoView.taskAdded(task);
+	}
+
+	@Override
+	public void taskChanged(Task task) {
+		todoView.taskChanged(task);
+	}
+
+	@Override
+	public void taskDeleted(Task task) {
+		todoView.taskDeleted(task);
+	}
+
+	@Override
+	public void tagAdded(Tag tag) {
+		todoView.tagAdded(tag);
+	}
+
+	@Override
+	public void tagChanged(Tag tag) {
+		todoView.tagChanged(tag);
+	}
+
+	@Override
+	public void tagDeleted(Tag tag) {
+		todoView.tagDeleted(tag);
+	}
+
+	@Override
+	public void tagAssigned(Task task, Tag tag) {
+		todoView.tagAssigned(task, tag);
+	}
+
+	@Override
+	public void tagUnassigned(Task task, Tag tag) {
+		todoView.tagUnassigned(task, tag);
+	}
+
+	@Override
+	public void changesLost() {
+		// The view decides which lists to read again, lazy lists only counting their rows
+		todoView.changesLost();
+	}
+
+	/* Pull-style accessors used by lazily paged views: unlike the other
+	 * methods they return the data instead of pushing it to the view, so
+	 * that the view can load only the rows it is about to display */
+	public long countTasks() {
+		return todoService.countTasks();
+	}
+
+	public Page<Task> getTasksPage(String afterId, int limit) {
+		return todoService.getTasksPage(afterId, limit);
+	}
+
+	public Page<Task> getTasksPageAt(int offset, int limit) {
+		return todoService.getTasksPageAt(offset, limit);
+	}
+
+	public long countTags() {
+		return todoService.countTags();
+	}
+
+	public Page<Tag> getTagsPage(String afterId, int limit) {
+		return todoService.getTagsPage(afterId, limit);
+	}
+
+	public Page<Tag> getTagsPageAt(int offset, int limit) {
+		return todoService.getTagsPageAt(offset, limit);
+	}
+
+	private void send(Request request, Supplier<Consumer<TodoView>> serviceCall) {
+		/* The service call returns the update to apply to the view, so that
+		 * it can be applied later, from another thread, or dropped */
+		if (!asynchronous) {
+			serviceCall.get().accept(todoView);
+			return;
+		}
+
+		long requestNumber = latestRequests.get(request).incrementAndGet();
+
+		if (request.update)
+			viewExecutor.execute(this::updateStarted);
+
 		try {
-			List<String> tasks = todoService.findTasksByTagId(tag.getId());
-			todoView.showTagTasks(getTasks(tasks));
-		} catch (TagRepositoryException exception) {
-			todoView.tagError(exception.getMessage());
+			serviceExecutor.execute(() -> {
+				long updatesBefore = completedUpdates.get(request).get();
+				Consumer<TodoView> viewUpdate;
+
+				try {
+					viewUpdate = serviceCall.get();
+				} catch (RuntimeException exception) {
+					// Unexpected failures, e.g. database unreachable, must not be lost in the executor
+					viewUpdate = errorUpdate(request, exception.getMessage());
+				}
+
+				if (request.update)
+					updateDone(request);
+
+				Consumer<TodoView> result = viewUpdate;
+				viewExecutor.execute(() -> completed(request, requestNumber, updatesBefore, result, serviceCall));
+			});
+		} catch (RejectedExecutionException exception) {
+			viewExecutor.execute(() -> completed(request, requestNumber, completedUpdates.get(request).get(),
+					errorUpdate(request, TOO_MANY_REQUESTS_MESSAGE), serviceCall));
 		}
 	}
 
-	private List<Tag> getTags(List<String> tagIds) {
-		List<Tag> tags = new ArrayList<>();
+	private void updateDone(Request update) {
+		// Counted before its result reaches the view, so that reads started earlier are sent again
+		for (Request read : Request.values()) {
+			if (update.affects(read))
+				completedUpdates.get(read).incrementAndGet();
+		}
+	}
 
-		for (String tagId : tagIds) {
-			tags.add(todoService.findTagById(tagId));
+	private void completed(Request request, long requestNumber, long updatesBefore,
+			Consumer<TodoView> viewUpdate, Supplier<Consumer<TodoView>> serviceCall) {
+		// Only run through the view executor, so it needs no further synchronization
+		if (request.update) {
+			viewUpdate.accept(todoView);
+			updateCompleted();
+		} else if (requestNumber != latestRequests.get(request).get()) {
+			return;
+		} else if (updatesBefore != completedUpdates.get(request).get()) {
+			// May predate an update already shown, which it would undo
+			send(request, serviceCall);
+		} else {
+			viewUpdate.accept(todoView);
 		}
+	}
+
+	private void updateStarted() {
+		updatesInFlight++;
 
-		return tags;
+		if (updatesInFlight == 1)
+			todoView.showInFlight(true);
 	}
 
-	private List<Task> getTasks(List<String> taskIds) {
-		List<Task> tasks = new ArrayList<>();
+	private void updateCompleted() {
+		updatesInFlight--;
 
-		for (String taskId : taskIds) {
-			tasks.add(todoService.findTaskById(taskId));
-		}
+		if (updatesInFlight == 0)
+			todoView.showInFlight(false);
+	}
 
-		return tasks;
+	private Consumer<TodoView> errorUpdate(Request request, String errorMessage) {
+		if (request.fromTasksTab)
+			return view -> view.taskError(errorMessage);
+		else
+			return view -> view.tagError(errorMessage);
 	}
 }
\ No newline at end of file
@@ -19,4 +19,12 @@ public interface TodoView {
 	public void taskRemovedFromTag(Task task);
 	public void tagAddedToTask(Tag tag);
 	public void tagRemovedFromTask(Tag tag);
+	public void showInFlight(boolean inFlight);
+	// Changes made by other clients, applied to the lists already shown
+	public void taskChanged(Task task);
+	public void tagChanged(Tag tag);
+	public void tagAssigned(Task task, Tag tag);
+	public void tagUnassigned(Task task, Tag tag);
+	// Changes of other clients were lost, so the lists shown must be read again
+	public void changesLost();
 }
\ No newline at end of file
@@ -0,0 +1,109 @@
+package it.unifi.simpletodoapp.view.swing;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import javax.swing.AbstractListModel;
+
+/* ListModel backed by an ArrayList, with an index from the ID of each element
+ * to its position: elements are removed by ID without scanning the list nor
+ * allocating a view model to compare, and replacing all the elements fires a
+ * constant number of events instead of one for each of them */
+class IndexedListModel<E> extends AbstractListModel<E> {
+	private static final long serialVersionUID = -2353184306524880557L;
+
+	private final transient Function<E, String> idExtractor;
+	private final transient List<E> elements = new ArrayList<>();
+	private final transient Map<String, Integer> indexes = new HashMap<>();
+
+	IndexedListModel(Function<E, String> idExtractor) {
+		this.idExtractor = idExtractor;
+	}
+
+	@Override
+	public int getSize() {
+		return elements.size();
+	}
+
+	@Override
+	public E getElementAt(int index) {
+		return elements.get(index);
+	}
+
+	public E get(int index) {
+		return elements.get(index);
+	}
+
+	public void add(E element) {
+		// An element with the ID of one already present replaces it in place
+		String id = idExtractor.apply(element);
+		Integer existingIndex = indexes.get(id);
+
+		if (existingIndex != null) {
+			elements.set(existingIndex, element);
+			fireContentsChanged(this, existingIndex, existingIndex);
+			return;
+		}
+
+		int index = elements.size();
+		elements.add(element);
+		indexes.put(id, index);
+		fireIntervalAdded(this, index, index);
+	}
+
+	public void replace(E element) {
+		// Unlike add, an element whose ID is not present is ignored
+		Integer index = indexes.get(idExtractor.apply(element));
+
+		if (index == null)
+			return;
+
+		elements.set(index, element);
+		fireContentsChanged(this, index, index);
+	}
+
+	public void removeById(String id) {
+		Integer index = indexes.remove(id);
+
+		if (index == null)
+			return;
+
+		elements.remove(index.intValue());
+
+		// The following elements are shifted back by one position
+		for (int i = index; i < elements.size(); i++)
+			indexes.put(idExtractor.apply(elements.get(i)), i);
+
+		fireIntervalRemoved(this, index, index);
+	}
+
+	public void replaceAll(List<E> newElements) {
+		/* Firing the removal of the old interval and the addition of the new one,
+		 * rather than a single change, also clears the selection of the lists,
+		 * which would otherwise point to rows now holding other elements */
+		int oldSize = elements.size();
+		elements.clear();
+		indexes.clear();
+		elements.addAll(newElements);
+
+		for (int i = 0; i < elements.size(); i++)
+			indexes.put(idExtractor.apply(elements.get(i)), i);
+
+		if (oldSize > 0)
+			fireIntervalRemoved(this, 0, oldSize - 1);
+		if (!elements.isEmpty())
+			fireIntervalAdded(this, 0, elements.size() - 1);
+	}
+
+	public void clear() {
+		int oldSize = elements.size();
+		elements.clear();
+		indexes.clear();
+
+		if (oldSize > 0)
+			fireIntervalRemoved(this, 0, oldSize - 1);
+	}
+}
@@ -0,0 +1,370 @@
+package it.unifi.simpletodoapp.view.swing;
+
+import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import javax.swing.AbstractListModel;
+
+import it.unifi.simpletodoapp.model.Page;
+
+/* ListModel that only knows the total number of rows and loads the pages
+ * containing the requested rows on demand: rows not loaded yet are returned
+ * as null (rendered as blank rows) and filled in as soon as their page
+ * arrives. A page following a loaded one is read through keyset pagination,
+ * from the cursor the latter returned, while any other page is read directly
+ * at its offset, so that jumping far away costs a single read. Pages are
+ * fetched with the loading executor, off the Event Dispatch Thread, while
+ * results are applied with the UI executor; all the state of the model is
+ * only accessed from the latter. Only the pages closest to the last requested
+ * one are kept in memory, while the cursors of all visited pages are kept.
+ * Failed counts and page loads are reported through the error reporter.
+ * Rows are sorted by ID, so that single added, changed and removed rows are
+ * applied to the loaded pages in place, without counting the rows again */
+final class PagedListModel<E> extends AbstractListModel<E> {
+	private static final long serialVersionUID = 3604137052212271867L;
+	// Number of added and removed IDs remembered to ignore the repeated notifications of a change
+	private static final int MAX_RECENT_CHANGES = 1024;
+
+	interface PageSource<E> {
+		long count();
+		Page<E> loadPage(String afterId, int limit);
+		Page<E> loadPageAt(int offset, int limit);
+	}
+
+	private final transient PageSource<E> pageSource;
+	private final transient Function<E, String> idExtractor;
+	private final int pageSize;
+	private final int maxCachedPages;
+	private final transient Consumer<String> errorReporter;
+	private final transient Executor loadingExecutor;
+	private final transient Executor uiExecutor;
+
+	private int size;
+	private final Map<Integer, List<E>> pages = new HashMap<>();
+	// Cursor of the pages following a loaded one, i.e. the ID of the last row of the latter
+	private final Map<Integer, String> pageCursors = new HashMap<>();
+	private final Set<Integer> pendingPages = new HashSet<>();
+	private int lastRequestedPage;
+	// Incremented on each refresh and change so that pages loaded before it are discarded
+	private int generation;
+	private boolean refreshPending;
+	// Whether each recently changed ID was added (true) or removed (false)
+	private final transient Map<String, Boolean> recentChanges = new LinkedHashMap<String, Boolean>() {
+		private static final long serialVersionUID = -4526146318467011239L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+			return size() > MAX_RECENT_CHANGES;
+		}
+	};
+
+	PagedListModel(PageSource<E> pageSource, Function<E, String> idExtractor, int pageSize, int maxCachedPages, Consumer<String> errorReporter,
+			Executor loadingExecutor, Executor uiExecutor) {
+		if (pageSize <= 0 || maxCachedPages <= 0) {
+			throw new IllegalArgumentException("Page size and cached pages must be positive");
+		}
+
+		this.pageSource = pageSource;
+		this.idExtractor = idExtractor;
+		this.pageSize = pageSize;
+		this.maxCachedPages = maxCachedPages;
+		this.errorReporter = errorReporter;
+		this.loadingExecutor = loadingExecutor;
+		this.uiExecutor = uiExecutor;
+		this.pageCursors.put(0, null);
+	}
+
+	@Override
+	public int getSize() {
+		return size;
+	}
+
+	@Override
+	public E getElementAt(int index) {
+		int pageIndex = index / pageSize;
+		lastRequestedPage = pageIndex;
+		List<E> page = pages.get(pageIndex);
+
+		if (page == null) {
+			requestPage(pageIndex);
+			return null;
+		}
+
+		int pageOffset = index % pageSize;
+		return pageOffset < page.size() ? page.get(pageOffset) : null;
+	}
+
+	public void refresh() {
+		/* Counts the rows again and drops all loaded pages and cursors, since
+		 * insertions and deletions shift the rows among pages */
+		int refreshGeneration = ++generation;
+		refreshPending = true;
+
+		loadingExecutor.execute(() -> {
+			long count;
+
+			try {
+				count = pageSource.count();
+			} catch (RuntimeException e) {
+				/* The rows already shown are kept, while the pages still pending
+				 * are discarded by the new generation: they may be requested again */
+				uiExecutor.execute(() -> {
+					if (refreshGeneration != generation)
+						return;
+
+					refreshPending = false;
+					pendingPages.clear();
+					errorReporter.accept(e.getMessage());
+				});
+				return;
+			}
+
+			uiExecutor.execute(() -> {
+				if (refreshGeneration != generation)
+					return;
+
+				refreshPending = false;
+				pages.clear();
+				pendingPages.clear();
+				pageCursors.clear();
+				pageCursors.put(0, null);
+
+				int oldSize = size;
+				size = (int) Math.min(count, Integer.MAX_VALUE);
+
+				if (oldSize > 0)
+					fireIntervalRemoved(this, 0, oldSize - 1);
+				if (size > 0)
+					fireIntervalAdded(this, 0, size - 1);
+			});
+		});
+	}
+
+	public void add(E element) {
+		/* The rows following the new one move one row down; the new row is only
+		 * placed when the row preceding it is loaded and is either the last one
+		 * or followed by a loaded row, otherwise it is loaded with its page */
+		String id = idExtractor.apply(element);
+
+		if (refreshPending) {
+			// The count may have been read before the change
+			refresh();
+			return;
+		}
+
+		if (replaceLoadedRow(element) || Boolean.TRUE.equals(recentChanges.get(id)))
+			return;
+
+		TreeMap<Integer, E> rows = new TreeMap<>();
+		int previousRow = -1;
+
+		for (Map.Entry<Integer, E> row : loadedRows().entrySet()) {
+			if (idExtractor.apply(row.getValue()).compareTo(id) < 0) {
+				rows.put(row.getKey(), row.getValue());
+				previousRow = row.getKey();
+			} else {
+				rows.put(row.getKey() + 1, row.getValue());
+			}
+		}
+
+		int index = previousRow + 1;
+
+		if (index == size || rows.containsKey(index + 1))
+			rows.put(index, element);
+
+		size++;
+		recentChanges.put(id, true);
+		replacePages(rows, id);
+		fireIntervalAdded(this, index, index);
+	}
+
+	public void replace(E element) {
+		// Rows not loaded are read with their page
+		if (!refreshPending)
+			replaceLoadedRow(element);
+	}
+
+	public void removeById(String id) {
+		// The rows following the removed one move one row up
+		if (refreshPending) {
+			refresh();
+			return;
+		}
+
+		if (size == 0 || Boolean.FALSE.equals(recentChanges.get(id)))
+			return;
+
+		TreeMap<Integer, E> loadedRows = loadedRows();
+		TreeMap<Integer, E> rows = new TreeMap<>();
+		int previousRow = -1;
+		int index = -1;
+
+		for (Map.Entry<Integer, E> row : loadedRows.entrySet()) {
+			int comparison = idExtractor.apply(row.getValue()).compareTo(id);
+
+			if (comparison < 0) {
+				rows.put(row.getKey(), row.getValue());
+				previousRow = row.getKey();
+			} else if (comparison > 0) {
+				rows.put(row.getKey() - 1, row.getValue());
+			} else {
+				index = row.getKey();
+			}
+		}
+
+		/* A row not loaded is removed right after the loaded row preceding it,
+		 * unless the latter is the last row or followed by a loaded one, in
+		 * which case the row is not in the list */
+		if (index == -1) {
+			index = previousRow + 1;
+
+			if (index == size || loadedRows.containsKey(index))
+				return;
+		}
+
+		size--;
+		recentChanges.put(id, false);
+		replacePages(rows, id);
+		fireIntervalRemoved(this, index, index);
+	}
+
+	int getCachedPages() {
+		return pages.size();
+	}
+
+	private void requestPage(int pageIndex) {
+		if (!pendingPages.add(pageIndex))
+			return;
+
+		boolean followsLoadedPage = pageCursors.containsKey(pageIndex);
+		String afterId = pageCursors.get(pageIndex);
+		int loadGeneration = generation;
+
+		loadingExecutor.execute(() -> {
+			Page<E> page;
+
+			try {
+				page = followsLoadedPage ? pageSource.loadPage(afterId, pageSize)
+						: pageSource.loadPageAt(pageIndex * pageSize, pageSize);
+			} catch (RuntimeException e) {
+				// The page will be requested again the next time its rows are displayed
+				uiExecutor.execute(() -> {
+					if (loadGeneration != generation)
+						return;
+
+					pendingPages.remove(pageIndex);
+					errorReporter.accept(e.getMessage());
+				});
+				return;
+			}
+
+			uiExecutor.execute(() -> pageLoaded(pageIndex, page, loadGeneration));
+		});
+	}
+
+	private void pageLoaded(int pageIndex, Page<E> page, int loadGeneration) {
+		if (loadGeneration != generation)
+			return;
+
+		pendingPages.remove(pageIndex);
+		// Copied since loaded rows are replaced in place
+		pages.put(pageIndex, new ArrayList<>(page.getItems()));
+
+		if (page.hasNext())
+			pageCursors.put(pageIndex + 1, page.getNextCursor());
+
+		evictDistantPages();
+		firePageChanged(pageIndex);
+	}
+
+	private boolean replaceLoadedRow(E element) {
+		String id = idExtractor.apply(element);
+
+		for (Map.Entry<Integer, List<E>> page : pages.entrySet()) {
+			List<E> rows = page.getValue();
+
+			for (int i = 0; i < rows.size(); i++) {
+				if (idExtractor.apply(rows.get(i)).equals(id)) {
+					rows.set(i, element);
+					int index = page.getKey() * pageSize + i;
+					fireContentsChanged(this, index, index);
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	private TreeMap<Integer, E> loadedRows() {
+		TreeMap<Integer, E> rows = new TreeMap<>();
+
+		pages.forEach((pageIndex, page) -> {
+			for (int i = 0; i < page.size(); i++)
+				rows.put(pageIndex * pageSize + i, page.get(i));
+		});
+
+		return rows;
+	}
+
+	private void replacePages(TreeMap<Integer, E> rows, String changedId) {
+		/* Only the pages whose rows are all known after the change are kept,
+		 * the others are loaded again when displayed; cursors are kept only when
+		 * preceding the changed row, since the rows following it have moved */
+		pages.clear();
+		pendingPages.clear();
+		generation++;
+		pageCursors.values().removeIf(cursor -> cursor != null && cursor.compareTo(changedId) >= 0);
+
+		for (int pageIndex : rowsToPages(rows)) {
+			int firstRow = pageIndex * pageSize;
+			int lastRow = Math.min(firstRow + pageSize, size) - 1;
+			List<E> page = new ArrayList<>(rows.subMap(firstRow, true, lastRow, true).values());
+
+			if (firstRow <= lastRow && page.size() == lastRow - firstRow + 1) {
+				pages.put(pageIndex, page);
+
+				if (lastRow < size - 1)
+					pageCursors.put(pageIndex + 1, idExtractor.apply(page.get(page.size() - 1)));
+			}
+		}
+
+		evictDistantPages();
+	}
+
+	private Set<Integer> rowsToPages(TreeMap<Integer, E> rows) {
+		Set<Integer> pageIndexes = new HashSet<>();
+
+		for (int row : rows.keySet())
+			pageIndexes.add(row / pageSize);
+
+		return pageIndexes;
+	}
+
+	private void evictDistantPages() {
+		while (pages.size() > maxCachedPages) {
+			int farthestPage = pages.keySet().stream()
+					.max(Comparator.comparingInt(page -> Math.abs(page - lastRequestedPage)))
+					.orElseThrow(IllegalStateException::new);
+			pages.remove(farthestPage);
+		}
+	}
+
+	private void firePageChanged(int pageIndex) {
+		int firstRow = pageIndex * pageSize;
+		int lastRow = Math.min(firstRow + pageSize, size) - 1;
+
+		if (firstRow <= lastRow)
+			fireContentsChanged(this, firstRow, lastRow);
+	}
+}
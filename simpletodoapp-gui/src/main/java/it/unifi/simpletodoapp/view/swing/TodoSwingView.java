@@ -2,29 +2,38 @@ package it.unifi.simpletodoapp.view.swing;
 
 import java.awt.BorderLayout;
 import java.awt.Color;
+import java.awt.Container;
+import java.awt.Cursor;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import javax.swing.DefaultComboBoxModel;
-import javax.swing.DefaultListModel;
 import javax.swing.JButton;
 import javax.swing.JComboBox;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JList;
 import javax.swing.JPanel;
+import javax.swing.JScrollPane;
 import javax.swing.JSeparator;
 import javax.swing.JTabbedPane;
 import javax.swing.JTextField;
 import javax.swing.ListSelectionModel;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
 import javax.swing.border.EmptyBorder;
 
 import it.unifi.simpletodoapp.controller.TodoController;
+import it.unifi.simpletodoapp.model.Page;
 import it.unifi.simpletodoapp.model.Tag;
 import it.unifi.simpletodoapp.model.Task;
 import it.unifi.simpletodoapp.view.TodoView;
@@ -57,6 +66,9 @@ public class TodoSwingView extends JFrame implements TodoView {
 	private TaskListModel assignedTasksListModel = new TaskListModel();
 	private JButton btnRemoveTask;
 	private JLabel tagsErrorLabel;
+	private transient PagedListModel<TaskViewModel> pagedTaskListModel;
+	private transient PagedListModel<TagViewModel> pagedTagListModel;
+	private boolean inFlight;
 
 	static final class TaskViewModel {
 		private Task task;
@@ -77,15 +89,29 @@ public class TodoSwingView extends JFrame implements TodoView {
 		}
 	}
 
-	static final class TaskListModel extends DefaultListModel<TaskViewModel> {
+	static final class TaskListModel extends IndexedListModel<TaskViewModel> {
 		private static final long serialVersionUID = 1L;
 
+		public TaskListModel() {
+			super(taskViewModel -> taskViewModel.task.getId());
+		}
+
 		public void addTask(Task task) {
-			addElement(new TaskViewModel(task));
+			add(new TaskViewModel(task));
+		}
+
+		public void replaceTask(Task task) {
+			replace(new TaskViewModel(task));
 		}
 
 		public void removeTask(Task task) {
-			removeElement(new TaskViewModel(task));
+			removeById(task.getId());
+		}
+
+		public void showTasks(List<Task> tasks) {
+			replaceAll(tasks.stream()
+					.map(TaskViewModel::new)
+					.collect(Collectors.toList()));
 		}
 	}
 
@@ -112,7 +138,26 @@ public class TodoSwingView extends JFrame implements TodoView {
 		private static final long serialVersionUID = -9089534051472309798L;
 
 		public void addTag(Tag tag) {
-			addElement(new TagViewModel(tag));
+			TagViewModel tagViewModel = new TagViewModel(tag);
+
+			// The tag may already be shown, e.g. when notified of its own addition
+			if (getIndexOf(tagViewModel) == -1)
+				addElement(tagViewModel);
+		}
+
+		public void replaceTag(Tag tag) {
+			for (int i = 0; i < getSize(); i++) {
+				if (getElementAt(i).tag.getId().equals(tag.getId())) {
+					boolean selected = getElementAt(i) == getSelectedItem();
+					TagViewModel tagViewModel = new TagViewModel(tag);
+					removeElementAt(i);
+					insertElementAt(tagViewModel, i);
+
+					if (selected)
+						setSelectedItem(tagViewModel);
+					return;
+				}
+			}
 		}
 
 		public void removeTag(Tag tag) {
@@ -120,24 +165,107 @@ public class TodoSwingView extends JFrame implements TodoView {
 		}
 	}
 
-	static final class TagListModel extends DefaultListModel<TagViewModel> {
+	static final class TagListModel extends IndexedListModel<TagViewModel> {
 		private static final long serialVersionUID = -4728030913042234899L;
 
+		public TagListModel() {
+			super(tagViewModel -> tagViewModel.tag.getId());
+		}
+
 		public void addTag(Tag tag) {
-			addElement(new TagViewModel(tag));
+			add(new TagViewModel(tag));
+		}
+
+		public void replaceTag(Tag tag) {
+			replace(new TagViewModel(tag));
 		}
 
 		public void removeTag(Tag tag) {
-			removeElement(new TagViewModel(tag));
+			removeById(tag.getId());
+		}
+
+		public void showTags(List<Tag> tags) {
+			replaceAll(tags.stream()
+					.map(TagViewModel::new)
+					.collect(Collectors.toList()));
 		}
 	}
 
 	public void setTodoController(TodoController todoController) {
 		this.todoController = todoController;
-		this.todoController.getAllTasks();
+
+		if (isLazy())
+			pagedTaskListModel.refresh();
+		else
+			this.todoController.getAllTasks();
+
+		// All tags are always needed to fill the tags combo box
 		this.todoController.getAllTags();
 	}
 
+	public void useLazyLists(int pageSize, int maxCachedPages) {
+		ExecutorService pageLoader = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "todo-page-loader");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		useLazyLists(pageSize, maxCachedPages, pageLoader, SwingUtilities::invokeLater);
+	}
+
+	void useLazyLists(int pageSize, int maxCachedPages, Executor loadingExecutor, Executor uiExecutor) {
+		/* The task and tag lists only load the pages being displayed, through the
+		 * controller and off the Event Dispatch Thread, instead of keeping every
+		 * element in memory, their failures shown in the error label of their
+		 * tab; must be called before setting the controller */
+		pagedTaskListModel = new PagedListModel<>(new PagedListModel.PageSource<TaskViewModel>() {
+			@Override
+			public long count() {
+				return todoController.countTasks();
+			}
+
+			@Override
+			public Page<TaskViewModel> loadPage(String afterId, int limit) {
+				return toViewModels(todoController.getTasksPage(afterId, limit), TaskViewModel::new);
+			}
+
+			@Override
+			public Page<TaskViewModel> loadPageAt(int offset, int limit) {
+				return toViewModels(todoController.getTasksPageAt(offset, limit), TaskViewModel::new);
+			}
+		}, taskViewModel -> taskViewModel.task.getId(), pageSize, maxCachedPages, this::taskError,
+				loadingExecutor, uiExecutor);
+
+		pagedTagListModel = new PagedListModel<>(new PagedListModel.PageSource<TagViewModel>() {
+			@Override
+			public long count() {
+				return todoController.countTags();
+			}
+
+			@Override
+			public Page<TagViewModel> loadPage(String afterId, int limit) {
+				return toViewModels(todoController.getTagsPage(afterId, limit), TagViewModel::new);
+			}
+
+			@Override
+			public Page<TagViewModel> loadPageAt(int offset, int limit) {
+				return toViewModels(todoController.getTagsPageAt(offset, limit), TagViewModel::new);
+			}
+		}, tagViewModel -> tagViewModel.tag.getId(), pageSize, maxCachedPages, this::tagError,
+				loadingExecutor, uiExecutor);
+
+		tasksTaskList.setModel(pagedTaskListModel);
+		tagsTagList.setModel(pagedTagListModel);
+		makeScrollable(tasksTaskList, new TaskViewModel(new Task("0", "Task")));
+		makeScrollable(tagsTagList, new TagViewModel(new Tag("0", "Tag")));
+	}
+
+	private static <T, V> Page<V> toViewModels(Page<T> page, Function<T, V> viewModel) {
+		return new Page<>(page.getItems().stream()
+				.map(viewModel)
+				.collect(Collectors.toList()), page.getNextCursor());
+	}
+
 	/**
 	 * Create the frame.
 	 */
@@ -186,16 +314,21 @@ public class TodoSwingView extends JFrame implements TodoView {
 
 	@Override
 	public void showAllTasks(List<Task> allTasks) {
-		taskListModel.removeAllElements();
+		if (isLazy()) {
+			pagedTaskListModel.refresh();
+			return;
+		}
 
-		allTasks.stream().forEach(
-				task -> taskListModel.addTask(task)
-				);
+		taskListModel.showTasks(allTasks);
 	}
 
 	@Override
 	public void taskAdded(Task task) {
-		taskListModel.addTask(task);
+		if (isLazy())
+			pagedTaskListModel.add(new TaskViewModel(task));
+		else
+			taskListModel.addTask(task);
+
 		tasksErrorLabel.setText(" ");
 	}
 
@@ -206,25 +339,35 @@ public class TodoSwingView extends JFrame implements TodoView {
 
 	@Override
 	public void taskDeleted(Task task) {
-		taskListModel.removeTask(task);
+		if (isLazy())
+			pagedTaskListModel.removeById(task.getId());
+		else
+			taskListModel.removeTask(task);
+
 		tasksErrorLabel.setText(" ");
 	}
 
 	@Override
 	public void showAllTags(List<Tag> allTags) {
 		tagComboModel.removeAllElements();
-		tagListModel.removeAllElements();
 
 		allTags.stream().forEach(
-				tag -> {
-					tagComboModel.addTag(tag);
-					tagListModel.addTag(tag);
-				});
+				tag -> tagComboModel.addTag(tag)
+				);
+
+		if (isLazy())
+			pagedTagListModel.refresh();
+		else
+			tagListModel.showTags(allTags);
 	}
 
 	@Override
 	public void tagAdded(Tag tag) {
-		tagListModel.addTag(tag);
+		if (isLazy())
+			pagedTagListModel.add(new TagViewModel(tag));
+		else
+			tagListModel.addTag(tag);
+
 		tagComboModel.addTag(tag);
 		tagsErrorLabel.setText(" ");
 	}
@@ -236,27 +379,23 @@ public class TodoSwingView extends JFrame implements TodoView {
 
 	@Override
 	public void tagDeleted(Tag tag) {
-		tagListModel.removeTag(tag);
+		if (isLazy())
+			pagedTagListModel.removeById(tag.getId());
+		else
+			tagListModel.removeTag(tag);
+
 		tagComboModel.removeTag(tag);
 		tagsErrorLabel.setText(" ");
 	}
 
 	@Override
 	public void showTaskTags(List<Tag> tags) {
-		assignedTagsListModel.removeAllElements();
-
-		tags.stream().forEach(
-				tag -> assignedTagsListModel.addTag(tag)
-				);
+		assignedTagsListModel.showTags(tags);
 	}
 
 	@Override
 	public void showTagTasks(List<Task> tasks) {
-		assignedTasksListModel.removeAllElements();
-
-		tasks.stream().forEach(
-				task -> assignedTasksListModel.addTask(task)
-				);
+		assignedTasksListModel.showTasks(tasks);
 	}
 
 	@Override
@@ -277,6 +416,114 @@ public class TodoSwingView extends JFrame implements TodoView {
 		tasksErrorLabel.setText(" ");
 	}
 
+	@Override
+	public void showInFlight(boolean inFlight) {
+		/* While updates are in flight the buttons starting new ones are disabled
+		 * and the wait cursor is shown, but the window can still be browsed */
+		this.inFlight = inFlight;
+		contentPane.setCursor(inFlight
+				? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR)
+				: Cursor.getDefaultCursor());
+
+		btnAddTask.setEnabled(!inFlight
+				&& !taskIdTextField.getText().trim().isEmpty()
+				&& !taskDescriptionTextField.getText().trim().isEmpty());
+		btnDeleteTask.setEnabled(!inFlight && tasksTaskList.getSelectedValue() != null);
+		btnAssignTag.setEnabled(!inFlight && tasksTaskList.getSelectedValue() != null);
+		btnRemoveTag.setEnabled(!inFlight && assignedTagsList.getSelectedIndex() != -1);
+		btnAddTag.setEnabled(!inFlight
+				&& !tagIdTextField.getText().trim().isEmpty()
+				&& !tagNameTextField.getText().trim().isEmpty());
+		btnDeleteTag.setEnabled(!inFlight && tagsTagList.getSelectedValue() != null);
+		btnRemoveTask.setEnabled(!inFlight && assignedTasksList.getSelectedIndex() != -1);
+	}
+
+	@Override
+	public void taskChanged(Task task) {
+		if (isLazy())
+			pagedTaskListModel.replace(new TaskViewModel(task));
+		else
+			taskListModel.replaceTask(task);
+
+		assignedTasksListModel.replaceTask(task);
+	}
+
+	@Override
+	public void tagChanged(Tag tag) {
+		if (isLazy())
+			pagedTagListModel.replace(new TagViewModel(tag));
+		else
+			tagListModel.replaceTag(tag);
+
+		tagComboModel.replaceTag(tag);
+		assignedTagsListModel.replaceTag(tag);
+	}
+
+	@Override
+	public void changesLost() {
+		/* Lazy lists only count their rows again and drop their loaded pages,
+		 * instead of reading all tasks and tags, while the tags combo box keeps
+		 * the tags it was filled with, updated by the following changes */
+		if (isLazy()) {
+			pagedTaskListModel.refresh();
+			pagedTagListModel.refresh();
+			return;
+		}
+
+		todoController.getAllTasks();
+		todoController.getAllTags();
+	}
+
+	@Override
+	public void tagAssigned(Task task, Tag tag) {
+		// Only the assignments of the selected task and of the selected tag are shown
+		if (isSelectedTask(task))
+			assignedTagsListModel.addTag(tag);
+
+		if (isSelectedTag(tag))
+			assignedTasksListModel.addTask(task);
+	}
+
+	@Override
+	public void tagUnassigned(Task task, Tag tag) {
+		if (isSelectedTask(task))
+			assignedTagsListModel.removeTag(tag);
+
+		if (isSelectedTag(tag))
+			assignedTasksListModel.removeTask(task);
+	}
+
+	private boolean isSelectedTask(Task task) {
+		TaskViewModel selectedTask = tasksTaskList.getSelectedValue();
+		return selectedTask != null && selectedTask.task.getId().equals(task.getId());
+	}
+
+	private boolean isSelectedTag(Tag tag) {
+		TagViewModel selectedTag = tagsTagList.getSelectedValue();
+		return selectedTag != null && selectedTag.tag.getId().equals(tag.getId());
+	}
+
+	private boolean isLazy() {
+		return pagedTaskListModel != null;
+	}
+
+	private <E> void makeScrollable(JList<E> list, E prototypeValue) {
+		/* A fixed cell height lets the list lay out any number of rows without
+		 * asking the model for them, and the scroll pane makes it paint only the
+		 * rows in the viewport, so that only their pages are loaded */
+		list.setFixedCellHeight(list.getCellRenderer()
+				.getListCellRendererComponent(list, prototypeValue, 0, false, false)
+				.getPreferredSize().height);
+
+		Container parent = list.getParent();
+		GridBagConstraints constraints = ((GridBagLayout) parent.getLayout()).getConstraints(list);
+		parent.remove(list);
+		JScrollPane scrollPane = new JScrollPane(list);
+		scrollPane.setName(list.getName() + "ScrollPane");
+		parent.add(scrollPane, constraints);
+		parent.revalidate();
+	}
+
 	private void initialSetup() {
 		setTitle("Simple Todo Application");
 		setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -373,8 +620,8 @@ public class TodoSwingView extends JFrame implements TodoView {
 		KeyAdapter btnAddTaskEnabler = new KeyAdapter() {
 			@Override
 			public void keyReleased(KeyEvent e) {
-				btnAddTask.setEnabled(
-						!taskIdTextField.getText().trim().isEmpty()
+				btnAddTask.setEnabled(!inFlight
+						&& !taskIdTextField.getText().trim().isEmpty()
 						&& !taskDescriptionTextField.getText().trim().isEmpty());
 			}
 		};
@@ -438,16 +685,17 @@ public class TodoSwingView extends JFrame implements TodoView {
 		panel.add(tasksTaskList, gbcTasksTaskList);
 
 		tasksTaskList.addListSelectionListener(l -> {
-			int taskIndex = tasksTaskList.getSelectedIndex();
-			boolean isTaskSelected = taskIndex != -1;
-			btnDeleteTask.setEnabled(isTaskSelected);
+			// Rows of lazy lists whose page is not loaded yet hold no task
+			TaskViewModel selectedTask = tasksTaskList.getSelectedValue();
+			boolean isTaskSelected = selectedTask != null;
+			btnDeleteTask.setEnabled(!inFlight && isTaskSelected);
 			tagsComboBox.setEnabled(isTaskSelected);
-			btnAssignTag.setEnabled(isTaskSelected);
+			btnAssignTag.setEnabled(!inFlight && isTaskSelected);
 
 			// Prevent multiple firings
 			if (!l.getValueIsAdjusting()) {
 				if (isTaskSelected)
-					todoController.getTagsByTask(taskListModel.get(taskIndex).task);
+					todoController.getTagsByTask(selectedTask.task);
 				else
 					assignedTagsListModel.clear();
 			}
@@ -465,7 +713,7 @@ public class TodoSwingView extends JFrame implements TodoView {
 		panel.add(btnDeleteTask, gbcBtnDeleteTask);
 
 		btnDeleteTask.addActionListener(l -> {
-			Task task = taskListModel.get(tasksTaskList.getSelectedIndex()).task;
+			Task task = tasksTaskList.getSelectedValue().task;
 			todoController.deleteTask(task);
 		});
 	}
@@ -514,7 +762,7 @@ public class TodoSwingView extends JFrame implements TodoView {
 		panel.add(btnAssignTag, gbcBtnAssignTag);
 
 		btnAssignTag.addActionListener(l -> {
-			Task task = taskListModel.get(tasksTaskList.getSelectedIndex()).task;
+			Task task = tasksTaskList.getSelectedValue().task;
 			Tag tag = tagComboModel.getElementAt(tagsComboBox.getSelectedIndex()).tag;
 			todoController.addTagToTask(task, tag);
 		});
@@ -533,7 +781,7 @@ public class TodoSwingView extends JFrame implements TodoView {
 		panel.add(assignedTagsList, gbcAssignedTagsList);
 
 		assignedTagsList.addListSelectionListener(
-				l -> btnRemoveTag.setEnabled(assignedTagsList.getSelectedIndex() != -1)
+				l -> btnRemoveTag.setEnabled(!inFlight && assignedTagsList.getSelectedIndex() != -1)
 				);
 	}
 
@@ -548,7 +796,7 @@ public class TodoSwingView extends JFrame implements TodoView {
 		panel.add(btnRemoveTag, gbcBtnRemoveTag);
 
 		btnRemoveTag.addActionListener(l -> {
-			Task task = taskListModel.get(tasksTaskList.getSelectedIndex()).task;
+			Task task = tasksTaskList.getSelectedValue().task;
 			Tag tag = assignedTagsListModel.get(assignedTagsList.getSelectedIndex()).tag;
 			todoController.removeTagFromTask(task, tag);
 		});
@@ -641,8 +889,8 @@ public class TodoSwingView extends JFrame implements TodoView {
 		KeyAdapter btnAddTagEnabler = new KeyAdapter() {
 			@Override
 			public void keyReleased(KeyEvent e) {
-				btnAddTag.setEnabled(
-						!tagIdTextField.getText().trim().isEmpty()
+				btnAddTag.setEnabled(!inFlight
+						&& !tagIdTextField.getText().trim().isEmpty()
 						&& !tagNameTextField.getText().trim().isEmpty());
 			}
 		};
@@ -694,14 +942,15 @@ public class TodoSwingView extends JFrame implements TodoView {
 		panel.add(tagsTagList, gbcTagsTagList);
 
 		tagsTagList.addListSelectionListener(l -> {
-			int tagIndex = tagsTagList.getSelectedIndex();
-			boolean isTagSelected = tagIndex != -1;
-			btnDeleteTag.setEnabled(isTagSelected);
+			// Rows of lazy lists whose page is not loaded yet hold no tag
+			TagViewModel selectedTag = tagsTagList.getSelectedValue();
+			boolean isTagSelected = selectedTag != null;
+			btnDeleteTag.setEnabled(!inFlight && isTagSelected);
 
 			// Prevent multiple firings
 			if (!l.getValueIsAdjusting()) {
 				if (isTagSelected)
-					todoController.getTasksByTag(tagListModel.get(tagIndex).tag);
+					todoController.getTasksByTag(selectedTag.tag);
 				else
 					assignedTasksListModel.clear();
 			}
@@ -719,7 +968,7 @@ public class TodoSwingView extends JFrame implements TodoView {
 		panel.add(btnDeleteTag, gbcBtnDeleteTag);
 
 		btnDeleteTag.addActionListener(l -> {
-			Tag tag = tagListModel.get(tagsTagList.getSelectedIndex()).tag;
+			Tag tag = tagsTagList.getSelectedValue().tag;
 			todoController.deleteTag(tag);
 		});
 	}
@@ -767,7 +1016,7 @@ public class TodoSwingView extends JFrame implements TodoView {
 		panel.add(assignedTasksList, gbcAssignedTaskList);
 
 		assignedTasksList.addListSelectionListener(
-				l -> btnRemoveTask.setEnabled(assignedTasksList.getSelectedIndex() != -1)
+				l -> btnRemoveTask.setEnabled(!inFlight && assignedTasksList.getSelectedIndex() != -1)
 				);
 	}
 
@@ -783,7 +1032,7 @@ public class TodoSwingView extends JFrame implements TodoView {
 		panel.add(btnRemoveTask, gbcBtnRemoveTask);
 
 		btnRemoveTask.addActionListener(l -> {
-			Tag tag = tagListModel.get(tagsTagList.getSelectedIndex()).tag;
+			Tag tag = tagsTagList.getSelectedValue().tag;
 			Task task = assignedTasksListModel.get(assignedTasksList.getSelectedIndex()).task;
 			todoController.removeTaskFromTag(tag, task);
 		});
@@ -0,0 +1,295 @@
+package it.unifi.simpletodoapp.controller;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import it.unifi.simpletodoapp.model.Tag;
+import it.unifi.simpletodoapp.model.Task;
+import it.unifi.simpletodoapp.repository.TagRepositoryException;
+import it.unifi.simpletodoapp.service.TodoService;
+import it.unifi.simpletodoapp.view.TodoView;
+
+public class TodoControllerAsyncTest {
+	@Mock
+	private TodoView todoView;
+
+	@Mock
+	private TodoService todoService;
+
+	@InjectMocks
+	private TodoController todoController;
+
+	private List<Runnable> serviceTasks;
+	private List<Runnable> viewTasks;
+
+	@Before
+	public void setUp() {
+		/* Both executors queue their tasks, so that tests decide when the
+		 * service is called and when its results reach the view */
+		MockitoAnnotations.initMocks(this);
+		serviceTasks = new ArrayList<>();
+		viewTasks = new ArrayList<>();
+		todoController.useAsynchronousMode(serviceTasks::add, viewTasks::add);
+	}
+
+	@Test
+	public void testServiceIsCalledOnlyByTheServiceExecutor() {
+		// Setup phase
+		Task task = new Task("1", "Buy groceries");
+
+		// Exercise phase
+		todoController.addTask(task);
+
+		// Verify phase
+		verifyNoInteractions(todoService);
+		runTasks(serviceTasks);
+		verify(todoService).saveTask(task);
+	}
+
+	@Test
+	public void testViewIsUpdatedOnlyByTheViewExecutor() {
+		// Setup phase
+		Task task = new Task("1", "Buy groceries");
+
+		// Exercise phase
+		todoController.addTask(task);
+		runTasks(serviceTasks);
+
+		// Verify phase
+		verifyNoInteractions(todoView);
+		runTasks(viewTasks);
+		InOrder inOrder = inOrder(todoView);
+		inOrder.verify(todoView).showInFlight(true);
+		inOrder.verify(todoView).taskAdded(task);
+		inOrder.verify(todoView).showInFlight(false);
+		inOrder.verifyNoMoreInteractions();
+	}
+
+	@Test
+	public void testInFlightStateCoversAllConcurrentUpdates() {
+		// Setup phase
+		Task task = new Task("1", "Buy groceries");
+		Tag tag = new Tag("1", "Work");
+
+		// Exercise phase
+		todoController.addTask(task);
+		todoController.addTag(tag);
+		runTasks(serviceTasks);
+		runTasks(viewTasks);
+
+		// Verify phase
+		InOrder inOrder = inOrder(todoView);
+		inOrder.verify(todoView).showInFlight(true);
+		inOrder.verify(todoView).taskAdded(task);
+		inOrder.verify(todoView).tagAdded(tag);
+		inOrder.verify(todoView).showInFlight(false);
+		inOrder.verifyNoMoreInteractions();
+	}
+
+	@Test
+	public void testReadsDoNotShowInFlightState() {
+		// Exercise phase
+		todoController.getAllTasks();
+		runTasks(serviceTasks);
+		runTasks(viewTasks);
+
+		// Verify phase
+		verify(todoView).showAllTasks(Collections.emptyList());
+		verify(todoView, never()).showInFlight(any(Boolean.class));
+	}
+
+	@Test
+	public void testStaleReadResultIsDropped() {
+		// Setup phase
+		Task firstTask = new Task("1", "Buy groceries");
+		Task secondTask = new Task("2", "Start using TDD");
+		Tag firstTag = new Tag("1", "Work");
+		Tag secondTag = new Tag("2", "Home");
+		when(todoService.findTagsByTaskId("1")).thenReturn(Collections.singletonList("1"));
+		when(todoService.findTagsByTaskId("2")).thenReturn(Collections.singletonList("2"));
+		when(todoService.findTagsByIds(Collections.singletonList("1")))
+		.thenReturn(Collections.singletonList(firstTag));
+		when(todoService.findTagsByIds(Collections.singletonList("2")))
+		.thenReturn(Collections.singletonList(secondTag));
+
+		// Exercise phase
+		todoController.getTagsByTask(firstTask);
+		todoController.getTagsByTask(secondTask);
+		runTasks(serviceTasks);
+		runTasks(viewTasks);
+
+		// Verify phase
+		verify(todoView, never()).showTaskTags(Collections.singletonList(firstTag));
+		verify(todoView).showTaskTags(Collections.singletonList(secondTag));
+	}
+
+	@Test
+	public void testReadsOfDifferentKindsAreNotStale() {
+		// Setup phase
+		Task task = new Task("1", "Buy groceries");
+		Tag tag = new Tag("1", "Work");
+		when(todoService.getAllTasks()).thenReturn(Collections.singletonList(task));
+		when(todoService.getAllTags()).thenReturn(Collections.singletonList(tag));
+
+		// Exercise phase
+		todoController.getAllTasks();
+		todoController.getAllTags();
+		runTasks(serviceTasks);
+		runTasks(viewTasks);
+
+		// Verify phase
+		verify(todoView).showAllTasks(Collections.singletonList(task));
+		verify(todoView).showAllTags(Collections.singletonList(tag));
+	}
+
+	@Test
+	public void testUpdatesAreNeverDropped() {
+		// Setup phase
+		Task firstTask = new Task("1", "Buy groceries");
+		Task secondTask = new Task("2", "Start using TDD");
+
+		// Exercise phase
+		todoController.addTask(firstTask);
+		todoController.deleteTask(secondTask);
+		runTasks(serviceTasks);
+		runTasks(viewTasks);
+
+		// Verify phase
+		verify(todoView).taskAdded(firstTask);
+		verify(todoView).taskDeleted(secondTask);
+	}
+
+	@Test
+	public void testRepositoryErrorIsShownInTheView() {
+		// Setup phase
+		Tag tag = new Tag("1", "Work");
+		doThrow(new TagRepositoryException("Cannot add tag with duplicated ID 1"))
+		.when(todoService).saveTag(tag);
+
+		// Exercise phase
+		todoController.addTag(tag);
+		runTasks(serviceTasks);
+		runTasks(viewTasks);
+
+		// Verify phase
+		verify(todoView).tagError("Cannot add tag with duplicated ID 1");
+		verify(todoView, never()).tagAdded(tag);
+	}
+
+	@Test
+	public void testUnexpectedServiceFailureIsShownInTheTabOfTheRequest() {
+		// Setup phase
+		Task task = new Task("1", "Buy groceries");
+		Tag tag = new Tag("1", "Work");
+		doThrow(new RuntimeException("Task transaction failed, aborting"))
+		.when(todoService).deleteTask(task);
+		when(todoService.findTasksByTagId("1"))
+		.thenThrow(new RuntimeException("Tag read failed, aborting"));
+
+		// Exercise phase
+		todoController.deleteTask(task);
+		todoController.getTasksByTag(tag);
+		runTasks(serviceTasks);
+		runTasks(viewTasks);
+
+		// Verify phase
+		verify(todoView).taskError("Task transaction failed, aborting");
+		verify(todoView).tagError("Tag read failed, aborting");
+		verify(todoView).showInFlight(false);
+	}
+
+	@Test
+	public void testRejectedRequestIsShownAsError() {
+		// Setup phase
+		todoController.useAsynchronousMode(runnable -> {
+			throw new RejectedExecutionException();
+		}, viewTasks::add);
+		Task task = new Task("1", "Buy groceries");
+		Tag tag = new Tag("1", "Work");
+
+		// Exercise phase
+		todoController.addTagToTask(task, tag);
+		todoController.getAllTags();
+		runTasks(viewTasks);
+
+		// Verify phase
+		verifyNoInteractions(todoService);
+		InOrder inOrder = inOrder(todoView);
+		inOrder.verify(todoView).showInFlight(true);
+		inOrder.verify(todoView).taskError(TodoController.TOO_MANY_REQUESTS_MESSAGE);
+		inOrder.verify(todoView).showInFlight(false);
+		inOrder.verify(todoView).tagError(TodoController.TOO_MANY_REQUESTS_MESSAGE);
+		inOrder.verifyNoMoreInteractions();
+	}
+
+	@Test
+	public void testAllUpdatesReachTheViewAfterInterleavedReads() {
+		// Setup phase
+		Task task = new Task("1", "Buy groceries");
+		when(todoService.getAllTasks()).thenReturn(Arrays.asList(task));
+
+		// Exercise phase
+		todoController.getAllTasks();
+		todoController.addTask(task);
+		todoController.getAllTasks();
+		runTasks(serviceTasks);
+		runTasks(viewTasks);
+
+		// Verify phase
+		verify(todoService, times(2)).getAllTasks();
+		verify(todoView, times(1)).showAllTasks(Arrays.asList(task));
+		verify(todoView).taskAdded(task);
+	}
+
+	@Test
+	public void testReadStartedBeforeACompletedUpdateIsSentAgain() {
+		// Setup phase
+		Task task = new Task("1", "Buy groceries");
+		Tag tag = new Tag("1", "Work");
+		when(todoService.findTasksByTagId("1"))
+		.thenReturn(Collections.singletonList("1"))
+		.thenReturn(Collections.emptyList());
+		when(todoService.findTasksByIds(Collections.singletonList("1")))
+		.thenReturn(Collections.singletonList(task));
+
+		// Exercise phase: the read runs first, but its result arrives after the update
+		todoController.getTasksByTag(tag);
+		todoController.removeTaskFromTag(tag, task);
+		runTasks(serviceTasks);
+		runTasks(viewTasks);
+		runTasks(serviceTasks);
+		runTasks(viewTasks);
+
+		// Verify phase
+		InOrder inOrder = inOrder(todoView);
+		inOrder.verify(todoView).taskRemovedFromTag(task);
+		inOrder.verify(todoView).showTagTasks(Collections.emptyList());
+		verify(todoView, never()).showTagTasks(Collections.singletonList(task));
+	}
+
+	private void runTasks(List<Runnable> tasks) {
+		// Private method to run the queued tasks, including the ones they queue
+		while (!tasks.isEmpty()) {
+			tasks.remove(0).run();
+		}
+	}
+}
@@ -1,9 +1,12 @@
 package it.unifi.simpletodoapp.controller;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import java.util.Collections;
@@ -15,6 +18,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import it.unifi.simpletodoapp.model.Page;
 import it.unifi.simpletodoapp.model.Tag;
 import it.unifi.simpletodoapp.model.Task;
 import it.unifi.simpletodoapp.repository.TagRepositoryException;
@@ -378,8 +382,8 @@ public class TodoControllerTest {
 		Task task = new Task("1", "Start using TDD");
 		when(todoService.findTagsByTaskId(task.getId()))
 		.thenReturn(Collections.singletonList("1"));
-		when(todoService.findTagById("1"))
-		.thenReturn(new Tag("1", "Work"));
+		when(todoService.findTagsByIds(Collections.singletonList("1")))
+		.thenReturn(Collections.singletonList(new Tag("1", "Work")));
 
 		// Exercise phase
 		todoController.getTagsByTask(task);
@@ -387,6 +391,7 @@ public class TodoControllerTest {
 		// Verify phase
 		InOrder inOrder = inOrder(todoService, todoView);
 		inOrder.verify(todoService).findTagsByTaskId(task.getId());
+		inOrder.verify(todoService).findTagsByIds(Collections.singletonList("1"));
 		inOrder.verify(todoView).showTaskTags(Collections.singletonList(new Tag("1", "Work")));
 		inOrder.verifyNoMoreInteractions();
 	}
@@ -416,8 +421,8 @@ public class TodoControllerTest {
 		Tag tag = new Tag("1", "Work");
 		when(todoService.findTasksByTagId(tag.getId()))
 		.thenReturn(Collections.singletonList("1"));
-		when(todoService.findTaskById("1"))
-		.thenReturn(new Task("1", "Start using TDD"));
+		when(todoService.findTasksByIds(Collections.singletonList("1")))
+		.thenReturn(Collections.singletonList(new Task("1", "Start using TDD")));
 
 		// Exercise phase
 		todoController.getTasksByTag(tag);
@@ -425,6 +430,7 @@ public class TodoControllerTest {
 		// Verify phase
 		InOrder inOrder = inOrder(todoService, todoView);
 		inOrder.verify(todoService).findTasksByTagId(tag.getId());
+		inOrder.verify(todoService).findTasksByIds(Collections.singletonList("1"));
 		inOrder.verify(todoView).showTagTasks(
 				Collections.singletonList(new Task("1", "Start using TDD"))
 				);
@@ -449,4 +455,183 @@ public class TodoControllerTest {
 		inOrder.verify(todoView).tagError("No tag with ID " + tag.getId());
 		inOrder.verifyNoMoreInteractions();
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testCountTasks() {
+		// Setup phase
+		when(todoService.countTasks())
+		.thenReturn(2L);
+
+		// Exercise and verify phases: the view is not involved
+		assertThat(todoController.countTasks())
+		.isEqualTo(2L);
+		verifyNoInteractions(todoView);
+	}
+
+	@Test
+	public void testGetTasksPage() {
+		// Setup phase
+		Page<Task> page = new Page<>(Collections.singletonList(new Task("1", "Start using TDD")), "1");
+		when(todoService.getTasksPage(null, 1))
+		.thenReturn(page);
+
+		// Exercise and verify phases: the view is not involved
+		assertThat(todoController.getTasksPage(null, 1))
+		.isEqualTo(page);
+		verifyNoInteractions(todoView);
+	}
+
+	@Test
+	public void testGetTasksPageAt() {
+		// Setup phase
+		Page<Task> page = new Page<>(Collections.singletonList(new Task("2", "Buy groceries")), null);
+		when(todoService.getTasksPageAt(1, 1))
+		.thenReturn(page);
+
+		// Exercise and verify phases: the view is not involved
+		assertThat(todoController.getTasksPageAt(1, 1))
+		.isEqualTo(page);
+		verifyNoInteractions(todoView);
+	}
+
+	@Test
+	public void testCountTags() {
+		// Setup phase
+		when(todoService.countTags())
+		.thenReturn(3L);
+
+		// Exercise and verify phases: the view is not involved
+		assertThat(todoController.countTags())
+		.isEqualTo(3L);
+		verifyNoInteractions(todoView);
+	}
+
+	@Test
+	public void testGetTagsPage() {
+		// Setup phase
+		Page<Tag> page = new Page<>(Collections.singletonList(new Tag("1", "Work")), null);
+		when(todoService.getTagsPage("0", 1))
+		.thenReturn(page);
+
+		// Exercise and verify phases: the view is not involved
+		assertThat(todoController.getTagsPage("0", 1))
+		.isEqualTo(page);
+		verifyNoInteractions(todoView);
+	}
+
+	@Test
+	public void testTaskAddedByAnyClientIsShown() {
+		// Setup phase
+		Task task = new Task("1", "Buy groceries");
+
+		// Exercise phase
+		todoController.taskAdded(task);
+
+		// Verify phase
+		verify(todoView).taskAdded(task);
+		verifyNoInteractions(todoService);
+	}
+
+	@Test
+	public void testTaskDeletedByAnyClientIsRemoved() {
+		// Setup phase
+		Task task = new Task("1", "Buy groceries");
+
+		// Exercise phase
+		todoController.taskDeleted(task);
+
+		// Verify phase
+		verify(todoView).taskDeleted(task);
+		verifyNoInteractions(todoService);
+	}
+
+	@Test
+	public void testTagAddedByAnyClientIsShown() {
+		// Setup phase
+		Tag tag = new Tag("1", "Work");
+
+		// Exercise phase
+		todoController.tagAdded(tag);
+
+		// Verify phase
+		verify(todoView).tagAdded(tag);
+		verifyNoInteractions(todoService);
+	}
+
+	@Test
+	public void testTagDeletedByAnyClientIsRemoved() {
+		// Setup phase
+		Tag tag = new Tag("1", "Work");
+
+		// Exercise phase
+		todoController.tagDeleted(tag);
+
+		// Verify phase
+		verify(todoView).tagDeleted(tag);
+		verifyNoInteractions(todoService);
+	}
+
+	@Test
+	public void testTaskChangedByAnyClientIsShown() {
+		// Setup phase
+		Task task = new Task("1", "Buy groceries");
+
+		// Exercise phase
+		todoController.taskChanged(task);
+
+		// Verify phase
+		verify(todoView).taskChanged(task);
+		verifyNoInteractions(todoService);
+	}
+
+	@Test
+	public void testTagChangedByAnyClientIsShown() {
+		// Setup phase
+		Tag tag = new Tag("1", "Work");
+
+		// Exercise phase
+		todoController.tagChanged(tag);
+
+		// Verify phase
+		verify(todoView).tagChanged(tag);
+		verifyNoInteractions(todoService);
+	}
+
+	@Test
+	public void testTagAssignedByAnyClientIsShown() {
+		// Setup phase
+		Task task = new Task("1", "Buy groceries");
+		Tag tag = new Tag("1", "Work");
+
+		// Exercise phase
+		todoController.tagAssigned(task, tag);
+
+		// Verify phase
+		verify(todoView).tagAssigned(task, tag);
+		verifyNoInteractions(todoService);
+	}
+
+	@Test
+	public void testTagUnassignedByAnyClientIsRemoved() {
+		// Setup phase
+		Task task = new Task("1", "Buy groceries");
+		Tag tag = new Tag("1", "Work");
+
+		// Exercise phase
+		todoController.tagUnassigned(task, tag);
+
+		// Verify phase
+		verify(todoView).tagUnassigned(task, tag);
+		verifyNoInteractions(todoService);
+	}
+
+	@Test
+	public void testLostChangesAreForwardedToTheView() {
+		// Exercise phase
+		todoController.changesLost();
+
+		// Verify phase: the view decides which lists to read again
+		verify(todoView).changesLost();
+		verifyNoInteractions(todoService);
+	}
+}
@@ -0,0 +1,253 @@
+package it.unifi.simpletodoapp.view.swing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+
+public class IndexedListModelTest {
+	private IndexedListModel<String> indexedListModel;
+	private ListDataListener listener;
+
+	@Before
+	public void setup() {
+		// Elements are strings whose ID is their first character
+		indexedListModel = new IndexedListModel<>(element -> element.substring(0, 1));
+		listener = mock(ListDataListener.class);
+	}
+
+	@Test
+	public void testAddAppendsElementAndFiresIntervalAdded() {
+		// Setup phase
+		indexedListModel.add("1 - Buy groceries");
+		indexedListModel.addListDataListener(listener);
+
+		// Exercise phase
+		indexedListModel.add("2 - Start using TDD");
+
+		// Verify phase
+		assertThat(contents())
+		.containsExactly("1 - Buy groceries", "2 - Start using TDD");
+		ArgumentCaptor<ListDataEvent> eventCaptor = ArgumentCaptor.forClass(ListDataEvent.class);
+		InOrder inOrder = inOrder(listener);
+		inOrder.verify(listener).intervalAdded(eventCaptor.capture());
+		inOrder.verifyNoMoreInteractions();
+		assertInterval(eventCaptor.getValue(), 1, 1);
+	}
+
+	@Test
+	public void testAddWithIdAlreadyPresentReplacesElementInPlace() {
+		// Setup phase
+		indexedListModel.replaceAll(Arrays.asList("1 - First", "2 - Second"));
+		indexedListModel.addListDataListener(listener);
+
+		// Exercise phase
+		indexedListModel.add("1 - First again");
+
+		// Verify phase
+		assertThat(contents())
+		.containsExactly("1 - First again", "2 - Second");
+		ArgumentCaptor<ListDataEvent> eventCaptor = ArgumentCaptor.forClass(ListDataEvent.class);
+		InOrder inOrder = inOrder(listener);
+		inOrder.verify(listener).contentsChanged(eventCaptor.capture());
+		inOrder.verifyNoMoreInteractions();
+		assertInterval(eventCaptor.getValue(), 0, 0);
+	}
+
+	@Test
+	public void testReplaceChangesElementInPlace() {
+		// Setup phase
+		indexedListModel.replaceAll(Arrays.asList("1 - First", "2 - Second"));
+		indexedListModel.addListDataListener(listener);
+
+		// Exercise phase
+		indexedListModel.replace("2 - Second again");
+
+		// Verify phase
+		assertThat(contents())
+		.containsExactly("1 - First", "2 - Second again");
+		ArgumentCaptor<ListDataEvent> eventCaptor = ArgumentCaptor.forClass(ListDataEvent.class);
+		InOrder inOrder = inOrder(listener);
+		inOrder.verify(listener).contentsChanged(eventCaptor.capture());
+		inOrder.verifyNoMoreInteractions();
+		assertInterval(eventCaptor.getValue(), 1, 1);
+	}
+
+	@Test
+	public void testReplaceOfMissingElementDoesNothing() {
+		// Setup phase
+		indexedListModel.add("1 - First");
+		indexedListModel.addListDataListener(listener);
+
+		// Exercise phase
+		indexedListModel.replace("2 - Second");
+
+		// Verify phase
+		assertThat(contents())
+		.containsExactly("1 - First");
+		verifyNoInteractions(listener);
+	}
+
+	@Test
+	public void testRemoveByIdRemovesElementAndFiresIntervalRemoved() {
+		// Setup phase
+		indexedListModel.replaceAll(Arrays.asList("1 - First", "2 - Second", "3 - Third"));
+		indexedListModel.addListDataListener(listener);
+
+		// Exercise phase
+		indexedListModel.removeById("2");
+
+		// Verify phase
+		assertThat(contents())
+		.containsExactly("1 - First", "3 - Third");
+		ArgumentCaptor<ListDataEvent> eventCaptor = ArgumentCaptor.forClass(ListDataEvent.class);
+		InOrder inOrder = inOrder(listener);
+		inOrder.verify(listener).intervalRemoved(eventCaptor.capture());
+		inOrder.verifyNoMoreInteractions();
+		assertInterval(eventCaptor.getValue(), 1, 1);
+	}
+
+	@Test
+	public void testRemoveByIdKeepsIndexesOfFollowingElements() {
+		// Setup phase
+		indexedListModel.replaceAll(Arrays.asList("1 - First", "2 - Second", "3 - Third"));
+
+		// Exercise phase
+		indexedListModel.removeById("1");
+		indexedListModel.removeById("3");
+
+		// Verify phase
+		assertThat(contents())
+		.containsExactly("2 - Second");
+	}
+
+	@Test
+	public void testRemoveByIdOfMissingElementDoesNothing() {
+		// Setup phase
+		indexedListModel.add("1 - First");
+		indexedListModel.addListDataListener(listener);
+
+		// Exercise phase
+		indexedListModel.removeById("2");
+
+		// Verify phase
+		assertThat(contents())
+		.containsExactly("1 - First");
+		verifyNoInteractions(listener);
+	}
+
+	@Test
+	public void testReplaceAllFiresOneRemovalAndOneAddition() {
+		// Setup phase
+		indexedListModel.replaceAll(Arrays.asList("1 - First", "2 - Second"));
+		indexedListModel.addListDataListener(listener);
+
+		// Exercise phase
+		indexedListModel.replaceAll(Arrays.asList("3 - Third", "4 - Fourth", "5 - Fifth"));
+
+		// Verify phase
+		assertThat(contents())
+		.containsExactly("3 - Third", "4 - Fourth", "5 - Fifth");
+		ArgumentCaptor<ListDataEvent> removedCaptor = ArgumentCaptor.forClass(ListDataEvent.class);
+		ArgumentCaptor<ListDataEvent> addedCaptor = ArgumentCaptor.forClass(ListDataEvent.class);
+		InOrder inOrder = inOrder(listener);
+		inOrder.verify(listener).intervalRemoved(removedCaptor.capture());
+		inOrder.verify(listener).intervalAdded(addedCaptor.capture());
+		inOrder.verifyNoMoreInteractions();
+		assertInterval(removedCaptor.getValue(), 0, 1);
+		assertInterval(addedCaptor.getValue(), 0, 2);
+	}
+
+	@Test
+	public void testReplaceAllRebuildsTheIndex() {
+		// Setup phase
+		indexedListModel.replaceAll(Arrays.asList("1 - First", "2 - Second"));
+		indexedListModel.replaceAll(Arrays.asList("2 - Second", "3 - Third"));
+
+		// Exercise phase
+		indexedListModel.removeById("1");
+		indexedListModel.removeById("3");
+
+		// Verify phase
+		assertThat(contents())
+		.containsExactly("2 - Second");
+	}
+
+	@Test
+	public void testReplaceAllOfEmptyModelWithNoElementsFiresNothing() {
+		// Setup phase
+		indexedListModel.addListDataListener(listener);
+
+		// Exercise phase
+		indexedListModel.replaceAll(Collections.emptyList());
+
+		// Verify phase
+		verifyNoInteractions(listener);
+	}
+
+	@Test
+	public void testClearRemovesAllElements() {
+		// Setup phase
+		indexedListModel.replaceAll(Arrays.asList("1 - First", "2 - Second"));
+		indexedListModel.addListDataListener(listener);
+
+		// Exercise phase
+		indexedListModel.clear();
+		indexedListModel.removeById("1");
+
+		// Verify phase
+		assertThat(indexedListModel.getSize())
+		.isZero();
+		ArgumentCaptor<ListDataEvent> eventCaptor = ArgumentCaptor.forClass(ListDataEvent.class);
+		InOrder inOrder = inOrder(listener);
+		inOrder.verify(listener).intervalRemoved(eventCaptor.capture());
+		inOrder.verifyNoMoreInteractions();
+		assertInterval(eventCaptor.getValue(), 0, 1);
+	}
+
+	@Test
+	public void testClearOfEmptyModelFiresNothing() {
+		// Setup phase
+		indexedListModel.addListDataListener(listener);
+
+		// Exercise phase
+		indexedListModel.clear();
+
+		// Verify phase
+		verifyNoInteractions(listener);
+	}
+
+	private List<String> contents() {
+		// Private method to read all the elements through the ListModel interface
+		List<String> contents = new ArrayList<>();
+
+		for (int i = 0; i < indexedListModel.getSize(); i++) {
+			assertThat(indexedListModel.get(i))
+			.isEqualTo(indexedListModel.getElementAt(i));
+			contents.add(indexedListModel.getElementAt(i));
+		}
+
+		return contents;
+	}
+
+	private void assertInterval(ListDataEvent event, int index0, int index1) {
+		// Private method to verify the rows an event refers to
+		assertThat(event.getIndex0())
+		.isEqualTo(index0);
+		assertThat(event.getIndex1())
+		.isEqualTo(index1);
+	}
+}
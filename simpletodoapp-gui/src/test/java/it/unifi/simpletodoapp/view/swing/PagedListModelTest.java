@@ -0,0 +1,438 @@
+package it.unifi.simpletodoapp.view.swing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import it.unifi.simpletodoapp.model.Page;
+import it.unifi.simpletodoapp.view.swing.PagedListModel.PageSource;
+
+public class PagedListModelTest {
+	private static final int PAGE_SIZE = 2;
+	private static final int MAX_CACHED_PAGES = 2;
+
+	@Mock
+	private PageSource<String> pageSource;
+
+	private List<Runnable> uiTasks;
+	private List<String> errors;
+	private PagedListModel<String> pagedListModel;
+
+	@Before
+	public void setup() {
+		/* Loads are run directly, while their results are queued as if posted
+		 * to the Event Dispatch Thread, so that tests decide when to apply them */
+		MockitoAnnotations.initMocks(this);
+		uiTasks = new ArrayList<>();
+		errors = new ArrayList<>();
+		pagedListModel = new PagedListModel<>(pageSource, PagedListModelTest::idOf, PAGE_SIZE, MAX_CACHED_PAGES,
+				errors::add, Runnable::run, uiTasks::add);
+	}
+
+	@Test
+	public void testModelIsEmptyBeforeRefresh() {
+		// Verify phase
+		assertThat(pagedListModel.getSize())
+		.isZero();
+	}
+
+	@Test
+	public void testRefreshSetsSizeToCountAndNotifiesListeners() {
+		// Setup phase
+		ListDataListener listener = mock(ListDataListener.class);
+		pagedListModel.addListDataListener(listener);
+		when(pageSource.count()).thenReturn(5L);
+
+		// Exercise phase
+		pagedListModel.refresh();
+		runUiTasks();
+
+		// Verify phase
+		assertThat(pagedListModel.getSize())
+		.isEqualTo(5);
+		ArgumentCaptor<ListDataEvent> eventCaptor = ArgumentCaptor.forClass(ListDataEvent.class);
+		verify(listener).intervalAdded(eventCaptor.capture());
+		assertThat(eventCaptor.getValue().getIndex0())
+		.isZero();
+		assertThat(eventCaptor.getValue().getIndex1())
+		.isEqualTo(4);
+		verify(pageSource, never()).loadPage(isNull(), anyInt());
+	}
+
+	@Test
+	public void testRowOfNotLoadedPageIsNullUntilThePageIsLoaded() {
+		// Setup phase
+		when(pageSource.count()).thenReturn(3L);
+		when(pageSource.loadPage(null, PAGE_SIZE))
+		.thenReturn(new Page<>(Arrays.asList("1", "2"), "2"));
+		refreshModel();
+
+		// Exercise phase
+		String placeholder = pagedListModel.getElementAt(1);
+		runUiTasks();
+
+		// Verify phase
+		assertThat(placeholder)
+		.isNull();
+		assertThat(pagedListModel.getElementAt(0))
+		.isEqualTo("1");
+		assertThat(pagedListModel.getElementAt(1))
+		.isEqualTo("2");
+		verify(pageSource, times(1)).loadPage(null, PAGE_SIZE);
+	}
+
+	@Test
+	public void testPageIsLoadedOnceWhileItsLoadIsPending() {
+		// Setup phase
+		when(pageSource.count()).thenReturn(2L);
+		when(pageSource.loadPage(null, PAGE_SIZE))
+		.thenReturn(new Page<>(Arrays.asList("1", "2"), null));
+		refreshModel();
+
+		// Exercise phase
+		pagedListModel.getElementAt(0);
+		pagedListModel.getElementAt(1);
+		runUiTasks();
+
+		// Verify phase
+		verify(pageSource, times(1)).loadPage(null, PAGE_SIZE);
+	}
+
+	@Test
+	public void testDistantPageIsLoadedDirectlyAtItsOffset() {
+		// Setup phase
+		when(pageSource.count()).thenReturn(5L);
+		when(pageSource.loadPageAt(4, PAGE_SIZE))
+		.thenReturn(new Page<>(Arrays.asList("5"), null));
+		refreshModel();
+
+		// Exercise phase
+		pagedListModel.getElementAt(4);
+		runUiTasks();
+
+		// Verify phase: the pages before it are not walked through
+		assertThat(pagedListModel.getElementAt(4))
+		.isEqualTo("5");
+		verify(pageSource, never()).loadPage(any(), anyInt());
+	}
+
+	@Test
+	public void testPageFollowingALoadedOneIsLoadedFromItsCursor() {
+		// Setup phase
+		when(pageSource.count()).thenReturn(6L);
+		when(pageSource.loadPageAt(2, PAGE_SIZE))
+		.thenReturn(new Page<>(Arrays.asList("3", "4"), "4"));
+		when(pageSource.loadPage("4", PAGE_SIZE))
+		.thenReturn(new Page<>(Arrays.asList("5", "6"), null));
+		refreshModel();
+		pagedListModel.getElementAt(2);
+		runUiTasks();
+
+		// Exercise phase
+		pagedListModel.getElementAt(4);
+		runUiTasks();
+
+		// Verify phase
+		assertThat(pagedListModel.getElementAt(4))
+		.isEqualTo("5");
+		InOrder inOrder = inOrder(pageSource);
+		inOrder.verify(pageSource).loadPageAt(2, PAGE_SIZE);
+		inOrder.verify(pageSource).loadPage("4", PAGE_SIZE);
+		verify(pageSource, never()).loadPageAt(4, PAGE_SIZE);
+	}
+
+	@Test
+	public void testPagesFarthestFromTheDisplayedOneAreEvicted() {
+		// Setup phase
+		when(pageSource.count()).thenReturn(6L);
+		when(pageSource.loadPage(null, PAGE_SIZE))
+		.thenReturn(new Page<>(Arrays.asList("1", "2"), "2"));
+		when(pageSource.loadPage("2", PAGE_SIZE))
+		.thenReturn(new Page<>(Arrays.asList("3", "4"), "4"));
+		when(pageSource.loadPage("4", PAGE_SIZE))
+		.thenReturn(new Page<>(Arrays.asList("5", "6"), null));
+		refreshModel();
+
+		// Exercise phase
+		for (int i = 0; i < 6; i += PAGE_SIZE) {
+			pagedListModel.getElementAt(i);
+			runUiTasks();
+		}
+
+		// Verify phase: the first page is evicted, but its cursor is kept
+		assertThat(pagedListModel.getCachedPages())
+		.isEqualTo(MAX_CACHED_PAGES);
+		assertThat(pagedListModel.getElementAt(0))
+		.isNull();
+		runUiTasks();
+		assertThat(pagedListModel.getElementAt(0))
+		.isEqualTo("1");
+		verify(pageSource, times(2)).loadPage(null, PAGE_SIZE);
+		verify(pageSource, times(1)).loadPage("2", PAGE_SIZE);
+	}
+
+	@Test
+	public void testPageLoadedBeforeRefreshIsDiscarded() {
+		// Setup phase
+		when(pageSource.count()).thenReturn(2L);
+		when(pageSource.loadPage(null, PAGE_SIZE))
+		.thenReturn(new Page<>(Arrays.asList("1", "2"), null))
+		.thenReturn(new Page<>(Arrays.asList("0", "1"), null));
+		refreshModel();
+		pagedListModel.getElementAt(0);
+
+		// Exercise phase
+		pagedListModel.refresh();
+		runUiTasks();
+
+		// Verify phase
+		assertThat(pagedListModel.getCachedPages())
+		.isZero();
+		assertThat(pagedListModel.getElementAt(0))
+		.isNull();
+		runUiTasks();
+		assertThat(pagedListModel.getElementAt(0))
+		.isEqualTo("0");
+	}
+
+	@Test
+	public void testFailedPageLoadIsRetriedWhenDisplayedAgain() {
+		// Setup phase
+		when(pageSource.count()).thenReturn(2L);
+		when(pageSource.loadPage(null, PAGE_SIZE))
+		.thenThrow(new RuntimeException("Load failed"))
+		.thenReturn(new Page<>(Arrays.asList("1", "2"), null));
+		refreshModel();
+
+		// Exercise phase
+		pagedListModel.getElementAt(0);
+		runUiTasks();
+		pagedListModel.getElementAt(0);
+		runUiTasks();
+
+		// Verify phase
+		assertThat(pagedListModel.getElementAt(0))
+		.isEqualTo("1");
+		verify(pageSource, times(2)).loadPage(null, PAGE_SIZE);
+		assertThat(errors)
+		.containsExactly("Load failed");
+	}
+
+	@Test
+	public void testFailedCountIsReportedAndPendingPagesAreRequestedAgain() {
+		// Setup phase
+		when(pageSource.count())
+		.thenReturn(2L)
+		.thenThrow(new RuntimeException("Count failed"));
+		when(pageSource.loadPage(null, PAGE_SIZE))
+		.thenReturn(new Page<>(Arrays.asList("1", "2"), null));
+		refreshModel();
+		pagedListModel.getElementAt(0);
+
+		// Exercise phase: the page loaded before the failed refresh is discarded
+		pagedListModel.refresh();
+		runUiTasks();
+		pagedListModel.getElementAt(0);
+		runUiTasks();
+
+		// Verify phase
+		assertThat(errors)
+		.containsExactly("Count failed");
+		assertThat(pagedListModel.getSize())
+		.isEqualTo(2);
+		assertThat(pagedListModel.getElementAt(0))
+		.isEqualTo("1");
+		verify(pageSource, times(2)).loadPage(null, PAGE_SIZE);
+	}
+
+	@Test
+	public void testAddedRowIsInsertedIntoTheLoadedPagesWithoutCountingAgain() {
+		// Setup phase
+		loadPages();
+		ListDataListener listener = mock(ListDataListener.class);
+		pagedListModel.addListDataListener(listener);
+
+		// Exercise phase
+		pagedListModel.add("4");
+
+		// Verify phase: the following rows move one row down
+		assertThat(rows())
+		.containsExactly("1", "3", "4", "5");
+		ArgumentCaptor<ListDataEvent> eventCaptor = ArgumentCaptor.forClass(ListDataEvent.class);
+		verify(listener).intervalAdded(eventCaptor.capture());
+		assertThat(eventCaptor.getValue().getIndex0())
+		.isEqualTo(2);
+		verify(pageSource, times(1)).count();
+		assertThat(uiTasks)
+		.isEmpty();
+	}
+
+	@Test
+	public void testRepeatedAddedRowIsOnlyInsertedOnce() {
+		// Setup phase
+		loadPages();
+
+		// Exercise phase
+		pagedListModel.add("4");
+		pagedListModel.add("4");
+
+		// Verify phase
+		assertThat(rows())
+		.containsExactly("1", "3", "4", "5");
+	}
+
+	@Test
+	public void testRemovedRowIsDroppedFromTheLoadedPagesWithoutCountingAgain() {
+		// Setup phase
+		loadPages();
+
+		// Exercise phase: the repeated removal is ignored
+		pagedListModel.removeById("3");
+		pagedListModel.removeById("3");
+
+		// Verify phase: the following rows move one row up
+		assertThat(rows())
+		.containsExactly("1", "5");
+		verify(pageSource, times(1)).count();
+	}
+
+	@Test
+	public void testChangedRowIsReplacedInItsLoadedPage() {
+		// Setup phase
+		loadPages();
+		ListDataListener listener = mock(ListDataListener.class);
+		pagedListModel.addListDataListener(listener);
+
+		// Exercise phase
+		pagedListModel.replace("5 changed");
+
+		// Verify phase
+		assertThat(rows())
+		.containsExactly("1", "3", "5 changed");
+		ArgumentCaptor<ListDataEvent> eventCaptor = ArgumentCaptor.forClass(ListDataEvent.class);
+		verify(listener).contentsChanged(eventCaptor.capture());
+		assertThat(eventCaptor.getValue().getIndex0())
+		.isEqualTo(2);
+		verify(pageSource, times(1)).count();
+	}
+
+	@Test
+	public void testAddedRowBeforeNotLoadedRowsDropsThePagesLeftIncomplete() {
+		// Setup phase
+		when(pageSource.count()).thenReturn(6L);
+		when(pageSource.loadPageAt(4, PAGE_SIZE))
+		.thenReturn(new Page<>(Arrays.asList("5", "6"), null));
+		refreshModel();
+		pagedListModel.getElementAt(4);
+		runUiTasks();
+
+		// Exercise phase
+		pagedListModel.add("0");
+
+		// Verify phase: the position of the new row among the rows not loaded is unknown
+		assertThat(pagedListModel.getSize())
+		.isEqualTo(7);
+		assertThat(pagedListModel.getElementAt(6))
+		.isEqualTo("6");
+		assertThat(pagedListModel.getElementAt(0))
+		.isNull();
+		assertThat(pagedListModel.getElementAt(5))
+		.isNull();
+	}
+
+	@Test
+	public void testChangeWhileRefreshIsPendingCountsAgain() {
+		// Setup phase
+		when(pageSource.count()).thenReturn(2L, 3L);
+		pagedListModel.refresh();
+
+		// Exercise phase
+		pagedListModel.add("3");
+		runUiTasks();
+
+		// Verify phase: the count read before the change is discarded
+		assertThat(pagedListModel.getSize())
+		.isEqualTo(3);
+		verify(pageSource, times(2)).count();
+	}
+
+	@Test
+	public void testNonPositivePageSizeOrCachedPagesAreRejected() {
+		// Verify phase
+		assertThatThrownBy(() -> new PagedListModel<>(pageSource, PagedListModelTest::idOf, 0, MAX_CACHED_PAGES, errors::add,
+				Runnable::run, Runnable::run))
+		.isInstanceOf(IllegalArgumentException.class)
+		.hasMessage("Page size and cached pages must be positive");
+		assertThatThrownBy(() -> new PagedListModel<>(pageSource, PagedListModelTest::idOf, PAGE_SIZE, 0, errors::add,
+				Runnable::run, Runnable::run))
+		.isInstanceOf(IllegalArgumentException.class)
+		.hasMessage("Page size and cached pages must be positive");
+	}
+
+	private void refreshModel() {
+		// Private method to count the rows of the model before each test
+		pagedListModel.refresh();
+		runUiTasks();
+	}
+
+	private void loadPages() {
+		// Private method to load the two pages of a model with rows "1", "3" and "5"
+		when(pageSource.count()).thenReturn(3L);
+		when(pageSource.loadPage(null, PAGE_SIZE))
+		.thenReturn(new Page<>(Arrays.asList("1", "3"), "3"));
+		when(pageSource.loadPage("3", PAGE_SIZE))
+		.thenReturn(new Page<>(Arrays.asList("5"), null));
+		refreshModel();
+
+		for (int i = 0; i < 3; i += PAGE_SIZE) {
+			pagedListModel.getElementAt(i);
+			runUiTasks();
+		}
+	}
+
+	private List<String> rows() {
+		// Private method to read all rows of the model, without loading any page
+		List<String> rows = new ArrayList<>();
+
+		for (int i = 0; i < pagedListModel.getSize(); i++)
+			rows.add(pagedListModel.getElementAt(i));
+
+		assertThat(uiTasks)
+		.isEmpty();
+		return rows;
+	}
+
+	private static String idOf(String row) {
+		// Private method to read the ID of a row, followed by its content if any
+		return row.split(" ")[0];
+	}
+
+	private void runUiTasks() {
+		// Private method to apply the queued results, including the ones they queue
+		while (!uiTasks.isEmpty()) {
+			uiTasks.remove(0).run();
+		}
+	}
+}
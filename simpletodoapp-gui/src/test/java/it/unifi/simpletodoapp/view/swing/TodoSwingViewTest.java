@@ -1,10 +1,19 @@
 package it.unifi.simpletodoapp.view.swing;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
 
 import org.assertj.swing.annotation.GUITest;
 import org.assertj.swing.edt.GuiActionRunner;
@@ -22,6 +31,7 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import it.unifi.simpletodoapp.controller.TodoController;
+import it.unifi.simpletodoapp.model.Page;
 import it.unifi.simpletodoapp.model.Tag;
 import it.unifi.simpletodoapp.model.Task;
 
@@ -907,6 +917,245 @@ public class TodoSwingViewTest extends AssertJSwingJUnitTestCase {
 		.isEqualTo(" ");
 	}
 
+	@Test @GUITest
+	public void testLazyListsAreFilledWithoutLoadingAllTasks() {
+		// Setup phase
+		Task firstTask = new Task("1", "Buy groceries");
+		Task secondTask = new Task("2", "Start using TDD");
+		when(todoController.countTasks()).thenReturn(2L);
+		when(todoController.getTasksPage(null, 10))
+		.thenReturn(new Page<>(Arrays.asList(firstTask, secondTask), null));
+
+		// Exercise phase
+		GuiActionRunner.execute(
+				() -> {
+					todoSwingView.useLazyLists(10, 2, Runnable::run, SwingUtilities::invokeLater);
+					todoSwingView.setTodoController(todoController);
+				});
+
+		// Verify phase
+		await().atMost(5, TimeUnit.SECONDS)
+		.untilAsserted(() -> assertThat(tasksPanel.list("tasksTaskList").contents())
+				.containsExactly("#1 - Buy groceries", "#2 - Start using TDD"));
+		tasksPanel.scrollPane("tasksTaskListScrollPane");
+		verify(todoController, never()).getAllTasks();
+		verify(todoController).getAllTags();
+	}
+
+	@Test @GUITest
+	public void testTaskAddedIsInsertedIntoTheLazyTaskListWithoutCountingAgain() {
+		// Setup phase
+		Task task = new Task("1", "Buy groceries");
+		when(todoController.countTasks()).thenReturn(0L);
+
+		GuiActionRunner.execute(
+				() -> {
+					todoSwingView.useLazyLists(10, 2, Runnable::run, SwingUtilities::invokeLater);
+					todoSwingView.setTodoController(todoController);
+				});
+
+		// Exercise phase
+		GuiActionRunner.execute(
+				() -> todoSwingView.taskAdded(task)
+				);
+
+		// Verify phase
+		await().atMost(5, TimeUnit.SECONDS)
+		.untilAsserted(() -> assertThat(tasksPanel.list("tasksTaskList").contents())
+				.containsExactly("#1 - Buy groceries"));
+		verify(todoController).countTasks();
+		verify(todoController, never()).getTasksPage(any(), anyInt());
+	}
+
+	@Test @GUITest
+	public void testLostChangesOnlyCountTheRowsOfLazyListsAgain() {
+		// Setup phase
+		when(todoController.countTasks()).thenReturn(0L, 1L);
+		when(todoController.countTags()).thenReturn(0L);
+		when(todoController.getTasksPage(null, 10))
+		.thenReturn(new Page<>(Collections.singletonList(new Task("1", "Buy groceries")), null));
+
+		GuiActionRunner.execute(
+				() -> {
+					todoSwingView.useLazyLists(10, 2, Runnable::run, SwingUtilities::invokeLater);
+					todoSwingView.setTodoController(todoController);
+				});
+
+		// Exercise phase
+		GuiActionRunner.execute(
+				() -> todoSwingView.changesLost()
+				);
+
+		// Verify phase
+		await().atMost(5, TimeUnit.SECONDS)
+		.untilAsserted(() -> assertThat(tasksPanel.list("tasksTaskList").contents())
+				.containsExactly("#1 - Buy groceries"));
+		verify(todoController, times(2)).countTags();
+		verify(todoController, never()).getAllTasks();
+		verify(todoController, times(1)).getAllTags();
+	}
+
+	@Test @GUITest
+	public void testLostChangesReloadAllTasksAndTags() {
+		// Setup phase
+		GuiActionRunner.execute(
+				() -> todoSwingView.setTodoController(todoController)
+				);
+
+		// Exercise phase
+		GuiActionRunner.execute(
+				() -> todoSwingView.changesLost()
+				);
+
+		// Verify phase
+		verify(todoController, times(2)).getAllTasks();
+		verify(todoController, times(2)).getAllTags();
+	}
+
+	@Test @GUITest
+	public void testInFlightStateDisablesButtonsUntilCompleted() {
+		// Setup phase
+		Task task = new Task("1", "Buy groceries");
+		GuiActionRunner.execute(
+				() -> todoSwingView.taskAdded(task)
+				);
+		tasksPanel.list("tasksTaskList").clickItem(0);
+		tasksPanel.textBox("taskIdTextField").enterText("2");
+		tasksPanel.textBox("taskDescriptionTextField").enterText("Start using TDD");
+
+		// Exercise and verify phases
+		GuiActionRunner.execute(
+				() -> todoSwingView.showInFlight(true)
+				);
+		tasksPanel.button("btnAddTask").requireDisabled();
+		tasksPanel.button("btnDeleteTask").requireDisabled();
+		tasksPanel.button("btnAssignTag").requireDisabled();
+
+		GuiActionRunner.execute(
+				() -> todoSwingView.showInFlight(false)
+				);
+		tasksPanel.button("btnAddTask").requireEnabled();
+		tasksPanel.button("btnDeleteTask").requireEnabled();
+		tasksPanel.button("btnAssignTag").requireEnabled();
+		tasksPanel.button("btnRemoveTag").requireDisabled();
+	}
+
+	@Test @GUITest
+	public void testSelectingTaskWhileInFlightKeepsDeleteTaskButtonDisabled() {
+		// Setup phase
+		Task task = new Task("1", "Buy groceries");
+		GuiActionRunner.execute(
+				() -> {
+					todoSwingView.taskAdded(task);
+					todoSwingView.showInFlight(true);
+				});
+
+		// Exercise phase
+		tasksPanel.list("tasksTaskList").clickItem(0);
+
+		// Verify phase
+		tasksPanel.button("btnDeleteTask").requireDisabled();
+	}
+
+	@Test @GUITest
+	public void testTagAddedTwiceIsShownOnce() {
+		// Setup phase
+		Tag tag = new Tag("1", "Work");
+
+		// Exercise phase: e.g. notified both by the controller and by the change stream
+		GuiActionRunner.execute(
+				() -> {
+					todoSwingView.tagAdded(tag);
+					todoSwingView.tagAdded(tag);
+				});
+
+		// Verify phase
+		assertThat(tasksPanel.comboBox("tagComboBox").contents())
+		.containsExactly("(1) Work");
+		getTagsPanel();
+		assertThat(tagsPanel.list("tagsTagList").contents())
+		.containsExactly("(1) Work");
+	}
+
+	@Test @GUITest
+	public void testTagAssignedToSelectedTaskIsShownInItsAssignedTags() {
+		// Setup phase
+		Task task = new Task("1", "Buy groceries");
+		Task otherTask = new Task("2", "Start using TDD");
+		GuiActionRunner.execute(
+				() -> todoSwingView.showAllTasks(Arrays.asList(task, otherTask)));
+		tasksPanel.list("tasksTaskList").clickItem(0);
+
+		// Exercise phase
+		GuiActionRunner.execute(
+				() -> {
+					todoSwingView.tagAssigned(task, new Tag("1", "Work"));
+					todoSwingView.tagAssigned(otherTask, new Tag("2", "Home"));
+				});
+
+		// Verify phase
+		assertThat(tasksPanel.list("assignedTagsList").contents())
+		.containsExactly("(1) Work");
+	}
+
+	@Test @GUITest
+	public void testTagUnassignedFromSelectedTagIsRemovedFromItsAssignedTasks() {
+		// Setup phase
+		getTagsPanel();
+		Task task = new Task("1", "Buy groceries");
+		Tag tag = new Tag("1", "Work");
+		GuiActionRunner.execute(
+				() -> todoSwingView.showAllTags(Collections.singletonList(tag)));
+		tagsPanel.list("tagsTagList").clickItem(0);
+		GuiActionRunner.execute(
+				() -> todoSwingView.showTagTasks(Collections.singletonList(task)));
+
+		// Exercise phase
+		GuiActionRunner.execute(
+				() -> todoSwingView.tagUnassigned(task, tag));
+
+		// Verify phase
+		assertThat(tagsPanel.list("assignedTasksList").contents())
+		.isEmpty();
+	}
+
+	@Test @GUITest
+	public void testChangedTaskIsReplacedInPlace() {
+		// Setup phase
+		GuiActionRunner.execute(
+				() -> todoSwingView.showAllTasks(Arrays.asList(
+						new Task("1", "Buy groceries"), new Task("2", "Start using TDD"))));
+
+		// Exercise phase
+		GuiActionRunner.execute(
+				() -> {
+					todoSwingView.taskChanged(new Task("1", "Buy more groceries"));
+					todoSwingView.taskChanged(new Task("3", "Not shown"));
+				});
+
+		// Verify phase
+		assertThat(tasksPanel.list("tasksTaskList").contents())
+		.containsExactly("#1 - Buy more groceries", "#2 - Start using TDD");
+	}
+
+	@Test @GUITest
+	public void testChangedTagIsReplacedInPlace() {
+		// Setup phase
+		GuiActionRunner.execute(
+				() -> todoSwingView.showAllTags(Arrays.asList(new Tag("1", "Work"), new Tag("2", "Home"))));
+
+		// Exercise phase
+		GuiActionRunner.execute(
+				() -> todoSwingView.tagChanged(new Tag("1", "Office")));
+
+		// Verify phase
+		assertThat(tasksPanel.comboBox("tagComboBox").contents())
+		.containsExactly("(1) Office", "(2) Home");
+		getTagsPanel();
+		assertThat(tagsPanel.list("tagsTagList").contents())
+		.containsExactly("(1) Office", "(2) Home");
+	}
+
 	private void getTagsPanel() {
 		JTabbedPaneFixture tabPanel = contentPanel.tabbedPane("tabbedPane");
 		tabPanel.selectTab("Tags");